@@ -1,5 +1,11 @@
 package it.denzosoft.jfx2.audio;
 
+import it.denzosoft.jfx2.jfr.BlockProcessedEvent;
+import it.denzosoft.jfx2.jfr.DeadlineMissedEvent;
+import it.denzosoft.jfx2.jfr.JfrEvents;
+import it.denzosoft.jfx2.jmx.AudioEngineMonitor;
+import it.denzosoft.jfx2.jmx.JmxRegistry;
+
 import javax.sound.sampled.*;
 import java.util.ArrayList;
 import java.util.List;
@@ -14,7 +20,7 @@ import java.util.List;
  * <p>The engine provides:
  * <ul>
  *   <li>Processing thread management</li>
- *   <li>Audio metrics collection</li>
+ *   <li>Audio metrics collection (also published over JMX once started)</li>
  *   <li>Device enumeration for node configuration</li>
  * </ul>
  * </p>
@@ -86,6 +92,7 @@ public class AudioEngine {
         processingThread.setPriority(Thread.MAX_PRIORITY);
         processingThread.start();
 
+        JmxRegistry.register("AudioEngine", new AudioEngineMonitor(this));
         System.out.println("Audio engine started");
     }
 
@@ -118,6 +125,7 @@ public class AudioEngine {
     public void shutdown() {
         stop();
         initialized = false;
+        JmxRegistry.unregister("AudioEngine");
         System.out.println("Audio engine shutdown");
     }
 
@@ -129,14 +137,25 @@ public class AudioEngine {
      * and OutputNodes write to their devices.</p>
      *
      * <p>Timing is controlled by the blocking write in AudioOutputEffect.
-     * No sleep is needed as the SourceDataLine.write() blocks when buffer is full.</p>
+     * No sleep is needed as the SourceDataLine.write() blocks when buffer is full.
+     * The device effects report that blocked time to the metrics, so the
+     * deadline monitor sees the processing time alone.</p>
+     *
+     * <p>When a Flight Recorder recording enables them, every block emits a
+     * BlockProcessed event and every late block a DeadlineMissed event.</p>
      */
     private void processingLoop() {
         // Calculate timing for metrics
         long bufferTimeNanos = (long) ((config.bufferSize() * 1_000_000_000L) / config.sampleRate());
+        metrics.setDeadlineNanos(bufferTimeNanos);
 
         while (running) {
             try {
+                BlockProcessedEvent blockEvent = null;
+                if (JfrEvents.isBlockProcessedEnabled()) {
+                    blockEvent = new BlockProcessedEvent();
+                    blockEvent.begin();
+                }
                 metrics.beginProcessing();
 
                 int frameCount = config.bufferSize();
@@ -156,6 +175,21 @@ public class AudioEngine {
                 metrics.updateCpuLoad(bufferTimeNanos);
                 metrics.updateLevels(inputFloatBuffer, outputFloatBuffer, frameCount);
 
+                // Flight Recorder events (nothing is allocated unless a recording enables them)
+                long processingNanos = metrics.getLastProcessingTimeNanos();
+                if (blockEvent != null) {
+                    blockEvent.frames = frameCount;
+                    blockEvent.processingTime = processingNanos;
+                    blockEvent.commit();
+                }
+                if (processingNanos > bufferTimeNanos && JfrEvents.isDeadlineMissedEnabled()) {
+                    DeadlineMissedEvent missed = new DeadlineMissedEvent();
+                    missed.block = metrics.getProcessedCallbacks();
+                    missed.processingTime = processingNanos;
+                    missed.deadline = bufferTimeNanos;
+                    missed.commit();
+                }
+
             } catch (Exception e) {
                 System.err.println("Error in audio processing: " + e.getMessage());
                 metrics.recordDropout();
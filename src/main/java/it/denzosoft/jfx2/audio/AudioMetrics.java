@@ -1,7 +1,18 @@
 package it.denzosoft.jfx2.audio;
 
+import java.util.concurrent.atomic.AtomicLong;
+
 /**
  * Real-time audio processing metrics.
+ *
+ * <p>Besides the smoothed CPU load, every block feeds a deadline monitor:
+ * the processing time of the block (excluding time spent blocked on the
+ * device lines) and the period since the previous block go into
+ * {@link LatencyHistogram}s, and a block whose processing time exceeds the
+ * buffer duration counts as a deadline overrun. The device line effects
+ * report capture overruns and playback underruns they detect on their
+ * lines. All of this can be reset per session with {@link #resetSession()}
+ * while audio keeps running.</p>
  */
 public class AudioMetrics {
 
@@ -17,6 +28,20 @@ public class AudioMetrics {
     private long lastProcessingTimeNanos;
     private long lastCallbackTimeNanos;
 
+    // Deadline monitor (recorded on the audio thread only)
+    private final LatencyHistogram processingTimes = new LatencyHistogram();
+    private final LatencyHistogram callbackPeriods = new LatencyHistogram();
+    private volatile long deadlineNanos;
+    private volatile long deadlineOverruns;
+    private volatile long sessionStartNanos;
+    private volatile boolean sessionResetPending;
+    private boolean periodValid;
+
+    // Reported by the device line effects, possibly from worker threads
+    private final AtomicLong deviceWaitNanos = new AtomicLong();
+    private final AtomicLong inputOverruns = new AtomicLong();
+    private final AtomicLong outputUnderruns = new AtomicLong();
+
     public AudioMetrics() {
         reset();
     }
@@ -34,13 +59,54 @@ public class AudioMetrics {
         lastUpdateTimeNanos = System.nanoTime();
         lastProcessingTimeNanos = 0;
         lastCallbackTimeNanos = 0;
+        clearSession();
+    }
+
+    /**
+     * Start a new measurement session: clear the histograms and the overrun,
+     * xrun and dropout counters. Safe while audio is running; the audio
+     * thread applies the reset at the start of its next block.
+     */
+    public void resetSession() {
+        sessionResetPending = true;
+    }
+
+    private void clearSession() {
+        sessionResetPending = false;
+        processingTimes.reset();
+        callbackPeriods.reset();
+        deadlineOverruns = 0;
+        dropouts = 0;
+        deviceWaitNanos.set(0);
+        inputOverruns.set(0);
+        outputUnderruns.set(0);
+        periodValid = false;
+        sessionStartNanos = System.nanoTime();
+    }
+
+    /**
+     * Set the processing deadline of one block (the buffer duration).
+     *
+     * @param deadlineNanos Buffer duration in nanoseconds
+     */
+    public void setDeadlineNanos(long deadlineNanos) {
+        this.deadlineNanos = deadlineNanos;
     }
 
     /**
      * Called before processing starts.
      */
     public void beginProcessing() {
-        lastCallbackTimeNanos = System.nanoTime();
+        if (sessionResetPending) {
+            clearSession();
+        }
+        long now = System.nanoTime();
+        if (periodValid) {
+            callbackPeriods.record(now - lastCallbackTimeNanos);
+        }
+        periodValid = true;
+        lastCallbackTimeNanos = now;
+        deviceWaitNanos.set(0);
     }
 
     /**
@@ -50,12 +116,41 @@ public class AudioMetrics {
      */
     public void endProcessing(int frameCount) {
         long now = System.nanoTime();
-        lastProcessingTimeNanos = now - lastCallbackTimeNanos;
+        // Time blocked on the device lines is pacing, not processing
+        lastProcessingTimeNanos = Math.max(0, now - lastCallbackTimeNanos - deviceWaitNanos.get());
+        processingTimes.record(lastProcessingTimeNanos);
+        long deadline = deadlineNanos;
+        if (deadline > 0 && lastProcessingTimeNanos > deadline) {
+            deadlineOverruns++;
+        }
         processedFrames += frameCount;
         processedCallbacks++;
         lastUpdateTimeNanos = now;
     }
 
+    /**
+     * Add time the current block spent blocked in a device line read or write.
+     *
+     * @param nanos Blocked time in nanoseconds
+     */
+    public void addDeviceWait(long nanos) {
+        deviceWaitNanos.addAndGet(nanos);
+    }
+
+    /**
+     * Record a capture overrun: the input line buffer filled up, so input was lost.
+     */
+    public void recordInputOverrun() {
+        inputOverruns.incrementAndGet();
+    }
+
+    /**
+     * Record a playback underrun: the output line buffer ran empty.
+     */
+    public void recordOutputUnderrun() {
+        outputUnderruns.incrementAndGet();
+    }
+
     /**
      * Update CPU load estimate based on processing time vs available time.
      *
@@ -70,7 +165,7 @@ public class AudioMetrics {
     }
 
     /**
-     * Record a dropout (buffer underrun/overrun).
+     * Record a dropout (a block lost to a processing error).
      */
     public void recordDropout() {
         dropouts++;
@@ -112,6 +207,75 @@ public class AudioMetrics {
         return dropouts;
     }
 
+    /**
+     * Get the processing time per block, excluding device waits (this session).
+     */
+    public LatencyHistogram getProcessingTimes() {
+        return processingTimes;
+    }
+
+    /**
+     * Get the period between the starts of consecutive blocks (this session).
+     */
+    public LatencyHistogram getCallbackPeriods() {
+        return callbackPeriods;
+    }
+
+    public long getDeadlineNanos() {
+        return deadlineNanos;
+    }
+
+    /**
+     * Get the processing time of the last block, excluding device waits.
+     */
+    public long getLastProcessingTimeNanos() {
+        return lastProcessingTimeNanos;
+    }
+
+    /**
+     * Get the number of blocks whose processing time exceeded the buffer duration.
+     */
+    public long getDeadlineOverruns() {
+        return deadlineOverruns;
+    }
+
+    public long getInputOverruns() {
+        return inputOverruns.get();
+    }
+
+    public long getOutputUnderruns() {
+        return outputUnderruns.get();
+    }
+
+    /**
+     * Get the time since the session started, in seconds.
+     */
+    public double getSessionSeconds() {
+        return (System.nanoTime() - sessionStartNanos) / 1_000_000_000.0;
+    }
+
+    /**
+     * Format the deadline monitor as a multi-line report.
+     */
+    public String getDeadlineReport() {
+        StringBuilder sb = new StringBuilder();
+        sb.append(String.format("Deadline %.2f ms, session %.1f s, %d blocks%n",
+                deadlineNanos / 1_000_000.0, getSessionSeconds(), processingTimes.getCount()));
+        appendHistogram(sb, "Processing", processingTimes);
+        appendHistogram(sb, "Period", callbackPeriods);
+        sb.append(String.format("  Deadline overruns: %d  Input overruns: %d  Output underruns: %d  Errors: %d%n",
+                deadlineOverruns, getInputOverruns(), getOutputUnderruns(), dropouts));
+        return sb.toString();
+    }
+
+    private static void appendHistogram(StringBuilder sb, String label, LatencyHistogram histogram) {
+        sb.append(String.format("  %-10s p50 %6.2f ms  p99 %6.2f ms  p99.9 %6.2f ms  max %6.2f ms%n", label,
+                histogram.getPercentileNanos(50) / 1_000_000.0,
+                histogram.getPercentileNanos(99) / 1_000_000.0,
+                histogram.getPercentileNanos(99.9) / 1_000_000.0,
+                histogram.getMaxNanos() / 1_000_000.0));
+    }
+
     /**
      * Get CPU load as percentage (0-100).
      */
@@ -154,7 +318,8 @@ public class AudioMetrics {
 
     @Override
     public String toString() {
-        return String.format("AudioMetrics[CPU: %.1f%%, In: %.1fdB, Out: %.1fdB, Dropouts: %d]",
-            getCpuLoadPercent(), getPeakInputLevelDb(), getPeakOutputLevelDb(), dropouts);
+        return String.format("AudioMetrics[CPU: %.1f%%, In: %.1fdB, Out: %.1fdB, Dropouts: %d, Overruns: %d, Xruns: %d/%d]",
+            getCpuLoadPercent(), getPeakInputLevelDb(), getPeakOutputLevelDb(), dropouts,
+            deadlineOverruns, getInputOverruns(), getOutputUnderruns());
     }
 }
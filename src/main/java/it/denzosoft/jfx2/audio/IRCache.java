@@ -0,0 +1,427 @@
+package it.denzosoft.jfx2.audio;
+
+import it.denzosoft.jfx2.dsp.PartitionedIR;
+
+import javax.sound.sampled.UnsupportedAudioFileException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.nio.IntBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.*;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.*;
+import java.util.stream.Stream;
+
+/**
+ * Process-wide cache of impulse responses, shared by every IR loader.
+ *
+ * <p>Two kinds of entries are kept:</p>
+ * <ul>
+ *   <li>Decoded samples ({@link IRSamples}), keyed by file content hash and
+ *       sample rate: loading a WAV again skips parsing, resampling and
+ *       normalization.</li>
+ *   <li>Partition spectra ({@link PartitionedIR}), keyed by the samples, the
+ *       path, the pre-delay and length applied, and the partition size:
+ *       preparing a convolver again skips the FFTs.</li>
+ * </ul>
+ *
+ * <p>Entries stay in memory in least-recently-used order within a memory
+ * budget. Every entry is also written to {@code ~/.jfx2/ircache} and read
+ * back through a memory-mapped file, so a rig loads its IRs without decoding
+ * or transforming them even after a restart. Files unused for longest are
+ * deleted when the directory exceeds its own budget. The disk cache is best
+ * effort: on any I/O error the IR is simply computed.</p>
+ *
+ * <p>Cached arrays are shared and must not be modified. Methods may be called
+ * from any thread except the audio thread.</p>
+ */
+public final class IRCache {
+
+    /**
+     * Maximum IR length in samples (~2 seconds at 48kHz).
+     */
+    public static final int MAX_IR_SAMPLES = 96000;
+
+    private static final long DEFAULT_MEMORY_BUDGET = 256L * 1024 * 1024;
+    private static final long DISK_BUDGET = 1024L * 1024 * 1024;
+    private static final String CACHE_DIR = ".jfx2/ircache";
+    private static final String CACHE_EXTENSION = ".bin";
+
+    // File header: magic, version, metadata count
+    private static final int MAGIC = 0x4A464952;  // "JFIR"
+    private static final int VERSION = 1;
+
+    private static final IRCache INSTANCE = new IRCache();
+
+    private final Path directory;
+
+    // Entries in access order (eldest first); values are IRSamples or PartitionedIR
+    private final LinkedHashMap<String, Object> entries = new LinkedHashMap<>(16, 0.75f, true);
+    // Content hash by path, size and modification time: a known file is not read again
+    private final Map<String, String> fileHashes = new HashMap<>();
+
+    private long memoryBudget = DEFAULT_MEMORY_BUDGET;
+    private long memoryBytes;
+    private long hits;
+    private long diskHits;
+    private long misses;
+
+    private IRCache() {
+        Path dir = Paths.get(System.getProperty("user.home"), CACHE_DIR);
+        try {
+            Files.createDirectories(dir);
+        } catch (IOException e) {
+            System.err.println("Warning: Could not create IR cache directory: " + dir);
+            dir = null;
+        }
+        this.directory = dir;
+    }
+
+    /**
+     * Get the singleton instance.
+     */
+    public static IRCache getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Get the decoded samples of a WAV file at a sample rate.
+     *
+     * @param file       The WAV file
+     * @param sampleRate Target sample rate (0 or less keeps the file rate)
+     */
+    public IRSamples getSamples(Path file, int sampleRate) throws IOException, UnsupportedAudioFileException {
+        String fileKey = file.toAbsolutePath() + "|" + Files.size(file) + "|" + Files.getLastModifiedTime(file).toMillis();
+        byte[] content = null;
+        String hash;
+        synchronized (this) {
+            hash = fileHashes.get(fileKey);
+        }
+        if (hash == null) {
+            content = Files.readAllBytes(file);
+            hash = hash(content);
+            synchronized (this) {
+                fileHashes.put(fileKey, hash);
+            }
+        }
+
+        String key = "samples-" + hash + "-" + Math.max(0, sampleRate);
+        IRSamples samples = (IRSamples) lookup(key);
+        if (samples != null) {
+            return samples;
+        }
+        samples = readSamples(key, hash);
+        if (samples == null) {
+            if (content == null) {
+                content = Files.readAllBytes(file);
+            }
+            samples = IRDecoder.decode(hash, content, sampleRate);
+            write(key, new int[]{samples.sourceSampleRate(), samples.sampleRate()}, samples.paths());
+        }
+        store(key, samples, samples.memoryBytes());
+        return samples;
+    }
+
+    /**
+     * Get the partition spectra of one path of an IR, after pre-delay and trim.
+     *
+     * @param ir              The decoded IR
+     * @param path            Path index ({@link IRSamples#LEFT}, ...)
+     * @param preDelaySamples Zeros inserted before the IR
+     * @param copyLength      Number of IR samples used
+     * @param totalLength     Length of the delayed IR
+     * @param blockSize       Partition size
+     */
+    public PartitionedIR getPartitions(IRSamples ir, int path, int preDelaySamples, int copyLength,
+                                       int totalLength, int blockSize) {
+        // The right path of a mono IR is the left one
+        int source = path == IRSamples.RIGHT && !ir.isStereo() ? IRSamples.LEFT : path;
+        String key = "partitions-" + ir.hash() + "-" + ir.sampleRate() + "-" + source + "-"
+                + preDelaySamples + "-" + copyLength + "-" + totalLength + "-" + blockSize;
+
+        PartitionedIR partitioned = (PartitionedIR) lookup(key);
+        if (partitioned != null) {
+            return partitioned;
+        }
+        partitioned = readPartitions(key);
+        if (partitioned == null) {
+            float[] delayed = new float[totalLength];
+            if (copyLength > 0) {
+                System.arraycopy(ir.path(source), 0, delayed, preDelaySamples, copyLength);
+            }
+            partitioned = PartitionedIR.of(delayed, totalLength, blockSize);
+
+            float[][] spectra = new float[partitioned.getPartitionCount()][];
+            for (int p = 0; p < spectra.length; p++) {
+                spectra[p] = partitioned.getPartition(p);
+            }
+            write(key, new int[]{blockSize, partitioned.getIRLength()}, spectra);
+        }
+        store(key, partitioned, partitioned.getMemoryBytes());
+        return partitioned;
+    }
+
+    // ==================== MEMORY ====================
+
+    private synchronized Object lookup(String key) {
+        Object value = entries.get(key);
+        if (value != null) {
+            hits++;
+        }
+        return value;
+    }
+
+    private synchronized void store(String key, Object value, long bytes) {
+        Object previous = entries.put(key, value);
+        if (previous == null) {
+            memoryBytes += bytes;
+        }
+        evict();
+    }
+
+    /**
+     * Drop least recently used entries until the memory budget is met. The
+     * newest entry stays even if it alone exceeds the budget.
+     */
+    private void evict() {
+        Iterator<Map.Entry<String, Object>> iterator = entries.entrySet().iterator();
+        while (memoryBytes > memoryBudget && entries.size() > 1) {
+            Object value = iterator.next().getValue();
+            iterator.remove();
+            memoryBytes -= sizeOf(value);
+        }
+    }
+
+    private static long sizeOf(Object value) {
+        return value instanceof IRSamples samples ? samples.memoryBytes()
+                : ((PartitionedIR) value).getMemoryBytes();
+    }
+
+    // ==================== DISK ====================
+
+    private IRSamples readSamples(String key, String hash) {
+        MappedEntry entry = read(key);
+        if (entry == null || entry.meta.length != 2) {
+            return null;
+        }
+        return new IRSamples(hash, entry.meta[0], entry.meta[1], entry.data);
+    }
+
+    private PartitionedIR readPartitions(String key) {
+        MappedEntry entry = read(key);
+        if (entry == null || entry.meta.length != 2) {
+            return null;
+        }
+        try {
+            return new PartitionedIR(entry.meta[0], entry.meta[1], entry.data);
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    private record MappedEntry(int[] meta, float[][] data) {
+    }
+
+    /**
+     * Read an entry through a memory-mapped view of its file.
+     */
+    private MappedEntry read(String key) {
+        Path file = directory != null ? directory.resolve(key + CACHE_EXTENSION) : null;
+        if (file == null || !Files.isRegularFile(file)) {
+            countMiss();
+            return null;
+        }
+
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            buffer.order(ByteOrder.LITTLE_ENDIAN);
+            IntBuffer header = buffer.asIntBuffer();
+            if (header.remaining() < 3 || header.get() != MAGIC || header.get() != VERSION) {
+                throw new IOException("not an IR cache file");
+            }
+            int[] meta = new int[header.get()];
+            header.get(meta);
+            int rows = header.get();
+            int columns = header.get();
+            long expected = 4L * (5 + meta.length) + 4L * rows * columns;
+            if (rows <= 0 || columns <= 0 || expected != channel.size()) {
+                throw new IOException("truncated IR cache file");
+            }
+
+            FloatBuffer floats = buffer.position(4 * (5 + meta.length)).slice()
+                    .order(ByteOrder.LITTLE_ENDIAN).asFloatBuffer();
+            float[][] data = new float[rows][columns];
+            for (float[] row : data) {
+                floats.get(row);
+            }
+
+            Files.setLastModifiedTime(file, FileTime.fromMillis(System.currentTimeMillis()));
+            synchronized (this) {
+                diskHits++;
+            }
+            return new MappedEntry(meta, data);
+        } catch (IOException | RuntimeException e) {
+            System.err.println("Discarding IR cache file " + file.getFileName() + ": " + e.getMessage());
+            delete(file);
+            countMiss();
+            return null;
+        }
+    }
+
+    private synchronized void countMiss() {
+        misses++;
+    }
+
+    /**
+     * Write an entry to disk (to a temporary file first, so a reader never
+     * sees a partial file), then trim the directory to its budget.
+     */
+    private void write(String key, int[] meta, float[][] data) {
+        if (directory == null) {
+            return;
+        }
+        int columns = data[0].length;
+        ByteBuffer buffer = ByteBuffer.allocate(4 * (5 + meta.length) + 4 * data.length * columns)
+                .order(ByteOrder.LITTLE_ENDIAN);
+        buffer.putInt(MAGIC).putInt(VERSION).putInt(meta.length);
+        for (int value : meta) {
+            buffer.putInt(value);
+        }
+        buffer.putInt(data.length).putInt(columns);
+        FloatBuffer floats = buffer.asFloatBuffer();
+        for (float[] row : data) {
+            floats.put(row);
+        }
+        buffer.rewind();
+
+        Path file = directory.resolve(key + CACHE_EXTENSION);
+        Path temp = directory.resolve(key + ".tmp");
+        try {
+            try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE,
+                    StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+                while (buffer.hasRemaining()) {
+                    channel.write(buffer);
+                }
+            }
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            System.err.println("Could not write IR cache file " + file.getFileName() + ": " + e.getMessage());
+            delete(temp);
+            return;
+        }
+        trimDisk();
+    }
+
+    private void trimDisk() {
+        List<Path> files;
+        try (Stream<Path> stream = Files.list(directory)) {
+            files = stream.filter(f -> f.toString().endsWith(CACHE_EXTENSION)).toList();
+        } catch (IOException e) {
+            return;
+        }
+
+        long total = 0;
+        Map<Path, FileTime> used = new HashMap<>();
+        for (Path file : files) {
+            try {
+                total += Files.size(file);
+                used.put(file, Files.getLastModifiedTime(file));
+            } catch (IOException e) {
+                // Removed meanwhile
+            }
+        }
+        if (total <= DISK_BUDGET) {
+            return;
+        }
+
+        List<Path> oldestFirst = new ArrayList<>(used.keySet());
+        oldestFirst.sort(Comparator.comparing(used::get));
+        for (Path file : oldestFirst) {
+            if (total <= DISK_BUDGET) {
+                break;
+            }
+            try {
+                total -= Files.size(file);
+            } catch (IOException e) {
+                continue;
+            }
+            delete(file);
+        }
+    }
+
+    private static void delete(Path file) {
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            // Best effort
+        }
+    }
+
+    private static String hash(byte[] content) {
+        try {
+            return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(content));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    // ==================== STATISTICS ====================
+
+    /**
+     * Set the memory budget; least recently used entries are dropped to meet it.
+     */
+    public synchronized void setMemoryBudget(long bytes) {
+        if (bytes <= 0) {
+            throw new IllegalArgumentException("Memory budget must be positive: " + bytes);
+        }
+        memoryBudget = bytes;
+        evict();
+    }
+
+    public synchronized long getMemoryBudget() {
+        return memoryBudget;
+    }
+
+    public synchronized long getMemoryBytes() {
+        return memoryBytes;
+    }
+
+    public synchronized int getEntryCount() {
+        return entries.size();
+    }
+
+    /**
+     * Lookups served from memory.
+     */
+    public synchronized long getHits() {
+        return hits;
+    }
+
+    /**
+     * Lookups served from the disk cache.
+     */
+    public synchronized long getDiskHits() {
+        return diskHits;
+    }
+
+    /**
+     * Lookups that had to decode or transform.
+     */
+    public synchronized long getMisses() {
+        return misses;
+    }
+
+    /**
+     * Drop all entries from memory (the disk cache is kept).
+     */
+    public synchronized void clear() {
+        entries.clear();
+        fileHashes.clear();
+        memoryBytes = 0;
+    }
+}
@@ -0,0 +1,178 @@
+package it.denzosoft.jfx2.audio;
+
+import javax.sound.sampled.*;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+
+/**
+ * Decodes WAV impulse responses: parse, resample, normalize.
+ *
+ * <p>Mono and stereo files give one and two paths; 4-channel files are true
+ * stereo, in channel order LL, LR, RL, RR. Other channel counts use the
+ * first two channels.</p>
+ */
+final class IRDecoder {
+
+    private IRDecoder() {
+    }
+
+    /**
+     * Decode a WAV file already read into memory.
+     *
+     * @param hash       Content hash of the file
+     * @param content    The file bytes
+     * @param sampleRate Target sample rate (0 or less keeps the file rate)
+     */
+    static IRSamples decode(String hash, byte[] content, int sampleRate)
+            throws IOException, UnsupportedAudioFileException {
+        AudioInputStream audioStream = AudioSystem.getAudioInputStream(new ByteArrayInputStream(content));
+        AudioFormat format = audioStream.getFormat();
+
+        // Convert to PCM if necessary
+        if (format.getEncoding() != AudioFormat.Encoding.PCM_SIGNED &&
+            format.getEncoding() != AudioFormat.Encoding.PCM_FLOAT) {
+            AudioFormat targetFormat = new AudioFormat(
+                    AudioFormat.Encoding.PCM_SIGNED,
+                    format.getSampleRate(),
+                    16,
+                    format.getChannels(),
+                    format.getChannels() * 2,
+                    format.getSampleRate(),
+                    false
+            );
+            audioStream = AudioSystem.getAudioInputStream(targetFormat, audioStream);
+            format = targetFormat;
+        }
+
+        int sourceSampleRate = (int) format.getSampleRate();
+        int channels = format.getChannels();
+
+        // Read all audio data
+        byte[] audioBytes = audioStream.readAllBytes();
+        audioStream.close();
+
+        // Convert to float samples
+        int bytesPerSample = format.getSampleSizeInBits() / 8;
+        int totalFrames = audioBytes.length / (bytesPerSample * channels);
+
+        // Limit IR length
+        totalFrames = Math.min(totalFrames, IRCache.MAX_IR_SAMPLES);
+
+        // File channel of each path (see IRSamples)
+        int[] sourceChannels = channels == 4 ? new int[]{0, 3, 1, 2}
+                : channels >= 2 ? new int[]{0, 1}
+                : new int[]{0};
+        float[][] paths = new float[sourceChannels.length][totalFrames];
+
+        // Parse audio data
+        for (int i = 0; i < totalFrames; i++) {
+            int bytePos = i * bytesPerSample * channels;
+            for (int p = 0; p < paths.length; p++) {
+                paths[p][i] = readSample(audioBytes, bytePos + sourceChannels[p] * bytesPerSample,
+                        bytesPerSample, format);
+            }
+        }
+
+        // Resample if necessary
+        int rate = sourceSampleRate;
+        if (sampleRate > 0 && sourceSampleRate != sampleRate) {
+            float ratio = (float) sourceSampleRate / sampleRate;
+            int newLength = Math.min((int) (totalFrames / ratio), IRCache.MAX_IR_SAMPLES);
+            for (int p = 0; p < paths.length; p++) {
+                paths[p] = resample(paths[p], ratio, newLength);
+            }
+            rate = sampleRate;
+        }
+
+        normalize(paths);
+
+        return new IRSamples(hash, sourceSampleRate, rate, paths);
+    }
+
+    /**
+     * Read a single sample from byte array.
+     */
+    private static float readSample(byte[] data, int pos, int bytesPerSample, AudioFormat format) {
+        if (pos + bytesPerSample > data.length) {
+            return 0;
+        }
+
+        if (bytesPerSample == 2) {
+            // 16-bit little-endian
+            int low = data[pos] & 0xFF;
+            int high = data[pos + 1];
+            short s = (short) ((high << 8) | low);
+            return s / 32768.0f;
+        } else if (bytesPerSample == 3) {
+            // 24-bit little-endian
+            int b0 = data[pos] & 0xFF;
+            int b1 = data[pos + 1] & 0xFF;
+            int b2 = data[pos + 2];
+            int value = (b2 << 16) | (b1 << 8) | b0;
+            return value / 8388608.0f;
+        } else if (bytesPerSample == 4) {
+            if (format.getEncoding() == AudioFormat.Encoding.PCM_FLOAT) {
+                int bits = (data[pos] & 0xFF) |
+                           ((data[pos + 1] & 0xFF) << 8) |
+                           ((data[pos + 2] & 0xFF) << 16) |
+                           ((data[pos + 3] & 0xFF) << 24);
+                return Float.intBitsToFloat(bits);
+            } else {
+                // 32-bit int
+                int value = (data[pos] & 0xFF) |
+                            ((data[pos + 1] & 0xFF) << 8) |
+                            ((data[pos + 2] & 0xFF) << 16) |
+                            ((data[pos + 3]) << 24);
+                return value / 2147483648.0f;
+            }
+        } else if (bytesPerSample == 1) {
+            // 8-bit unsigned
+            return ((data[pos] & 0xFF) - 128) / 128.0f;
+        }
+
+        return 0;
+    }
+
+    /**
+     * Simple linear resampling.
+     */
+    private static float[] resample(float[] data, float ratio, int newLength) {
+        float[] resampled = new float[newLength];
+        for (int i = 0; i < newLength; i++) {
+            float srcPos = i * ratio;
+            int srcIdx = (int) srcPos;
+            float frac = srcPos - srcIdx;
+
+            if (srcIdx + 1 < data.length) {
+                // Linear interpolation
+                resampled[i] = data[srcIdx] * (1 - frac) + data[srcIdx + 1] * frac;
+            } else if (srcIdx < data.length) {
+                resampled[i] = data[srcIdx];
+            }
+        }
+        return resampled;
+    }
+
+    /**
+     * Normalize to prevent clipping, with one gain for all paths so their balance is kept.
+     */
+    private static void normalize(float[][] paths) {
+        // Find peak
+        float peak = 0;
+        for (float[] data : paths) {
+            for (float sample : data) {
+                peak = Math.max(peak, Math.abs(sample));
+            }
+        }
+
+        // Normalize to 0.5 (leave headroom)
+        if (peak > 0.001f) {
+            float scale = 0.5f / peak;
+            for (float[] data : paths) {
+                for (int i = 0; i < data.length; i++) {
+                    data[i] *= scale;
+                }
+            }
+        }
+    }
+}
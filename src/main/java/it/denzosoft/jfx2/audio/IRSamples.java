@@ -0,0 +1,63 @@
+package it.denzosoft.jfx2.audio;
+
+/**
+ * Decoded impulse response: resampled, normalized, ready to partition.
+ *
+ * <p>Instances come from {@link IRCache} and are shared: the sample arrays
+ * must not be modified.</p>
+ *
+ * @param hash             Content hash of the WAV file
+ * @param sourceSampleRate Sample rate of the file
+ * @param sampleRate       Sample rate of the samples (the file rate if not resampled)
+ * @param paths            One array per path, all of the same length:
+ *                         mono {L}, stereo {L, R}, true stereo {LL, RR, LR, RL}
+ */
+public record IRSamples(
+        String hash,
+        int sourceSampleRate,
+        int sampleRate,
+        float[][] paths
+) {
+    /**
+     * Path index of the left (or left to left) IR.
+     */
+    public static final int LEFT = 0;
+    /**
+     * Path index of the right (or right to right) IR.
+     */
+    public static final int RIGHT = 1;
+    /**
+     * Path index of the left to right IR (true stereo).
+     */
+    public static final int LEFT_TO_RIGHT = 2;
+    /**
+     * Path index of the right to left IR (true stereo).
+     */
+    public static final int RIGHT_TO_LEFT = 3;
+
+    public int length() {
+        return paths[0].length;
+    }
+
+    public boolean isStereo() {
+        return paths.length >= 2;
+    }
+
+    public boolean isTrueStereo() {
+        return paths.length == 4;
+    }
+
+    /**
+     * Get the samples of a path; the right path of a mono IR is the left one.
+     */
+    public float[] path(int index) {
+        return index == RIGHT && paths.length == 1 ? paths[LEFT] : paths[index];
+    }
+
+    /**
+     * Get the memory held by the samples, in bytes.
+     */
+    public long memoryBytes() {
+        return (long) paths.length * length() * Float.BYTES;
+    }
+}
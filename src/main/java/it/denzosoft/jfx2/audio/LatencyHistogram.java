@@ -0,0 +1,128 @@
+package it.denzosoft.jfx2.audio;
+
+import java.util.Arrays;
+
+/**
+ * Log-bucketed histogram of durations in nanoseconds.
+ *
+ * <p>Each power of two is split into {@link #SUB_BUCKETS} linear buckets, so
+ * a bucket is at most 1/16 (about 6%) wide relative to its values, from one
+ * nanosecond up to centuries. All buckets are preallocated: recording is a
+ * few bit operations and an increment, safe for the audio thread.</p>
+ *
+ * <p>Only one thread may record. Other threads may query at any time; a query
+ * racing with a record can be off by that one sample.</p>
+ */
+public final class LatencyHistogram {
+
+    private static final int SUB_BITS = 4;
+    static final int SUB_BUCKETS = 1 << SUB_BITS;
+    private static final int BUCKET_COUNT = (64 - SUB_BITS) * SUB_BUCKETS;
+
+    private final long[] counts = new long[BUCKET_COUNT];
+    private volatile long count;
+    private volatile long sum;
+    private volatile long max;
+
+    /**
+     * Record one duration. Negative values count as zero.
+     *
+     * @param nanos Duration in nanoseconds
+     */
+    public void record(long nanos) {
+        long value = Math.max(0, nanos);
+        counts[bucketOf(value)]++;
+        count++;
+        sum += value;
+        if (value > max) {
+            max = value;
+        }
+    }
+
+    /**
+     * Forget all recorded values. Must be called by the recording thread
+     * (or while nothing records).
+     */
+    public void reset() {
+        Arrays.fill(counts, 0);
+        count = 0;
+        sum = 0;
+        max = 0;
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    /**
+     * Get the largest recorded value (exact).
+     */
+    public long getMaxNanos() {
+        return max;
+    }
+
+    /**
+     * Get the mean of the recorded values (exact).
+     */
+    public double getMeanNanos() {
+        long n = count;
+        return n > 0 ? (double) sum / n : 0;
+    }
+
+    /**
+     * Get a percentile of the recorded values.
+     *
+     * <p>The result is the upper bound of the bucket holding the percentile,
+     * so it never understates a duration (and never exceeds the maximum).</p>
+     *
+     * @param percentile Percentile in the range 0-100 (e.g. 99.9)
+     * @return Duration in nanoseconds, 0 if nothing has been recorded
+     */
+    public long getPercentileNanos(double percentile) {
+        if (percentile < 0 || percentile > 100) {
+            throw new IllegalArgumentException("Percentile out of range: " + percentile);
+        }
+        // Total from the buckets themselves, consistent with the walk below
+        long total = 0;
+        for (long c : counts) {
+            total += c;
+        }
+        if (total == 0) {
+            return 0;
+        }
+        long rank = Math.max(1, (long) Math.ceil(total * percentile / 100.0));
+        long seen = 0;
+        for (int b = 0; b < BUCKET_COUNT; b++) {
+            seen += counts[b];
+            if (seen >= rank) {
+                return Math.min(upperBound(b), max);
+            }
+        }
+        return max;
+    }
+
+    /**
+     * Bucket of a value: values below {@link #SUB_BUCKETS} get a bucket each,
+     * above that each power of two spans {@link #SUB_BUCKETS} buckets.
+     */
+    static int bucketOf(long value) {
+        if (value < SUB_BUCKETS) {
+            return (int) value;
+        }
+        int exponent = 63 - Long.numberOfLeadingZeros(value);
+        int shift = exponent - SUB_BITS;
+        return (shift + 1) * SUB_BUCKETS + (int) ((value >>> shift) & (SUB_BUCKETS - 1));
+    }
+
+    /**
+     * Largest value that falls into a bucket.
+     */
+    static long upperBound(int bucket) {
+        if (bucket < SUB_BUCKETS) {
+            return bucket;
+        }
+        int shift = bucket / SUB_BUCKETS - 1;
+        long lower = (long) (SUB_BUCKETS + bucket % SUB_BUCKETS) << shift;
+        return lower + (1L << shift) - 1;
+    }
+}
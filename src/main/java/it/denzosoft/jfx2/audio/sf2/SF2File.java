@@ -1,5 +1,7 @@
 package it.denzosoft.jfx2.audio.sf2;
 
+import it.denzosoft.jfx2.jfr.FileLoadEvent;
+
 import java.io.*;
 import java.nio.ByteBuffer;
 import java.nio.ByteOrder;
@@ -50,6 +52,8 @@ public class SF2File {
      * Load an SF2 file from disk.
      */
     public static SF2File load(File file) throws IOException {
+        FileLoadEvent event = FileLoadEvent.start(FileLoadEvent.SF2, file.getPath());
+        boolean loaded = false;
         SF2File sf2 = new SF2File();
         try (RandomAccessFile raf = new RandomAccessFile(file, "r");
              FileChannel channel = raf.getChannel()) {
@@ -57,6 +61,9 @@ public class SF2File {
             ByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
             buffer.order(ByteOrder.LITTLE_ENDIAN);
             sf2.parse(buffer);
+            loaded = true;
+        } finally {
+            event.finish(file.length(), loaded);
         }
         return sf2;
     }
@@ -72,10 +79,17 @@ public class SF2File {
             baos.write(buf, 0, len);
         }
 
+        FileLoadEvent event = FileLoadEvent.start(FileLoadEvent.SF2, "<stream>");
+        boolean loaded = false;
         SF2File sf2 = new SF2File();
-        ByteBuffer buffer = ByteBuffer.wrap(baos.toByteArray());
-        buffer.order(ByteOrder.LITTLE_ENDIAN);
-        sf2.parse(buffer);
+        try {
+            ByteBuffer buffer = ByteBuffer.wrap(baos.toByteArray());
+            buffer.order(ByteOrder.LITTLE_ENDIAN);
+            sf2.parse(buffer);
+            loaded = true;
+        } finally {
+            event.finish(baos.size(), loaded);
+        }
         return sf2;
     }
 
@@ -4,6 +4,7 @@ import it.denzosoft.jfx2.audio.*;
 import it.denzosoft.jfx2.effects.*;
 import it.denzosoft.jfx2.effects.impl.*;
 import it.denzosoft.jfx2.graph.*;
+import it.denzosoft.jfx2.jmx.*;
 import it.denzosoft.jfx2.preset.*;
 import it.denzosoft.jfx2.tools.*;
 import it.denzosoft.jfx2.recording.*;
@@ -32,6 +33,7 @@ public class JFx2Cli {
     public JFx2Cli() {
         this.audioEngine = new AudioEngine();
         this.signalGraph = new SignalGraph();
+        this.signalGraph.setDeviceMetrics(audioEngine.getMetrics());
         this.templateManager = new TemplateManager();
     }
 
@@ -61,6 +63,8 @@ public class JFx2Cli {
                 case "11", "save" -> savePreset(scanner);
                 case "12", "factory" -> generateFactoryTemplates();
                 case "13", "parallel" -> testPresets();
+                case "14", "profile" -> toggleProfiling();
+                case "15", "reset" -> resetMetrics();
                 case "h", "help" -> printMenu();
                 case "q", "quit", "exit" -> {
                     shutdown();
@@ -102,6 +106,8 @@ public class JFx2Cli {
         System.out.println("  11, save    - Save current rig as preset");
         System.out.println("  12, factory - Generate factory presets");
         System.out.println("  13, parallel- Test parallel routing (Phase 7)");
+        System.out.println("  14, profile - Toggle per-node CPU profiling (shown in status)");
+        System.out.println("  15, reset   - Start a new metrics session (deadlines, xruns)");
         System.out.println("  h, help     - Show this menu");
         System.out.println("  q, quit     - Exit");
     }
@@ -170,6 +176,7 @@ public class JFx2Cli {
             audioEngine.start((input, output, frameCount) -> {
                 signalGraph.process(input, output, frameCount);
             });
+            JmxRegistry.register("SignalGraph", new SignalGraphMonitor(() -> signalGraph));
 
             running = true;
             System.out.println("Audio started! Signal chain: Input -> Gain -> Output");
@@ -208,6 +215,7 @@ public class JFx2Cli {
             System.out.printf("  Output Level: %.1f dB%n", metrics.getPeakOutputLevelDb());
             System.out.printf("  Callbacks: %d%n", metrics.getProcessedCallbacks());
             System.out.printf("  Dropouts: %d%n", metrics.getDropouts());
+            System.out.print("  " + metrics.getDeadlineReport());
         }
 
         System.out.println("\nSignal Graph:");
@@ -218,6 +226,25 @@ public class JFx2Cli {
         if (gainNode instanceof GainNode gn) {
             System.out.printf("  Gain: %.2f (%.1f dB)%n", gn.getGain(), gn.getGainDb());
         }
+
+        if (signalGraph.isProfilingEnabled()) {
+            System.out.println();
+            System.out.print(signalGraph.getProfilingInfo());
+        }
+    }
+
+    private void toggleProfiling() {
+        boolean enabled = !signalGraph.isProfilingEnabled();
+        signalGraph.setProfilingEnabled(enabled);
+        if (enabled) {
+            signalGraph.resetProfiling();
+        }
+        System.out.println("Per-node profiling " + (enabled ? "enabled" : "disabled") + ".");
+    }
+
+    private void resetMetrics() {
+        audioEngine.getMetrics().resetSession();
+        System.out.println("Metrics session reset.");
     }
 
     private void adjustGain(Scanner scanner) {
@@ -0,0 +1,38 @@
+package it.denzosoft.jfx2.dsp;
+
+/**
+ * Streaming convolution of a signal with an impulse response.
+ */
+public interface Convolver {
+
+    /**
+     * Prepare the convolver with an impulse response.
+     *
+     * @param ir        The impulse response samples
+     * @param irLength  Length of the IR
+     * @param blockSize Processing block size, normally the audio buffer size
+     */
+    void prepare(float[] ir, int irLength, int blockSize);
+
+    /**
+     * Process a block of samples through convolution.
+     */
+    void process(float[] input, float[] output, int numSamples);
+
+    /**
+     * Reset the convolver state.
+     */
+    void reset();
+
+    /**
+     * Get the delay of the output relative to the input, in samples.
+     */
+    int getLatency();
+
+    int getIRLength();
+
+    /**
+     * Get the memory held by the buffers and the transformed IR, in bytes.
+     */
+    long getMemoryBytes();
+}
@@ -0,0 +1,307 @@
+package it.denzosoft.jfx2.dsp;
+
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Fast Fourier transform of real signals.
+ *
+ * <p>A plan is created once per size and shared ({@link #forSize}): it holds
+ * only immutable tables (bit reversal, per-stage twiddles), so one plan may be
+ * used by any number of threads at once. Transforms work in place and never
+ * allocate.</p>
+ *
+ * <p>A real signal of N samples is transformed as N/2 complex values (even
+ * samples as real parts, odd samples as imaginary parts) with a radix-4
+ * kernel, then split into the spectrum of the real signal. The spectrum is
+ * stored packed in the same N floats:</p>
+ * <ul>
+ *   <li>{@code data[0]} = bin 0 (DC, real)</li>
+ *   <li>{@code data[1]} = bin N/2 (Nyquist, real)</li>
+ *   <li>{@code data[2k], data[2k + 1]} = real and imaginary part of bin k, 0 &lt; k &lt; N/2</li>
+ * </ul>
+ */
+public final class FFT {
+
+    private static final ConcurrentHashMap<Integer, FFT> PLANS = new ConcurrentHashMap<>();
+
+    private final int size;
+    // Complex transform length (size / 2)
+    private final int half;
+    // Pairs of complex indices swapped by the bit-reversal permutation
+    private final int[] swaps;
+    // Whether the complex kernel starts with a radix-2 stage (odd log2(half))
+    private final boolean radix2First;
+    // Radix-4 twiddles, per stage and per butterfly: w1, w2, w3 as (re, im)
+    private final float[] twiddles;
+    // Split twiddles e^(-2 pi i k / size), k = 0 .. size / 4, as (re, im)
+    private final float[] split;
+
+    private FFT(int size) {
+        this.size = size;
+        this.half = size / 2;
+
+        int bits = Integer.numberOfTrailingZeros(half);
+        int swapCount = 0;
+        int[] pairs = new int[half];
+        for (int i = 0; i < half; i++) {
+            int j = bits == 0 ? 0 : Integer.reverse(i) >>> (32 - bits);
+            if (j > i) {
+                pairs[swapCount++] = i;
+                pairs[swapCount++] = j;
+            }
+        }
+        this.swaps = Arrays.copyOf(pairs, swapCount);
+        this.radix2First = (bits & 1) == 1;
+
+        // One table entry per butterfly of every radix-4 stage, in processing order
+        int entries = 0;
+        for (int quarter = radix2First ? 2 : 1; quarter * 4 <= half; quarter *= 4) {
+            entries += quarter;
+        }
+        this.twiddles = new float[entries * 6];
+        int t = 0;
+        for (int quarter = radix2First ? 2 : 1; quarter * 4 <= half; quarter *= 4) {
+            double step = -2 * Math.PI / (quarter * 4);
+            for (int j = 0; j < quarter; j++) {
+                for (int m = 1; m <= 3; m++) {
+                    // Bit-reversed order puts residues 0, 2, 1, 3 (mod 4) at
+                    // offsets 0, q, 2q, 3q: they take w^0, w^2j, w^j, w^3j
+                    int power = m == 1 ? 2 * j : m == 2 ? j : 3 * j;
+                    twiddles[t++] = (float) Math.cos(step * power);
+                    twiddles[t++] = (float) Math.sin(step * power);
+                }
+            }
+        }
+
+        this.split = new float[(size / 4 + 1) * 2];
+        for (int k = 0; k <= size / 4; k++) {
+            double angle = -2 * Math.PI * k / size;
+            split[2 * k] = (float) Math.cos(angle);
+            split[2 * k + 1] = (float) Math.sin(angle);
+        }
+    }
+
+    /**
+     * Get the shared plan for a transform size.
+     *
+     * @param size Number of real samples, a power of two of at least 4
+     */
+    public static FFT forSize(int size) {
+        if (size < 4 || Integer.bitCount(size) != 1) {
+            throw new IllegalArgumentException("FFT size must be a power of two >= 4: " + size);
+        }
+        return PLANS.computeIfAbsent(size, FFT::new);
+    }
+
+    /**
+     * Smallest power of two that is at least {@code n} (and at least 4).
+     */
+    public static int sizeFor(int n) {
+        return Math.max(4, Integer.highestOneBit(Math.max(1, n - 1)) << 1);
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Transform real samples into their packed spectrum, in place.
+     *
+     * @param data {@link #size()} samples; receives the packed spectrum
+     */
+    public void realForward(float[] data) {
+        complex(data, false);
+
+        // DC and Nyquist are real: both come from complex bin 0
+        float r0 = data[0];
+        float i0 = data[1];
+        data[0] = r0 + i0;
+        data[1] = r0 - i0;
+
+        // X[k] = E + w^k O and X[N/2 - k] = conj(E - w^k O), with
+        // E = (Z[k] + conj Z[N/2 - k]) / 2 and O = -i (Z[k] - conj Z[N/2 - k]) / 2
+        for (int k = 1, m = half - 1; k <= m; k++, m--) {
+            float ar = data[2 * k], ai = data[2 * k + 1];
+            float br = data[2 * m], bi = data[2 * m + 1];
+            float er = 0.5f * (ar + br);
+            float ei = 0.5f * (ai - bi);
+            float or = 0.5f * (ai + bi);
+            float oi = -0.5f * (ar - br);
+            float wr = twiddleRe(k), wi = twiddleIm(k);
+            float tr = wr * or - wi * oi;
+            float ti = wr * oi + wi * or;
+            data[2 * k] = er + tr;
+            data[2 * k + 1] = ei + ti;
+            data[2 * m] = er - tr;
+            data[2 * m + 1] = ti - ei;
+        }
+    }
+
+    /**
+     * Transform a packed spectrum back into real samples, in place, scaled so
+     * that {@code realInverse(realForward(x)) == x}.
+     *
+     * @param data Packed spectrum of {@link #size()} floats; receives the samples
+     */
+    public void realInverse(float[] data) {
+        float scale = 1.0f / half;
+
+        float x0 = data[0];
+        float xn = data[1];
+        data[0] = 0.5f * scale * (x0 + xn);
+        data[1] = 0.5f * scale * (x0 - xn);
+
+        // Z[k] = E + i O, Z[N/2 - k] = conj E + i conj O, with
+        // E = (X[k] + conj X[N/2 - k]) / 2 and O = conj(w^k) (X[k] - conj X[N/2 - k]) / 2
+        float s = 0.5f * scale;
+        for (int k = 1, m = half - 1; k <= m; k++, m--) {
+            float ar = data[2 * k], ai = data[2 * k + 1];
+            float br = data[2 * m], bi = data[2 * m + 1];
+            float er = s * (ar + br);
+            float ei = s * (ai - bi);
+            float dr = s * (ar - br);
+            float di = s * (ai + bi);
+            float wr = twiddleRe(k), wi = twiddleIm(k);
+            float or = wr * dr + wi * di;
+            float oi = wr * di - wi * dr;
+            data[2 * k] = er - oi;
+            data[2 * k + 1] = ei + or;
+            data[2 * m] = er + oi;
+            data[2 * m + 1] = or - ei;
+        }
+
+        complex(data, true);
+    }
+
+    private float twiddleRe(int k) {
+        // e^(-2 pi i k / N) for k up to N / 2 from the first quadrant:
+        // w^(N/2 - k) = -conj(w^k)
+        return k <= size / 4 ? split[2 * k] : -split[2 * (half - k)];
+    }
+
+    private float twiddleIm(int k) {
+        return k <= size / 4 ? split[2 * k + 1] : split[2 * (half - k) + 1];
+    }
+
+    /**
+     * Complex transform of {@code half} interleaved values, in place
+     * (unscaled; the inverse uses conjugate twiddles).
+     */
+    private void complex(float[] data, boolean inverse) {
+        int[] swaps = this.swaps;
+        for (int s = 0; s < swaps.length; s += 2) {
+            int a = 2 * swaps[s];
+            int b = 2 * swaps[s + 1];
+            float re = data[a];
+            float im = data[a + 1];
+            data[a] = data[b];
+            data[a + 1] = data[b + 1];
+            data[b] = re;
+            data[b + 1] = im;
+        }
+
+        int n = half;
+        if (radix2First) {
+            for (int i = 0; i < 2 * n; i += 4) {
+                float re = data[i + 2];
+                float im = data[i + 3];
+                data[i + 2] = data[i] - re;
+                data[i + 3] = data[i + 1] - im;
+                data[i] += re;
+                data[i + 1] += im;
+            }
+        }
+
+        // Radix-4 stages: four sub-transforms of length q at offsets 0, q, 2q, 3q
+        // (in bit-reversed order: residues 0, 2, 1, 3) combine into one of length 4q
+        float sign = inverse ? -1f : 1f;
+        float[] tw = twiddles;
+        int base = 0;
+        for (int q = radix2First ? 2 : 1; q * 4 <= n; q *= 4) {
+            int span = 8 * q;
+            for (int block = 0; block < 2 * n; block += span) {
+                int t = base;
+                for (int j = 0; j < q; j++, t += 6) {
+                    int i0 = block + 2 * j;
+                    int i1 = i0 + 2 * q;
+                    int i2 = i1 + 2 * q;
+                    int i3 = i2 + 2 * q;
+
+                    float w1r = tw[t], w1i = sign * tw[t + 1];
+                    float w2r = tw[t + 2], w2i = sign * tw[t + 3];
+                    float w3r = tw[t + 4], w3i = sign * tw[t + 5];
+
+                    float x1r = data[i1], x1i = data[i1 + 1];
+                    float x2r = data[i2], x2i = data[i2 + 1];
+                    float x3r = data[i3], x3i = data[i3 + 1];
+                    float b1r = w1r * x1r - w1i * x1i, b1i = w1r * x1i + w1i * x1r;
+                    float b2r = w2r * x2r - w2i * x2i, b2i = w2r * x2i + w2i * x2r;
+                    float b3r = w3r * x3r - w3i * x3i, b3i = w3r * x3i + w3i * x3r;
+
+                    float x0r = data[i0], x0i = data[i0 + 1];
+                    float s0r = x0r + b1r, s0i = x0i + b1i;
+                    float d0r = x0r - b1r, d0i = x0i - b1i;
+                    float s1r = b2r + b3r, s1i = b2i + b3i;
+                    // d1 rotated by -i (forward) or +i (inverse)
+                    float d1r = sign * (b2i - b3i), d1i = sign * (b3r - b2r);
+
+                    data[i0] = s0r + s1r;
+                    data[i0 + 1] = s0i + s1i;
+                    data[i2] = s0r - s1r;
+                    data[i2 + 1] = s0i - s1i;
+                    data[i1] = d0r + d1r;
+                    data[i1 + 1] = d0i + d1i;
+                    data[i3] = d0r - d1r;
+                    data[i3 + 1] = d0i - d1i;
+                }
+            }
+            base += 6 * q;
+        }
+    }
+
+    /**
+     * Multiply two packed spectra bin by bin ({@code out} may alias an input).
+     */
+    public static void multiply(float[] a, float[] b, float[] out, int size) {
+        out[0] = a[0] * b[0];
+        out[1] = a[1] * b[1];
+        for (int i = 2; i < size; i += 2) {
+            float re = a[i] * b[i] - a[i + 1] * b[i + 1];
+            float im = a[i] * b[i + 1] + a[i + 1] * b[i];
+            out[i] = re;
+            out[i + 1] = im;
+        }
+    }
+
+    /**
+     * Add the bin by bin product of two packed spectra to {@code acc}.
+     */
+    public static void multiplyAccumulate(float[] a, float[] b, float[] acc, int size) {
+        acc[0] += a[0] * b[0];
+        acc[1] += a[1] * b[1];
+        for (int i = 2; i < size; i += 2) {
+            float ar = a[i], ai = a[i + 1];
+            float br = b[i], bi = b[i + 1];
+            acc[i] += ar * br - ai * bi;
+            acc[i + 1] += ar * bi + ai * br;
+        }
+    }
+
+    /**
+     * Magnitude of one bin of a packed spectrum.
+     *
+     * @param bin Bin index, 0 .. size / 2
+     */
+    public static float magnitude(float[] spectrum, int bin, int size) {
+        if (bin == 0) {
+            return Math.abs(spectrum[0]);
+        }
+        if (bin == size / 2) {
+            return Math.abs(spectrum[1]);
+        }
+        float re = spectrum[2 * bin];
+        float im = spectrum[2 * bin + 1];
+        return (float) Math.sqrt(re * re + im * im);
+    }
+}
@@ -0,0 +1,281 @@
+package it.denzosoft.jfx2.dsp;
+
+import java.util.Arrays;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * Non-uniformly partitioned convolution with zero latency, for very long IRs.
+ *
+ * <p>The IR is covered by three segments of growing granularity:</p>
+ * <ul>
+ *   <li><b>Head</b> {@code [0, B)}: direct FIR on the audio thread (no delay)</li>
+ *   <li><b>Body</b> {@code [B, 2T)}: {@link PartitionedConvolver} with
+ *       partitions of one buffer B; its one-buffer latency is absorbed by the
+ *       segment offset</li>
+ *   <li><b>Tail</b> {@code [2T, end)}: partitions of T = {@value #TAIL_FACTOR}
+ *       buffers, computed by a background worker</li>
+ * </ul>
+ *
+ * <p>A tail block is handed to a worker at every T boundary and is due at
+ * the next one: the worker always has a full T period to finish, and the
+ * result plays one period later, which the 2T offset absorbs. Workers are
+ * shared by all instances (one per spare core, up to {@value #MAX_WORKERS}),
+ * so the tails of several convolvers run in parallel. If a result is not
+ * ready at its deadline the audio thread waits for it and the block is
+ * counted in {@link #getLateBlocks()}.</p>
+ *
+ * <p>IRs shorter than 2T have no tail and run entirely on the audio thread.
+ * Processing never allocates.</p>
+ */
+public class NonUniformConvolver implements Convolver {
+
+    // Tail partition size in audio buffers
+    static final int TAIL_FACTOR = 16;
+    private static final int MAX_WORKERS = 4;
+
+    private static final BlockingQueue<NonUniformConvolver> TAIL_JOBS = new ArrayBlockingQueue<>(256);
+    private static boolean workersStarted;
+
+    private int blockSize;
+    private int tailBlockSize;
+    private int irLength;
+    private boolean prepared;
+
+    // Head: direct FIR, history stored twice so the last blockSize samples are contiguous
+    private float[] head;
+    private float[] history;
+    private int historyPosition;
+
+    // Body: uniform partitions of one buffer
+    private PartitionedConvolver body;
+    private float[] bodyInput;
+    private float[] bodyOutput;
+    private int bodyPosition;
+
+    // Tail: large partitions on a worker (null when the IR has no tail)
+    private PartitionedConvolver tail;
+    private float[] tailInput;
+    private float[] tailOutput;
+    private int tailPosition;
+    // Buffers owned by the worker while a job is pending
+    private float[] jobInput;
+    private float[] jobOutput;
+    private volatile boolean jobPending;
+    private volatile long lateBlocks;
+
+    @Override
+    public void prepare(float[] ir, int irLength, int blockSize) {
+        if (blockSize <= 0) {
+            throw new IllegalArgumentException("Block size must be positive: " + blockSize);
+        }
+        awaitJob();
+
+        this.blockSize = blockSize;
+        this.tailBlockSize = blockSize * TAIL_FACTOR;
+        this.irLength = Math.min(irLength, ir.length);
+        int tailStart = 2 * tailBlockSize;
+
+        head = new float[blockSize];
+        System.arraycopy(ir, 0, head, 0, Math.min(blockSize, this.irLength));
+        history = new float[2 * blockSize];
+        historyPosition = 0;
+
+        float[] bodyIR = segment(ir, blockSize, Math.min(tailStart, this.irLength));
+        body = new PartitionedConvolver();
+        body.prepare(bodyIR, bodyIR.length, blockSize);
+        bodyInput = new float[blockSize];
+        bodyOutput = new float[blockSize];
+        bodyPosition = 0;
+
+        if (this.irLength > tailStart) {
+            float[] tailIR = segment(ir, tailStart, this.irLength);
+            tail = new PartitionedConvolver();
+            tail.prepare(tailIR, tailIR.length, tailBlockSize);
+            tailInput = new float[tailBlockSize];
+            tailOutput = new float[tailBlockSize];
+            jobInput = new float[tailBlockSize];
+            jobOutput = new float[tailBlockSize];
+            startWorkers();
+        } else {
+            tail = null;
+            tailInput = tailOutput = jobInput = jobOutput = null;
+        }
+        tailPosition = 0;
+        lateBlocks = 0;
+
+        prepared = true;
+    }
+
+    /**
+     * Copy of {@code ir[from, to)}; a single zero when the range is empty.
+     */
+    private static float[] segment(float[] ir, int from, int to) {
+        return from < to ? Arrays.copyOfRange(ir, from, to) : new float[1];
+    }
+
+    @Override
+    public void process(float[] input, float[] output, int numSamples) {
+        if (!prepared) {
+            System.arraycopy(input, 0, output, 0, numSamples);
+            return;
+        }
+
+        float[] head = this.head;
+        float[] history = this.history;
+        int taps = blockSize;
+        for (int i = 0; i < numSamples; i++) {
+            float x = input[i];
+
+            // Head: newest sample at history[historyPosition + taps]
+            history[historyPosition] = x;
+            history[historyPosition + taps] = x;
+            int newest = historyPosition + taps;
+            float y = 0;
+            for (int k = 0; k < taps; k++) {
+                y += head[k] * history[newest - k];
+            }
+            historyPosition = historyPosition + 1 == taps ? 0 : historyPosition + 1;
+
+            // Body: output of the previous buffer period
+            y += bodyOutput[bodyPosition];
+            bodyInput[bodyPosition] = x;
+            if (++bodyPosition == blockSize) {
+                body.convolveBlock(bodyInput, bodyOutput);
+                bodyPosition = 0;
+            }
+
+            // Tail: output of the block handed to the worker one period ago
+            if (tail != null) {
+                y += tailOutput[tailPosition];
+                tailInput[tailPosition] = x;
+                if (++tailPosition == tailBlockSize) {
+                    submitTail();
+                    tailPosition = 0;
+                }
+            }
+
+            output[i] = y;
+        }
+    }
+
+    /**
+     * At a tail boundary: collect the previous job's result for the coming
+     * period and hand the block just completed to a worker.
+     */
+    private void submitTail() {
+        if (jobPending) {
+            lateBlocks++;
+            awaitJob();
+        }
+
+        // Swap, no copy: the worker gets the filled input and a played-out output
+        float[] in = jobInput;
+        jobInput = tailInput;
+        tailInput = in;
+        float[] out = tailOutput;
+        tailOutput = jobOutput;
+        jobOutput = out;
+
+        jobPending = true;
+        if (!TAIL_JOBS.offer(this)) {
+            runTailJob();
+        }
+    }
+
+    private void runTailJob() {
+        try {
+            tail.convolveBlock(jobInput, jobOutput);
+        } finally {
+            jobPending = false;
+        }
+    }
+
+    private void awaitJob() {
+        while (jobPending) {
+            Thread.onSpinWait();
+        }
+    }
+
+    private static synchronized void startWorkers() {
+        if (workersStarted) {
+            return;
+        }
+        workersStarted = true;
+        int count = Math.max(1, Math.min(MAX_WORKERS, Runtime.getRuntime().availableProcessors() - 1));
+        for (int i = 0; i < count; i++) {
+            Thread worker = new Thread(NonUniformConvolver::workerLoop, "Convolver-Tail-" + i);
+            worker.setDaemon(true);
+            worker.setPriority(Thread.MAX_PRIORITY);
+            worker.start();
+        }
+    }
+
+    private static void workerLoop() {
+        while (true) {
+            NonUniformConvolver convolver;
+            try {
+                convolver = TAIL_JOBS.take();
+            } catch (InterruptedException e) {
+                return;
+            }
+            try {
+                convolver.runTailJob();
+            } catch (RuntimeException e) {
+                System.err.println("Convolution tail failed: " + e.getMessage());
+            }
+        }
+    }
+
+    @Override
+    public void reset() {
+        if (!prepared) {
+            return;
+        }
+        awaitJob();
+        Arrays.fill(history, 0);
+        historyPosition = 0;
+        body.reset();
+        Arrays.fill(bodyInput, 0);
+        Arrays.fill(bodyOutput, 0);
+        bodyPosition = 0;
+        if (tail != null) {
+            tail.reset();
+            Arrays.fill(tailInput, 0);
+            Arrays.fill(tailOutput, 0);
+            Arrays.fill(jobInput, 0);
+            Arrays.fill(jobOutput, 0);
+        }
+        tailPosition = 0;
+    }
+
+    @Override
+    public int getLatency() {
+        return 0;
+    }
+
+    @Override
+    public int getIRLength() {
+        return irLength;
+    }
+
+    /**
+     * Get the number of tail blocks whose worker missed the deadline.
+     */
+    public long getLateBlocks() {
+        return lateBlocks;
+    }
+
+    @Override
+    public long getMemoryBytes() {
+        if (!prepared) {
+            return 0;
+        }
+        long floats = head.length + history.length + bodyInput.length + bodyOutput.length;
+        long bytes = floats * Float.BYTES + body.getMemoryBytes();
+        if (tail != null) {
+            bytes += 4L * tailBlockSize * Float.BYTES + tail.getMemoryBytes();
+        }
+        return bytes;
+    }
+}
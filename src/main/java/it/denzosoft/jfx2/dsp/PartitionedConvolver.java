@@ -0,0 +1,185 @@
+package it.denzosoft.jfx2.dsp;
+
+import java.util.Arrays;
+
+/**
+ * Uniformly partitioned convolution engine for long impulse responses.
+ *
+ * <p>The IR is split into partitions of one audio block each, transformed
+ * once in {@link #prepare}. Every input block is transformed once and kept in
+ * a frequency-domain delay line (FDL); the output block is the inverse
+ * transform of the sum, over all partitions, of partition spectrum times the
+ * input spectrum of as many blocks ago (overlap-save). The partitions can
+ * also be computed ahead and shared ({@link PartitionedIR}). The FFT size
+ * depends only on the block size, so the cost of a block is one forward and one
+ * inverse FFT plus one multiply-accumulate pass per partition, and the
+ * latency is one block whatever the IR length.</p>
+ *
+ * <p>Processing never allocates. {@link #process} accepts any number of
+ * samples per call; output is delayed by exactly {@link #getLatency()}
+ * samples.</p>
+ */
+public class PartitionedConvolver implements Convolver {
+
+    private int blockSize;
+    private int fftSize;
+    private int irLength;
+    private int partitionCount;
+    private FFT fft;
+
+    // IR partition spectra (packed, shared read-only)
+    private float[][] partitions;
+
+    // Frequency-domain delay line: spectra of the most recent input frames,
+    // fdl[fdlHead] is the newest
+    private float[][] fdl;
+    private int fdlHead;
+
+    // Last fftSize input samples (overlap-save frame)
+    private float[] frame;
+    // Spectrum accumulator, inverse transformed in place
+    private float[] accumulator;
+
+    // Input block being collected and output block being played
+    private float[] inputBlock;
+    private float[] outputBlock;
+    private int blockPosition;
+
+    private boolean prepared;
+
+    public PartitionedConvolver() {
+        this.prepared = false;
+    }
+
+    /**
+     * Prepare the convolver with an impulse response.
+     *
+     * @param ir        The impulse response samples
+     * @param irLength  Length of the IR
+     * @param blockSize Partition size, normally the audio buffer size
+     */
+    @Override
+    public void prepare(float[] ir, int irLength, int blockSize) {
+        prepare(PartitionedIR.of(ir, irLength, blockSize));
+    }
+
+    /**
+     * Prepare the convolver with a precomputed partitioned IR.
+     */
+    public void prepare(PartitionedIR ir) {
+        this.blockSize = ir.getBlockSize();
+        this.irLength = ir.getIRLength();
+        this.fftSize = ir.getFftSize();
+        this.fft = FFT.forSize(fftSize);
+        this.partitionCount = ir.getPartitionCount();
+        this.partitions = ir.partitions();
+
+        fdl = new float[partitionCount][fftSize];
+        fdlHead = 0;
+        frame = new float[fftSize];
+        accumulator = new float[fftSize];
+        inputBlock = new float[blockSize];
+        outputBlock = new float[blockSize];
+        blockPosition = 0;
+
+        prepared = true;
+    }
+
+    /**
+     * Process a block of samples through convolution.
+     */
+    @Override
+    public void process(float[] input, float[] output, int numSamples) {
+        if (!prepared) {
+            System.arraycopy(input, 0, output, 0, numSamples);
+            return;
+        }
+
+        int done = 0;
+        while (done < numSamples) {
+            int count = Math.min(numSamples - done, blockSize - blockPosition);
+            System.arraycopy(input, done, inputBlock, blockPosition, count);
+            System.arraycopy(outputBlock, blockPosition, output, done, count);
+            blockPosition += count;
+            done += count;
+
+            if (blockPosition == blockSize) {
+                convolveBlock(inputBlock, outputBlock);
+                blockPosition = 0;
+            }
+        }
+    }
+
+    /**
+     * Convolve one whole block: {@code output} receives the convolution at
+     * the samples of {@code input}, without delay. Used directly (without the
+     * buffering of {@link #process}) by {@link NonUniformConvolver}.
+     */
+    void convolveBlock(float[] input, float[] output) {
+        // Slide the frame by one block and append the new input
+        System.arraycopy(frame, blockSize, frame, 0, fftSize - blockSize);
+        System.arraycopy(input, 0, frame, fftSize - blockSize, blockSize);
+
+        // Newest spectrum into the delay line (overwrites the oldest)
+        fdlHead = fdlHead == 0 ? partitionCount - 1 : fdlHead - 1;
+        float[] spectrum = fdl[fdlHead];
+        System.arraycopy(frame, 0, spectrum, 0, fftSize);
+        fft.realForward(spectrum);
+
+        // Partition p meets the input of p blocks ago
+        Arrays.fill(accumulator, 0);
+        int slot = fdlHead;
+        for (int p = 0; p < partitionCount; p++) {
+            FFT.multiplyAccumulate(fdl[slot], partitions[p], accumulator, fftSize);
+            slot = slot == partitionCount - 1 ? 0 : slot + 1;
+        }
+        fft.realInverse(accumulator);
+
+        // The last block of the circular result is free of wrap-around
+        System.arraycopy(accumulator, fftSize - blockSize, output, 0, blockSize);
+    }
+
+    /**
+     * Reset the convolver state.
+     */
+    @Override
+    public void reset() {
+        if (!prepared) {
+            return;
+        }
+        for (float[] spectrum : fdl) {
+            Arrays.fill(spectrum, 0);
+        }
+        Arrays.fill(frame, 0);
+        Arrays.fill(inputBlock, 0);
+        Arrays.fill(outputBlock, 0);
+        blockPosition = 0;
+    }
+
+    @Override
+    public int getLatency() {
+        return blockSize;
+    }
+
+    @Override
+    public int getIRLength() {
+        return irLength;
+    }
+
+    public int getPartitionCount() {
+        return partitionCount;
+    }
+
+    /**
+     * Get the memory held by the partitions, the delay line and the buffers, in bytes.
+     */
+    @Override
+    public long getMemoryBytes() {
+        if (!prepared) {
+            return 0;
+        }
+        long floats = 2L * partitionCount * fftSize + frame.length + accumulator.length
+                + inputBlock.length + outputBlock.length;
+        return floats * Float.BYTES;
+    }
+}
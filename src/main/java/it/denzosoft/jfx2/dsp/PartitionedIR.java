@@ -0,0 +1,101 @@
+package it.denzosoft.jfx2.dsp;
+
+/**
+ * Impulse response split into partitions of one block, each zero-padded to
+ * twice the block and transformed: the precomputed half of a uniformly
+ * partitioned convolution.
+ *
+ * <p>Instances are immutable once built and only read while convolving, so
+ * any number of convolvers (and the IR cache) can share one. The spectra are
+ * in the packed format of {@link FFT}.</p>
+ */
+public final class PartitionedIR {
+
+    private final int blockSize;
+    private final int irLength;
+    private final float[][] partitions;
+
+    /**
+     * Wrap partition spectra computed earlier (for instance read from a cache).
+     *
+     * @param blockSize  Partition size
+     * @param irLength   Length of the IR the partitions were computed from
+     * @param partitions One packed spectrum of {@code FFT.sizeFor(2 * blockSize)} floats per partition
+     */
+    public PartitionedIR(int blockSize, int irLength, float[][] partitions) {
+        int fftSize = FFT.sizeFor(2 * blockSize);
+        if (blockSize <= 0 || partitions.length == 0) {
+            throw new IllegalArgumentException("Invalid partitioned IR: block " + blockSize
+                    + ", " + partitions.length + " partitions");
+        }
+        for (float[] partition : partitions) {
+            if (partition.length != fftSize) {
+                throw new IllegalArgumentException("Partition size " + partition.length
+                        + " does not match block size " + blockSize);
+            }
+        }
+        this.blockSize = blockSize;
+        this.irLength = irLength;
+        this.partitions = partitions;
+    }
+
+    /**
+     * Partition and transform an impulse response.
+     *
+     * @param ir        The impulse response samples
+     * @param irLength  Length of the IR
+     * @param blockSize Partition size, normally the audio buffer size
+     */
+    public static PartitionedIR of(float[] ir, int irLength, int blockSize) {
+        if (blockSize <= 0) {
+            throw new IllegalArgumentException("Block size must be positive: " + blockSize);
+        }
+        int length = Math.min(irLength, ir.length);
+        int fftSize = FFT.sizeFor(2 * blockSize);
+        FFT fft = FFT.forSize(fftSize);
+        int count = Math.max(1, (length + blockSize - 1) / blockSize);
+
+        float[][] partitions = new float[count][fftSize];
+        for (int p = 0; p < count; p++) {
+            int start = p * blockSize;
+            int samples = Math.max(0, Math.min(blockSize, length - start));
+            System.arraycopy(ir, start, partitions[p], 0, samples);
+            fft.realForward(partitions[p]);
+        }
+        return new PartitionedIR(blockSize, length, partitions);
+    }
+
+    public int getBlockSize() {
+        return blockSize;
+    }
+
+    public int getFftSize() {
+        return partitions[0].length;
+    }
+
+    public int getIRLength() {
+        return irLength;
+    }
+
+    public int getPartitionCount() {
+        return partitions.length;
+    }
+
+    /**
+     * Get the spectrum of one partition. Shared: must not be modified.
+     */
+    public float[] getPartition(int index) {
+        return partitions[index];
+    }
+
+    float[][] partitions() {
+        return partitions;
+    }
+
+    /**
+     * Get the memory held by the spectra, in bytes.
+     */
+    public long getMemoryBytes() {
+        return (long) partitions.length * getFftSize() * Float.BYTES;
+    }
+}
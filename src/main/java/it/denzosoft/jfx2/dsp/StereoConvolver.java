@@ -0,0 +1,299 @@
+package it.denzosoft.jfx2.dsp;
+
+import java.util.Arrays;
+
+/**
+ * Uniformly partitioned convolution of a stereo signal, with one IR per
+ * channel or a true-stereo set of four.
+ *
+ * <p>Works like {@link PartitionedConvolver}, with one frequency-domain delay
+ * line per input channel. In true-stereo mode every output is the sum of both
+ * inputs, each through its own IR:</p>
+ * <pre>
+ *   outL = inL * LL + inR * RL
+ *   outR = inL * LR + inR * RR
+ * </pre>
+ * <p>The four paths share the two input spectra and are summed in the
+ * frequency domain, so a block costs two forward and two inverse FFTs
+ * whatever the number of IRs (four separate convolvers would need eight).
+ * When both inputs are the same array (a mono source fed to a stereo chain)
+ * the input is transformed only once.</p>
+ *
+ * <p>The IRs can be given as samples or as precomputed {@link PartitionedIR}s
+ * (shared, for instance from a cache). Processing never allocates. Output is
+ * delayed by exactly {@link #getLatency()} samples.</p>
+ */
+public class StereoConvolver {
+
+    private int blockSize;
+    private int fftSize;
+    private int irLength;
+    private int partitionCount;
+    private boolean trueStereo;
+    private FFT fft;
+
+    // IR partition spectra per path (input to output, shared read-only); LR and RL only in true stereo
+    private float[][] partitionsLL;
+    private float[][] partitionsLR;
+    private float[][] partitionsRL;
+    private float[][] partitionsRR;
+
+    // Frequency-domain delay lines of the two inputs, fdl[fdlHead] is the newest
+    private float[][] fdlL;
+    private float[][] fdlR;
+    private int fdlHead;
+
+    // Overlap-save frames and spectrum accumulators
+    private float[] frameL;
+    private float[] frameR;
+    private float[] accumulatorL;
+    private float[] accumulatorR;
+
+    // Input blocks being collected and output blocks being played
+    private float[] inputBlockL;
+    private float[] inputBlockR;
+    private float[] outputBlockL;
+    private float[] outputBlockR;
+    private int blockPosition;
+
+    private boolean prepared;
+
+    /**
+     * Prepare with one IR per channel: L to L and R to R.
+     *
+     * @param irL       IR of the left channel
+     * @param irR       IR of the right channel (may be the same array as irL)
+     * @param irLength  Length of the IRs
+     * @param blockSize Partition size, normally the audio buffer size
+     */
+    public void prepare(float[] irL, float[] irR, int irLength, int blockSize) {
+        PartitionedIR left = PartitionedIR.of(irL, irLength, blockSize);
+        prepare(left, irR == irL ? left : PartitionedIR.of(irR, irLength, blockSize));
+    }
+
+    /**
+     * Prepare with one precomputed IR per channel (may be the same instance).
+     */
+    public void prepare(PartitionedIR irL, PartitionedIR irR) {
+        prepare(irL, null, null, irR);
+    }
+
+    /**
+     * Prepare with a true-stereo set of four IRs.
+     *
+     * @param irLL      Left input to left output
+     * @param irLR      Left input to right output
+     * @param irRL      Right input to left output
+     * @param irRR      Right input to right output
+     * @param irLength  Length of the IRs
+     * @param blockSize Partition size, normally the audio buffer size
+     */
+    public void prepareTrueStereo(float[] irLL, float[] irLR, float[] irRL, float[] irRR,
+                                  int irLength, int blockSize) {
+        if (irLR == null || irRL == null) {
+            throw new IllegalArgumentException("True stereo needs all four IRs");
+        }
+        prepareTrueStereo(PartitionedIR.of(irLL, irLength, blockSize), PartitionedIR.of(irLR, irLength, blockSize),
+                PartitionedIR.of(irRL, irLength, blockSize), PartitionedIR.of(irRR, irLength, blockSize));
+    }
+
+    /**
+     * Prepare with a precomputed true-stereo set of four IRs.
+     */
+    public void prepareTrueStereo(PartitionedIR irLL, PartitionedIR irLR, PartitionedIR irRL, PartitionedIR irRR) {
+        if (irLR == null || irRL == null) {
+            throw new IllegalArgumentException("True stereo needs all four IRs");
+        }
+        prepare(irLL, irLR, irRL, irRR);
+    }
+
+    private void prepare(PartitionedIR irLL, PartitionedIR irLR, PartitionedIR irRL, PartitionedIR irRR) {
+        for (PartitionedIR ir : new PartitionedIR[]{irLR, irRL, irRR}) {
+            if (ir != null && (ir.getBlockSize() != irLL.getBlockSize()
+                    || ir.getPartitionCount() != irLL.getPartitionCount())) {
+                throw new IllegalArgumentException("IR paths differ in block size or length");
+            }
+        }
+        this.blockSize = irLL.getBlockSize();
+        this.irLength = Math.max(irLL.getIRLength(), irRR.getIRLength());
+        this.fftSize = irLL.getFftSize();
+        this.fft = FFT.forSize(fftSize);
+        this.partitionCount = irLL.getPartitionCount();
+        this.trueStereo = irLR != null;
+
+        partitionsLL = irLL.partitions();
+        partitionsRR = irRR.partitions();
+        partitionsLR = trueStereo ? irLR.partitions() : null;
+        partitionsRL = trueStereo ? irRL.partitions() : null;
+
+        fdlL = new float[partitionCount][fftSize];
+        fdlR = new float[partitionCount][fftSize];
+        fdlHead = 0;
+        frameL = new float[fftSize];
+        frameR = new float[fftSize];
+        accumulatorL = new float[fftSize];
+        accumulatorR = new float[fftSize];
+        inputBlockL = new float[blockSize];
+        inputBlockR = new float[blockSize];
+        outputBlockL = new float[blockSize];
+        outputBlockR = new float[blockSize];
+        blockPosition = 0;
+
+        prepared = true;
+    }
+
+    /**
+     * Process a stereo block. {@code inputL} and {@code inputR} may be the same array.
+     */
+    public void process(float[] inputL, float[] inputR, float[] outputL, float[] outputR, int numSamples) {
+        if (!prepared) {
+            System.arraycopy(inputL, 0, outputL, 0, numSamples);
+            System.arraycopy(inputR, 0, outputR, 0, numSamples);
+            return;
+        }
+
+        boolean sharedInput = inputL == inputR;
+        int done = 0;
+        while (done < numSamples) {
+            int count = Math.min(numSamples - done, blockSize - blockPosition);
+            System.arraycopy(inputL, done, inputBlockL, blockPosition, count);
+            System.arraycopy(inputR, done, inputBlockR, blockPosition, count);
+            System.arraycopy(outputBlockL, blockPosition, outputL, done, count);
+            System.arraycopy(outputBlockR, blockPosition, outputR, done, count);
+            blockPosition += count;
+            done += count;
+
+            if (blockPosition == blockSize) {
+                convolveStereoBlock(sharedInput);
+                blockPosition = 0;
+            }
+        }
+    }
+
+    /**
+     * Process a mono block through the left channel path (LL) only.
+     */
+    public void process(float[] input, float[] output, int numSamples) {
+        if (!prepared) {
+            System.arraycopy(input, 0, output, 0, numSamples);
+            return;
+        }
+
+        int done = 0;
+        while (done < numSamples) {
+            int count = Math.min(numSamples - done, blockSize - blockPosition);
+            System.arraycopy(input, done, inputBlockL, blockPosition, count);
+            System.arraycopy(outputBlockL, blockPosition, output, done, count);
+            blockPosition += count;
+            done += count;
+
+            if (blockPosition == blockSize) {
+                advance();
+                transformInput(frameL, inputBlockL, fdlL[fdlHead]);
+                accumulate(fdlL, partitionsLL, accumulatorL, true);
+                inverse(accumulatorL, outputBlockL);
+                blockPosition = 0;
+            }
+        }
+    }
+
+    private void convolveStereoBlock(boolean sharedInput) {
+        advance();
+        transformInput(frameL, inputBlockL, fdlL[fdlHead]);
+        if (sharedInput) {
+            // Same signal on both inputs: reuse the left spectrum
+            slide(frameR, inputBlockR);
+            System.arraycopy(fdlL[fdlHead], 0, fdlR[fdlHead], 0, fftSize);
+        } else {
+            transformInput(frameR, inputBlockR, fdlR[fdlHead]);
+        }
+
+        accumulate(fdlL, partitionsLL, accumulatorL, true);
+        accumulate(fdlR, partitionsRR, accumulatorR, true);
+        if (trueStereo) {
+            accumulate(fdlR, partitionsRL, accumulatorL, false);
+            accumulate(fdlL, partitionsLR, accumulatorR, false);
+        }
+
+        inverse(accumulatorL, outputBlockL);
+        inverse(accumulatorR, outputBlockR);
+    }
+
+    private void advance() {
+        fdlHead = fdlHead == 0 ? partitionCount - 1 : fdlHead - 1;
+    }
+
+    private void slide(float[] frame, float[] input) {
+        System.arraycopy(frame, blockSize, frame, 0, fftSize - blockSize);
+        System.arraycopy(input, 0, frame, fftSize - blockSize, blockSize);
+    }
+
+    private void transformInput(float[] frame, float[] input, float[] spectrum) {
+        slide(frame, input);
+        System.arraycopy(frame, 0, spectrum, 0, fftSize);
+        fft.realForward(spectrum);
+    }
+
+    /**
+     * Sum partition spectra times the delayed input spectra into an accumulator.
+     */
+    private void accumulate(float[][] fdl, float[][] partitions, float[] accumulator, boolean clear) {
+        if (clear) {
+            Arrays.fill(accumulator, 0);
+        }
+        int slot = fdlHead;
+        for (int p = 0; p < partitionCount; p++) {
+            FFT.multiplyAccumulate(fdl[slot], partitions[p], accumulator, fftSize);
+            slot = slot == partitionCount - 1 ? 0 : slot + 1;
+        }
+    }
+
+    private void inverse(float[] accumulator, float[] output) {
+        fft.realInverse(accumulator);
+        System.arraycopy(accumulator, fftSize - blockSize, output, 0, blockSize);
+    }
+
+    /**
+     * Reset the convolver state.
+     */
+    public void reset() {
+        if (!prepared) {
+            return;
+        }
+        for (int p = 0; p < partitionCount; p++) {
+            Arrays.fill(fdlL[p], 0);
+            Arrays.fill(fdlR[p], 0);
+        }
+        Arrays.fill(frameL, 0);
+        Arrays.fill(frameR, 0);
+        Arrays.fill(inputBlockL, 0);
+        Arrays.fill(inputBlockR, 0);
+        Arrays.fill(outputBlockL, 0);
+        Arrays.fill(outputBlockR, 0);
+        blockPosition = 0;
+    }
+
+    public int getLatency() {
+        return blockSize;
+    }
+
+    public int getIRLength() {
+        return irLength;
+    }
+
+    public boolean isTrueStereo() {
+        return trueStereo;
+    }
+
+    /**
+     * Get the memory held by the partitions, the delay lines and the buffers, in bytes.
+     */
+    public long getMemoryBytes() {
+        if (!prepared) {
+            return 0;
+        }
+        int paths = trueStereo ? 4 : partitionsRR == partitionsLL ? 1 : 2;
+        long floats = (long) (paths + 2) * partitionCount * fftSize + 4L * fftSize + 4L * blockSize;
+        return floats * Float.BYTES;
+    }
+}
@@ -10,6 +10,11 @@ import java.util.*;
  */
 public abstract class AbstractEffect implements AudioEffect {
 
+    // Default tail lengths (see getTailLength)
+    private static final float DEFAULT_TAIL_MS = 100.0f;
+    private static final float DELAY_TAIL_MS = 4000.0f;
+    private static final float REVERB_TAIL_MS = 2000.0f;
+
     protected final EffectMetadata metadata;
     protected final Map<String, Parameter> parameters;
     protected final List<Parameter> parameterList;
@@ -234,6 +239,27 @@ public abstract class AbstractEffect implements AudioEffect {
         return outputChannels;
     }
 
+    /**
+     * Tail length by category: sources and sinks always run, delays and
+     * reverbs cover their longest delay line (feedback included: the graph
+     * also waits that long for a silent output), everything else keeps a
+     * short memory (filters, envelopes, modulation delays). Override when
+     * the effect knows better.
+     */
+    @Override
+    public int getTailLength() {
+        EffectCategory category = metadata.category();
+        if (category == EffectCategory.INPUT_SOURCE || category == EffectCategory.OUTPUT_SINK) {
+            return INFINITE_TAIL;
+        }
+        float tailMs = switch (category) {
+            case DELAY -> DELAY_TAIL_MS;
+            case REVERB -> REVERB_TAIL_MS;
+            default -> DEFAULT_TAIL_MS;
+        };
+        return getLatency() + (int) (tailMs * sampleRate / 1000.0f);
+    }
+
     @Override
     public StereoMode getStereoMode() {
         return StereoMode.values()[stereoModeParam.getChoiceIndex()];
@@ -9,6 +9,11 @@ import java.util.List;
  */
 public interface AudioEffect {
 
+    /**
+     * Tail length of an effect that must run even when its input is silent.
+     */
+    int INFINITE_TAIL = Integer.MAX_VALUE;
+
     /**
      * Get the effect metadata.
      */
@@ -125,6 +130,33 @@ public interface AudioEffect {
         return 0;
     }
 
+    /**
+     * Get the tail length in samples: how long the output can still become
+     * non-silent after the input has fallen silent.
+     *
+     * <p>The graph skips an effect whose input and output have both been
+     * silent for longer than its tail. Effects with feedback (delays, reverbs)
+     * must cover their longest internal delay: an output silent for that long
+     * means the feedback line holds only silence, while a shorter silence may
+     * just be the gap between two echoes. Effects that produce sound on their
+     * own (loopers, generators) return {@link #INFINITE_TAIL}.</p>
+     *
+     * @return Tail length in samples (default {@link #INFINITE_TAIL}, never skipped)
+     */
+    default int getTailLength() {
+        return INFINITE_TAIL;
+    }
+
+    /**
+     * Get the memory held by data the effect has loaded (neural models,
+     * impulse responses), for monitoring.
+     *
+     * @return Size in bytes (default 0)
+     */
+    default long getLoadedDataBytes() {
+        return 0;
+    }
+
     /**
      * Get the number of parameters per row for UI layout.
      * Override to organize parameters into multiple rows.
@@ -1,5 +1,6 @@
 package it.denzosoft.jfx2.effects.impl;
 
+import it.denzosoft.jfx2.audio.AudioMetrics;
 import it.denzosoft.jfx2.effects.*;
 
 import javax.sound.sampled.*;
@@ -53,6 +54,11 @@ public class AudioInputEffect extends AbstractEffect {
     private List<String> deviceNames;
     private String lastError = null;
 
+    // Engine metrics receiving overruns and blocked time (null = not monitored)
+    private volatile AudioMetrics metrics;
+    // False until the first read after opening (the line fills up before the engine starts)
+    private boolean lineRead;
+
     public AudioInputEffect() {
         super(METADATA);
         initParameters();
@@ -272,6 +278,7 @@ public class AudioInputEffect extends AbstractEffect {
 
             inputLine.open(audioFormat, byteBuffer.length * 2);
             inputLine.start();
+            lineRead = false;
             deviceOpen = true;
 
             System.out.println("AudioInputEffect opened device: " +
@@ -325,7 +332,7 @@ public class AudioInputEffect extends AbstractEffect {
 
         // Read from input line
         int bytesToRead = frameCount * 2;
-        int bytesRead = inputLine.read(byteBuffer, 0, Math.min(bytesToRead, byteBuffer.length));
+        int bytesRead = readLine(Math.min(bytesToRead, byteBuffer.length));
 
         if (bytesRead > 0) {
             // Convert bytes to floats
@@ -352,6 +359,35 @@ public class AudioInputEffect extends AbstractEffect {
         System.arraycopy(outputL, 0, outputR, 0, len);
     }
 
+    /**
+     * Read from the input line, reporting overruns and the time blocked to the metrics.
+     * A line whose buffer is full before the read has dropped captured audio.
+     */
+    private int readLine(int bytes) {
+        AudioMetrics m = metrics;
+        if (m == null) {
+            return inputLine.read(byteBuffer, 0, bytes);
+        }
+        if (lineRead && inputLine.available() >= inputLine.getBufferSize()) {
+            m.recordInputOverrun();
+        }
+        lineRead = true;
+        long start = System.nanoTime();
+        int bytesRead = inputLine.read(byteBuffer, 0, bytes);
+        m.addDeviceWait(System.nanoTime() - start);
+        return bytesRead;
+    }
+
+    /**
+     * Set the engine metrics that receive capture overruns and the time
+     * spent blocked on the line.
+     *
+     * @param metrics Engine metrics (null = not monitored)
+     */
+    public void setMetrics(AudioMetrics metrics) {
+        this.metrics = metrics;
+    }
+
     private void applyGain(float[] buffer, int sampleCount) {
         boolean muted = muteParam.getValue() > 0.5f;
         float gainDb = gainParam.getValue();
@@ -1,5 +1,6 @@
 package it.denzosoft.jfx2.effects.impl;
 
+import it.denzosoft.jfx2.audio.AudioMetrics;
 import it.denzosoft.jfx2.effects.*;
 
 import javax.sound.sampled.*;
@@ -57,6 +58,11 @@ public class AudioOutputEffect extends AbstractEffect {
     // Post-gain output level for metering
     private volatile float outputLevelDb = -60f;
 
+    // Engine metrics receiving underruns and blocked time (null = not monitored)
+    private volatile AudioMetrics metrics;
+    // False until the first write after opening (the line starts empty)
+    private boolean lineWritten;
+
     public AudioOutputEffect() {
         super(METADATA);
         initParameters();
@@ -229,6 +235,7 @@ public class AudioOutputEffect extends AbstractEffect {
 
             outputLine.open(audioFormat, byteBuffer.length * 2);
             outputLine.start();
+            lineWritten = false;
             deviceOpen = true;
 
             System.out.println("AudioOutputEffect opened device: " +
@@ -279,7 +286,7 @@ public class AudioOutputEffect extends AbstractEffect {
             // Convert to bytes and write
             floatsToBytes(floatBuffer, byteBuffer, sampleCount * 2);
             int bytesToWrite = sampleCount * outputChannels * 2;
-            outputLine.write(byteBuffer, 0, Math.min(bytesToWrite, byteBuffer.length));
+            writeLine(Math.min(bytesToWrite, byteBuffer.length));
         }
     }
 
@@ -313,8 +320,37 @@ public class AudioOutputEffect extends AbstractEffect {
             // Convert to bytes and write
             floatsToBytes(floatBuffer, byteBuffer, len * 2);
             int bytesToWrite = len * outputChannels * 2;
-            outputLine.write(byteBuffer, 0, Math.min(bytesToWrite, byteBuffer.length));
+            writeLine(Math.min(bytesToWrite, byteBuffer.length));
+        }
+    }
+
+    /**
+     * Write to the output line, reporting underruns and the time blocked to the metrics.
+     * A line with less than one frame queued before the write has run dry.
+     */
+    private void writeLine(int bytes) {
+        AudioMetrics m = metrics;
+        if (m == null) {
+            outputLine.write(byteBuffer, 0, bytes);
+            return;
+        }
+        if (lineWritten && outputLine.getBufferSize() - outputLine.available() < outputChannels * 2) {
+            m.recordOutputUnderrun();
         }
+        lineWritten = true;
+        long start = System.nanoTime();
+        outputLine.write(byteBuffer, 0, bytes);
+        m.addDeviceWait(System.nanoTime() - start);
+    }
+
+    /**
+     * Set the engine metrics that receive playback underruns and the time
+     * spent blocked on the line.
+     *
+     * @param metrics Engine metrics (null = not monitored)
+     */
+    public void setMetrics(AudioMetrics metrics) {
+        this.metrics = metrics;
     }
 
     private void applyGain(float[] buffer, int sampleCount) {
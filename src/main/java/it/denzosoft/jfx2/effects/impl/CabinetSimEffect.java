@@ -328,4 +328,15 @@ public class CabinetSimEffect extends AbstractEffect {
     public int getLatency() {
         return convolverL.getLatency();
     }
+
+    @Override
+    public int getTailLength() {
+        return convolverL.getLatency() + convolverL.getIRLength();
+    }
+
+    @Override
+    public long getLoadedDataBytes() {
+        long irBytes = currentIR != null ? (long) currentIR.length * Float.BYTES : 0;
+        return irBytes + convolverL.getMemoryBytes() + convolverR.getMemoryBytes();
+    }
 }
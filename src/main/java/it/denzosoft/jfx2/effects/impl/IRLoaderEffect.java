@@ -1,9 +1,15 @@
 package it.denzosoft.jfx2.effects.impl;
 
-import it.denzosoft.jfx2.dsp.FFTConvolver;
+import it.denzosoft.jfx2.audio.IRCache;
+import it.denzosoft.jfx2.audio.IRSamples;
+import it.denzosoft.jfx2.dsp.Convolver;
+import it.denzosoft.jfx2.dsp.NonUniformConvolver;
+import it.denzosoft.jfx2.dsp.PartitionedIR;
+import it.denzosoft.jfx2.dsp.StereoConvolver;
 import it.denzosoft.jfx2.effects.*;
+import it.denzosoft.jfx2.jfr.FileLoadEvent;
 
-import javax.sound.sampled.*;
+import javax.sound.sampled.UnsupportedAudioFileException;
 import java.io.File;
 import java.io.IOException;
 
@@ -14,8 +20,21 @@ import java.io.IOException;
  * using FFT-based convolution. This is commonly used for cabinet simulation,
  * room reverb, or other convolution-based effects.</p>
  *
+ * <p>The IR is split into partitions of one audio buffer
+ * ({@link StereoConvolver}, both channels in one engine), so the latency is
+ * one buffer and the cost per buffer grows gently with the IR length: long
+ * room IRs work live.
+ * The Non-Uniform engine ({@link NonUniformConvolver}) removes that buffer of
+ * latency by convolving the head of the IR directly and moving the far tail
+ * to a background thread.</p>
+ *
+ * <p>The convolvers of a loaded IR are published together as one
+ * {@link ConvolutionEngine}, which the audio thread reads once per block, so
+ * a block never mixes the convolvers of two loads.</p>
+ *
  * <p>Features:
  * - Loads mono or stereo WAV files (16/24/32 bit)
+ * - Loads 4-channel WAV files as true stereo (LL, LR, RL, RR)
  * - Automatic sample rate conversion
  * - Adjustable mix (dry/wet balance)
  * - Pre-delay for timing adjustment
@@ -31,9 +50,6 @@ public class IRLoaderEffect extends AbstractEffect {
             EffectCategory.AMP_SIM
     );
 
-    // Maximum IR length in samples (~2 seconds at 48kHz)
-    private static final int MAX_IR_SAMPLES = 96000;
-
     // Parameters
     private final Parameter mixParam;
     private final Parameter gainParam;
@@ -41,19 +57,21 @@ public class IRLoaderEffect extends AbstractEffect {
     private final Parameter lowCutParam;
     private final Parameter highCutParam;
     private final Parameter trimParam;
+    private final Parameter engineParam;
 
-    // FFT Convolvers - Left and Right for true stereo
-    private FFTConvolver convolverL;
-    private FFTConvolver convolverR;
+    // Convolvers of the loaded IR (null = none)
+    private volatile ConvolutionEngine engine;
+    private float[] convolvedL;
+    private float[] convolvedR;
 
-    // IR data
-    private float[] irDataL;
-    private float[] irDataR;
+    // IR data, shared through the IR cache
+    private IRSamples irSamples;
     private int irLength;
     private int irSampleRate;
     private boolean irStereo;
+    private boolean irTrueStereo;
     private String currentFilePath;
-    private boolean irLoaded;
+    private volatile boolean irLoaded;
 
     // Simple one-pole filters for tone shaping
     private float lowCutStateL;
@@ -96,6 +114,11 @@ public class IRLoaderEffect extends AbstractEffect {
                 "Use only a portion of the IR. Lower values reduce latency and CPU.",
                 10.0f, 100.0f, 100.0f, "%");
 
+        // Engine: uniform partitions (one buffer latency) or non-uniform (zero latency)
+        engineParam = addChoiceParameter("engine", "Engine",
+                "Uniform adds one buffer of latency. Non-Uniform has none and processes the IR tail in the background. True-stereo IRs always use Uniform. Applies when the IR is loaded.",
+                new String[]{"Uniform", "Non-Uniform"}, 0);
+
         // Initialize state
         irLoaded = false;
         currentFilePath = null;
@@ -103,9 +126,10 @@ public class IRLoaderEffect extends AbstractEffect {
 
     @Override
     protected void onPrepare(int sampleRate, int maxFrameCount) {
-        // Create convolvers
-        convolverL = new FFTConvolver();
-        convolverR = new FFTConvolver();
+        // Convolvers are created when an IR is available
+        engine = null;
+        convolvedL = new float[maxFrameCount];
+        convolvedR = new float[maxFrameCount];
 
         // Reset filter states
         lowCutStateL = 0;
@@ -115,9 +139,14 @@ public class IRLoaderEffect extends AbstractEffect {
 
         updateFilters();
 
-        // If we have IR data, prepare the convolvers
-        if (irLoaded && irDataL != null) {
-            prepareConvolvers(maxFrameCount);
+        // If we have IR data, prepare the convolvers (decoding again,
+        // from the cache, if it was loaded at another sample rate)
+        if (irLoaded && irSamples != null) {
+            if (irSamples.sampleRate() != sampleRate && currentFilePath != null) {
+                readIR(currentFilePath);
+            } else {
+                prepareConvolvers(maxFrameCount);
+            }
         }
     }
 
@@ -125,7 +154,8 @@ public class IRLoaderEffect extends AbstractEffect {
      * Prepare convolvers with current IR data.
      */
     private void prepareConvolvers(int blockSize) {
-        if (irDataL == null || irLength == 0) {
+        IRSamples ir = irSamples;
+        if (ir == null || irLength == 0) {
             return;
         }
 
@@ -137,26 +167,45 @@ public class IRLoaderEffect extends AbstractEffect {
         float preDelayMs = preDelayParam.getTargetValue();
         int preDelaySamples = (int) (preDelayMs * sampleRate / 1000.0f);
 
-        int totalLength = Math.min(effectiveLength + preDelaySamples, MAX_IR_SAMPLES);
-
-        // Create IR with pre-delay
-        float[] irWithDelayL = new float[totalLength];
-        float[] irWithDelayR = new float[totalLength];
-
-        // Copy IR data after pre-delay
+        int totalLength = Math.min(effectiveLength + preDelaySamples, IRCache.MAX_IR_SAMPLES);
         int copyLen = Math.min(effectiveLength, totalLength - preDelaySamples);
-        if (copyLen > 0) {
-            System.arraycopy(irDataL, 0, irWithDelayL, preDelaySamples, copyLen);
-            if (irStereo && irDataR != null) {
-                System.arraycopy(irDataR, 0, irWithDelayR, preDelaySamples, copyLen);
+
+        // Prepare new convolvers for the selected engine, then swap them in.
+        // True stereo always runs on the stereo engine. A mono IR serves both channels.
+        if (irTrueStereo || engineParam.getChoiceIndex() == 0) {
+            // Partition spectra come from the IR cache
+            IRCache cache = IRCache.getInstance();
+            PartitionedIR irL = cache.getPartitions(ir, IRSamples.LEFT, preDelaySamples, copyLen, totalLength, blockSize);
+            PartitionedIR irR = cache.getPartitions(ir, IRSamples.RIGHT, preDelaySamples, copyLen, totalLength, blockSize);
+            StereoConvolver convolver = new StereoConvolver();
+            if (irTrueStereo) {
+                convolver.prepareTrueStereo(irL,
+                        cache.getPartitions(ir, IRSamples.LEFT_TO_RIGHT, preDelaySamples, copyLen, totalLength, blockSize),
+                        cache.getPartitions(ir, IRSamples.RIGHT_TO_LEFT, preDelaySamples, copyLen, totalLength, blockSize),
+                        irR);
             } else {
-                System.arraycopy(irDataL, 0, irWithDelayR, preDelaySamples, copyLen);
+                convolver.prepare(irL, irR);
             }
+            engine = new ConvolutionEngine(convolver, null, null);
+        } else {
+            float[] irWithDelayL = withPreDelay(ir.path(IRSamples.LEFT), preDelaySamples, copyLen, totalLength);
+            float[] irWithDelayR = irStereo
+                    ? withPreDelay(ir.path(IRSamples.RIGHT), preDelaySamples, copyLen, totalLength)
+                    : irWithDelayL;
+            Convolver newL = new NonUniformConvolver();
+            Convolver newR = new NonUniformConvolver();
+            newL.prepare(irWithDelayL, totalLength, blockSize);
+            newR.prepare(irWithDelayR, totalLength, blockSize);
+            engine = new ConvolutionEngine(null, newL, newR);
         }
+    }
 
-        // Prepare convolvers
-        convolverL.prepare(irWithDelayL, totalLength, blockSize);
-        convolverR.prepare(irWithDelayR, totalLength, blockSize);
+    private static float[] withPreDelay(float[] ir, int preDelaySamples, int copyLen, int totalLength) {
+        float[] delayed = new float[totalLength];
+        if (copyLen > 0) {
+            System.arraycopy(ir, 0, delayed, preDelaySamples, copyLen);
+        }
+        return delayed;
     }
 
     private void updateFilters() {
@@ -173,7 +222,8 @@ public class IRLoaderEffect extends AbstractEffect {
 
     @Override
     protected void onProcess(float[] input, float[] output, int frameCount) {
-        if (!irLoaded || convolverL == null) {
+        ConvolutionEngine current = engine;
+        if (!irLoaded || current == null) {
             // No IR loaded - pass through
             System.arraycopy(input, 0, output, 0, Math.min(frameCount, Math.min(input.length, output.length)));
             return;
@@ -183,8 +233,13 @@ public class IRLoaderEffect extends AbstractEffect {
         float gainLinear = dbToLinear(gainParam.getValue());
         updateFilters();
 
-        float[] convolved = new float[frameCount];
-        convolverL.process(input, convolved, frameCount);
+        ensureConvolvedCapacity(frameCount);
+        float[] convolved = convolvedL;
+        if (current.stereo != null) {
+            current.stereo.process(input, convolved, frameCount);
+        } else {
+            current.left.process(input, convolved, frameCount);
+        }
 
         float lc = lowCutCoeff;
         float hc = highCutCoeff;
@@ -207,7 +262,8 @@ public class IRLoaderEffect extends AbstractEffect {
 
     @Override
     protected void onProcessStereo(float[] inputL, float[] inputR, float[] outputL, float[] outputR, int frameCount) {
-        if (!irLoaded || convolverL == null || convolverR == null) {
+        ConvolutionEngine current = engine;
+        if (!irLoaded || current == null) {
             // No IR loaded - pass through
             int len = Math.min(frameCount, Math.min(inputL.length, Math.min(inputR.length, Math.min(outputL.length, outputR.length))));
             System.arraycopy(inputL, 0, outputL, 0, len);
@@ -219,10 +275,15 @@ public class IRLoaderEffect extends AbstractEffect {
         float gainLinear = dbToLinear(gainParam.getValue());
         updateFilters();
 
-        float[] convolvedL = new float[frameCount];
-        float[] convolvedR = new float[frameCount];
-        convolverL.process(inputL, convolvedL, frameCount);
-        convolverR.process(inputR, convolvedR, frameCount);
+        ensureConvolvedCapacity(frameCount);
+        float[] convolvedL = this.convolvedL;
+        float[] convolvedR = this.convolvedR;
+        if (current.stereo != null) {
+            current.stereo.process(inputL, inputR, convolvedL, convolvedR, frameCount);
+        } else {
+            current.left.process(inputL, convolvedL, frameCount);
+            current.right.process(inputR, convolvedR, frameCount);
+        }
 
         float lc = lowCutCoeff;
         float hc = highCutCoeff;
@@ -248,10 +309,19 @@ public class IRLoaderEffect extends AbstractEffect {
         }
     }
 
+    private void ensureConvolvedCapacity(int frameCount) {
+        if (convolvedL == null || convolvedL.length < frameCount) {
+            convolvedL = new float[frameCount];
+            convolvedR = new float[frameCount];
+        }
+    }
+
     @Override
     protected void onReset() {
-        if (convolverL != null) convolverL.reset();
-        if (convolverR != null) convolverR.reset();
+        ConvolutionEngine current = engine;
+        if (current != null) {
+            current.reset();
+        }
         lowCutStateL = 0;
         lowCutStateR = 0;
         highCutStateL = 0;
@@ -270,6 +340,13 @@ public class IRLoaderEffect extends AbstractEffect {
             return false;
         }
 
+        FileLoadEvent event = FileLoadEvent.start(FileLoadEvent.IR, filePath);
+        boolean loaded = readIR(filePath);
+        event.finish(new File(filePath).length(), loaded);
+        return loaded;
+    }
+
+    private boolean readIR(String filePath) {
         try {
             File file = new File(filePath);
             if (!file.exists()) {
@@ -277,83 +354,25 @@ public class IRLoaderEffect extends AbstractEffect {
                 return false;
             }
 
-            AudioInputStream audioStream = AudioSystem.getAudioInputStream(file);
-            AudioFormat format = audioStream.getFormat();
-
-            // Convert to PCM if necessary
-            if (format.getEncoding() != AudioFormat.Encoding.PCM_SIGNED &&
-                format.getEncoding() != AudioFormat.Encoding.PCM_FLOAT) {
-                AudioFormat targetFormat = new AudioFormat(
-                        AudioFormat.Encoding.PCM_SIGNED,
-                        format.getSampleRate(),
-                        16,
-                        format.getChannels(),
-                        format.getChannels() * 2,
-                        format.getSampleRate(),
-                        false
-                );
-                audioStream = AudioSystem.getAudioInputStream(targetFormat, audioStream);
-                format = targetFormat;
-            }
-
-            irSampleRate = (int) format.getSampleRate();
-            int channels = format.getChannels();
-            irStereo = channels >= 2;
-
-            // Read all audio data
-            byte[] audioBytes = audioStream.readAllBytes();
-            audioStream.close();
-
-            // Convert to float samples
-            int bytesPerSample = format.getSampleSizeInBits() / 8;
-            int totalFrames = audioBytes.length / (bytesPerSample * channels);
-
-            // Limit IR length
-            totalFrames = Math.min(totalFrames, MAX_IR_SAMPLES);
-
-            irDataL = new float[totalFrames];
-            if (irStereo) {
-                irDataR = new float[totalFrames];
-            } else {
-                irDataR = null;
-            }
-            irLength = totalFrames;
-
-            // Parse audio data
-            for (int i = 0; i < totalFrames; i++) {
-                int bytePos = i * bytesPerSample * channels;
-
-                // Read left sample
-                float sampleL = readSample(audioBytes, bytePos, bytesPerSample, format);
-                irDataL[i] = sampleL;
-
-                // Read right sample if stereo
-                if (irStereo) {
-                    int rightPos = bytePos + bytesPerSample;
-                    float sampleR = readSample(audioBytes, rightPos, bytesPerSample, format);
-                    irDataR[i] = sampleR;
-                }
-            }
-
-            // Resample if necessary
-            if (irSampleRate != sampleRate && sampleRate > 0) {
-                resampleIR();
-            }
-
-            // Normalize IR
-            normalizeIR();
+            // Decoded, resampled and normalized by the IR cache (or taken from it)
+            IRSamples samples = IRCache.getInstance().getSamples(file.toPath(), sampleRate);
+            irSamples = samples;
+            irSampleRate = samples.sourceSampleRate();
+            irStereo = samples.isStereo();
+            irTrueStereo = samples.isTrueStereo();
+            irLength = samples.length();
 
             currentFilePath = filePath;
             irLoaded = true;
 
             // Prepare convolvers if already prepared
-            if (convolverL != null && maxFrameCount > 0) {
+            if (maxFrameCount > 0) {
                 prepareConvolvers(maxFrameCount);
             }
 
             System.out.println("Loaded IR: " + filePath +
-                    " (" + irSampleRate + "Hz, " + (irStereo ? "stereo" : "mono") +
-                    ", " + String.format("%.2f", irLength / (float) irSampleRate) + "s)");
+                    " (" + irSampleRate + "Hz, " + (irTrueStereo ? "true stereo" : irStereo ? "stereo" : "mono") +
+                    ", " + String.format("%.2f", getIRDuration()) + "s)");
 
             return true;
 
@@ -364,126 +383,16 @@ public class IRLoaderEffect extends AbstractEffect {
         }
     }
 
-    /**
-     * Read a single sample from byte array.
-     */
-    private float readSample(byte[] data, int pos, int bytesPerSample, AudioFormat format) {
-        if (pos + bytesPerSample > data.length) {
-            return 0;
-        }
-
-        if (bytesPerSample == 2) {
-            // 16-bit little-endian
-            int low = data[pos] & 0xFF;
-            int high = data[pos + 1];
-            short s = (short) ((high << 8) | low);
-            return s / 32768.0f;
-        } else if (bytesPerSample == 3) {
-            // 24-bit little-endian
-            int b0 = data[pos] & 0xFF;
-            int b1 = data[pos + 1] & 0xFF;
-            int b2 = data[pos + 2];
-            int value = (b2 << 16) | (b1 << 8) | b0;
-            return value / 8388608.0f;
-        } else if (bytesPerSample == 4) {
-            if (format.getEncoding() == AudioFormat.Encoding.PCM_FLOAT) {
-                int bits = (data[pos] & 0xFF) |
-                           ((data[pos + 1] & 0xFF) << 8) |
-                           ((data[pos + 2] & 0xFF) << 16) |
-                           ((data[pos + 3] & 0xFF) << 24);
-                return Float.intBitsToFloat(bits);
-            } else {
-                // 32-bit int
-                int value = (data[pos] & 0xFF) |
-                            ((data[pos + 1] & 0xFF) << 8) |
-                            ((data[pos + 2] & 0xFF) << 16) |
-                            ((data[pos + 3]) << 24);
-                return value / 2147483648.0f;
-            }
-        } else if (bytesPerSample == 1) {
-            // 8-bit unsigned
-            return ((data[pos] & 0xFF) - 128) / 128.0f;
-        }
-
-        return 0;
-    }
-
-    /**
-     * Simple linear resampling of IR to current sample rate.
-     */
-    private void resampleIR() {
-        if (irSampleRate == sampleRate || sampleRate <= 0) {
-            return;
-        }
-
-        float ratio = (float) irSampleRate / sampleRate;
-        int newLength = (int) (irLength / ratio);
-        newLength = Math.min(newLength, MAX_IR_SAMPLES);
-
-        float[] newIrL = new float[newLength];
-        float[] newIrR = irStereo ? new float[newLength] : null;
-
-        for (int i = 0; i < newLength; i++) {
-            float srcPos = i * ratio;
-            int srcIdx = (int) srcPos;
-            float frac = srcPos - srcIdx;
-
-            if (srcIdx + 1 < irLength) {
-                // Linear interpolation
-                newIrL[i] = irDataL[srcIdx] * (1 - frac) + irDataL[srcIdx + 1] * frac;
-                if (irStereo && irDataR != null) {
-                    newIrR[i] = irDataR[srcIdx] * (1 - frac) + irDataR[srcIdx + 1] * frac;
-                }
-            } else if (srcIdx < irLength) {
-                newIrL[i] = irDataL[srcIdx];
-                if (irStereo && irDataR != null) {
-                    newIrR[i] = irDataR[srcIdx];
-                }
-            }
-        }
-
-        irDataL = newIrL;
-        irDataR = newIrR;
-        irLength = newLength;
-    }
-
-    /**
-     * Normalize IR to prevent clipping.
-     */
-    private void normalizeIR() {
-        // Find peak
-        float peak = 0;
-        for (int i = 0; i < irLength; i++) {
-            peak = Math.max(peak, Math.abs(irDataL[i]));
-            if (irStereo && irDataR != null) {
-                peak = Math.max(peak, Math.abs(irDataR[i]));
-            }
-        }
-
-        // Normalize to 0.5 (leave headroom)
-        if (peak > 0.001f) {
-            float scale = 0.5f / peak;
-            for (int i = 0; i < irLength; i++) {
-                irDataL[i] *= scale;
-                if (irStereo && irDataR != null) {
-                    irDataR[i] *= scale;
-                }
-            }
-        }
-    }
-
     /**
      * Clear the loaded IR.
      */
     public void clearIR() {
-        irDataL = null;
-        irDataR = null;
+        irSamples = null;
         irLength = 0;
         irLoaded = false;
+        irTrueStereo = false;
         currentFilePath = null;
-
-        if (convolverL != null) convolverL.reset();
-        if (convolverR != null) convolverR.reset();
+        engine = null;
     }
 
     /**
@@ -511,8 +420,8 @@ public class IRLoaderEffect extends AbstractEffect {
      * Get the IR duration in seconds.
      */
     public float getIRDuration() {
-        if (irLength == 0 || irSampleRate == 0) return 0;
-        return (float) irLength / irSampleRate;
+        if (irLength == 0 || irSamples == null) return 0;
+        return (float) irLength / irSamples.sampleRate();
     }
 
     /**
@@ -522,12 +431,71 @@ public class IRLoaderEffect extends AbstractEffect {
         return irStereo;
     }
 
+    /**
+     * Check if loaded IR is true stereo (four paths: LL, LR, RL, RR).
+     */
+    public boolean isIRTrueStereo() {
+        return irTrueStereo;
+    }
+
     @Override
     public int getLatency() {
-        if (convolverL != null) {
-            return convolverL.getLatency();
+        ConvolutionEngine current = engine;
+        return current != null ? current.getLatency() : 0;
+    }
+
+    @Override
+    public int getTailLength() {
+        ConvolutionEngine current = engine;
+        return current != null ? current.getLatency() + current.getIRLength() : super.getTailLength();
+    }
+
+    @Override
+    public long getLoadedDataBytes() {
+        long bytes = 0;
+        IRSamples samples = irSamples;
+        if (samples != null) bytes += samples.memoryBytes();
+        ConvolutionEngine current = engine;
+        if (current != null) bytes += current.getMemoryBytes();
+        return bytes;
+    }
+
+    /**
+     * Convolvers of one loaded IR: the stereo engine (Uniform, true stereo),
+     * or one Non-Uniform convolver per channel. Never modified once published.
+     */
+    private static final class ConvolutionEngine {
+
+        final StereoConvolver stereo;
+        final Convolver left;
+        final Convolver right;
+
+        ConvolutionEngine(StereoConvolver stereo, Convolver left, Convolver right) {
+            this.stereo = stereo;
+            this.left = left;
+            this.right = right;
+        }
+
+        void reset() {
+            if (stereo != null) {
+                stereo.reset();
+            } else {
+                left.reset();
+                right.reset();
+            }
+        }
+
+        int getLatency() {
+            return stereo != null ? stereo.getLatency() : left.getLatency();
+        }
+
+        int getIRLength() {
+            return stereo != null ? stereo.getIRLength() : left.getIRLength();
+        }
+
+        long getMemoryBytes() {
+            return stereo != null ? stereo.getMemoryBytes() : left.getMemoryBytes() + right.getMemoryBytes();
         }
-        return 0;
     }
 
     // Convenience setters
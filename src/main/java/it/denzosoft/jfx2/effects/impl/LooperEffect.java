@@ -620,6 +620,14 @@ public class LooperEffect extends AbstractEffect {
         return Path.of(System.getProperty("user.home"), "JFx2_Loops");
     }
 
+    /**
+     * The loop keeps playing while the input is silent.
+     */
+    @Override
+    public int getTailLength() {
+        return INFINITE_TAIL;
+    }
+
     @Override
     protected void onReset() {
         if (layers != null) {
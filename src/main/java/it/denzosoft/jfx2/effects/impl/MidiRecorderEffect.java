@@ -1,5 +1,6 @@
 package it.denzosoft.jfx2.effects.impl;
 
+import it.denzosoft.jfx2.dsp.FFT;
 import it.denzosoft.jfx2.effects.*;
 
 import javax.sound.midi.*;
@@ -315,7 +316,6 @@ public class MidiRecorderEffect extends AbstractEffect {
             fftBuffer[i] = buffer[i] * fftWindow[i];
         }
 
-        // Simple DFT (for real implementation, use FFT library)
         computeMagnitudes(fftBuffer, magnitudes);
 
         // Find peaks
@@ -366,21 +366,16 @@ public class MidiRecorderEffect extends AbstractEffect {
     }
 
     /**
-     * Simple DFT magnitude computation.
+     * Magnitude spectrum of a windowed frame.
      */
     private void computeMagnitudes(float[] input, float[] output) {
         int n = input.length;
         int numBins = output.length;
 
+        // In place: the windowed input is rebuilt for every analysis
+        FFT.forSize(n).realForward(input);
         for (int k = 0; k < numBins; k++) {
-            float real = 0;
-            float imag = 0;
-            for (int t = 0; t < n; t++) {
-                float angle = (float) (2 * Math.PI * k * t / n);
-                real += input[t] * Math.cos(angle);
-                imag -= input[t] * Math.sin(angle);
-            }
-            output[k] = (float) Math.sqrt(real * real + imag * imag);
+            output[k] = FFT.magnitude(input, k, n);
         }
     }
 
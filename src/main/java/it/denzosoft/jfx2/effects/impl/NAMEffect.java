@@ -1,11 +1,18 @@
 package it.denzosoft.jfx2.effects.impl;
 
 import it.denzosoft.jfx2.effects.*;
+import it.denzosoft.jfx2.nam.CompiledModel;
+import it.denzosoft.jfx2.nam.LSTM;
 import it.denzosoft.jfx2.nam.NAMLoader;
 import it.denzosoft.jfx2.nam.NAMModel;
+import it.denzosoft.jfx2.nam.QuantizationReport;
+import it.denzosoft.jfx2.nam.WeightPrecision;
 
 import java.io.IOException;
 import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.LockSupport;
 
 /**
  * Neural Amp Modeler (NAM) effect.
@@ -15,6 +22,24 @@ import java.nio.file.Path;
  *
  * <p>NAM models are trained to replicate the sound of real amplifiers
  * and effects pedals using neural networks.</p>
+ *
+ * <p>Inference runs on the audio thread by default. In worker mode it runs
+ * on a dedicated thread, one chunk of {@code maxFrameCount} samples behind:
+ * each completed input chunk is handed over through two slots and sequence
+ * counters (no locks), and the result of the previous chunk plays while the
+ * worker computes the next. This adds one chunk of latency, reported by
+ * {@link #getLatency()}; the dry signal is delayed to match. If a result is
+ * not ready when its chunk starts playing, the chunk falls back to the model
+ * input (pass-through) or to the last output value (hold).</p>
+ *
+ * <p>A loaded model reaches the audio thread at the start of a block,
+ * together with its resampling buffer. In worker mode it travels with the
+ * chunks, so the worker finishes the chunks submitted before the swap with
+ * the previous model.</p>
+ *
+ * <p>The worker thread only exists while worker mode is selected on a
+ * prepared effect: it is started and stopped by the thread selecting the
+ * mode, never by the audio thread.</p>
  */
 public class NAMEffect extends AbstractEffect {
 
@@ -29,23 +54,56 @@ public class NAMEffect extends AbstractEffect {
     private final Parameter inputGainParam;
     private final Parameter outputGainParam;
     private final Parameter mixParam;
+    private final Parameter activationsParam;
+    private final Parameter inferenceParam;
+    private final Parameter lateFallbackParam;
 
-    // NAM model
-    private NAMModel model;
-    private boolean modelLoaded = false;
+    // NAM model, as last loaded
+    private volatile NAMModel model;
+    private volatile boolean modelLoaded = false;
     private String currentModelPath;
     private NAMLoader.NAMMetadata metadata;
 
-    // Sample rate handling
-    private int effectSampleRate;
-    private int modelSampleRate;
-    private boolean needsResampling;
+    // Precision to load weights at, and the accuracy of the last quantized load
+    private WeightPrecision weightPrecision = WeightPrecision.FLOAT32;
+    private volatile QuantizationReport quantizationReport;
 
-    // Resampling state (simple linear interpolation)
-    private float resampleRatio;
-    private float resamplePhase;
-    private float lastInputSample;
-    private float lastOutputSample;
+    // Model in use on the audio thread, and the next one to use
+    private int effectSampleRate;
+    private ModelState state;
+    private final AtomicReference<ModelState> pendingState = new AtomicReference<>();
+
+    // Block buffers: wet signal at the effect rate and, per wet sample,
+    // the model sample it takes (-1 for the previous)
+    private float[] wetBuffer = new float[512];
+    private int[] modelIndex = new int[512];
+
+    // Worker mode: chunks of one buffer, slots [2][chunkSize]
+    private volatile InferenceWorker worker;  // Written under the effect lock
+    private boolean prepared;                 // Guarded by the effect lock
+    private int chunkSize;
+    private float[][] slotInput = new float[2][0];
+    private float[][] slotOutput = new float[2][0];
+    private final ModelState[] slotState = new ModelState[2];
+    private volatile long lateChunks;
+
+    // Audio thread side of worker mode: the worker receiving chunks (null = inline)
+    private InferenceWorker activeWorker;
+    private int chunkPosition;
+    private float[] fillChunk;       // Input of the current chunk
+    private long fillSequence;       // Its sequence, -1 if it cannot be submitted
+    private float[] playChunk;       // Output played during the current chunk
+    private float[] previousInput;   // Input of the previous chunk
+    private long previousSequence;
+    private float[] droppedChunk = new float[0];
+    private float[] holdChunk = new float[0];
+    private float lastWet;
+    // Dry signal delayed by one chunk, and the delayed block
+    private float[] dryDelayL = new float[0];
+    private float[] dryDelayR = new float[0];
+    private int dryPosition;
+    private float[] dryBufferL = new float[512];
+    private float[] dryBufferR = new float[512];
 
     public NAMEffect() {
         super(METADATA);
@@ -64,6 +122,40 @@ public class NAMEffect extends AbstractEffect {
         mixParam = addFloatParameter("mix", "Mix",
                 "Blend between dry and processed signal",
                 0.0f, 100.0f, 100.0f, "%");
+
+        // Activations: exact or fast approximations (LSTM models)
+        activationsParam = addChoiceParameter("activations", "Activations",
+                "Exact, or fast approximations with error below 1e-4 (LSTM models only)",
+                new String[]{"Exact", "Fast"}, 0);
+
+        // Inference: inline, or on a worker thread one buffer behind.
+        // Selecting the mode starts or stops the worker thread.
+        inferenceParam = addParameter(new Parameter("inference", "Inference",
+                "Run the model on the audio thread, or on a worker thread (adds one buffer of latency)",
+                new String[]{"Audio Thread", "Worker"}, 0) {
+            @Override
+            public void setValue(float value) {
+                super.setValue(value);
+                updateWorker();
+            }
+
+            @Override
+            public void setChoice(int index) {
+                super.setChoice(index);
+                updateWorker();
+            }
+
+            @Override
+            public void setImmediate(float value) {
+                super.setImmediate(value);
+                updateWorker();
+            }
+        });
+
+        // Output of a chunk the worker did not finish in time
+        lateFallbackParam = addChoiceParameter("lateFallback", "Late Fallback",
+                "Worker mode: play the dry input or hold the last output when a result is late",
+                new String[]{"Pass-through", "Hold"}, 0);
     }
 
     /**
@@ -84,19 +176,18 @@ public class NAMEffect extends AbstractEffect {
      */
     public boolean loadModel(Path modelPath) {
         try {
-            // Get metadata first
-            metadata = NAMLoader.getMetadata(modelPath);
+            // Read the file once: metadata and models come from its compiled form
+            CompiledModel compiled = NAMLoader.read(modelPath);
+            metadata = NAMLoader.getMetadata(compiled);
             System.out.println("NAM: Loading " + metadata.architecture() + " model from " + modelPath);
 
-            // Load model
-            model = NAMLoader.load(modelPath);
-            modelSampleRate = model.getSampleRate();
+            NAMModel loaded = NAMLoader.load(compiled);
+            loaded.quantize(weightPrecision);
+            quantizationReport = null;
             currentModelPath = modelPath.toString();
-            modelLoaded = true;
-
-            // Update resampling if already prepared
-            if (effectSampleRate > 0) {
-                updateResampling();
+            publishModel(loaded);
+            if (loaded.getWeightPrecision() != WeightPrecision.FLOAT32) {
+                checkQuantization(compiled, loaded);
             }
 
             System.out.println(metadata);
@@ -104,7 +195,7 @@ public class NAMEffect extends AbstractEffect {
 
         } catch (IOException e) {
             System.err.println("NAM: Failed to load model: " + e.getMessage());
-            modelLoaded = false;
+            publishModel(null);
             return false;
         }
     }
@@ -130,6 +221,65 @@ public class NAMEffect extends AbstractEffect {
         return metadata;
     }
 
+    /**
+     * Start comparing a quantized model with its float32 original, in the
+     * background, and switch to the float32 weights if the model is not
+     * {@link QuantizationReport#isSafe() safe}.
+     */
+    private void checkQuantization(CompiledModel compiled, NAMModel quantized) {
+        Thread check = new Thread(() -> {
+            try {
+                // The model in use is playing: compare a copy of it
+                NAMModel reference = NAMLoader.load(compiled);
+                NAMModel copy = NAMLoader.load(compiled);
+                copy.quantize(quantized.getWeightPrecision());
+                QuantizationReport report = QuantizationReport.measure(reference, copy);
+                acceptQuantization(quantized, reference, report);
+            } catch (IOException | RuntimeException e) {
+                System.err.println("NAM: Quantization check failed: " + e.getMessage());
+            }
+        }, "NAM-Quantization-Check");
+        check.setDaemon(true);
+        check.start();
+    }
+
+    private synchronized void acceptQuantization(NAMModel quantized, NAMModel reference,
+                                                 QuantizationReport report) {
+        if (model != quantized) {
+            return;  // Another model was loaded meanwhile
+        }
+        quantizationReport = report;
+        System.out.println("NAM: " + report);
+        if (!report.isSafe()) {
+            System.err.println("NAM: Quantization not accurate enough, using float32 weights");
+            publishModel(reference);
+        }
+    }
+
+    /**
+     * Set the precision of the weights of models loaded from now on.
+     *
+     * <p>A quantized model is used at once, and compared with its float32
+     * original on a test signal in the background: if it is not
+     * {@link QuantizationReport#isSafe() safe}, the effect switches to the
+     * float32 weights. LSTM models always keep float32 weights.</p>
+     */
+    public void setWeightPrecision(WeightPrecision precision) {
+        this.weightPrecision = precision;
+    }
+
+    public WeightPrecision getWeightPrecision() {
+        return weightPrecision;
+    }
+
+    /**
+     * Get the accuracy of the last quantized load, or null if loaded as float32
+     * or while it is still being measured.
+     */
+    public QuantizationReport getQuantizationReport() {
+        return quantizationReport;
+    }
+
     /**
      * Get the loaded NAM model.
      */
@@ -138,24 +288,47 @@ public class NAMEffect extends AbstractEffect {
     }
 
     @Override
-    protected void onPrepare(int sampleRate, int maxFrameCount) {
+    protected synchronized void onPrepare(int sampleRate, int maxFrameCount) {
         this.effectSampleRate = sampleRate;
-        updateResampling();
+        stopWorker();
+        if (wetBuffer.length < maxFrameCount) {
+            wetBuffer = new float[maxFrameCount];
+            modelIndex = new int[maxFrameCount];
+            dryBufferL = new float[maxFrameCount];
+            dryBufferR = new float[maxFrameCount];
+        }
+        publishModel(model);
+
+        chunkSize = Math.max(1, maxFrameCount);
+        slotInput = new float[2][chunkSize];
+        slotOutput = new float[2][chunkSize];
+        droppedChunk = new float[chunkSize];
+        holdChunk = new float[chunkSize];
+        dryDelayL = new float[chunkSize];
+        dryDelayR = new float[chunkSize];
+        activeWorker = null;
+        prepared = true;
+        updateWorker();
     }
 
-    private void updateResampling() {
-        if (modelLoaded && model != null) {
-            needsResampling = (effectSampleRate != modelSampleRate);
-            resampleRatio = (float) modelSampleRate / effectSampleRate;
-            resamplePhase = 0;
-            lastInputSample = 0;
-            lastOutputSample = 0;
+    /**
+     * Make a model (or none) the one the audio thread uses from its next block.
+     */
+    private synchronized void publishModel(NAMModel loaded) {
+        model = loaded;
+        modelLoaded = loaded != null;
+        pendingState.set(new ModelState(loaded, effectSampleRate, wetBuffer.length));
+    }
 
-            if (needsResampling) {
-                System.out.println("NAM: Resampling " + effectSampleRate + " Hz -> " +
-                        modelSampleRate + " Hz (ratio: " + resampleRatio + ")");
-            }
+    /**
+     * Take over the last published model (audio thread, at the start of a block).
+     */
+    private ModelState adoptModel() {
+        ModelState pending = pendingState.getAndSet(null);
+        if (pending != null) {
+            state = pending;
         }
+        return state;
     }
 
     @Override
@@ -164,53 +337,306 @@ public class NAMEffect extends AbstractEffect {
         float outputGainLinear = dbToLinear(outputGainParam.getValue());
         float mix = mixParam.getValue() / 100.0f;
 
+        int len = Math.min(frameCount, Math.min(input.length, output.length));
+
         // If no model loaded, pass through with gain
-        if (!modelLoaded || model == null) {
-            for (int i = 0; i < frameCount && i < output.length; i++) {
+        ModelState current = adoptModel();
+        if (current == null || current.model == null) {
+            for (int i = 0; i < len; i++) {
                 output[i] = input[i] * outputGainLinear;
             }
             return;
         }
 
-        // Process each sample
-        for (int i = 0; i < frameCount && i < output.length && i < input.length; i++) {
-            float dry = input[i];
-            float scaledInput = dry * inputGainLinear;
+        // Process in blocks of at most the buffer size
+        for (int start = 0; start < len; start += wetBuffer.length) {
+            int n = Math.min(wetBuffer.length, len - start);
+            for (int i = 0; i < n; i++) {
+                wetBuffer[i] = input[start + i] * inputGainLinear;
+            }
 
-            float wet;
-            if (needsResampling) {
-                wet = processWithResampling(scaledInput);
-            } else {
-                wet = model.process(scaledInput);
+            // Dry signal aligned with the (possibly delayed) wet signal
+            float[] dry = input;
+            int dryStart = start;
+            if (runModel(n)) {
+                delayDry(input, null, start, n);
+                dry = dryBufferL;
+                dryStart = 0;
             }
 
             // Apply output gain and mix
-            wet *= outputGainLinear;
-            output[i] = dry * (1.0f - mix) + wet * mix;
+            for (int i = 0; i < n; i++) {
+                float wet = wetBuffer[i] * outputGainLinear;
+                output[start + i] = dry[dryStart + i] * (1.0f - mix) + wet * mix;
+            }
+        }
+    }
+
+    /**
+     * Run the model over the first {@code n} samples of the wet buffer, inline
+     * or through the worker.
+     *
+     * @return true if the wet signal is delayed by one chunk (worker mode)
+     */
+    private boolean runModel(int n) {
+        InferenceWorker selected = inferenceParam.getChoiceIndex() == 1 ? worker : null;
+        if (selected != activeWorker) {
+            // The model is ours again once the previous worker is idle
+            awaitWorker();
+            activeWorker = null;
+            if (selected != null) {
+                startChunks(selected);
+            }
+        }
+        if (activeWorker == null) {
+            processModel(state, wetBuffer, n);
+            return false;
+        }
+
+        float[] wet = wetBuffer;
+        for (int i = 0; i < n; ) {
+            if (chunkPosition == 0) {
+                beginChunk();
+            }
+            int m = Math.min(n - i, chunkSize - chunkPosition);
+            float[] play = playChunk;
+            float[] fill = fillChunk;
+            // Per sample, read before write: play and fill may be the same chunk
+            for (int j = 0; j < m; j++) {
+                float x = wet[i + j];
+                wet[i + j] = play[chunkPosition + j];
+                fill[chunkPosition + j] = x;
+            }
+            lastWet = wet[i + m - 1];
+            i += m;
+            chunkPosition += m;
+            if (chunkPosition == chunkSize) {
+                endChunk();
+            }
+        }
+        return true;
+    }
+
+    private void startChunks(InferenceWorker selected) {
+        chunkPosition = 0;
+        previousInput = null;
+        previousSequence = -1;
+        lastWet = 0;
+        Arrays.fill(dryDelayL, 0);
+        Arrays.fill(dryDelayR, 0);
+        dryPosition = 0;
+        activeWorker = selected;
+    }
+
+    /**
+     * Pick the output of the chunk starting now (the worker's result for the
+     * previous chunk, or the fallback) and a buffer for its input.
+     */
+    private void beginChunk() {
+        InferenceWorker chunkWorker = activeWorker;
+        if (previousSequence >= 0 && chunkWorker.completedChunks > previousSequence) {
+            playChunk = slotOutput[(int) (previousSequence & 1)];
+        } else {
+            if (previousInput != null) {
+                lateChunks++;
+            }
+            if (lateFallbackParam.getChoiceIndex() == 0 && previousInput != null) {
+                playChunk = previousInput;
+            } else {
+                Arrays.fill(holdChunk, lastWet);
+                playChunk = holdChunk;
+            }
+        }
+
+        // A free slot unless the worker is a whole chunk behind: the
+        // chunk is then not submitted and the model skips it
+        long sequence = chunkWorker.submittedChunks;
+        if (sequence - chunkWorker.completedChunks < 2) {
+            fillSequence = sequence;
+            fillChunk = slotInput[(int) (sequence & 1)];
+            slotState[(int) (sequence & 1)] = state;
+        } else {
+            fillSequence = -1;
+            fillChunk = droppedChunk;
+        }
+    }
+
+    private void endChunk() {
+        if (fillSequence >= 0) {
+            activeWorker.submit(fillSequence + 1);
         }
+        previousInput = fillChunk;
+        previousSequence = fillSequence;
+        chunkPosition = 0;
     }
 
     /**
-     * Process with simple resampling (linear interpolation).
+     * Delay the dry input by one chunk into the dry buffers ({@code inputR}
+     * may be null).
      */
-    private float processWithResampling(float inputSample) {
-        // Accumulate phase
-        resamplePhase += resampleRatio;
+    private void delayDry(float[] inputL, float[] inputR, int start, int n) {
+        int position = dryPosition;
+        for (int i = 0; i < n; i++) {
+            dryBufferL[i] = dryDelayL[position];
+            dryDelayL[position] = inputL[start + i];
+            if (inputR != null) {
+                dryBufferR[i] = dryDelayR[position];
+                dryDelayR[position] = inputR[start + i];
+            }
+            if (++position == chunkSize) {
+                position = 0;
+            }
+        }
+        dryPosition = position;
+    }
 
-        // Process model samples as needed
-        while (resamplePhase >= 1.0f) {
-            // Interpolate input for model
-            float t = resamplePhase - (int) resamplePhase;
-            float interpolatedInput = lastInputSample * (1 - t) + inputSample * t;
+    /**
+     * Start or stop the worker thread to match the selected inference mode
+     * (not on the audio thread).
+     */
+    private synchronized void updateWorker() {
+        if (inferenceParam == null) {
+            return;  // Still constructing
+        }
+        boolean wanted = prepared && inferenceParam.getChoiceIndex() == 1;
+        if (wanted && worker == null) {
+            worker = new InferenceWorker();
+        } else if (!wanted) {
+            stopWorker();
+        }
+    }
 
-            // Process through model
-            lastOutputSample = model.process(interpolatedInput);
+    private synchronized void stopWorker() {
+        InferenceWorker stopping = worker;
+        if (stopping != null) {
+            // The audio thread stops handing chunks over at its next block
+            worker = null;
+            stopping.stop();
+        }
+    }
 
-            resamplePhase -= 1.0f;
+    /**
+     * Wait until the worker receiving chunks is idle (audio thread).
+     */
+    private void awaitWorker() {
+        InferenceWorker chunkWorker = activeWorker;
+        if (chunkWorker != null) {
+            chunkWorker.awaitIdle();
+        }
+    }
+
+    /**
+     * Inference thread of worker mode, with its own chunk sequence.
+     */
+    private final class InferenceWorker implements Runnable {
+
+        private final Thread thread;
+        private volatile boolean running = true;
+        // Chunks handed over, and chunks finished (single writer each)
+        private volatile long submittedChunks;
+        private volatile long completedChunks;
+
+        InferenceWorker() {
+            thread = new Thread(this, "NAM-Inference");
+            thread.setDaemon(true);
+            thread.setPriority(Thread.MAX_PRIORITY);
+            thread.start();
         }
 
-        lastInputSample = inputSample;
-        return lastOutputSample;
+        void submit(long sequence) {
+            submittedChunks = sequence;
+            LockSupport.unpark(thread);
+        }
+
+        /**
+         * Wait until all submitted chunks are done, or the thread has ended.
+         */
+        void awaitIdle() {
+            while (completedChunks != submittedChunks && thread.isAlive()) {
+                Thread.onSpinWait();
+            }
+        }
+
+        void stop() {
+            running = false;
+            LockSupport.unpark(thread);
+            try {
+                thread.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        @Override
+        public void run() {
+            while (running) {
+                long sequence = completedChunks;
+                if (sequence == submittedChunks) {
+                    LockSupport.park(this);
+                    continue;
+                }
+                int slot = (int) (sequence & 1);
+                float[] chunk = slotOutput[slot];
+                System.arraycopy(slotInput[slot], 0, chunk, 0, chunkSize);
+                try {
+                    processModel(slotState[slot], chunk, chunkSize);
+                } catch (RuntimeException e) {
+                    System.err.println("NAM: Inference failed: " + e.getMessage());
+                    Arrays.fill(chunk, 0);
+                }
+                completedChunks = sequence + 1;
+            }
+        }
+    }
+
+    /**
+     * Run a model in place over the first {@code n} samples of a buffer.
+     *
+     * <p>The model always gets whole blocks: even when resampling, the model
+     * rate input is built first and processed in one call.</p>
+     */
+    private void processModel(ModelState run, float[] buffer, int n) {
+        NAMModel model = run.model;
+        if (model instanceof LSTM lstm) {
+            lstm.setFastActivations(activationsParam.getChoiceIndex() == 1);
+        }
+
+        if (!run.needsResampling) {
+            model.process(buffer, buffer, n);
+            return;
+        }
+
+        // Simple resampling (linear interpolation) of the input
+        float[] modelBuffer = run.modelBuffer;
+        int count = 0;
+        for (int i = 0; i < n; i++) {
+            float inputSample = buffer[i];
+
+            // Accumulate phase
+            run.resamplePhase += run.resampleRatio;
+
+            // Model samples as needed
+            while (run.resamplePhase >= 1.0f) {
+                float t = run.resamplePhase - (int) run.resamplePhase;
+                modelBuffer[count++] = run.lastInputSample * (1 - t) + inputSample * t;
+                run.resamplePhase -= 1.0f;
+            }
+
+            run.lastInputSample = inputSample;
+            modelIndex[i] = count - 1;
+        }
+
+        // Process through model
+        model.process(modelBuffer, modelBuffer, count);
+
+        // Each output holds the latest model sample
+        for (int i = 0; i < n; i++) {
+            int index = modelIndex[i];
+            buffer[i] = index >= 0 ? modelBuffer[index] : run.lastOutputSample;
+        }
+        if (count > 0) {
+            run.lastOutputSample = modelBuffer[count - 1];
+        }
     }
 
     @Override
@@ -223,7 +649,8 @@ public class NAMEffect extends AbstractEffect {
                 Math.min(outputL.length, outputR.length))));
 
         // If no model loaded, pass through with gain
-        if (!modelLoaded || model == null) {
+        ModelState current = adoptModel();
+        if (current == null || current.model == null) {
             for (int i = 0; i < len; i++) {
                 outputL[i] = inputL[i] * outputGainLinear;
                 outputR[i] = inputR[i] * outputGainLinear;
@@ -232,37 +659,105 @@ public class NAMEffect extends AbstractEffect {
         }
 
         // Process mono (mix L+R) through model, then apply to stereo
-        for (int i = 0; i < len; i++) {
-            float dryL = inputL[i];
-            float dryR = inputR[i];
-
-            // Mix to mono for processing
-            float dryMono = (dryL + dryR) * 0.5f;
-            float scaledInput = dryMono * inputGainLinear;
-
-            float wet;
-            if (needsResampling) {
-                wet = processWithResampling(scaledInput);
-            } else {
-                wet = model.process(scaledInput);
+        for (int start = 0; start < len; start += wetBuffer.length) {
+            int n = Math.min(wetBuffer.length, len - start);
+            for (int i = 0; i < n; i++) {
+                float dryMono = (inputL[start + i] + inputR[start + i]) * 0.5f;
+                wetBuffer[i] = dryMono * inputGainLinear;
             }
 
-            wet *= outputGainLinear;
+            float[] dryL = inputL;
+            float[] dryR = inputR;
+            int dryStart = start;
+            if (runModel(n)) {
+                delayDry(inputL, inputR, start, n);
+                dryL = dryBufferL;
+                dryR = dryBufferR;
+                dryStart = 0;
+            }
 
             // Output: blend with original stereo
-            outputL[i] = dryL * (1.0f - mix) + wet * mix;
-            outputR[i] = dryR * (1.0f - mix) + wet * mix;
+            for (int i = 0; i < n; i++) {
+                float wet = wetBuffer[i] * outputGainLinear;
+                outputL[start + i] = dryL[dryStart + i] * (1.0f - mix) + wet * mix;
+                outputR[start + i] = dryR[dryStart + i] * (1.0f - mix) + wet * mix;
+            }
         }
     }
 
     @Override
     protected void onReset() {
-        if (model != null) {
-            model.reset();
+        awaitWorker();
+        activeWorker = null;
+        ModelState current = state;
+        if (current != null) {
+            current.reset();
+        }
+    }
+
+    @Override
+    public int getLatency() {
+        return modelLoaded && inferenceParam.getChoiceIndex() == 1 && worker != null ? chunkSize : 0;
+    }
+
+    /**
+     * Get the number of worker-mode chunks whose result was late.
+     */
+    public long getLateChunks() {
+        return lateChunks;
+    }
+
+    @Override
+    public synchronized void release() {
+        prepared = false;
+        stopWorker();
+        super.release();
+    }
+
+    @Override
+    public long getLoadedDataBytes() {
+        NAMModel loaded = model;
+        return loaded != null ? loaded.getWeightBytes() : 0;
+    }
+
+    /**
+     * A model with its resampling state and buffer, used by one thread at a
+     * time: the audio thread, or the worker for the chunks it was sent with.
+     */
+    private static final class ModelState {
+
+        final NAMModel model;
+        final boolean needsResampling;
+        final float resampleRatio;
+        final float[] modelBuffer;
+
+        // Resampling state (simple linear interpolation)
+        float resamplePhase;
+        float lastInputSample;
+        float lastOutputSample;
+
+        ModelState(NAMModel model, int effectSampleRate, int maxFrameCount) {
+            this.model = model;
+            int modelSampleRate = model != null ? model.getSampleRate() : effectSampleRate;
+            this.needsResampling = model != null && effectSampleRate > 0 && modelSampleRate != effectSampleRate;
+            this.resampleRatio = effectSampleRate > 0 ? (float) modelSampleRate / effectSampleRate : 1.0f;
+            // The phase stays below 1 between blocks: a block of n
+            // samples needs at most n * ratio + 1 model samples
+            this.modelBuffer = new float[needsResampling ? (int) Math.ceil(maxFrameCount * resampleRatio) + 1 : 0];
+            if (needsResampling) {
+                System.out.println("NAM: Resampling " + effectSampleRate + " Hz -> " +
+                        modelSampleRate + " Hz (ratio: " + resampleRatio + ")");
+            }
+        }
+
+        void reset() {
+            if (model != null) {
+                model.reset();
+            }
+            resamplePhase = 0;
+            lastInputSample = 0;
+            lastOutputSample = 0;
         }
-        resamplePhase = 0;
-        lastInputSample = 0;
-        lastOutputSample = 0;
     }
 
     // Convenience setters
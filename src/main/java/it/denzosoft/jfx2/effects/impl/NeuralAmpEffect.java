@@ -234,6 +234,12 @@ public class NeuralAmpEffect extends AbstractEffect {
         inputBufferPos = 0;
     }
 
+    @Override
+    public long getLoadedDataBytes() {
+        NeuralNetwork loaded = network;
+        return loaded != null ? (long) loaded.getParameterCount() * Float.BYTES : 0;
+    }
+
     // Convenience setters
     public void setInputGain(float dB) { inputGainParam.setValue(dB); }
     public void setOutputGain(float dB) { outputGainParam.setValue(dB); }
@@ -1,5 +1,6 @@
 package it.denzosoft.jfx2.effects.impl;
 
+import it.denzosoft.jfx2.dsp.FFT;
 import it.denzosoft.jfx2.effects.*;
 
 import java.util.Arrays;
@@ -50,9 +51,10 @@ public class NoiseSuppressorEffect extends AbstractEffect {
     // === ROW 4: Output ===
     private final Parameter mixParam;
 
-    // FFT buffers
-    private float[] realBuffer;
-    private float[] imagBuffer;
+    // FFT buffers (spectrum is packed, see FFT)
+    private final FFT fft = FFT.forSize(FFT_SIZE);
+    private float[] spectrum;
+    private float[] magnitude;
     private float[] windowedInput;
     private float[] outputAccum;
 
@@ -75,10 +77,6 @@ public class NoiseSuppressorEffect extends AbstractEffect {
     // Hann window
     private float[] window;
 
-    // Twiddle factors
-    private float[] twiddleReal;
-    private float[] twiddleImag;
-
     // Gain smoothing per bin
     private float[] smoothedGain;
 
@@ -121,8 +119,8 @@ public class NoiseSuppressorEffect extends AbstractEffect {
     @Override
     protected void onPrepare(int sampleRate, int maxFrameCount) {
         // Allocate FFT buffers
-        realBuffer = new float[FFT_SIZE];
-        imagBuffer = new float[FFT_SIZE];
+        spectrum = new float[FFT_SIZE];
+        magnitude = new float[FFT_SIZE / 2 + 1];
         windowedInput = new float[FFT_SIZE];
         outputAccum = new float[FFT_SIZE];
 
@@ -152,24 +150,10 @@ public class NoiseSuppressorEffect extends AbstractEffect {
             window[i] = 0.5f * (1.0f - (float) Math.cos(2.0 * Math.PI * i / (FFT_SIZE - 1)));
         }
 
-        // Compute twiddle factors
-        computeTwiddleFactors();
-
         // Initialize output accumulator
         Arrays.fill(outputAccum, 0);
     }
 
-    private void computeTwiddleFactors() {
-        twiddleReal = new float[FFT_SIZE / 2];
-        twiddleImag = new float[FFT_SIZE / 2];
-
-        for (int i = 0; i < FFT_SIZE / 2; i++) {
-            double angle = -2.0 * Math.PI * i / FFT_SIZE;
-            twiddleReal[i] = (float) Math.cos(angle);
-            twiddleImag[i] = (float) Math.sin(angle);
-        }
-    }
-
     @Override
     protected void onProcess(float[] input, float[] output, int frameCount) {
         float thresholdLin = dbToLinear(thresholdParam.getValue());
@@ -229,22 +213,13 @@ public class NoiseSuppressorEffect extends AbstractEffect {
             windowedInput[i] = inputRing[idx] * window[i];
         }
 
-        // Copy to FFT buffers
-        System.arraycopy(windowedInput, 0, realBuffer, 0, FFT_SIZE);
-        Arrays.fill(imagBuffer, 0);
-
         // Forward FFT
-        fft(realBuffer, imagBuffer, false);
+        System.arraycopy(windowedInput, 0, spectrum, 0, FFT_SIZE);
+        fft.realForward(spectrum);
 
         // Calculate magnitude spectrum
-        float[] magnitude = new float[FFT_SIZE / 2 + 1];
-        float[] phase = new float[FFT_SIZE / 2 + 1];
-
         for (int i = 0; i <= FFT_SIZE / 2; i++) {
-            float re = realBuffer[i];
-            float im = imagBuffer[i];
-            magnitude[i] = (float) Math.sqrt(re * re + im * im);
-            phase[i] = (float) Math.atan2(im, re);
+            magnitude[i] = FFT.magnitude(spectrum, i, FFT_SIZE);
         }
 
         // Check if we should learn noise (use RMS of frame)
@@ -294,88 +269,30 @@ public class NoiseSuppressorEffect extends AbstractEffect {
                 float smoothCoeff = smoothing * 0.95f + 0.01f;
                 smoothedGain[i] = smoothCoeff * smoothedGain[i] + (1 - smoothCoeff) * gain;
 
-                // Apply smoothed gain
-                magnitude[i] *= smoothedGain[i];
+                // Apply smoothed gain (a real gain keeps the phase)
+                scaleBin(i, smoothedGain[i]);
             }
         }
 
-        // Reconstruct complex spectrum
-        for (int i = 0; i <= FFT_SIZE / 2; i++) {
-            realBuffer[i] = magnitude[i] * (float) Math.cos(phase[i]);
-            imagBuffer[i] = magnitude[i] * (float) Math.sin(phase[i]);
-        }
-
-        // Mirror for negative frequencies
-        for (int i = 1; i < FFT_SIZE / 2; i++) {
-            realBuffer[FFT_SIZE - i] = realBuffer[i];
-            imagBuffer[FFT_SIZE - i] = -imagBuffer[i];
-        }
-
         // Inverse FFT
-        fft(realBuffer, imagBuffer, true);
+        fft.realInverse(spectrum);
 
         // Overlap-add to output ring buffer
         int writeStart = (outputReadPos + FFT_SIZE - HOP_SIZE + outputRing.length) % outputRing.length;
         for (int i = 0; i < FFT_SIZE; i++) {
             int idx = (writeStart + i) % outputRing.length;
-            outputRing[idx] += realBuffer[i] * window[i];
+            outputRing[idx] += spectrum[i] * window[i];
         }
     }
 
-    /**
-     * In-place radix-2 FFT/IFFT.
-     */
-    private void fft(float[] real, float[] imag, boolean inverse) {
-        int n = FFT_SIZE;
-        int halfN = n / 2;
-
-        // Bit-reversal permutation
-        for (int i = 0, j = 0; i < n; i++) {
-            if (j > i) {
-                float tempR = real[i];
-                float tempI = imag[i];
-                real[i] = real[j];
-                imag[i] = imag[j];
-                real[j] = tempR;
-                imag[j] = tempI;
-            }
-            int m = halfN;
-            while (m >= 1 && j >= m) {
-                j -= m;
-                m >>= 1;
-            }
-            j += m;
-        }
-
-        // Cooley-Tukey FFT
-        for (int mmax = 1; mmax < n; mmax <<= 1) {
-            int step = mmax << 1;
-            int twiddleStep = n / step;
-
-            for (int m = 0; m < mmax; m++) {
-                int twiddleIdx = m * twiddleStep;
-                float wr = twiddleReal[twiddleIdx];
-                float wi = inverse ? -twiddleImag[twiddleIdx] : twiddleImag[twiddleIdx];
-
-                for (int i = m; i < n; i += step) {
-                    int j = i + mmax;
-                    float tr = wr * real[j] - wi * imag[j];
-                    float ti = wr * imag[j] + wi * real[j];
-                    real[j] = real[i] - tr;
-                    imag[j] = imag[i] - ti;
-                    real[i] += tr;
-                    imag[i] += ti;
-                }
-            }
-        }
-
-        // Scale for inverse transform
-        if (inverse) {
-            float scale = 1.0f / n;
-            for (int i = 0; i < n; i++) {
-                real[i] *= scale;
-                imag[i] *= scale;
-            }
+    private void scaleBin(int bin, float gain) {
+        if (bin == 0) {
+            spectrum[0] *= gain;
+        } else if (bin == FFT_SIZE / 2) {
+            spectrum[1] *= gain;
+        } else {
+            spectrum[2 * bin] *= gain;
+            spectrum[2 * bin + 1] *= gain;
         }
     }
 
@@ -1,5 +1,6 @@
 package it.denzosoft.jfx2.effects.impl;
 
+import it.denzosoft.jfx2.dsp.FFT;
 import it.denzosoft.jfx2.effects.*;
 
 /**
@@ -539,16 +540,12 @@ public class PitchSynthEffect extends AbstractEffect {
         }
 
         // Perform FFT (in-place, real input)
-        float[] real = new float[FFT_SIZE];
-        float[] imag = new float[FFT_SIZE];
-        System.arraycopy(fftBuffer, 0, real, 0, FFT_SIZE);
-
-        fft(real, imag, FFT_SIZE);
+        FFT.forSize(FFT_SIZE).realForward(fftBuffer);
 
         // Calculate magnitudes
         float maxMag = 0;
         for (int i = 0; i < FFT_SIZE / 2; i++) {
-            magnitudes[i] = (float) Math.sqrt(real[i] * real[i] + imag[i] * imag[i]);
+            magnitudes[i] = FFT.magnitude(fftBuffer, i, FFT_SIZE);
             if (magnitudes[i] > maxMag) maxMag = magnitudes[i];
         }
 
@@ -621,58 +618,6 @@ public class PitchSynthEffect extends AbstractEffect {
         }
     }
 
-    /**
-     * Simple in-place FFT (Cooley-Tukey radix-2).
-     */
-    private void fft(float[] real, float[] imag, int n) {
-        // Bit reversal
-        int j = 0;
-        for (int i = 0; i < n - 1; i++) {
-            if (i < j) {
-                float tempR = real[i];
-                float tempI = imag[i];
-                real[i] = real[j];
-                imag[i] = imag[j];
-                real[j] = tempR;
-                imag[j] = tempI;
-            }
-            int k = n / 2;
-            while (k <= j) {
-                j -= k;
-                k /= 2;
-            }
-            j += k;
-        }
-
-        // FFT computation
-        for (int len = 2; len <= n; len *= 2) {
-            float angle = -2.0f * (float) Math.PI / len;
-            float wR = (float) Math.cos(angle);
-            float wI = (float) Math.sin(angle);
-
-            for (int i = 0; i < n; i += len) {
-                float curR = 1, curI = 0;
-                for (int k = 0; k < len / 2; k++) {
-                    int idx1 = i + k;
-                    int idx2 = i + k + len / 2;
-
-                    float tR = curR * real[idx2] - curI * imag[idx2];
-                    float tI = curR * imag[idx2] + curI * real[idx2];
-
-                    real[idx2] = real[idx1] - tR;
-                    imag[idx2] = imag[idx1] - tI;
-                    real[idx1] = real[idx1] + tR;
-                    imag[idx1] = imag[idx1] + tI;
-
-                    float newR = curR * wR - curI * wI;
-                    float newI = curR * wI + curI * wR;
-                    curR = newR;
-                    curI = newI;
-                }
-            }
-        }
-    }
-
     /**
      * Soft clipping function.
      */
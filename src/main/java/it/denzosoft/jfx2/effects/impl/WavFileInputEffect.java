@@ -1,6 +1,7 @@
 package it.denzosoft.jfx2.effects.impl;
 
 import it.denzosoft.jfx2.effects.*;
+import it.denzosoft.jfx2.jfr.FileLoadEvent;
 
 import javax.sound.sampled.*;
 import java.io.File;
@@ -210,6 +211,13 @@ public class WavFileInputEffect extends AbstractEffect {
             return false;
         }
 
+        FileLoadEvent event = FileLoadEvent.start(FileLoadEvent.WAV, filePath);
+        boolean loaded = readFile(filePath);
+        event.finish(new File(filePath).length(), loaded);
+        return loaded;
+    }
+
+    private boolean readFile(String filePath) {
         try {
             File file = new File(filePath);
             if (!file.exists()) {
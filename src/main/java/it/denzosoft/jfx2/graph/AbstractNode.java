@@ -193,6 +193,18 @@ public abstract class AbstractNode implements ProcessingNode {
         }
     }
 
+    /**
+     * Check every channel of a port for clipping.
+     *
+     * @param port The port to check
+     * @param frameCount Number of frames to check
+     */
+    protected void checkClipping(Port port, int frameCount) {
+        for (int c = 0; c < port.getChannelCount(); c++) {
+            checkClipping(port.getBuffer(c), frameCount);
+        }
+    }
+
     @Override
     public String toString() {
         return String.format("%s[%s, %s]", getClass().getSimpleName(), id, name);
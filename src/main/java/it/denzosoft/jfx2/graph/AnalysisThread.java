@@ -0,0 +1,82 @@
+package it.denzosoft.jfx2.graph;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Background thread that drains the analysis taps of all graphs.
+ *
+ * <p>The audio thread only copies samples into the rings of the taps; this
+ * thread wakes at a fixed, UI-friendly rate and hands the samples to the
+ * listeners (tuner, meters, spectrum, waveform views), so whatever they
+ * compute never delays an audio block. It is started with the first tap and
+ * sleeps while no tap is registered.</p>
+ */
+final class AnalysisThread {
+
+    /**
+     * Samples waiting in a ring, to be delivered off the audio thread.
+     */
+    interface Tap {
+        /**
+         * Deliver what has been written since the last call (analysis thread only).
+         */
+        void drain();
+    }
+
+    // Delivery period: 100 updates per second
+    static final long TICK_MILLIS = 10;
+
+    private static final List<Tap> taps = new CopyOnWriteArrayList<>();
+    private static final Object lock = new Object();
+    private static Thread thread;   // guarded by lock
+
+    private AnalysisThread() {
+    }
+
+    /**
+     * Start delivering a tap (does nothing if it is already registered).
+     */
+    static void register(Tap tap) {
+        synchronized (lock) {
+            if (!taps.contains(tap)) {
+                taps.add(tap);
+            }
+            if (thread == null) {
+                thread = new Thread(AnalysisThread::run, "SignalGraph-Analysis");
+                thread.setDaemon(true);
+                thread.start();
+            }
+            lock.notifyAll();
+        }
+    }
+
+    /**
+     * Stop delivering a tap.
+     */
+    static void unregister(Tap tap) {
+        taps.remove(tap);
+    }
+
+    private static void run() {
+        while (true) {
+            try {
+                synchronized (lock) {
+                    while (taps.isEmpty()) {
+                        lock.wait();
+                    }
+                }
+                for (Tap tap : taps) {
+                    try {
+                        tap.drain();
+                    } catch (RuntimeException e) {
+                        System.err.println("Analysis listener failed: " + e.getMessage());
+                    }
+                }
+                Thread.sleep(TICK_MILLIS);
+            } catch (InterruptedException e) {
+                // Daemon thread: keep serving taps
+            }
+        }
+    }
+}
@@ -0,0 +1,264 @@
+package it.denzosoft.jfx2.graph;
+
+import java.util.*;
+
+/**
+ * Assigns pooled port buffers for a compiled plan.
+ *
+ * <p>Each output port produces a value that lives until its last consumer has
+ * run; after that its buffers can hold the value of a later port. A value
+ * gets one buffer per channel it carries. A connection that is unity gain,
+ * same channel count and the only consumer of its source is made zero-copy:
+ * the target port shares the source buffers instead of receiving a copy.</p>
+ *
+ * <p>Reuse must hold for every schedule the graph allows (sequential, levels,
+ * DAG), so a buffer is handed to a new value only when all users of its
+ * previous value are guaranteed to have finished before the new producer
+ * starts, i.e. they are ancestors of it in the graph. Sinks run sequentially
+ * on the audio thread after everything else.</p>
+ *
+ * <p>Bypassed effect nodes pass their input buffer through instead of copying
+ * it, so the input value of an effect node also lives as long as its output
+ * value. Ports read after the block (metering taps, sinks, the legacy input)
+ * keep their buffer for the whole block.</p>
+ *
+ * <p>When the graph is pipelined, stages run concurrently on different
+ * blocks, so buffers are only shared within a stage. Ports filled by the
+ * pipeline handoff hold data between blocks and get buffers of their own,
+ * which a later plan with the same stage count takes over so that the
+ * block in flight is not lost.</p>
+ */
+final class BufferPlanner {
+
+    // Every port of every node in the plan, with the channel buffers bound to it
+    final Port[] ports;
+    final float[][][] buffers;
+
+    // Per node input: true if the input shares its source buffer (no copy)
+    final boolean[][] aliasedInputs;
+
+    final int bufferCount;
+    final int aliasCount;
+
+    /**
+     * Plan buffers for a compiled graph.
+     *
+     * @param nodes            Executable nodes in topological order, then sinks
+     * @param executableCount  Number of executable (non-sink) nodes
+     * @param inputPorts       Input ports per node
+     * @param inputConnections Connection feeding each input port (null = unconnected)
+     * @param observed         Ports read outside the processing of their consumers
+     * @param exclusive        Input ports that keep data between blocks (never shared)
+     * @param copied           Input ports modified in place after the transfer (never aliased)
+     * @param carried          Buffers taken over by exclusive ports, with the data they hold
+     * @param stageOf          Pipeline stage per executable node (null = not pipelined)
+     * @param signalFlow       Channel count per port
+     * @param maxFrameCount    Maximum block size
+     */
+    BufferPlanner(ProcessingNode[] nodes, int executableCount, Port[][] inputPorts,
+                  Connection[][] inputConnections, Set<Port> observed, Set<Port> exclusive,
+                  Set<Port> copied, Map<Port, float[][]> carried, int[] stageOf,
+                  SignalFlowAnalyzer signalFlow, int maxFrameCount) {
+        int n = nodes.length;
+        Map<ProcessingNode, Integer> nodeIndex = new IdentityHashMap<>();
+        for (int i = 0; i < n; i++) {
+            nodeIndex.put(nodes[i], i);
+        }
+
+        // Index ports and their owners
+        List<Port> portList = new ArrayList<>();
+        List<Integer> ownerList = new ArrayList<>();
+        Map<Port, Integer> portIndex = new IdentityHashMap<>();
+        for (int i = 0; i < n; i++) {
+            for (Port port : inputPorts[i]) {
+                portIndex.put(port, portList.size());
+                portList.add(port);
+                ownerList.add(i);
+            }
+            for (Port port : nodes[i].getOutputPorts()) {
+                portIndex.put(port, portList.size());
+                portList.add(port);
+                ownerList.add(i);
+            }
+        }
+        int portCount = portList.size();
+        this.ports = portList.toArray(new Port[0]);
+        int[] owner = new int[portCount];
+        for (int k = 0; k < portCount; k++) {
+            owner[k] = ownerList.get(k);
+        }
+
+        // Consumers per output port
+        int[] fanOut = new int[portCount];
+        for (Connection[] conns : inputConnections) {
+            for (Connection conn : conns) {
+                if (conn != null) {
+                    fanOut[portIndex.get(conn.getSourcePort())]++;
+                }
+            }
+        }
+
+        // Values: an output port plus the input ports aliased onto it
+        int[] value = new int[portCount];
+        for (int k = 0; k < portCount; k++) {
+            value[k] = k;
+        }
+        this.aliasedInputs = new boolean[n][];
+        int aliases = 0;
+        for (int i = 0; i < n; i++) {
+            aliasedInputs[i] = new boolean[inputPorts[i].length];
+            for (int j = 0; j < inputPorts[i].length; j++) {
+                Connection conn = inputConnections[i][j];
+                if (conn == null) {
+                    continue;
+                }
+                Port source = conn.getSourcePort();
+                int s = portIndex.get(source);
+                if (conn.getGain() == 1.0f
+                        && signalFlow.getChannelCount(source) == signalFlow.getChannelCount(inputPorts[i][j])
+                        && fanOut[s] == 1 && !observed.contains(source)
+                        && !exclusive.contains(inputPorts[i][j]) && !copied.contains(inputPorts[i][j])) {
+                    value[portIndex.get(inputPorts[i][j])] = s;
+                    aliasedInputs[i][j] = true;
+                    aliases++;
+                }
+            }
+        }
+        this.aliasCount = aliases;
+
+        // Users (nodes reading or writing the value) and pinned values
+        BitSet[] users = new BitSet[portCount];
+        boolean[] pinned = new boolean[portCount];
+        for (int k = 0; k < portCount; k++) {
+            int v = value[k];
+            if (users[v] == null) {
+                users[v] = new BitSet(n);
+            }
+            users[v].set(owner[k]);
+            if (observed.contains(ports[k]) || owner[k] >= executableCount) {
+                pinned[v] = true;
+            }
+        }
+        for (int i = 0; i < n; i++) {
+            for (Connection conn : inputConnections[i]) {
+                if (conn != null) {
+                    users[value[portIndex.get(conn.getSourcePort())]].set(i);
+                }
+            }
+        }
+
+        // Bypass pass-through: the input value must outlive the output value
+        // (downstream first, so chains of bypassed effects extend transitively)
+        for (int i = n - 1; i >= 0; i--) {
+            if (nodes[i] instanceof EffectNode effectNode
+                    && effectNode.getInput() != null && effectNode.getOutput() != null) {
+                int in = value[portIndex.get(effectNode.getInput())];
+                int out = value[portIndex.get(effectNode.getOutput())];
+                users[in].or(users[out]);
+                pinned[in] |= pinned[out];
+            }
+        }
+
+        // Ancestors per node (nodes are topologically sorted)
+        BitSet[] ancestors = new BitSet[n];
+        for (int i = 0; i < n; i++) {
+            ancestors[i] = new BitSet(n);
+            for (Connection conn : inputConnections[i]) {
+                if (conn != null) {
+                    int source = nodeIndex.get(conn.getSourceNode());
+                    ancestors[i].set(source);
+                    ancestors[i].or(ancestors[source]);
+                }
+            }
+        }
+
+        // Assign one buffer per channel in producer order, reusing a buffer once
+        // all users of its previous value are done before the new producer starts
+        List<float[]> pool = new ArrayList<>();
+        List<Integer> occupant = new ArrayList<>();
+        int[][] slotsOfValue = new int[portCount][];
+        for (int k = 0; k < portCount; k++) {
+            if (value[k] != k) {
+                continue;
+            }
+            int producer = owner[k];
+            int[] slots = new int[signalFlow.getChannelCount(ports[k])];
+            float[][] taken = carried.get(ports[k]);
+            if (taken != null && (taken.length != slots.length || taken[0].length != maxFrameCount)) {
+                taken = null;
+            }
+            if (exclusive.contains(ports[k])) {
+                pinned[k] = true;
+            }
+            for (int c = 0; c < slots.length; c++) {
+                int slot = -1;
+                for (int b = 0; b < pool.size() && slot < 0 && !exclusive.contains(ports[k]); b++) {
+                    int previous = occupant.get(b);
+                    if (previous != k && !pinned[previous]
+                            && allBefore(users[previous], producer, ancestors, stageOf, executableCount)) {
+                        slot = b;
+                    }
+                }
+                if (slot < 0) {
+                    slot = pool.size();
+                    pool.add(taken != null ? taken[c] : new float[maxFrameCount]);
+                    occupant.add(k);
+                } else {
+                    occupant.set(slot, k);
+                }
+                slots[c] = slot;
+            }
+            slotsOfValue[k] = slots;
+        }
+        this.bufferCount = pool.size();
+
+        this.buffers = new float[portCount][][];
+        for (int k = 0; k < portCount; k++) {
+            int[] slots = slotsOfValue[value[k]];
+            buffers[k] = new float[slots.length][];
+            for (int c = 0; c < slots.length; c++) {
+                buffers[k][c] = pool.get(slots[c]);
+            }
+        }
+    }
+
+    /**
+     * Check that every user has finished before a node starts.
+     */
+    private static boolean allBefore(BitSet users, int node, BitSet[] ancestors,
+                                     int[] stageOf, int executableCount) {
+        for (int u = users.nextSetBit(0); u >= 0; u = users.nextSetBit(u + 1)) {
+            boolean sameStage = stageOf == null || u >= executableCount || node >= executableCount
+                    || stageOf[u] == stageOf[node];
+            boolean before = (ancestors[node].get(u) && sameStage)
+                    || (u < executableCount && node >= executableCount)
+                    || (u >= executableCount && node >= executableCount && u < node);
+            if (!before) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Get the buffers planned for a port (null if the port is not in the plan).
+     */
+    float[][] buffersOf(Port port) {
+        for (int k = 0; k < ports.length; k++) {
+            if (ports[k] == port) {
+                return buffers[k];
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Bind the planned buffers to the ports. Must run on the audio thread,
+     * between blocks.
+     */
+    void bind() {
+        for (int k = 0; k < ports.length; k++) {
+            ports[k].assignBuffer(buffers[k]);
+        }
+    }
+}
@@ -0,0 +1,77 @@
+package it.denzosoft.jfx2.graph;
+
+/**
+ * Latency compensation on one connection.
+ *
+ * <p>When the inputs of a node arrive through paths of different latency,
+ * the faster paths are delayed so that all inputs line up in time (plugin
+ * delay compensation). The delay runs in place on the target port right
+ * after the connection has transferred its data.</p>
+ */
+final class CompensationDelay {
+
+    final Connection connection;
+    final int delay;
+
+    // One circular delay line per channel, all sharing the same position
+    private final float[][] lines;
+    private int position;
+
+    // Frames the source has been silent for (saturating)
+    private int silentFrames;
+
+    /**
+     * Create a compensation delay.
+     *
+     * @param connection Connection to delay
+     * @param delay      Delay in samples (at least 1)
+     * @param channels   Number of channels the target port carries
+     */
+    CompensationDelay(Connection connection, int delay, int channels) {
+        if (delay < 1) {
+            throw new IllegalArgumentException("Compensation delay must be positive: " + delay);
+        }
+        this.connection = connection;
+        this.delay = delay;
+        this.lines = new float[channels][delay];
+    }
+
+    /**
+     * Check whether this delay can be carried over to a new plan unchanged
+     * (keeping its contents, so a re-plan does not interrupt the delayed path).
+     */
+    boolean matches(Connection connection, int delay, int channels) {
+        return this.connection == connection && this.delay == delay && lines.length == channels;
+    }
+
+    /**
+     * Delay the data the connection has just written to its target port.
+     * Allocation free; runs on the audio thread.
+     */
+    void process(int frameCount) {
+        Port target = connection.getTargetPort();
+
+        // The delayed block is silent once the silence has run through the line
+        silentFrames = target.isSilent() ? (int) Math.min((long) silentFrames + frameCount, Integer.MAX_VALUE) : 0;
+        boolean silentOut = silentFrames >= delay + frameCount;
+
+        int end = position;
+        for (int c = 0; c < lines.length; c++) {
+            float[] buffer = target.getBuffer(c);
+            float[] line = lines[c];
+            int len = Math.min(frameCount, buffer.length);
+            int pos = position;
+            for (int i = 0; i < len; i++) {
+                float delayed = line[pos];
+                line[pos] = buffer[i];
+                buffer[i] = delayed;
+                if (++pos == delay) {
+                    pos = 0;
+                }
+            }
+            end = pos;
+        }
+        position = end;
+        target.setSilent(silentOut);
+    }
+}
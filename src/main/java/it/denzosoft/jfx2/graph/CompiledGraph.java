@@ -0,0 +1,951 @@
+package it.denzosoft.jfx2.graph;
+
+import it.denzosoft.jfx2.audio.AudioMetrics;
+import it.denzosoft.jfx2.effects.StereoMode;
+import it.denzosoft.jfx2.effects.impl.AudioInputEffect;
+import it.denzosoft.jfx2.effects.impl.AudioOutputEffect;
+import it.denzosoft.jfx2.jfr.JfrEvents;
+import it.denzosoft.jfx2.jfr.NodeProcessedEvent;
+
+import java.util.*;
+
+/**
+ * Immutable compiled snapshot of a {@link SignalGraph}.
+ *
+ * <p>A plan is built off the audio thread whenever the graph structure
+ * changes, and published to the audio thread through an atomic reference.
+ * It captures everything the audio thread needs (processing order, parallel
+ * levels, input connections per node, scheduler state) so that later edits
+ * of the graph maps never race with processing.</p>
+ *
+ * <p>Nodes are stored in topological order with all sinks (nodes without
+ * output ports) moved to the end. Nothing depends on a sink, so the audio
+ * thread can run them last, after the parallel part of the graph.</p>
+ *
+ * <p>Maximal runs of single-input, single-output effect nodes are fused
+ * into one task: the run is laid out contiguously and scheduled as a unit,
+ * so a long serial chain costs one scheduling slot. Each node of the run
+ * still processes on its own (bypass, monitoring and clip detection are
+ * unchanged), and the buffer plan makes the links zero-copy.</p>
+ *
+ * <p>The per-block work is flattened into one array of encoded ops
+ * (transfer a connection, clear an unconnected input, process a node), so
+ * the hot path is a plain indexed loop. Nodes the graph looks at after
+ * processing (audio input/output effects) are resolved here
+ * once instead of being searched by id on every block.</p>
+ *
+ * <p>Inputs arriving through paths of different latency are aligned by
+ * compensation delays on the faster connections, so parallel branches
+ * (e.g. a convolution branch and a dry branch) sum in time. The latency of
+ * the graph is the latency of its slowest path.</p>
+ *
+ * <p>Nodes sleep through silence: the output ports of every node are
+ * scanned after processing, and a node whose inputs have been silent for
+ * longer than its tail (with its outputs silent too) is skipped, its outputs
+ * cleared and marked silent so the nodes downstream can sleep as well.
+ * Sources and sinks always run.</p>
+ *
+ * <p>The channel count of every port is decided here by signal flow
+ * analysis: ports downstream of a stereo source get planar L/R buffers,
+ * everything else stays mono. The stereo settings the decision was based on
+ * and node latencies are recorded so that a change can trigger a new plan.</p>
+ */
+final class CompiledGraph {
+
+    final long version;
+
+    // Version of the oldest plan with the same audible routing (node set,
+    // connections, channels read by the sinks, pipeline depth)
+    final long routingVersion;
+    private final Set<Connection> routedConnections;
+    private final Map<Port, Integer> sinkChannels;
+
+    // All nodes: executable nodes first (topological order), then sinks
+    final ProcessingNode[] nodes;
+    final int executableCount;
+
+    // Op encoding: operand index in the high bits, kind in the low bits
+    private static final int OP_TRANSFER = 0;
+    private static final int OP_CLEAR = 1;
+    private static final int OP_PROCESS = 2;
+    private static final int OP_ALIAS = 3;
+    private static final int OP_DELAYED_TRANSFER = 4;
+    private static final int OP_KIND_BITS = 3;
+    private static final int OP_KIND_MASK = (1 << OP_KIND_BITS) - 1;
+
+    /**
+     * Settings of the graph that affect compilation.
+     *
+     * @param maxFrameCount  Maximum block size (0 = not prepared, no buffer planning)
+     * @param participants   Number of parallel participants (workers plus caller)
+     * @param pipelineStages Number of pipeline stages (0 = no pipelining)
+     * @param profiling      Time every node on every block
+     * @param deviceMetrics  Engine metrics the device line effects report to (may be null)
+     */
+    record Options(int maxFrameCount, int participants, int pipelineStages,
+                   boolean profiling, AudioMetrics deviceMetrics) {}
+
+    // Flattened ops: node i owns ops[opStart[i]] .. ops[opStart[i + 1] - 1], its process op last
+    final int[] ops;
+    final int[] opStart;
+    private final Connection[] transfers;
+    private final Port[] clears;
+
+    // Latency per node, latency of the path ending at each node's output, and the
+    // input on the slowest path (-1 = none); latency of the slowest path overall
+    final int[] nodeLatency;
+    final int[] pathLatency;
+    final int[] criticalInput;
+    final int latency;
+
+    // Delays aligning the inputs of nodes fed through paths of different latency
+    final CompensationDelay[] compensations;
+
+    // Pooled port buffers (null when the graph is not prepared)
+    final BufferPlanner buffers;
+
+    // Per node input ports (used for the plan swap fade on sinks) and output ports
+    final Port[][] inputPorts;
+    private final Port[][] outputPorts;
+
+    // Sleeping through silence: nodes that may sleep, frames their inputs have
+    // been silent for (including the current block), frames their outputs
+    // have been silent for (up to the last block), and whether they slept
+    private final boolean[] sleepable;
+    private final int[] silentFrames;
+    private final int[] quietFrames;
+    private final boolean[] sleeping;
+
+    // Per node timing (inactive unless profiling is enabled)
+    final NodeProfiler profiler;
+
+    // Input port copied right before its node runs, output port right after (set on the audio thread)
+    private PortCapture inputCapture;
+    private Port inputCapturePort;
+    private int inputCaptureNode = -1;
+    private PortCapture outputCapture;
+    private Port outputCapturePort;
+    private int outputCaptureNode = -1;
+
+    // Tasks: task t runs nodes taskStart[t] .. taskStart[t + 1] - 1 (fused chains span several)
+    final int[] taskStart;
+    final int taskCount;
+    final int fusedNodeCount;
+
+    // Parallel levels over tasks (indices into taskStart)
+    final int[][] executionLevels;
+
+    // Dependency-counting scheduler over tasks
+    final DagScheduler dagScheduler;
+
+    // Pipelined execution of the executable nodes (null when not pipelining)
+    final PipelinePlan pipeline;
+
+    // Stereo settings the channel layout was derived from
+    private final EffectNode[] layoutEffects;
+    private final StereoMode[] layoutEffectModes;
+    private final MixerNode[] layoutMixers;
+    private final MixerNode.StereoMode[] layoutMixerModes;
+
+    // Snapshot of the legacy I/O nodes
+    final InputNode inputNode;
+    final OutputNode outputNode;
+
+    // Metering taps resolved at compile time (null / empty when absent)
+    final Port audioInputPort;
+    final Port[] audioOutputPorts;
+    final AudioOutputEffect[] audioOutputEffects;
+
+    // Views for diagnostics and analysis (all nodes, Kahn levels)
+    final List<ProcessingNode> processingOrder;
+    final List<List<ProcessingNode>> parallelLevels;
+
+    private CompiledGraph(long version, ProcessingNode[] nodes, int executableCount,
+                          Port[][] inputPorts, Connection[][] inputConnections,
+                          int[] taskStart, int fusedNodeCount,
+                          int[][] executionLevels, int[][] successors, int maxParallelism,
+                          Options options, CompiledGraph previous, SignalFlowAnalyzer signalFlow,
+                          InputNode inputNode, OutputNode outputNode,
+                          List<ProcessingNode> processingOrder,
+                          List<List<ProcessingNode>> parallelLevels) {
+        this.version = version;
+        this.nodes = nodes;
+        this.executableCount = executableCount;
+        this.inputPorts = inputPorts;
+        this.taskStart = taskStart;
+        this.taskCount = taskStart.length - 1;
+        this.fusedNodeCount = fusedNodeCount;
+        this.executionLevels = executionLevels;
+        this.inputNode = inputNode;
+        this.outputNode = outputNode;
+        this.processingOrder = processingOrder;
+        this.parallelLevels = parallelLevels;
+
+        // Resolve metering taps (the last audio input wins, as in processing order)
+        // and hand the engine metrics to the device line effects
+        Port audioInput = null;
+        List<Port> outputPorts = new ArrayList<>();
+        List<AudioOutputEffect> outputEffects = new ArrayList<>();
+        for (ProcessingNode node : nodes) {
+            if (!(node instanceof EffectNode effectNode)) {
+                continue;
+            }
+            String effectId = effectNode.getEffect().getMetadata().id();
+            if (effectNode.getEffect() instanceof AudioInputEffect audioIn) {
+                audioIn.setMetrics(options.deviceMetrics());
+            } else if (effectNode.getEffect() instanceof AudioOutputEffect audioOut) {
+                audioOut.setMetrics(options.deviceMetrics());
+            }
+            if ("audioinput".equals(effectId) && effectNode.getOutput() != null) {
+                audioInput = effectNode.getOutput();
+            } else if ("audiooutput".equals(effectId) && effectNode.getInput() != null
+                    && effectNode.getEffect() instanceof AudioOutputEffect audioOut) {
+                outputPorts.add(effectNode.getInput());
+                outputEffects.add(audioOut);
+            }
+        }
+        this.audioInputPort = audioInput;
+        this.audioOutputPorts = outputPorts.toArray(new Port[0]);
+        this.audioOutputEffects = outputEffects.toArray(new AudioOutputEffect[0]);
+
+        // Record the stereo settings behind the channel layout
+        List<EffectNode> effects = new ArrayList<>();
+        List<MixerNode> mixers = new ArrayList<>();
+        for (ProcessingNode node : nodes) {
+            if (node instanceof EffectNode effectNode && effectNode.getOutput() != null) {
+                effects.add(effectNode);
+            } else if (node instanceof MixerNode mixer) {
+                mixers.add(mixer);
+            }
+        }
+        this.layoutEffects = effects.toArray(new EffectNode[0]);
+        this.layoutEffectModes = new StereoMode[layoutEffects.length];
+        for (int i = 0; i < layoutEffects.length; i++) {
+            layoutEffectModes[i] = layoutEffects[i].getEffect().getStereoMode();
+        }
+        this.layoutMixers = mixers.toArray(new MixerNode[0]);
+        this.layoutMixerModes = new MixerNode.StereoMode[layoutMixers.length];
+        for (int i = 0; i < layoutMixers.length; i++) {
+            layoutMixerModes[i] = layoutMixers[i].getStereoMode();
+        }
+
+        // Path latencies (nodes are topologically sorted) and compensation delays
+        Map<ProcessingNode, Integer> index = new IdentityHashMap<>();
+        for (int i = 0; i < nodes.length; i++) {
+            index.put(nodes[i], i);
+        }
+        this.nodeLatency = new int[nodes.length];
+        this.pathLatency = new int[nodes.length];
+        this.criticalInput = new int[nodes.length];
+        Map<Connection, CompensationDelay> compensationByConnection = new IdentityHashMap<>();
+        int slowest = 0;
+        for (int i = 0; i < nodes.length; i++) {
+            int arrival = 0;
+            criticalInput[i] = -1;
+            for (Connection conn : inputConnections[i]) {
+                if (conn != null) {
+                    int source = index.get(conn.getSourceNode());
+                    if (criticalInput[i] < 0 || pathLatency[source] > arrival) {
+                        arrival = pathLatency[source];
+                        criticalInput[i] = source;
+                    }
+                }
+            }
+            for (Connection conn : inputConnections[i]) {
+                if (conn != null) {
+                    int delay = arrival - pathLatency[index.get(conn.getSourceNode())];
+                    if (delay > 0) {
+                        compensationByConnection.put(conn, createCompensation(conn, delay,
+                                signalFlow.getChannelCount(conn.getTargetPort()), previous));
+                    }
+                }
+            }
+            nodeLatency[i] = Math.max(0, nodes[i].getLatency());
+            pathLatency[i] = arrival + nodeLatency[i];
+            slowest = Math.max(slowest, pathLatency[i]);
+        }
+        this.latency = slowest;
+        this.compensations = compensationByConnection.values().toArray(new CompensationDelay[0]);
+
+        // Executable nodes with a connected input may sleep; silence carries over from the previous plan
+        this.outputPorts = new Port[nodes.length][];
+        this.sleepable = new boolean[nodes.length];
+        this.silentFrames = new int[nodes.length];
+        this.quietFrames = new int[nodes.length];
+        this.sleeping = new boolean[nodes.length];
+        for (int i = 0; i < nodes.length; i++) {
+            this.outputPorts[i] = nodes[i].getOutputPorts().toArray(new Port[0]);
+            for (Connection conn : inputConnections[i]) {
+                sleepable[i] |= conn != null && i < executableCount;
+            }
+        }
+        int[] previousIndex = new int[nodes.length];
+        Arrays.fill(previousIndex, -1);
+        if (previous != null) {
+            for (int k = 0; k < previous.nodes.length; k++) {
+                Integer i = index.get(previous.nodes[k]);
+                if (i != null) {
+                    silentFrames[i] = previous.silentFrames[k];
+                    quietFrames[i] = previous.quietFrames[k];
+                    previousIndex[i] = k;
+                }
+            }
+        }
+        this.profiler = new NodeProfiler(nodes.length, options.profiling(),
+                previous != null ? previous.profiler : null, previousIndex);
+
+        // Split into pipeline stages
+        Set<Port> handoffTargets = Collections.newSetFromMap(new IdentityHashMap<>());
+        if (options.pipelineStages() > 1 && executableCount > 1) {
+            this.pipeline = PipelinePlan.partition(this, Arrays.copyOf(nodes, executableCount), inputConnections,
+                    compensationByConnection, options.pipelineStages(),
+                    previous != null ? previous.pipeline : null);
+        } else {
+            this.pipeline = null;
+        }
+        if (pipeline != null) {
+            for (Connection conn : pipeline.handoffs) {
+                handoffTargets.add(conn.getTargetPort());
+            }
+        }
+
+        // Audible routing: unchanged unless nodes, connections, the channels
+        // reaching the sinks or the pipeline depth differ from the previous plan
+        this.routedConnections = Collections.newSetFromMap(new IdentityHashMap<>());
+        this.sinkChannels = new IdentityHashMap<>();
+        for (int i = 0; i < nodes.length; i++) {
+            for (int j = 0; j < inputPorts[i].length; j++) {
+                if (inputConnections[i][j] != null) {
+                    routedConnections.add(inputConnections[i][j]);
+                }
+                if (i >= executableCount) {
+                    sinkChannels.put(inputPorts[i][j], signalFlow.getChannelCount(inputPorts[i][j]));
+                }
+            }
+        }
+        boolean sameRouting = previous != null && previous.nodes.length == nodes.length
+                && previous.routedConnections.equals(routedConnections)
+                && previous.sinkChannels.equals(sinkChannels)
+                && previous.pipelineDepth() == pipelineDepth();
+        for (int k = 0; sameRouting && k < previous.nodes.length; k++) {
+            sameRouting = index.containsKey(previous.nodes[k]);
+        }
+        this.routingVersion = sameRouting ? previous.routingVersion : version;
+
+        // Plan pooled buffers; ports read after the block keep theirs
+        if (options.maxFrameCount() > 0) {
+            Set<Port> observed = Collections.newSetFromMap(new IdentityHashMap<>());
+            if (pipeline != null) {
+                for (Connection conn : pipeline.handoffs) {
+                    observed.add(conn.getSourcePort());
+                }
+            }
+            if (inputNode != null) {
+                observed.addAll(inputNode.getOutputPorts());
+            }
+            if (audioInputPort != null) {
+                observed.add(audioInputPort);
+            }
+            Set<Port> delayedTargets = Collections.newSetFromMap(new IdentityHashMap<>());
+            for (CompensationDelay compensation : compensations) {
+                delayedTargets.add(compensation.connection.getTargetPort());
+            }
+            this.buffers = new BufferPlanner(nodes, executableCount, inputPorts, inputConnections,
+                    observed, handoffTargets, delayedTargets, carriedHandoffs(previous),
+                    pipeline != null ? pipeline.stageOfNodes() : null, signalFlow, options.maxFrameCount());
+        } else {
+            this.buffers = null;
+        }
+
+        // Flatten inputs and processing into op arrays
+        List<Connection> transferList = new ArrayList<>();
+        List<Port> clearList = new ArrayList<>();
+        int opCount = nodes.length;
+        for (Port[] ports : inputPorts) {
+            opCount += ports.length;
+        }
+        opCount -= handoffTargets.size();
+        this.ops = new int[opCount];
+        this.opStart = new int[nodes.length + 1];
+        int op = 0;
+        for (int i = 0; i < nodes.length; i++) {
+            opStart[i] = op;
+            for (int j = 0; j < inputPorts[i].length; j++) {
+                Connection conn = inputConnections[i][j];
+                if (handoffTargets.contains(inputPorts[i][j])) {
+                    // Filled by the pipeline handoff between blocks
+                    continue;
+                }
+                CompensationDelay compensation = conn != null ? compensationByConnection.get(conn) : null;
+                if (compensation != null) {
+                    ops[op++] = (compensationIndex(compensation) << OP_KIND_BITS) | OP_DELAYED_TRANSFER;
+                } else if (conn != null) {
+                    boolean aliased = buffers != null && buffers.aliasedInputs[i][j];
+                    ops[op++] = (transferList.size() << OP_KIND_BITS) | (aliased ? OP_ALIAS : OP_TRANSFER);
+                    transferList.add(conn);
+                } else {
+                    ops[op++] = (clearList.size() << OP_KIND_BITS) | OP_CLEAR;
+                    clearList.add(inputPorts[i][j]);
+                }
+            }
+            ops[op++] = (i << OP_KIND_BITS) | OP_PROCESS;
+        }
+        opStart[nodes.length] = op;
+        this.transfers = transferList.toArray(new Connection[0]);
+        this.clears = clearList.toArray(new Port[0]);
+
+        ProcessingNode[] taskHeads = new ProcessingNode[taskCount];
+        int[] taskSizes = new int[taskCount];
+        for (int t = 0; t < taskCount; t++) {
+            taskHeads[t] = nodes[taskStart[t]];
+            taskSizes[t] = taskStart[t + 1] - taskStart[t];
+        }
+        this.dagScheduler = new DagScheduler(taskHeads, taskSizes, successors,
+                maxParallelism, options.participants(), this::runTaskSafely,
+                previous != null ? previous.dagScheduler : null);
+    }
+
+    /**
+     * Compile a graph snapshot.
+     *
+     * @param version      Plan version (monotonically increasing)
+     * @param graphNodes   All nodes of the graph
+     * @param connections  All connections of the graph
+     * @param inputNode    Legacy input node (may be null)
+     * @param outputNode   Legacy output node (may be null)
+     * @param options      Compilation settings
+     * @param previous     Previously published plan, to carry over measured costs (may be null)
+     * @return The compiled plan
+     * @throws IllegalStateException if the graph contains a cycle
+     */
+    static CompiledGraph compile(long version, Collection<ProcessingNode> graphNodes,
+                                 Collection<Connection> connections,
+                                 InputNode inputNode, OutputNode outputNode,
+                                 Options options, CompiledGraph previous) {
+        // Kahn's algorithm for topological sort with level tracking
+        Map<ProcessingNode, Integer> inDegree = new HashMap<>();
+        Map<ProcessingNode, List<ProcessingNode>> adjacency = new HashMap<>();
+        for (ProcessingNode node : graphNodes) {
+            inDegree.put(node, 0);
+            adjacency.put(node, new ArrayList<>());
+        }
+        for (Connection conn : connections) {
+            ProcessingNode source = conn.getSourceNode();
+            ProcessingNode target = conn.getTargetNode();
+            adjacency.get(source).add(target);
+            inDegree.put(target, inDegree.get(target) + 1);
+        }
+
+        List<ProcessingNode> order = new ArrayList<>();
+        List<List<ProcessingNode>> levels = new ArrayList<>();
+        List<ProcessingNode> currentLevel = new ArrayList<>();
+        for (ProcessingNode node : graphNodes) {
+            if (inDegree.get(node) == 0) {
+                currentLevel.add(node);
+            }
+        }
+        while (!currentLevel.isEmpty()) {
+            levels.add(Collections.unmodifiableList(new ArrayList<>(currentLevel)));
+            order.addAll(currentLevel);
+
+            List<ProcessingNode> nextLevel = new ArrayList<>();
+            for (ProcessingNode node : currentLevel) {
+                for (ProcessingNode neighbor : adjacency.get(node)) {
+                    int newDegree = inDegree.get(neighbor) - 1;
+                    inDegree.put(neighbor, newDegree);
+                    if (newDegree == 0) {
+                        nextLevel.add(neighbor);
+                    }
+                }
+            }
+            currentLevel = nextLevel;
+        }
+
+        // Check for cycles (should not happen if we validate on connect)
+        if (order.size() != graphNodes.size()) {
+            throw new IllegalStateException("Graph contains a cycle!");
+        }
+
+        // Channel count of every port
+        SignalFlowAnalyzer signalFlow = new SignalFlowAnalyzer();
+        signalFlow.analyze(order, connections);
+
+        // Fusable links: an effect node feeding exactly one effect node
+        Map<Port, Integer> fanOut = new IdentityHashMap<>();
+        Map<Port, Connection> connectionBySource = new IdentityHashMap<>();
+        for (Connection conn : connections) {
+            fanOut.merge(conn.getSourcePort(), 1, Integer::sum);
+            connectionBySource.put(conn.getSourcePort(), conn);
+        }
+        Map<ProcessingNode, ProcessingNode> fusedNext = new IdentityHashMap<>();
+        Set<ProcessingNode> fusedMembers = Collections.newSetFromMap(new IdentityHashMap<>());
+        for (ProcessingNode node : order) {
+            if (isFusable(node)) {
+                Port out = ((EffectNode) node).getOutput();
+                if (fanOut.getOrDefault(out, 0) == 1) {
+                    ProcessingNode next = connectionBySource.get(out).getTargetNode();
+                    if (isFusable(next)) {
+                        fusedNext.put(node, next);
+                        fusedMembers.add(next);
+                    }
+                }
+            }
+        }
+
+        // Executable nodes first (fused chains contiguous), sinks last.
+        // A chain member depends only on its predecessor, so moving it up
+        // right behind the chain head keeps the order topological.
+        List<ProcessingNode> arranged = new ArrayList<>(order.size());
+        List<Integer> starts = new ArrayList<>();
+        int fusedNodeCount = 0;
+        for (ProcessingNode node : order) {
+            if (node.getOutputPorts().isEmpty() || fusedMembers.contains(node)) {
+                continue;
+            }
+            starts.add(arranged.size());
+            arranged.add(node);
+            for (ProcessingNode next = fusedNext.get(node); next != null; next = fusedNext.get(next)) {
+                arranged.add(next);
+                fusedNodeCount++;
+            }
+        }
+        int executableCount = arranged.size();
+        starts.add(executableCount);
+        for (ProcessingNode node : order) {
+            if (node.getOutputPorts().isEmpty()) {
+                arranged.add(node);
+            }
+        }
+        ProcessingNode[] nodes = arranged.toArray(new ProcessingNode[0]);
+        Map<ProcessingNode, Integer> index = new IdentityHashMap<>();
+        for (int i = 0; i < nodes.length; i++) {
+            index.put(nodes[i], i);
+        }
+        int taskCount = starts.size() - 1;
+        int[] taskStart = new int[taskCount + 1];
+        int[] taskOf = new int[executableCount];
+        for (int t = 0; t <= taskCount; t++) {
+            taskStart[t] = starts.get(t);
+        }
+        for (int t = 0; t < taskCount; t++) {
+            for (int i = taskStart[t]; i < taskStart[t + 1]; i++) {
+                taskOf[i] = t;
+            }
+        }
+
+        // Capture input connections per node
+        Map<Port, Connection> connectionByTarget = new IdentityHashMap<>();
+        for (Connection conn : connections) {
+            connectionByTarget.put(conn.getTargetPort(), conn);
+        }
+        Port[][] inputPorts = new Port[nodes.length][];
+        Connection[][] inputConnections = new Connection[nodes.length][];
+        for (int i = 0; i < nodes.length; i++) {
+            inputPorts[i] = nodes[i].getInputPorts().toArray(new Port[0]);
+            inputConnections[i] = new Connection[inputPorts[i].length];
+            for (int j = 0; j < inputPorts[i].length; j++) {
+                inputConnections[i][j] = connectionByTarget.get(inputPorts[i][j]);
+            }
+        }
+
+        // Successors among tasks (one entry per connection between tasks)
+        List<List<Integer>> succ = new ArrayList<>(taskCount);
+        for (int t = 0; t < taskCount; t++) {
+            succ.add(new ArrayList<>());
+        }
+        for (Connection conn : connections) {
+            int source = index.get(conn.getSourceNode());
+            int target = index.get(conn.getTargetNode());
+            if (target < executableCount && taskOf[source] != taskOf[target]) {
+                succ.get(taskOf[source]).add(taskOf[target]);
+            }
+        }
+        int[][] successors = new int[taskCount][];
+        for (int t = 0; t < taskCount; t++) {
+            List<Integer> list = succ.get(t);
+            successors[t] = new int[list.size()];
+            for (int j = 0; j < list.size(); j++) {
+                successors[t][j] = list.get(j);
+            }
+        }
+
+        // Execution levels over tasks (tasks are in topological order)
+        int[] taskLevel = new int[taskCount];
+        int levelCount = 0;
+        for (int t = 0; t < taskCount; t++) {
+            levelCount = Math.max(levelCount, taskLevel[t] + 1);
+            for (int next : successors[t]) {
+                taskLevel[next] = Math.max(taskLevel[next], taskLevel[t] + 1);
+            }
+        }
+        int[] levelSize = new int[levelCount];
+        for (int t = 0; t < taskCount; t++) {
+            levelSize[taskLevel[t]]++;
+        }
+        int[][] execLevels = new int[levelCount][];
+        int maxParallelism = 1;
+        for (int l = 0; l < levelCount; l++) {
+            execLevels[l] = new int[levelSize[l]];
+            maxParallelism = Math.max(maxParallelism, levelSize[l]);
+        }
+        int[] fill = new int[levelCount];
+        for (int t = 0; t < taskCount; t++) {
+            execLevels[taskLevel[t]][fill[taskLevel[t]]++] = t;
+        }
+
+        return new CompiledGraph(version, nodes, executableCount,
+                inputPorts, inputConnections, taskStart, fusedNodeCount, execLevels,
+                successors, maxParallelism, options, previous, signalFlow,
+                inputNode, outputNode,
+                Collections.unmodifiableList(order), Collections.unmodifiableList(levels));
+    }
+
+    /**
+     * Check whether a node can be part of a fused chain (effect with one input and one output).
+     */
+    private static boolean isFusable(ProcessingNode node) {
+        return node instanceof EffectNode effectNode
+                && effectNode.getInput() != null && effectNode.getOutput() != null;
+    }
+
+    /**
+     * Handoff buffers to take over from the previous plan: with the same
+     * number of stages, a cut that stays on the same connection keeps the
+     * block in flight, so a re-plan or rebalance neither drops that block nor
+     * restarts the pipeline with silence. Blocks in flight at moved cuts are
+     * handed over by the pipeline itself (see {@link PipelinePlan}), and
+     * compensation delays on handoffs carry over with their connections.
+     */
+    private Map<Port, float[][]> carriedHandoffs(CompiledGraph previous) {
+        Map<Port, float[][]> carried = new IdentityHashMap<>();
+        if (pipeline == null || previous == null || previous.pipeline == null
+                || previous.buffers == null || previous.pipeline.stageCount != pipeline.stageCount) {
+            return carried;
+        }
+        for (int c = 0; c < pipeline.handoffs.length; c++) {
+            Port target = previous.pipeline.handoffs[c].getTargetPort();
+            if (pipeline.handoffs[c].getTargetPort() == target) {
+                float[][] held = previous.buffers.buffersOf(target);
+                if (held != null) {
+                    carried.put(target, held);
+                }
+            }
+        }
+        return carried;
+    }
+
+    /**
+     * Reuse the matching compensation delay of the previous plan, or create one.
+     */
+    private static CompensationDelay createCompensation(Connection conn, int delay, int channels,
+                                                        CompiledGraph previous) {
+        if (previous != null) {
+            for (CompensationDelay old : previous.compensations) {
+                if (old.matches(conn, delay, channels)) {
+                    return old;
+                }
+            }
+        }
+        return new CompensationDelay(conn, delay, channels);
+    }
+
+    private int compensationIndex(CompensationDelay compensation) {
+        for (int k = 0; k < compensations.length; k++) {
+            if (compensations[k] == compensation) {
+                return k;
+            }
+        }
+        throw new IllegalStateException("Unknown compensation delay");
+    }
+
+    /**
+     * Check whether a node latency has changed since this plan was compiled,
+     * so that its compensation delays are out of date. Runs off the audio thread.
+     */
+    boolean isLatencyStale() {
+        for (int i = 0; i < nodes.length; i++) {
+            if (Math.max(0, nodes[i].getLatency()) != nodeLatency[i]) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Check whether a stereo setting has changed since this plan was compiled,
+     * so that its channel layout is out of date. Runs off the audio thread.
+     */
+    boolean isChannelLayoutStale() {
+        for (int i = 0; i < layoutEffects.length; i++) {
+            if (layoutEffects[i].getEffect().getStereoMode() != layoutEffectModes[i]) {
+                return true;
+            }
+        }
+        for (int i = 0; i < layoutMixers.length; i++) {
+            if (layoutMixers[i].getStereoMode() != layoutMixerModes[i]) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Number of pipeline stages (1 when not pipelining).
+     */
+    int pipelineDepth() {
+        return pipeline != null ? pipeline.stageCount : 1;
+    }
+
+    /**
+     * Copy an input port into a capture whenever its node is about to run
+     * (audio thread, before the block). The port is looked up only when the
+     * selection changes.
+     *
+     * @param capture The capture to fill
+     * @param port    Input port to copy, or null for none
+     */
+    void selectInputCapture(PortCapture capture, Port port) {
+        if (port == inputCapturePort && capture == inputCapture) {
+            return;
+        }
+        inputCapture = capture;
+        inputCapturePort = port;
+        inputCaptureNode = -1;
+        for (int i = 0; i < nodes.length && port != null; i++) {
+            for (Port input : inputPorts[i]) {
+                if (input == port) {
+                    inputCaptureNode = i;
+                }
+            }
+        }
+    }
+
+    /**
+     * Copy an output port into a capture whenever its node runs (audio thread,
+     * before the block). The port is looked up only when the selection changes.
+     *
+     * @param capture The capture to fill
+     * @param port    Output port to copy, or null for none
+     */
+    void selectOutputCapture(PortCapture capture, Port port) {
+        if (port == outputCapturePort && capture == outputCapture) {
+            return;
+        }
+        outputCapture = capture;
+        outputCapturePort = port;
+        outputCaptureNode = -1;
+        for (int i = 0; i < nodes.length && port != null; i++) {
+            for (Port output : outputPorts[i]) {
+                if (output == port) {
+                    outputCaptureNode = i;
+                }
+            }
+        }
+    }
+
+    /**
+     * Check whether the plan depends on settings that can change without a
+     * structural edit (stereo modes and latencies of effects, measured
+     * pipeline costs).
+     */
+    boolean needsMaintenance() {
+        return pipeline != null || layoutEffects.length > 0 || layoutMixers.length > 0;
+    }
+
+    /**
+     * Execute a range of ops.
+     */
+    void runOps(int from, int to, int frameCount) {
+        for (int op = from; op < to; op++) {
+            int code = ops[op];
+            int operand = code >>> OP_KIND_BITS;
+            switch (code & OP_KIND_MASK) {
+                case OP_TRANSFER -> transfers[operand].transfer(frameCount);
+                case OP_CLEAR -> clears[operand].clearBuffer();
+                case OP_ALIAS -> transferAliased(transfers[operand], frameCount);
+                case OP_DELAYED_TRANSFER -> {
+                    CompensationDelay compensation = compensations[operand];
+                    compensation.connection.transfer(frameCount);
+                    compensation.process(frameCount);
+                }
+                default -> processNode(operand, frameCount);
+            }
+        }
+    }
+
+    /**
+     * Process a node (inputs already transferred) and copy its captured
+     * ports, if any, while the buffers still hold the block.
+     */
+    void processNode(int index, int frameCount) {
+        if (index == inputCaptureNode) {
+            inputCapture.capture(inputCapturePort, frameCount);
+        }
+        processTraced(index, frameCount);
+        if (index == outputCaptureNode) {
+            outputCapture.capture(outputCapturePort, frameCount);
+        }
+    }
+
+    /**
+     * Process a node, timing it when profiling is enabled and emitting a
+     * NodeProcessed event when a recording enables it.
+     */
+    private void processTraced(int index, int frameCount) {
+        if (JfrEvents.isNodeProcessedEnabled()) {
+            NodeProcessedEvent event = new NodeProcessedEvent();
+            event.begin();
+            processTimed(index, frameCount);
+            event.end();
+            if (event.shouldCommit()) {
+                event.nodeId = nodes[index].getId();
+                event.nodeName = nodes[index].getName();
+                event.frames = frameCount;
+                event.commit();
+            }
+        } else {
+            processTimed(index, frameCount);
+        }
+    }
+
+    private void processTimed(int index, int frameCount) {
+        if (profiler.isEnabled()) {
+            long start = System.nanoTime();
+            processOrSleep(index, frameCount);
+            profiler.record(index, System.nanoTime() - start);
+        } else {
+            processOrSleep(index, frameCount);
+        }
+    }
+
+    /**
+     * Process a node and scan its outputs for silence, or skip it while it
+     * sleeps: its inputs have been silent for longer than its tail, and so
+     * have its outputs. A feedback line at most a tail long then only holds
+     * silence, so skipping it freezes nothing audible.
+     */
+    private void processOrSleep(int index, int frameCount) {
+        if (sleepable[index]) {
+            boolean inputsSilent = true;
+            for (Port port : inputPorts[index]) {
+                inputsSilent &= port.isSilent();
+            }
+            silentFrames[index] = inputsSilent
+                    ? (int) Math.min((long) silentFrames[index] + frameCount, Integer.MAX_VALUE) : 0;
+            int tail = nodes[index].getTailLength();
+            boolean asleep = silentFrames[index] > tail && quietFrames[index] > tail;
+            sleeping[index] = asleep;
+            if (asleep) {
+                for (Port port : outputPorts[index]) {
+                    port.restoreBuffer();
+                    port.clearBuffer();
+                }
+                quietFrames[index] = (int) Math.min((long) quietFrames[index] + frameCount, Integer.MAX_VALUE);
+                return;
+            }
+        }
+        nodes[index].process(frameCount);
+        boolean outputsSilent = true;
+        for (Port port : outputPorts[index]) {
+            port.detectSilence(frameCount);
+            outputsSilent &= port.isSilent();
+        }
+        quietFrames[index] = outputsSilent
+                ? (int) Math.min((long) quietFrames[index] + frameCount, Integer.MAX_VALUE) : 0;
+    }
+
+    /**
+     * Count the nodes that skipped their last block. Approximate when read
+     * off the audio thread.
+     */
+    int sleepingCount() {
+        int count = 0;
+        for (boolean asleep : sleeping) {
+            if (asleep) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Zero-copy connection: the target shares the source buffer. Follows a
+     * pass-through of the source and applies a non-unity gain in place.
+     */
+    private static void transferAliased(Connection conn, int frameCount) {
+        Port target = conn.getTargetPort();
+        target.routeFrom(conn.getSourcePort());
+        float gain = conn.getGain();
+        if (gain != 1.0f) {
+            for (int c = 0; c < target.getChannelCount(); c++) {
+                float[] buffer = target.getBuffer(c);
+                int len = Math.min(frameCount, buffer.length);
+                for (int i = 0; i < len; i++) {
+                    buffer[i] *= gain;
+                }
+            }
+        }
+    }
+
+    /**
+     * Bind this plan's port buffers. Called on the audio thread when the plan is adopted.
+     */
+    void bindBuffers() {
+        if (buffers != null) {
+            buffers.bind();
+        }
+    }
+
+    /**
+     * Process all executable (non-sink) nodes in order on the calling thread.
+     */
+    void runExecutables(int frameCount) {
+        runOps(0, opStart[executableCount], frameCount);
+    }
+
+    /**
+     * Transfer data from incoming connections to the input ports of a node.
+     * Unconnected inputs are cleared.
+     */
+    void transferInputs(int index, int frameCount) {
+        runOps(opStart[index], opStart[index + 1] - 1, frameCount);
+    }
+
+    /**
+     * Process a single node (transfer inputs, then process).
+     */
+    void runNode(int index, int frameCount) {
+        runOps(opStart[index], opStart[index + 1], frameCount);
+    }
+
+    /**
+     * Process all nodes of a task.
+     */
+    void runTask(int task, int frameCount) {
+        runOps(opStart[taskStart[task]], opStart[taskStart[task + 1]], frameCount);
+    }
+
+    /**
+     * Process all nodes of a task, reporting (but not propagating) errors so
+     * that one failing node cannot stall a parallel batch.
+     */
+    void runTaskSafely(int task, int frameCount) {
+        for (int i = taskStart[task]; i < taskStart[task + 1]; i++) {
+            runNodeSafely(i, frameCount);
+        }
+    }
+
+    /**
+     * Process a single node, reporting (but not propagating) errors.
+     *
+     * <p>Errors are caught too: a node that escapes with one would skip the
+     * job's completion count and leave the audio thread waiting forever.</p>
+     */
+    void runNodeSafely(int index, int frameCount) {
+        try {
+            runNode(index, frameCount);
+        } catch (Throwable e) {
+            System.err.println("Error processing node " + nodes[index].getId() + ": " + e.getMessage());
+        }
+    }
+}
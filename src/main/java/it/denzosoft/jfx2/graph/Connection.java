@@ -41,7 +41,8 @@ public class Connection {
     }
 
     /**
-     * Transfer signal from source to target, handling type conversion.
+     * Transfer signal from source to target, handling channel conversion.
+     * Channel counts are those the ports carry in the current plan.
      *
      * @param frameCount Number of frames to transfer
      */
@@ -52,35 +53,34 @@ public class Connection {
         if (source == null || target == null) {
             return;
         }
+        targetPort.setSilent(sourcePort.isSilent());
 
-        PortType sourceType = sourcePort.getType();
-        PortType targetType = targetPort.getType();
+        int sourceChannels = sourcePort.getChannelCount();
+        int targetChannels = targetPort.getChannelCount();
+        int len = Math.min(frameCount, Math.min(source.length, target.length));
 
-        if (sourceType == targetType) {
-            // Same type - direct copy with gain
-            int sampleCount = frameCount * sourceType.getChannelCount();
-            for (int i = 0; i < sampleCount && i < source.length && i < target.length; i++) {
-                target[i] = source[i] * gain;
-            }
-        } else if (sourceType == PortType.AUDIO_MONO && targetType == PortType.AUDIO_STEREO) {
-            // Mono to stereo - duplicate to both channels
-            for (int i = 0; i < frameCount && i < source.length; i++) {
-                float sample = source[i] * gain;
-                int targetIdx = i * 2;
-                if (targetIdx + 1 < target.length) {
-                    target[targetIdx] = sample;      // Left
-                    target[targetIdx + 1] = sample;  // Right
-                }
+        if (sourceChannels == targetChannels || sourceChannels == 1) {
+            // Same layout, or mono to stereo (the mono channel feeds both sides)
+            for (int c = 0; c < targetChannels; c++) {
+                copyWithGain(sourcePort.getBuffer(c), targetPort.getBuffer(c), len);
             }
-        } else if (sourceType == PortType.AUDIO_STEREO && targetType == PortType.AUDIO_MONO) {
+        } else {
             // Stereo to mono - average both channels
-            for (int i = 0; i < frameCount; i++) {
-                int sourceIdx = i * 2;
-                if (sourceIdx + 1 < source.length && i < target.length) {
-                    float left = source[sourceIdx];
-                    float right = source[sourceIdx + 1];
-                    target[i] = (left + right) * 0.5f * gain;
-                }
+            float[] left = sourcePort.getBuffer(0);
+            float[] right = sourcePort.getBuffer(1);
+            float scale = 0.5f * gain;
+            for (int i = 0; i < len; i++) {
+                target[i] = (left[i] + right[i]) * scale;
+            }
+        }
+    }
+
+    private void copyWithGain(float[] source, float[] target, int len) {
+        if (gain == 1.0f) {
+            System.arraycopy(source, 0, target, 0, len);
+        } else {
+            for (int i = 0; i < len; i++) {
+                target[i] = source[i] * gain;
             }
         }
     }
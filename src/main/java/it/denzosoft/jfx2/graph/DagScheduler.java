@@ -0,0 +1,272 @@
+package it.denzosoft.jfx2.graph;
+
+import java.util.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+/**
+ * Dependency-counting scheduler for the signal graph.
+ *
+ * <p>Each node carries an atomic count of unfinished inputs. Finishing a node
+ * decrements the count of its successors and pushes the ones that became
+ * ready onto the finishing participant's work-stealing deque, so independent
+ * branches run to completion without waiting on each other.</p>
+ *
+ * <p>Ready nodes are ordered by critical path: the longest remaining chain of
+ * measured node costs. The node with the longest remaining chain is pushed
+ * last and therefore popped first by its owner.</p>
+ *
+ * <p>Tasks are single nodes or fused chains of nodes; a task is identified
+ * by its first node.</p>
+ */
+final class DagScheduler implements RealtimeWorkerPool.Job {
+
+    /**
+     * Callback that processes one task (input transfer plus processing).
+     */
+    interface TaskRunner {
+        void run(int task, int frameCount);
+    }
+
+    // Re-rank by critical path every N blocks
+    private static final int RERANK_INTERVAL = 64;
+    // Cost EMA smoothing (shift of 3 = 1/8 weight for the new sample)
+    private static final int COST_SMOOTHING_SHIFT = 3;
+
+    private final ProcessingNode[] nodes;
+    private final int[] taskSizes;
+    private final int[][] successors;
+    private final int[] inDegree;
+    private final int[] roots;
+    private final int maxParallelism;
+    private final TaskRunner runner;
+
+    private final AtomicIntegerArray pending;
+    private final AtomicInteger completed = new AtomicInteger();
+    private final WorkStealingDeque[] deques;
+
+    // Measured cost (EMA, nanoseconds) and critical path per node
+    private final long[] costNanos;
+    private final long[] criticalPathNanos;
+
+    private int frameCount;
+    private int blocksSinceRank = RERANK_INTERVAL;
+
+    /**
+     * Build a scheduler over topologically sorted tasks.
+     *
+     * @param nodes          First node of each task, in topological order
+     * @param taskSizes      Number of nodes per task
+     * @param successors     Successor indices per task (one entry per connection)
+     * @param maxParallelism Widest Kahn level (used to decide how many workers to wake)
+     * @param participants   Number of participants (workers plus caller)
+     * @param runner         Task processing callback
+     * @param previous       Previous scheduler to inherit cost estimates from (may be null)
+     */
+    DagScheduler(ProcessingNode[] nodes, int[] taskSizes, int[][] successors, int maxParallelism,
+                 int participants, TaskRunner runner, DagScheduler previous) {
+        int n = nodes.length;
+        this.nodes = nodes;
+        this.taskSizes = taskSizes;
+        this.successors = successors;
+        this.maxParallelism = Math.max(1, maxParallelism);
+        this.runner = runner;
+
+        this.inDegree = new int[n];
+        for (int[] next : successors) {
+            for (int s : next) {
+                inDegree[s]++;
+            }
+        }
+        int rootCount = 0;
+        for (int i = 0; i < n; i++) {
+            if (inDegree[i] == 0) {
+                rootCount++;
+            }
+        }
+        this.roots = new int[rootCount];
+        for (int i = 0, r = 0; i < n; i++) {
+            if (inDegree[i] == 0) {
+                roots[r++] = i;
+            }
+        }
+
+        this.pending = new AtomicIntegerArray(n);
+        this.deques = new WorkStealingDeque[Math.max(1, participants)];
+        for (int i = 0; i < deques.length; i++) {
+            deques[i] = new WorkStealingDeque(n);
+        }
+
+        this.costNanos = new long[n];
+        this.criticalPathNanos = new long[n];
+        if (previous != null) {
+            Map<ProcessingNode, Integer> index = new IdentityHashMap<>();
+            for (int i = 0; i < n; i++) {
+                index.put(nodes[i], i);
+            }
+            for (int i = 0; i < previous.nodes.length; i++) {
+                Integer j = index.get(previous.nodes[i]);
+                if (j != null && previous.taskSizes[i] == taskSizes[j]) {
+                    costNanos[j] = previous.costNanos[i];
+                }
+            }
+        }
+        rank();
+    }
+
+    /**
+     * Prepare the next block. Must be called while no participant is running.
+     *
+     * @param frameCount Number of frames to process
+     */
+    void prepareBlock(int frameCount) {
+        this.frameCount = frameCount;
+
+        if (++blocksSinceRank >= RERANK_INTERVAL) {
+            rank();
+        }
+
+        for (int i = 0; i < inDegree.length; i++) {
+            pending.set(i, inDegree[i]);
+        }
+        for (WorkStealingDeque deque : deques) {
+            deque.clear();
+        }
+        completed.set(0);
+
+        // Roots go to the caller's deque, longest critical path on top
+        WorkStealingDeque callerDeque = deques[deques.length - 1];
+        for (int root : roots) {
+            callerDeque.push(root);
+        }
+    }
+
+    @Override
+    public void run(int participant) {
+        WorkStealingDeque own = deques[Math.min(participant, deques.length - 1)];
+        int total = nodes.length;
+
+        while (true) {
+            int task = own.pop();
+            if (task < 0) {
+                task = steal(participant);
+            }
+            if (task < 0) {
+                if (completed.get() >= total) {
+                    return;
+                }
+                Thread.onSpinWait();
+                continue;
+            }
+            execute(task, own);
+        }
+    }
+
+    @Override
+    public boolean isDone() {
+        return completed.get() >= nodes.length;
+    }
+
+    /**
+     * Get the maximum number of tasks that can run at the same time.
+     */
+    int getMaxParallelism() {
+        return maxParallelism;
+    }
+
+    private void execute(int task, WorkStealingDeque own) {
+        long start = System.nanoTime();
+        runner.run(task, frameCount);
+        long elapsed = System.nanoTime() - start;
+        costNanos[task] += (elapsed - costNanos[task]) >> COST_SMOOTHING_SHIFT;
+
+        // Release successors (sorted by ascending critical path: the longest is popped first)
+        int[] next = successors[task];
+        for (int s : next) {
+            if (pending.decrementAndGet(s) == 0) {
+                own.push(s);
+            }
+        }
+        completed.incrementAndGet();
+    }
+
+    private int steal(int participant) {
+        int count = deques.length;
+        for (int k = 1; k <= count; k++) {
+            WorkStealingDeque victim = deques[(participant + k) % count];
+            int task;
+            while ((task = victim.steal()) == WorkStealingDeque.ABORT) {
+                Thread.onSpinWait();
+            }
+            if (task >= 0) {
+                return task;
+            }
+        }
+        return WorkStealingDeque.EMPTY;
+    }
+
+    /**
+     * Recompute critical paths and reorder successor and root lists.
+     * Allocation free; runs on the audio thread between blocks.
+     */
+    private void rank() {
+        blocksSinceRank = 0;
+        for (int i = nodes.length - 1; i >= 0; i--) {
+            long longest = 0;
+            for (int s : successors[i]) {
+                longest = Math.max(longest, criticalPathNanos[s]);
+            }
+            // Count every node as at least 1ns so unmeasured chains still rank by length
+            criticalPathNanos[i] = Math.max(1, costNanos[i]) + longest;
+        }
+        for (int[] list : successors) {
+            sortByCriticalPath(list);
+        }
+        sortByCriticalPath(roots);
+    }
+
+    private void sortByCriticalPath(int[] list) {
+        for (int i = 1; i < list.length; i++) {
+            int value = list[i];
+            long key = criticalPathNanos[value];
+            int j = i - 1;
+            while (j >= 0 && criticalPathNanos[list[j]] > key) {
+                list[j + 1] = list[j];
+                j--;
+            }
+            list[j + 1] = value;
+        }
+    }
+
+    /**
+     * Append scheduling diagnostics.
+     */
+    void appendInfo(StringBuilder sb) {
+        long longest = 0;
+        for (int root : roots) {
+            longest = Math.max(longest, criticalPathNanos[root]);
+        }
+        long totalCost = 0;
+        for (long cost : costNanos) {
+            totalCost += cost;
+        }
+        sb.append(String.format("  DAG: %d tasks, %d roots, max parallelism %d%n",
+                nodes.length, roots.length, maxParallelism));
+        sb.append(String.format("  Critical path: %.1f us of %.1f us total node cost%n",
+                longest / 1000.0, totalCost / 1000.0));
+
+        Integer[] byPath = new Integer[nodes.length];
+        for (int i = 0; i < byPath.length; i++) {
+            byPath[i] = i;
+        }
+        Arrays.sort(byPath, (a, b) -> Long.compare(criticalPathNanos[b], criticalPathNanos[a]));
+        for (int i = 0; i < byPath.length; i++) {
+            int node = byPath[i];
+            String name = taskSizes[node] > 1
+                    ? nodes[node].getName() + " +" + (taskSizes[node] - 1)
+                    : nodes[node].getName();
+            sb.append(String.format("    %-20s cost %8.1f us, remaining path %8.1f us%n",
+                    name, costNanos[node] / 1000.0, criticalPathNanos[node] / 1000.0));
+        }
+    }
+}
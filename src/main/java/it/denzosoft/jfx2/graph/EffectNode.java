@@ -10,6 +10,12 @@ import java.util.List;
  * Graph node that wraps an AudioEffect.
  *
  * <p>Bridges the effects system with the signal graph.</p>
+ *
+ * <p>Ports are stereo-capable. When the compiled plan gives the node a
+ * stereo input or output, the effect runs through
+ * {@link AudioEffect#processStereo} on planar L/R buffers; on a mono path it
+ * runs through {@link AudioEffect#process} and never pays for a second
+ * channel.</p>
  */
 public class EffectNode extends AbstractNode {
 
@@ -17,11 +23,12 @@ public class EffectNode extends AbstractNode {
     private final Port inputPort;
     private final Port outputPort;
 
-    // Internal buffer for effect processing
+    // Internal buffers for effect processing (scratch input for sources, scratch output for sinks)
     private float[] effectBuffer;
+    private float[] effectBufferR;
 
-    // Monitor listener for waveform display
-    private volatile EffectMonitorListener monitorListener;
+    // Monitor tap for waveform display (listener runs on the analysis thread)
+    private volatile MonitorTap monitorTap;
 
     /**
      * Listener for monitoring effect input/output during processing.
@@ -30,8 +37,8 @@ public class EffectNode extends AbstractNode {
     public interface EffectMonitorListener {
         /**
          * Called after effect processing with copies of input and output samples.
-         * Note: This is called from the audio processing thread - implementations
-         * should be lightweight and thread-safe.
+         * Note: This is called from the analysis thread, in chunks that may span
+         * several blocks; the arrays are reused after the call returns.
          *
          * @param input Input samples (may be null for source effects)
          * @param output Output samples (may be null for sink effects)
@@ -56,15 +63,15 @@ public class EffectNode extends AbstractNode {
         if (category == EffectCategory.INPUT_SOURCE) {
             // Input sources (AudioInput, Oscillator) only have output port
             this.inputPort = null;
-            this.outputPort = addOutputPort("out", "Output", PortType.AUDIO_MONO);
+            this.outputPort = addOutputPort("out", "Output", PortType.AUDIO_STEREO);
         } else if (category == EffectCategory.OUTPUT_SINK) {
             // Output sinks (AudioOutput) only have input port
-            this.inputPort = addInputPort("in", "Input", PortType.AUDIO_MONO);
+            this.inputPort = addInputPort("in", "Input", PortType.AUDIO_STEREO);
             this.outputPort = null;
         } else {
             // All other effects have both input and output ports
-            this.inputPort = addInputPort("in", "Input", PortType.AUDIO_MONO);
-            this.outputPort = addOutputPort("out", "Output", PortType.AUDIO_MONO);
+            this.inputPort = addInputPort("in", "Input", PortType.AUDIO_STEREO);
+            this.outputPort = addOutputPort("out", "Output", PortType.AUDIO_STEREO);
         }
     }
 
@@ -82,18 +89,28 @@ public class EffectNode extends AbstractNode {
         super.prepare(sampleRate, maxFrameCount);
         effect.prepare(sampleRate, maxFrameCount);
         effectBuffer = new float[maxFrameCount];
+        effectBufferR = new float[maxFrameCount];
     }
 
     @Override
     public void process(int frameCount) {
+        // Undo a pass-through from a previous bypassed block
+        if (outputPort != null) {
+            outputPort.restoreBuffer();
+        }
         float[] input = inputPort != null ? inputPort.getBuffer() : null;
         float[] output = outputPort != null ? outputPort.getBuffer() : null;
 
-        // Ensure effect buffer exists for processing
+        // Ensure effect buffers exist for processing
         if (effectBuffer == null || effectBuffer.length < frameCount) {
             effectBuffer = new float[frameCount];
+            effectBufferR = new float[frameCount];
         }
 
+        // Channel layout decided when the graph was compiled
+        int inputChannels = inputPort != null ? inputPort.getChannelCount() : 1;
+        int outputChannels = outputPort != null ? outputPort.getChannelCount() : 1;
+
         // Handle different port configurations
         EffectCategory category = effect.getMetadata().category();
 
@@ -101,24 +118,28 @@ public class EffectNode extends AbstractNode {
             // Input sources: no input port, generate to output
             if (output != null) {
                 if (bypassed || effect.isBypassed()) {
-                    java.util.Arrays.fill(output, 0, Math.min(frameCount, output.length), 0.0f);
+                    outputPort.clearBuffer();
+                } else if (outputChannels == 2) {
+                    effect.setInputChannels(1);
+                    effect.processStereo(effectBuffer, effectBuffer, output, outputPort.getBuffer(1), frameCount);
                 } else {
                     effect.process(effectBuffer, output, frameCount);
                 }
                 // Check for clipping on output
-                checkClipping(output, frameCount);
+                checkClipping(outputPort, frameCount);
             }
         } else if (category == EffectCategory.OUTPUT_SINK) {
             // Output sinks: input port only, consume input
+            // (processed even when bypassed, to keep writing to the audio device)
             if (input != null) {
-                if (bypassed || effect.isBypassed()) {
-                    // Bypassed - still need to process to write to audio device
-                    effect.process(input, effectBuffer, frameCount);
+                if (inputChannels == 2) {
+                    effect.setInputChannels(2);
+                    effect.processStereo(input, inputPort.getBuffer(1), effectBuffer, effectBufferR, frameCount);
                 } else {
                     effect.process(input, effectBuffer, frameCount);
                 }
                 // Check for clipping on input (the final signal going to output device)
-                checkClipping(input, frameCount);
+                checkClipping(inputPort, frameCount);
             }
         } else {
             // Normal effects: both input and output
@@ -127,20 +148,25 @@ public class EffectNode extends AbstractNode {
             }
 
             if (bypassed || effect.isBypassed()) {
-                // Bypass - copy input to output
-                System.arraycopy(input, 0, output, 0, Math.min(frameCount, Math.min(input.length, output.length)));
+                // Bypass - pass the input buffers through to the output (no copy)
+                outputPort.routeFrom(inputPort);
+                output = input;
+            } else if (outputChannels == 2) {
+                // Stereo output (stereo input, or a stereo effect on a mono input)
+                effect.setInputChannels(inputChannels);
+                effect.processStereo(input, inputPort.getBuffer(1), output, outputPort.getBuffer(1), frameCount);
             } else {
-                // Process through effect
+                // Mono output: the effect processes the left (or only) channel
                 effect.process(input, output, frameCount);
             }
             // Check for clipping on output
-            checkClipping(output, frameCount);
+            checkClipping(outputPort, frameCount);
         }
 
-        // Notify monitor listener if set
-        EffectMonitorListener listener = monitorListener;
-        if (listener != null) {
-            listener.onProcessed(input, output, frameCount);
+        // Copy the block for the monitor listener if set
+        MonitorTap tap = monitorTap;
+        if (tap != null) {
+            tap.write(input, output, frameCount);
         }
     }
 
@@ -203,8 +229,18 @@ public class EffectNode extends AbstractNode {
      *
      * @param listener The listener, or null to remove
      */
-    public void setMonitorListener(EffectMonitorListener listener) {
-        this.monitorListener = listener;
+    public synchronized void setMonitorListener(EffectMonitorListener listener) {
+        MonitorTap previous = monitorTap;
+        if (previous != null) {
+            AnalysisThread.unregister(previous);
+        }
+        if (listener != null) {
+            MonitorTap tap = new MonitorTap(listener, inputPort != null, outputPort != null);
+            monitorTap = tap;
+            AnalysisThread.register(tap);
+        } else {
+            monitorTap = null;
+        }
     }
 
     /**
@@ -213,11 +249,17 @@ public class EffectNode extends AbstractNode {
      * @return The listener, or null if none set
      */
     public EffectMonitorListener getMonitorListener() {
-        return monitorListener;
+        MonitorTap tap = monitorTap;
+        return tap != null ? tap.listener() : null;
     }
 
     @Override
     public int getLatency() {
         return effect.getLatency();
     }
+
+    @Override
+    public int getTailLength() {
+        return bypassed || effect.isBypassed() ? 0 : effect.getTailLength();
+    }
 }
@@ -100,4 +100,10 @@ public class GainNode extends AbstractNode {
     public Port getOutput() {
         return outputPort;
     }
+
+    @Override
+    public int getTailLength() {
+        // Memoryless: silent inputs give a silent output
+        return 0;
+    }
 }
@@ -383,10 +383,7 @@ public class InputNode extends AbstractNode {
     public int readFromDevice(int frameCount) {
         if (!deviceOpen || inputLine == null) {
             // Output silence if no device
-            float[] buffer = outputPort.getBuffer();
-            if (buffer != null) {
-                Arrays.fill(buffer, 0, Math.min(frameCount * inputChannels, buffer.length), 0.0f);
-            }
+            outputPort.clearBuffer();
             return frameCount;
         }
 
@@ -403,12 +400,8 @@ public class InputNode extends AbstractNode {
                 // Apply gain and mute
                 applyGain(floatBuffer, sampleCount);
 
-                // Copy to output buffer
-                float[] outBuffer = outputPort.getBuffer();
-                if (outBuffer != null) {
-                    System.arraycopy(floatBuffer, 0, outBuffer, 0,
-                            Math.min(sampleCount, outBuffer.length));
-                }
+                // Split interleaved samples into the output channels
+                deinterleave(floatBuffer, sampleCount / inputChannels, inputChannels);
 
                 return bytesRead / (inputChannels * 2);
             }
@@ -429,11 +422,31 @@ public class InputNode extends AbstractNode {
     public void setInputData(float[] data, int frameCount) {
         float[] buffer = outputPort.getBuffer();
         if (buffer != null && data != null) {
-            int sampleCount = frameCount * outputPort.getType().getChannelCount();
-            System.arraycopy(data, 0, buffer, 0, Math.min(sampleCount, Math.min(data.length, buffer.length)));
+            int channels = outputPort.getType().getChannelCount();
+            int frames = Math.min(frameCount, Math.min(buffer.length, data.length / channels));
+            if (floatBuffer == null || floatBuffer.length < frames * channels) {
+                return;
+            }
+            System.arraycopy(data, 0, floatBuffer, 0, frames * channels);
 
             // Apply gain and mute
-            applyGain(buffer, sampleCount);
+            applyGain(floatBuffer, frames * channels);
+            deinterleave(floatBuffer, frames, channels);
+        }
+    }
+
+    /**
+     * Split interleaved samples into the planar channels of the output port.
+     */
+    private void deinterleave(float[] data, int frames, int channels) {
+        int portChannels = outputPort.getChannelCount();
+        for (int c = 0; c < portChannels; c++) {
+            float[] channel = outputPort.getBuffer(c);
+            int frameLimit = Math.min(frames, channel.length);
+            int source = Math.min(c, channels - 1);
+            for (int i = 0; i < frameLimit; i++) {
+                channel[i] = data[i * channels + source];
+            }
         }
     }
 
@@ -57,7 +57,7 @@ public class MixerNode extends AbstractNode {
             inputPorts.add(in);
         }
 
-        // Create stereo output port (interleaved L/R samples)
+        // Create stereo output port (planar L/R buffers)
         this.outputPort = addOutputPort("out", "Output", PortType.AUDIO_STEREO);
 
         // Initialize controls
@@ -97,7 +97,7 @@ public class MixerNode extends AbstractNode {
 
     /**
      * Process in mono mode - pan affects level, output duplicated to L and R.
-     * Output is interleaved stereo (L, R, L, R, ...).
+     * The output carries a single channel unless it is planned as stereo.
      */
     private void processMono(int frameCount) {
         float[] output = outputPort.getBuffer();
@@ -138,18 +138,19 @@ public class MixerNode extends AbstractNode {
             }
         }
 
-        // Apply master level and output as interleaved stereo (L=R)
-        int outLen = Math.min(len * 2, output.length);
-        for (int i = 0; i < len && i * 2 + 1 < outLen; i++) {
-            float sample = workBufferL[i] * masterLevel;
-            output[i * 2] = sample;      // Left
-            output[i * 2 + 1] = sample;  // Right (same as left)
+        // Apply master level (a stereo output gets the same signal on L and R)
+        int outLen = Math.min(len, output.length);
+        for (int i = 0; i < outLen; i++) {
+            output[i] = workBufferL[i] * masterLevel;
+        }
+        if (outputPort.getChannelCount() == 2) {
+            System.arraycopy(output, 0, outputPort.getBuffer(1), 0, outLen);
         }
     }
 
     /**
      * Process in stereo mode - true L/R panning with constant power pan law.
-     * Output is interleaved stereo (L, R, L, R, ...).
+     * Output is planar stereo (separate L and R buffers).
      */
     private void processStereo(int frameCount) {
         float[] output = outputPort.getBuffer();
@@ -196,11 +197,18 @@ public class MixerNode extends AbstractNode {
             }
         }
 
-        // Apply master level and output as interleaved stereo
-        int outLen = Math.min(len * 2, output.length);
-        for (int i = 0; i < len && i * 2 + 1 < outLen; i++) {
-            output[i * 2] = workBufferL[i] * masterLevel;      // Left
-            output[i * 2 + 1] = workBufferR[i] * masterLevel;  // Right
+        // Apply master level and output as planar stereo (a mono output gets the sum)
+        int outLen = Math.min(len, output.length);
+        if (outputPort.getChannelCount() == 2) {
+            float[] outputR = outputPort.getBuffer(1);
+            for (int i = 0; i < outLen; i++) {
+                output[i] = workBufferL[i] * masterLevel;
+                outputR[i] = workBufferR[i] * masterLevel;
+            }
+        } else {
+            for (int i = 0; i < outLen; i++) {
+                output[i] = (workBufferL[i] + workBufferR[i]) * 0.5f * masterLevel;
+            }
         }
     }
 
@@ -343,4 +351,10 @@ public class MixerNode extends AbstractNode {
     public void setMasterLevelDb(float dB) {
         setMasterLevel((float) Math.pow(10.0, dB / 20.0));
     }
+
+    @Override
+    public int getTailLength() {
+        // Memoryless: silent inputs give a silent output
+        return 0;
+    }
 }
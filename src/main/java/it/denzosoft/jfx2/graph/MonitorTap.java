@@ -0,0 +1,75 @@
+package it.denzosoft.jfx2.graph;
+
+/**
+ * Tap on the input and output of an effect node, delivered to its
+ * {@link EffectNode.EffectMonitorListener} off the audio thread.
+ *
+ * <p>Both sides are written block by block or not at all, so the listener
+ * always sees input and output samples that line up.</p>
+ */
+final class MonitorTap implements AnalysisThread.Tap {
+
+    private final EffectNode.EffectMonitorListener listener;
+    private final SampleRing inputRing;
+    private final SampleRing outputRing;
+    private final float[] inputChunk;
+    private final float[] outputChunk;
+
+    /**
+     * @param listener  Listener to deliver to
+     * @param hasInput  Whether the node has an input (false for sources)
+     * @param hasOutput Whether the node has an output (false for sinks)
+     */
+    MonitorTap(EffectNode.EffectMonitorListener listener, boolean hasInput, boolean hasOutput) {
+        this.listener = listener;
+        this.inputRing = hasInput ? new SampleRing(SampleTap.RING_CAPACITY) : null;
+        this.outputRing = hasOutput ? new SampleRing(SampleTap.RING_CAPACITY) : null;
+        this.inputChunk = hasInput ? new float[SampleTap.CHUNK_SIZE] : null;
+        this.outputChunk = hasOutput ? new float[SampleTap.CHUNK_SIZE] : null;
+    }
+
+    EffectNode.EffectMonitorListener listener() {
+        return listener;
+    }
+
+    /**
+     * Copy one processed block (the thread processing the node). Allocation free.
+     */
+    void write(float[] input, float[] output, int frameCount) {
+        if ((inputRing != null && (input == null || inputRing.free() < frameCount))
+                || (outputRing != null && (output == null || outputRing.free() < frameCount))) {
+            return;
+        }
+        if (inputRing != null) {
+            inputRing.write(input, frameCount);
+        }
+        if (outputRing != null) {
+            outputRing.write(output, frameCount);
+        }
+    }
+
+    @Override
+    public void drain() {
+        int length;
+        while ((length = pairedAvailable()) > 0) {
+            length = Math.min(length, SampleTap.CHUNK_SIZE);
+            if (inputRing != null) {
+                inputRing.read(inputChunk, length);
+            }
+            if (outputRing != null) {
+                outputRing.read(outputChunk, length);
+            }
+            listener.onProcessed(inputChunk, outputChunk, length);
+        }
+    }
+
+    /**
+     * Samples available on both sides (the output of a block may still be in flight).
+     */
+    private int pairedAvailable() {
+        int in = inputRing != null ? inputRing.available() : Integer.MAX_VALUE;
+        int out = outputRing != null ? outputRing.available() : Integer.MAX_VALUE;
+        int length = Math.min(in, out);
+        return length == Integer.MAX_VALUE ? 0 : length;
+    }
+}
@@ -0,0 +1,30 @@
+package it.denzosoft.jfx2.graph;
+
+/**
+ * Processing time of one node over its most recent blocks.
+ *
+ * @param nodeId        Node identifier
+ * @param nodeName      Node display name
+ * @param blocks        Number of blocks the statistics cover
+ * @param meanMicros    Mean processing time per block in microseconds
+ * @param p99Micros     99th percentile processing time in microseconds
+ * @param maxMicros     Maximum processing time in microseconds
+ * @param budgetPercent Mean processing time as a percentage of the block duration
+ */
+public record NodeProfile(
+        String nodeId,
+        String nodeName,
+        int blocks,
+        double meanMicros,
+        double p99Micros,
+        double maxMicros,
+        double budgetPercent
+) {
+    /**
+     * Format as a single line, e.g. for status output.
+     */
+    public String toDisplayString() {
+        return String.format("%-20s mean %7.1f us  p99 %7.1f us  max %7.1f us  %5.1f%%",
+                nodeName, meanMicros, p99Micros, maxMicros, budgetPercent);
+    }
+}
@@ -0,0 +1,101 @@
+package it.denzosoft.jfx2.graph;
+
+import java.util.Arrays;
+
+/**
+ * Per-node processing time, measured on the audio thread.
+ *
+ * <p>Every node keeps the timings of its most recent {@link #WINDOW} blocks
+ * in one preallocated ring, so recording is a store and an increment.
+ * Statistics (mean, p99, max over the window) are computed on request, off
+ * the audio thread. When profiling is disabled the graph does not read the
+ * clock at all.</p>
+ */
+final class NodeProfiler {
+
+    // Blocks per node kept for the statistics (power of two)
+    static final int WINDOW = 1024;
+
+    // Ring of timings: node i owns timings[i * WINDOW] .. timings[(i + 1) * WINDOW - 1]
+    private final long[] timings;
+    // Blocks recorded per node since the last reset
+    private final long[] recorded;
+
+    private volatile boolean enabled;
+
+    /**
+     * Create a profiler, keeping the timings of nodes that were already
+     * profiled by the previous plan.
+     *
+     * @param nodeCount     Number of nodes in the plan
+     * @param enabled       Whether to start timing
+     * @param previous      Profiler of the previous plan (may be null)
+     * @param previousIndex Index of each node in the previous plan (-1 = new node)
+     */
+    NodeProfiler(int nodeCount, boolean enabled, NodeProfiler previous, int[] previousIndex) {
+        this.timings = new long[nodeCount * WINDOW];
+        this.recorded = new long[nodeCount];
+        this.enabled = enabled;
+        if (previous != null) {
+            for (int i = 0; i < nodeCount; i++) {
+                int k = previousIndex[i];
+                if (k >= 0) {
+                    System.arraycopy(previous.timings, k * WINDOW, timings, i * WINDOW, WINDOW);
+                    recorded[i] = previous.recorded[k];
+                }
+            }
+        }
+    }
+
+    boolean isEnabled() {
+        return enabled;
+    }
+
+    void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    /**
+     * Record the time a node took for one block. Allocation free; called only
+     * by the thread processing the node.
+     */
+    void record(int node, long nanos) {
+        long count = recorded[node];
+        timings[node * WINDOW + (int) (count & (WINDOW - 1))] = nanos;
+        recorded[node] = count + 1;
+    }
+
+    /**
+     * Forget all timings. Blocks in flight may still land in the window.
+     */
+    void reset() {
+        Arrays.fill(recorded, 0);
+    }
+
+    /**
+     * Compute the statistics of one node (off the audio thread).
+     *
+     * @param node       Node index in the plan
+     * @param owner      The node
+     * @param blockNanos Duration of one block, for the budget percentage (0 = unknown)
+     * @return Statistics, or null if nothing has been recorded
+     */
+    NodeProfile profile(int node, ProcessingNode owner, double blockNanos) {
+        int blocks = (int) Math.min(recorded[node], WINDOW);
+        if (blocks == 0) {
+            return null;
+        }
+        long[] window = Arrays.copyOfRange(timings, node * WINDOW, node * WINDOW + blocks);
+        Arrays.sort(window);
+        long sum = 0;
+        for (long nanos : window) {
+            sum += nanos;
+        }
+        double mean = (double) sum / blocks;
+        long p99 = window[Math.max(0, (int) Math.ceil(blocks * 0.99) - 1)];
+        long max = window[blocks - 1];
+        double budget = blockNanos > 0 ? mean * 100.0 / blockNanos : 0;
+        return new NodeProfile(owner.getId(), owner.getName(), blocks,
+                mean / 1000.0, p99 / 1000.0, max / 1000.0, budget);
+    }
+}
@@ -360,11 +360,11 @@ public class OutputNode extends AbstractNode {
 
         writing = true;
         try {
-            int sampleCount = frameCount * outputChannels;
-            sampleCount = Math.min(sampleCount, Math.min(buffer.length, floatBuffer.length));
+            int frames = Math.min(frameCount, Math.min(buffer.length, floatBuffer.length / outputChannels));
+            int sampleCount = frames * outputChannels;
 
-            // Copy input to work buffer
-            System.arraycopy(buffer, 0, floatBuffer, 0, sampleCount);
+            // Interleave input channels into the work buffer
+            interleave(floatBuffer, frames, outputChannels);
 
             // Apply gain and mute
             applyGain(floatBuffer, sampleCount);
@@ -387,14 +387,15 @@ public class OutputNode extends AbstractNode {
      * Called by the audio engine after graph processing.
      *
      * @param frameCount Number of frames
-     * @return Audio data buffer
+     * @return Audio data buffer (the left channel of a stereo signal)
      */
     public float[] getOutputData(int frameCount) {
         return inputPort.getBuffer();
     }
 
     /**
-     * Copy output data to the provided buffer.
+     * Copy output data to the provided buffer, interleaved with the channel
+     * count of the port type (a mono signal is duplicated to both sides).
      *
      * @param destination Destination buffer
      * @param frameCount  Number of frames
@@ -402,8 +403,18 @@ public class OutputNode extends AbstractNode {
     public void copyOutputData(float[] destination, int frameCount) {
         float[] buffer = inputPort.getBuffer();
         if (buffer != null && destination != null) {
-            int sampleCount = frameCount * inputPort.getType().getChannelCount();
-            System.arraycopy(buffer, 0, destination, 0, Math.min(sampleCount, Math.min(buffer.length, destination.length)));
+            int channels = inputPort.getType().getChannelCount();
+            int frames = Math.min(frameCount, Math.min(buffer.length, destination.length / channels));
+            interleave(destination, frames, channels);
+        }
+    }
+
+    private void interleave(float[] destination, int frames, int channels) {
+        for (int c = 0; c < channels; c++) {
+            float[] channel = inputPort.getBuffer(c);
+            for (int i = 0; i < frames; i++) {
+                destination[i * channels + c] = channel[i];
+            }
         }
     }
 
@@ -0,0 +1,420 @@
+package it.denzosoft.jfx2.graph;
+
+import java.util.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Pipelined execution of a serial graph.
+ *
+ * <p>The executable nodes (in topological order) are cut into stages that
+ * run concurrently, each stage one block behind the previous one. A cut is
+ * only placed where exactly one connection crosses it; that connection is
+ * handed over between blocks by the audio thread, so a stage never reads
+ * data another stage is writing.</p>
+ *
+ * <p>Cuts are chosen to minimize the cost of the slowest stage, using node
+ * costs measured while the pipeline runs. The pipeline adds
+ * {@code (stages - 1)} blocks of latency.</p>
+ *
+ * <p>A new pipeline with the same stages takes over the blocks in flight.
+ * When a rebalance moves a cut by less than a stage, the first block after
+ * the switch keeps every node on its own sequence of blocks: nodes moved to
+ * an earlier stage first process the block in flight once more, nodes moved
+ * to a later stage skip that block.</p>
+ */
+final class PipelinePlan implements RealtimeWorkerPool.Job {
+
+    // Cost EMA smoothing (shift of 3 = 1/8 weight for the new sample)
+    private static final int COST_SMOOTHING_SHIFT = 3;
+    // Re-partition when the best split is this much faster than the current one
+    private static final double REBALANCE_GAIN = 0.8;
+
+    private final ProcessingNode[] nodes;
+    private final CompiledGraph plan;
+
+    // Stage s runs nodes stageStart[s] .. stageStart[s + 1] - 1
+    final int[] stageStart;
+    final int stageCount;
+
+    // Connections crossing a cut, copied after every block, with their compensation delays
+    final Connection[] handoffs;
+    private final CompensationDelay[] handoffDelays;
+
+    // Measured cost per node (EMA, nanoseconds)
+    private final long[] costNanos;
+
+    // Allowed cut positions (cut before node p) and scratch for rebalancing checks
+    private final boolean[] cutAllowed;
+    private final long[] prefixCost;
+    private final long[][] bestCost;
+
+    private final AtomicInteger nextStage = new AtomicInteger();
+    private final AtomicInteger completedStages = new AtomicInteger();
+    private int frameCount;
+    private int[] runStart;
+
+    // Switch-over from the pipeline this one replaces (null = nothing to do).
+    // Per cut: port refilled with the block in flight (the old source, or the
+    // old target when another cut now fills it) and the buffers holding it
+    // (null = none), and nodes to run once more before the first block.
+    // Per stage: first node to run on the first block.
+    private final PipelinePlan switchFrom;
+    private final Port[] inFlightSources;
+    private final boolean[] inFlightAtTarget;
+    private final float[][][] inFlight;
+    private final int[] catchUpStart;
+    private final int[] catchUpEnd;
+    private final int[] switchStart;
+    private boolean switchPending;
+
+    private PipelinePlan(CompiledGraph plan, ProcessingNode[] nodes, int[] stageStart,
+                         Connection[] handoffs, CompensationDelay[] handoffDelays,
+                         long[] costNanos, boolean[] cutAllowed, PipelinePlan previous) {
+        this.plan = plan;
+        this.nodes = nodes;
+        this.stageStart = stageStart;
+        this.stageCount = stageStart.length - 1;
+        this.handoffs = handoffs;
+        this.handoffDelays = handoffDelays;
+        this.costNanos = costNanos;
+        this.cutAllowed = cutAllowed;
+        this.prefixCost = new long[nodes.length + 1];
+        this.bestCost = new long[stageCount + 1][nodes.length + 1];
+        this.runStart = stageStart;
+
+        int cuts = handoffs.length;
+        this.inFlightSources = new Port[cuts];
+        this.inFlightAtTarget = new boolean[cuts];
+        this.inFlight = new float[cuts][][];
+        this.catchUpStart = new int[cuts];
+        this.catchUpEnd = new int[cuts];
+        this.switchStart = stageStart.clone();
+        this.switchFrom = planSwitch(previous) ? previous : null;
+    }
+
+    /**
+     * Work out how to switch over from the previous pipeline without losing
+     * or repeating a block on any node.
+     *
+     * @return true if the first block needs special handling
+     */
+    private boolean planSwitch(PipelinePlan previous) {
+        if (previous == null || previous.stageCount != stageCount || previous.plan.buffers == null
+                || !Arrays.equals(previous.nodes, nodes)) {
+            return false;
+        }
+        // Every node may move by at most one stage
+        int[] oldStage = previous.stageOfNodes();
+        int[] newStage = stageOfNodes();
+        for (int i = 0; i < nodes.length; i++) {
+            if (Math.abs(oldStage[i] - newStage[i]) > 1) {
+                return false;
+            }
+        }
+
+        boolean needed = false;
+        for (int c = 0; c < handoffs.length; c++) {
+            int from = previous.stageStart[c + 1];
+            int to = stageStart[c + 1];
+            if (from == to) {
+                continue;
+            }
+            needed = true;
+            // The block in flight crossed the old cut: put it back on the old source
+            Connection old = previous.handoffs[c];
+            float[][] held = previous.plan.buffers.buffersOf(old.getTargetPort());
+            if (old == handoffs[c] || held == null
+                    || previous.handoffDelays[c] != null || handoffDelays[c] != null) {
+                return false;
+            }
+            // The old target may now be filled by the previous cut: the
+            // connection no longer delivers to it, so the block goes there as is
+            for (Connection handoff : handoffs) {
+                inFlightAtTarget[c] |= handoff.getTargetPort() == old.getTargetPort();
+            }
+            inFlightSources[c] = inFlightAtTarget[c] ? old.getTargetPort() : old.getSourcePort();
+            inFlight[c] = held;
+            if (to > from) {
+                // Moved to an earlier stage: process the block in flight first
+                catchUpStart[c] = from;
+                catchUpEnd[c] = to;
+            } else {
+                // Moved to a later stage: already processed the block in flight
+                switchStart[c + 1] = from;
+            }
+        }
+        return needed;
+    }
+
+    /**
+     * Start the switch-over on the next block if this pipeline replaces the
+     * one it was planned against (audio thread, when the plan is adopted).
+     */
+    void beginSwitch(PipelinePlan active) {
+        switchPending = switchFrom != null && active == switchFrom;
+    }
+
+    /**
+     * Split the executable nodes of a plan into pipeline stages.
+     *
+     * @param plan             The plan being compiled
+     * @param nodes            Executable nodes in topological order
+     * @param inputConnections Connection feeding each input port, per node (executables, then sinks)
+     * @param compensations    Compensation delay per connection (connections without one are absent)
+     * @param maxStages        Requested number of stages
+     * @param previous         Pipeline of the previous plan, to carry over costs and blocks in flight (may be null)
+     * @return The pipeline, or null if the graph cannot be cut
+     */
+    static PipelinePlan partition(CompiledGraph plan, ProcessingNode[] nodes, Connection[][] inputConnections,
+                                  Map<Connection, CompensationDelay> compensations,
+                                  int maxStages, PipelinePlan previous) {
+        int n = nodes.length;
+        Map<ProcessingNode, Integer> index = new IdentityHashMap<>();
+        for (int i = 0; i < n; i++) {
+            index.put(nodes[i], i);
+        }
+
+        // Count connections crossing each position: a cut before p is allowed
+        // when exactly one connection goes from a node before p to one at or after p.
+        // Sinks run after the last stage, so their inputs cross every later position.
+        int[] crossing = new int[n + 1];
+        for (int i = 0; i < inputConnections.length; i++) {
+            for (Connection conn : inputConnections[i]) {
+                if (conn != null) {
+                    int source = index.get(conn.getSourceNode());
+                    for (int p = source + 1; p <= Math.min(i, n); p++) {
+                        crossing[p]++;
+                    }
+                }
+            }
+        }
+        boolean[] cutAllowed = new boolean[n + 1];
+        boolean anyCut = false;
+        for (int p = 1; p < n; p++) {
+            cutAllowed[p] = crossing[p] == 1;
+            anyCut |= cutAllowed[p];
+        }
+        if (!anyCut || maxStages < 2) {
+            return null;
+        }
+
+        long[] costNanos = new long[n];
+        if (previous != null) {
+            Map<ProcessingNode, Integer> old = new IdentityHashMap<>();
+            for (int i = 0; i < previous.nodes.length; i++) {
+                old.put(previous.nodes[i], i);
+            }
+            for (int i = 0; i < n; i++) {
+                Integer j = old.get(nodes[i]);
+                if (j != null) {
+                    costNanos[i] = previous.costNanos[j];
+                }
+            }
+        }
+
+        // Use as many stages as requested and possible
+        long[] prefixCost = new long[n + 1];
+        long[][] bestCost = new long[maxStages + 1][n + 1];
+        int[][] from = new int[maxStages + 1][n + 1];
+        computeBestCost(costNanos, cutAllowed, prefixCost, bestCost, from);
+        int stages = 1;
+        for (int k = 2; k <= maxStages; k++) {
+            if (bestCost[k][n] != Long.MAX_VALUE) {
+                stages = k;
+            }
+        }
+        int[] cuts = new int[stages - 1];
+        int end = n;
+        for (int k = stages; k > 1; k--) {
+            end = from[k][end];
+            cuts[k - 2] = end;
+        }
+
+        int[] stageStart = new int[cuts.length + 2];
+        System.arraycopy(cuts, 0, stageStart, 1, cuts.length);
+        stageStart[stageStart.length - 1] = n;
+
+        // The single connection crossing each cut
+        Connection[] handoffs = new Connection[cuts.length];
+        CompensationDelay[] handoffDelays = new CompensationDelay[cuts.length];
+        for (int c = 0; c < cuts.length; c++) {
+            int cut = cuts[c];
+            for (int i = cut; i < n && handoffs[c] == null; i++) {
+                for (Connection conn : inputConnections[i]) {
+                    if (conn != null && index.get(conn.getSourceNode()) < cut) {
+                        handoffs[c] = conn;
+                        handoffDelays[c] = compensations.get(conn);
+                    }
+                }
+            }
+        }
+        return new PipelinePlan(plan, nodes, stageStart, handoffs, handoffDelays, costNanos, cutAllowed,
+                previous);
+    }
+
+    /**
+     * Fill best[k][p]: lowest possible cost of the slowest stage when the first
+     * p nodes are split into k stages (dynamic programming over allowed cuts).
+     * Unmeasured nodes count as 1ns so that they are spread by number.
+     * Allocation free.
+     *
+     * @param from Receives the start of the last stage of each best split (may be null)
+     */
+    private static void computeBestCost(long[] costNanos, boolean[] cutAllowed,
+                                        long[] prefixCost, long[][] best, int[][] from) {
+        int n = costNanos.length;
+        for (int i = 0; i < n; i++) {
+            prefixCost[i + 1] = prefixCost[i] + Math.max(1, costNanos[i]);
+        }
+        for (int p = 0; p <= n; p++) {
+            best[1][p] = prefixCost[p];
+        }
+        for (int k = 2; k < best.length; k++) {
+            for (int p = 0; p <= n; p++) {
+                long bestCost = Long.MAX_VALUE;
+                int bestFrom = 0;
+                for (int q = 1; q < p; q++) {
+                    if (!cutAllowed[q] || best[k - 1][q] == Long.MAX_VALUE) {
+                        continue;
+                    }
+                    long cost = Math.max(best[k - 1][q], prefixCost[p] - prefixCost[q]);
+                    if (cost < bestCost) {
+                        bestCost = cost;
+                        bestFrom = q;
+                    }
+                }
+                best[k][p] = bestCost;
+                if (from != null) {
+                    from[k][p] = bestFrom;
+                }
+            }
+        }
+    }
+
+    /**
+     * Check (on the audio thread) whether measured costs have drifted so far
+     * that a different split would be clearly faster.
+     */
+    boolean needsRebalance() {
+        long current = 0;
+        for (int s = 0; s < stageCount; s++) {
+            long stage = 0;
+            for (int i = stageStart[s]; i < stageStart[s + 1]; i++) {
+                stage += Math.max(1, costNanos[i]);
+            }
+            current = Math.max(current, stage);
+        }
+        computeBestCost(costNanos, cutAllowed, prefixCost, bestCost, null);
+        return bestCost[stageCount][nodes.length] < current * REBALANCE_GAIN;
+    }
+
+    /**
+     * Prepare the next block. Must be called while no participant is running.
+     * Completes the switch-over from the previous pipeline on the first block.
+     */
+    void prepareBlock(int frameCount) {
+        this.frameCount = frameCount;
+        runStart = stageStart;
+        if (switchPending) {
+            switchPending = false;
+            runStart = switchStart;
+            // Last cut first: a catch-up may run the source of an earlier cut's block
+            for (int c = handoffs.length - 1; c >= 0; c--) {
+                if (inFlightSources[c] != null) {
+                    restoreInFlight(c, frameCount);
+                }
+                for (int i = catchUpStart[c]; i < catchUpEnd[c]; i++) {
+                    plan.runNodeSafely(i, frameCount);
+                }
+                if (catchUpEnd[c] > catchUpStart[c]) {
+                    handoffs[c].transfer(frameCount);
+                }
+            }
+        }
+        completedStages.set(0);
+        nextStage.set(0);
+    }
+
+    /**
+     * Write the block in flight at a moved cut back to the source port of the
+     * old handoff, undoing the connection gain, so that the connection
+     * delivers it again; or straight to the old target when it is now the
+     * target of another handoff.
+     */
+    private void restoreInFlight(int cut, int frameCount) {
+        Port source = inFlightSources[cut];
+        float[][] held = inFlight[cut];
+        float gain = inFlightAtTarget[cut] ? 1.0f : switchFrom.handoffs[cut].getGain();
+        float scale = gain != 0.0f ? 1.0f / gain : 0.0f;
+        for (int c = 0; c < source.getChannelCount(); c++) {
+            float[] target = source.getBuffer(c);
+            float[] block = held[Math.min(c, held.length - 1)];
+            int len = Math.min(frameCount, Math.min(target.length, block.length));
+            for (int i = 0; i < len; i++) {
+                target[i] = block[i] * scale;
+            }
+        }
+        source.detectSilence(frameCount);
+    }
+
+    @Override
+    public void run(int participant) {
+        int[] first = runStart;
+        int stage;
+        while ((stage = nextStage.getAndIncrement()) < stageCount) {
+            for (int i = first[stage]; i < stageStart[stage + 1]; i++) {
+                long start = System.nanoTime();
+                plan.runNodeSafely(i, frameCount);
+                long elapsed = System.nanoTime() - start;
+                costNanos[i] += (elapsed - costNanos[i]) >> COST_SMOOTHING_SHIFT;
+            }
+            completedStages.incrementAndGet();
+        }
+    }
+
+    @Override
+    public boolean isDone() {
+        return completedStages.get() >= stageCount;
+    }
+
+    /**
+     * Hand the output of each stage to the next one. Runs on the audio
+     * thread after all stages have finished the block.
+     */
+    void handoff(int frameCount) {
+        for (int c = 0; c < handoffs.length; c++) {
+            handoffs[c].transfer(frameCount);
+            if (handoffDelays[c] != null) {
+                handoffDelays[c].process(frameCount);
+            }
+        }
+    }
+
+    /**
+     * Get the stage of each executable node.
+     */
+    int[] stageOfNodes() {
+        int[] stageOf = new int[nodes.length];
+        for (int s = 0; s < stageCount; s++) {
+            for (int i = stageStart[s]; i < stageStart[s + 1]; i++) {
+                stageOf[i] = s;
+            }
+        }
+        return stageOf;
+    }
+
+    /**
+     * Append pipeline diagnostics.
+     */
+    void appendInfo(StringBuilder sb) {
+        sb.append(String.format("  Pipeline: %d stages%n", stageCount));
+        for (int s = 0; s < stageCount; s++) {
+            long cost = 0;
+            for (int i = stageStart[s]; i < stageStart[s + 1]; i++) {
+                cost += costNanos[i];
+            }
+            sb.append(String.format("    Stage %d: %-20s .. %-20s %8.1f us%n", s,
+                    nodes[stageStart[s]].getName(), nodes[stageStart[s + 1] - 1].getName(), cost / 1000.0));
+        }
+    }
+}
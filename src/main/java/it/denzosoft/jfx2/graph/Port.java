@@ -5,6 +5,11 @@ package it.denzosoft.jfx2.graph;
  *
  * <p>Input ports can have at most one incoming connection.
  * Output ports can have multiple outgoing connections.</p>
+ *
+ * <p>Signals are planar: one buffer per channel. The port type is the
+ * widest signal a port accepts; the channel count it actually carries is
+ * decided when the graph is compiled, so a stereo-capable port on a mono
+ * path holds a single buffer.</p>
  */
 public class Port {
 
@@ -17,8 +22,18 @@ public class Port {
     // Connection (for input ports, only one; for output ports, managed by Connection class)
     private Connection connection;
 
-    // Buffer for this port's signal data
+    // Planar channel buffers for this port's signal (may be routed to another port's buffers)
+    private float[][] channels;
+    // First channel (left, or the only channel of a mono signal)
     private float[] buffer;
+    // Buffers assigned to this port (allocated by the node or planned by the graph)
+    private float[][] assignedChannels;
+
+    // True while the current block on this port is silent (kept by the graph)
+    private boolean silent;
+
+    // Level below which a sample counts as silence (-120 dBFS)
+    static final float SILENCE_THRESHOLD = 1.0e-6f;
 
     /**
      * Create a new port.
@@ -104,31 +119,124 @@ public class Port {
     }
 
     /**
-     * Allocate buffer for this port.
+     * Allocate buffers for this port, one per channel of its type.
      *
      * @param frameCount Number of frames
      */
     public void allocateBuffer(int frameCount) {
-        int sampleCount = frameCount * type.getChannelCount();
-        if (buffer == null || buffer.length != sampleCount) {
-            buffer = new float[sampleCount];
+        int channelCount = type.getChannelCount();
+        if (assignedChannels == null || assignedChannels.length != channelCount
+                || assignedChannels[0].length != frameCount) {
+            assignedChannels = new float[channelCount][frameCount];
         }
+        restoreBuffer();
+    }
+
+    /**
+     * Assign channel buffers planned by the graph (possibly shared with other
+     * ports). The number of buffers is the channel count the signal carries,
+     * which may be lower than the port type allows.
+     */
+    void assignBuffer(float[][] channels) {
+        this.assignedChannels = channels;
+        restoreBuffer();
     }
 
     /**
-     * Get the buffer for this port.
+     * Point this port at another port's current buffers (zero-copy pass-through).
+     * The port then carries the channel count of the source.
+     */
+    void routeFrom(Port source) {
+        this.channels = source.channels;
+        this.buffer = source.buffer;
+        this.silent = source.silent;
+    }
+
+    /**
+     * Point this port back at its assigned buffers.
+     */
+    void restoreBuffer() {
+        this.channels = assignedChannels;
+        this.buffer = assignedChannels != null ? assignedChannels[0] : null;
+    }
+
+    /**
+     * Get the buffer for this port (the left channel of a stereo signal).
      */
     public float[] getBuffer() {
         return buffer;
     }
 
+    /**
+     * Get the buffer of one channel. Asking a mono signal for the right
+     * channel returns its only channel, so mono reads as centered stereo.
+     *
+     * @param channel Channel index (0 = left, 1 = right)
+     */
+    public float[] getBuffer(int channel) {
+        if (channels == null) {
+            return null;
+        }
+        return channels[Math.min(channel, channels.length - 1)];
+    }
+
+    /**
+     * Get the number of channels the signal on this port currently carries
+     * (1 = mono, 2 = stereo).
+     */
+    public int getChannelCount() {
+        return channels != null ? channels.length : type.getChannelCount();
+    }
+
     /**
      * Clear the buffer (fill with zeros).
      */
     public void clearBuffer() {
-        if (buffer != null) {
-            java.util.Arrays.fill(buffer, 0.0f);
+        if (channels != null) {
+            for (float[] channel : channels) {
+                java.util.Arrays.fill(channel, 0.0f);
+            }
+        }
+        silent = true;
+    }
+
+    /**
+     * Check whether the current block on this port is silent. Output ports
+     * are scanned by the graph after their node has processed; input ports
+     * take the flag of their source.
+     */
+    public boolean isSilent() {
+        return silent;
+    }
+
+    void setSilent(boolean silent) {
+        this.silent = silent;
+    }
+
+    /**
+     * Scan the current block of every channel and update the silence flag.
+     * Stops at the first audible sample, so a live signal costs almost nothing.
+     *
+     * @param frameCount Number of frames in the block
+     * @return true if the block is silent
+     */
+    boolean detectSilence(int frameCount) {
+        boolean quiet = true;
+        if (channels != null) {
+            for (int c = 0; c < channels.length && quiet; c++) {
+                float[] channel = channels[c];
+                int len = Math.min(frameCount, channel.length);
+                for (int i = 0; i < len; i++) {
+                    float sample = channel[i];
+                    if (sample > SILENCE_THRESHOLD || sample < -SILENCE_THRESHOLD) {
+                        quiet = false;
+                        break;
+                    }
+                }
+            }
         }
+        silent = quiet;
+        return quiet;
     }
 
     // Getters
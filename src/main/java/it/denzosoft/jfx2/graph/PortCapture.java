@@ -0,0 +1,94 @@
+package it.denzosoft.jfx2.graph;
+
+/**
+ * Copy of the signal on one port, taken by the thread processing its node
+ * while the port buffer still holds that signal.
+ *
+ * <p>Pooled port buffers are reused within a block, so a port read outside
+ * the graph (the monitored connection, the tuner source) is copied here
+ * instead of being kept out of the pool by the plan. Selecting another port
+ * only swaps the volatile source; no plan is compiled.</p>
+ */
+final class PortCapture {
+
+    private volatile Port source;
+    private volatile float[][] channels;
+    private volatile int channelCount = 1;
+
+    // Frames captured in the current block (0 = none yet)
+    private int frames;
+
+    /**
+     * Select the port to copy (any thread).
+     *
+     * @param port The port, or null for none
+     */
+    void setSource(Port port) {
+        this.source = port;
+    }
+
+    Port getSource() {
+        return source;
+    }
+
+    /**
+     * Allocate the copy for blocks of up to {@code maxFrameCount} frames.
+     * Must not run concurrently with processing.
+     */
+    void allocate(int maxFrameCount) {
+        float[][] current = channels;
+        if (current == null || current[0].length != maxFrameCount) {
+            channels = new float[2][maxFrameCount];
+        }
+    }
+
+    /**
+     * Start a block: nothing is captured until the source node runs (audio thread).
+     */
+    void beginBlock() {
+        frames = 0;
+    }
+
+    /**
+     * Copy the current signal of a port. Allocation free.
+     */
+    void capture(Port port, int frameCount) {
+        float[][] copy = channels;
+        if (copy == null) {
+            return;
+        }
+        int count = Math.min(port.getChannelCount(), copy.length);
+        int length = Math.min(frameCount, copy[0].length);
+        for (int c = 0; c < count; c++) {
+            float[] buffer = port.getBuffer(c);
+            if (buffer == null) {
+                return;
+            }
+            System.arraycopy(buffer, 0, copy[c], 0, Math.min(length, buffer.length));
+        }
+        channelCount = count;
+        frames = length;
+    }
+
+    /**
+     * Get the number of frames captured in the current block (audio thread,
+     * after the graph has run).
+     */
+    int getFrames() {
+        return frames;
+    }
+
+    /**
+     * Get the copy of one channel. Asking a mono signal for the right channel
+     * returns its only channel, as {@link Port#getBuffer(int)} does.
+     *
+     * @return The channel, or null if not allocated
+     */
+    float[] getBuffer(int channel) {
+        float[][] copy = channels;
+        if (copy == null) {
+            return null;
+        }
+        return copy[Math.min(channel, channelCount - 1)];
+    }
+}
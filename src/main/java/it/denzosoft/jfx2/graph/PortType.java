@@ -11,7 +11,8 @@ public enum PortType {
     AUDIO_MONO(1),
 
     /**
-     * Stereo audio signal (two channels, interleaved).
+     * Stereo audio signal (two channels, planar L/R buffers).
+     * Carries a mono signal when nothing upstream is stereo.
      */
     AUDIO_STEREO(2);
 
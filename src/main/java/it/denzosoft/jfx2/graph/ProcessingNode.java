@@ -1,5 +1,7 @@
 package it.denzosoft.jfx2.graph;
 
+import it.denzosoft.jfx2.effects.AudioEffect;
+
 import java.util.List;
 
 /**
@@ -133,4 +135,18 @@ public interface ProcessingNode {
     default int getLatency() {
         return 0;
     }
+
+    /**
+     * Get the tail length in samples: how long the output can still become
+     * non-silent after all inputs have fallen silent.
+     *
+     * <p>The graph skips a node whose inputs have been silent for longer than
+     * its tail and whose outputs are silent, and marks its outputs silent so
+     * the nodes downstream can sleep as well.</p>
+     *
+     * @return Tail length in samples (default {@link AudioEffect#INFINITE_TAIL}, never skipped)
+     */
+    default int getTailLength() {
+        return AudioEffect.INFINITE_TAIL;
+    }
 }
@@ -0,0 +1,258 @@
+package it.denzosoft.jfx2.graph;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Dedicated worker pool for real-time parallel graph processing.
+ *
+ * <p>Unlike a general purpose executor, this pool never allocates and never
+ * blocks the audio thread on a {@code Future}. A batch of work is published
+ * by bumping a generation counter; hot workers pick it up immediately, parked
+ * workers are unparked. The calling (audio) thread always takes part in the
+ * work itself and then waits for the job to report completion.</p>
+ *
+ * <p>Between batches workers follow a configurable {@link WaitPolicy}:
+ * spin for a short time, then yield, then park until the next batch.</p>
+ */
+public class RealtimeWorkerPool {
+
+    /**
+     * Work executed cooperatively by the caller and the pool workers.
+     *
+     * <p>Implementations distribute work through their own lock-free
+     * structures (e.g. an atomic claim index over a preallocated task array)
+     * and must tolerate {@link #run(int)} being invoked by any number of
+     * participants, including ones that arrive after all work is claimed.</p>
+     */
+    public interface Job {
+
+        /**
+         * Execute work until nothing is left to claim.
+         *
+         * @param participant Participant index (workers 0..n-1, caller n)
+         */
+        void run(int participant);
+
+        /**
+         * Check whether all work of the current batch has completed.
+         */
+        boolean isDone();
+    }
+
+    /**
+     * Idle strategy for workers between batches.
+     *
+     * @param spinNanos  Time to busy-spin after a batch before yielding
+     * @param yieldNanos Time to yield after spinning before parking
+     */
+    public record WaitPolicy(long spinNanos, long yieldNanos) {
+
+        /** Workers stay hot for about one small buffer period. Lowest wake-up latency. */
+        public static final WaitPolicy LOW_LATENCY = new WaitPolicy(2_000_000L, 1_000_000L);
+
+        /** Short spin, then park. Good default for buffers of 128 frames and more. */
+        public static final WaitPolicy BALANCED = new WaitPolicy(200_000L, 200_000L);
+
+        /** Park immediately. Minimal CPU usage, highest wake-up latency. */
+        public static final WaitPolicy POWER_SAVING = new WaitPolicy(0L, 0L);
+
+        public WaitPolicy {
+            if (spinNanos < 0 || yieldNanos < 0) {
+                throw new IllegalArgumentException("Wait times must not be negative");
+            }
+        }
+    }
+
+    private final int workerCount;
+    private final Worker[] workers;
+    private volatile WaitPolicy waitPolicy;
+
+    // Batch publication
+    private volatile Job currentJob;
+    private volatile long generation;
+    private volatile long finishedGeneration;
+    private final AtomicInteger activeWorkers = new AtomicInteger();
+
+    private volatile boolean running;
+
+    /**
+     * Create a worker pool.
+     *
+     * @param workerCount Number of worker threads (the caller is an extra participant)
+     * @param waitPolicy  Idle strategy between batches
+     */
+    public RealtimeWorkerPool(int workerCount, WaitPolicy waitPolicy) {
+        this.workerCount = Math.max(1, workerCount);
+        this.workers = new Worker[this.workerCount];
+        this.waitPolicy = waitPolicy;
+    }
+
+    /**
+     * Start the worker threads. Does nothing if already started.
+     */
+    public synchronized void start() {
+        if (running) {
+            return;
+        }
+        running = true;
+        for (int i = 0; i < workerCount; i++) {
+            workers[i] = new Worker(i);
+            workers[i].start();
+        }
+    }
+
+    /**
+     * Stop the worker threads and wait briefly for them to exit.
+     */
+    public synchronized void shutdown() {
+        if (!running) {
+            return;
+        }
+        running = false;
+        for (Worker worker : workers) {
+            LockSupport.unpark(worker);
+        }
+        for (Worker worker : workers) {
+            try {
+                worker.join(1000);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    /**
+     * Execute a job on the calling thread and up to {@code helpers} workers.
+     *
+     * <p>Returns when the job reports completion and no worker is still
+     * inside it, so the job may be reset and reused for the next batch.
+     * Must only be called from one thread at a time (the audio thread).</p>
+     *
+     * @param job     The job to execute
+     * @param helpers Maximum number of parked workers to wake up
+     */
+    public void execute(Job job, int helpers) {
+        if (!running) {
+            job.run(workerCount);
+            return;
+        }
+
+        currentJob = job;
+        long batch = generation + 1;
+        generation = batch;
+
+        // Wake parked workers (spinning workers see the new generation on their own)
+        int toWake = Math.min(helpers, workerCount);
+        for (int i = 0; i < workerCount && toWake > 0; i++) {
+            Worker worker = workers[i];
+            if (worker.parked) {
+                LockSupport.unpark(worker);
+                toWake--;
+            }
+        }
+
+        // The caller is a full participant
+        job.run(workerCount);
+
+        while (!job.isDone()) {
+            Thread.onSpinWait();
+        }
+
+        // Close the batch, then wait for late workers to leave the job
+        finishedGeneration = batch;
+        while (activeWorkers.get() != 0) {
+            Thread.onSpinWait();
+        }
+    }
+
+    /**
+     * Set the idle strategy for workers between batches.
+     */
+    public void setWaitPolicy(WaitPolicy waitPolicy) {
+        this.waitPolicy = waitPolicy;
+    }
+
+    /**
+     * Get the idle strategy for workers between batches.
+     */
+    public WaitPolicy getWaitPolicy() {
+        return waitPolicy;
+    }
+
+    /**
+     * Get the number of worker threads (excluding the caller).
+     */
+    public int getWorkerCount() {
+        return workerCount;
+    }
+
+    /**
+     * Check if the worker threads are running.
+     */
+    public boolean isRunning() {
+        return running;
+    }
+
+    /**
+     * Worker thread: waits for a new generation, joins the published job.
+     */
+    private final class Worker extends Thread {
+
+        private final int index;
+        volatile boolean parked;
+
+        Worker(int index) {
+            super("AudioWorker-" + (index + 1));
+            this.index = index;
+            setPriority(Thread.MAX_PRIORITY);
+            setDaemon(true);
+        }
+
+        @Override
+        public void run() {
+            long seen = generation;
+            long idleStart = System.nanoTime();
+
+            while (running) {
+                long batch = generation;
+                if (batch != seen) {
+                    seen = batch;
+                    activeWorkers.incrementAndGet();
+                    try {
+                        // Re-check after registering: the caller may already have closed this batch
+                        if (finishedGeneration != batch && generation == batch) {
+                            Job job = currentJob;
+                            if (job != null) {
+                                job.run(index);
+                            }
+                        }
+                    } catch (Throwable t) {
+                        // Keep the worker alive: jobs report node errors themselves
+                        System.err.println(getName() + " job failed: " + t);
+                    } finally {
+                        activeWorkers.decrementAndGet();
+                    }
+                    idleStart = System.nanoTime();
+                    continue;
+                }
+
+                WaitPolicy policy = waitPolicy;
+                long idle = System.nanoTime() - idleStart;
+                if (idle < policy.spinNanos()) {
+                    Thread.onSpinWait();
+                } else if (idle < policy.spinNanos() + policy.yieldNanos()) {
+                    Thread.yield();
+                } else {
+                    parked = true;
+                    // Re-check after announcing: the caller may have published meanwhile
+                    if (generation == seen && running) {
+                        LockSupport.park(this);
+                    }
+                    parked = false;
+                }
+            }
+        }
+    }
+}
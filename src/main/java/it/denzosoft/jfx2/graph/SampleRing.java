@@ -0,0 +1,104 @@
+package it.denzosoft.jfx2.graph;
+
+/**
+ * Lock-free single-producer, single-consumer ring of samples.
+ *
+ * <p>The audio thread writes whole blocks; an analysis thread reads them
+ * back. Neither side ever waits: a block that does not fit is dropped (and
+ * counted) instead of blocking the producer. The producer may move between
+ * threads from block to block (graph workers), as long as consecutive
+ * writes are ordered, which the block barrier guarantees.</p>
+ */
+final class SampleRing {
+
+    private final float[] buffer;
+    private final int mask;
+
+    // Total samples written and read; each is advanced by one side only
+    private volatile long writePosition;
+    private volatile long readPosition;
+
+    private volatile long droppedSamples;
+
+    /**
+     * Create a ring.
+     *
+     * @param capacity Capacity in samples (power of two)
+     */
+    SampleRing(int capacity) {
+        if (capacity <= 0 || Integer.bitCount(capacity) != 1) {
+            throw new IllegalArgumentException("Ring capacity must be a power of two: " + capacity);
+        }
+        this.buffer = new float[capacity];
+        this.mask = capacity - 1;
+    }
+
+    int capacity() {
+        return buffer.length;
+    }
+
+    /**
+     * Free space for the producer.
+     */
+    int free() {
+        return buffer.length - (int) (writePosition - readPosition);
+    }
+
+    /**
+     * Write a block (producer only). Allocation free.
+     *
+     * @param samples Source samples
+     * @param length  Number of samples
+     * @return false if the block did not fit and was dropped
+     */
+    boolean write(float[] samples, int length) {
+        long position = writePosition;
+        if (length > buffer.length - (int) (position - readPosition)) {
+            droppedSamples += length;
+            return false;
+        }
+        int start = (int) position & mask;
+        int first = Math.min(length, buffer.length - start);
+        System.arraycopy(samples, 0, buffer, start, first);
+        System.arraycopy(samples, first, buffer, 0, length - first);
+        writePosition = position + length;
+        return true;
+    }
+
+    /**
+     * Number of samples ready for the consumer.
+     */
+    int available() {
+        return (int) (writePosition - readPosition);
+    }
+
+    /**
+     * Read up to {@code max} samples (consumer only).
+     *
+     * @return Number of samples read
+     */
+    int read(float[] target, int max) {
+        long position = readPosition;
+        int length = Math.min(max, (int) (writePosition - position));
+        int start = (int) position & mask;
+        int first = Math.min(length, buffer.length - start);
+        System.arraycopy(buffer, start, target, 0, first);
+        System.arraycopy(buffer, 0, target, first, length - first);
+        readPosition = position + length;
+        return length;
+    }
+
+    /**
+     * Discard everything written so far (consumer only).
+     */
+    void clear() {
+        readPosition = writePosition;
+    }
+
+    /**
+     * Samples dropped because the consumer fell behind.
+     */
+    long droppedSamples() {
+        return droppedSamples;
+    }
+}
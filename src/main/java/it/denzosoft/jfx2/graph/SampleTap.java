@@ -0,0 +1,42 @@
+package it.denzosoft.jfx2.graph;
+
+/**
+ * Tap on one signal: the audio thread writes blocks, the analysis thread
+ * delivers them to a consumer in chunks.
+ */
+final class SampleTap implements AnalysisThread.Tap {
+
+    /**
+     * Receives the tapped samples on the analysis thread.
+     */
+    interface Consumer {
+        void accept(float[] samples, int length);
+    }
+
+    // About a third of a second at 48 kHz, many analysis ticks
+    static final int RING_CAPACITY = 16384;
+    static final int CHUNK_SIZE = 1024;
+
+    private final SampleRing ring = new SampleRing(RING_CAPACITY);
+    private final float[] chunk = new float[CHUNK_SIZE];
+    private final Consumer consumer;
+
+    SampleTap(Consumer consumer) {
+        this.consumer = consumer;
+    }
+
+    /**
+     * Copy a block into the ring (audio thread). Allocation free, never blocks.
+     */
+    void write(float[] samples, int length) {
+        ring.write(samples, Math.min(length, samples.length));
+    }
+
+    @Override
+    public void drain() {
+        int length;
+        while ((length = ring.read(chunk, CHUNK_SIZE)) > 0) {
+            consumer.accept(chunk, length);
+        }
+    }
+}
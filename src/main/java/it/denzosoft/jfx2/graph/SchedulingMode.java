@@ -0,0 +1,28 @@
+package it.denzosoft.jfx2.graph;
+
+/**
+ * Strategy used by {@link SignalGraph} to run nodes in parallel.
+ */
+public enum SchedulingMode {
+
+    /**
+     * Level-synchronous: nodes are grouped into topological levels with a
+     * barrier between levels.
+     */
+    LEVELS,
+
+    /**
+     * Dependency counting: a node becomes ready as soon as all of its inputs
+     * have finished, independent branches never wait on each other.
+     * Ready nodes are ordered by critical path.
+     */
+    DAG,
+
+    /**
+     * Pipelining: the serial chain is split into stages balanced by measured
+     * cost, each stage runs on its own core one block behind the previous
+     * one. Uses several cores on a single chain at the cost of one block of
+     * latency per extra stage.
+     */
+    PIPELINE
+}
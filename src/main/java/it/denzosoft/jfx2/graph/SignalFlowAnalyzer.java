@@ -10,7 +10,9 @@ import java.util.*;
  * Analyzes signal flow through the graph to determine channel count at each connection.
  *
  * <p>Propagates channel information from input sources through the graph,
- * determining whether each connection carries a mono or stereo signal.</p>
+ * determining whether each connection carries a mono or stereo signal.
+ * The graph compiler uses the result to size port buffers, so a path only
+ * becomes stereo downstream of a node that actually produces stereo.</p>
  */
 public class SignalFlowAnalyzer {
 
@@ -47,44 +49,64 @@ public class SignalFlowAnalyzer {
     // Map of port to signal type (for output ports)
     private final Map<String, SignalType> portSignalTypes = new HashMap<>();
 
+    // Map of port to signal type (for connected input ports)
+    private final Map<String, SignalType> inputPortSignalTypes = new HashMap<>();
+
     /**
      * Analyze the signal flow in a graph.
      *
      * @param graph The signal graph to analyze
      */
     public void analyze(SignalGraph graph) {
+        analyze(graph.getProcessingOrder(), graph.getConnections());
+    }
+
+    /**
+     * Analyze the signal flow of a graph snapshot.
+     *
+     * @param processingOrder All nodes, topologically sorted
+     * @param connections     All connections
+     */
+    void analyze(List<ProcessingNode> processingOrder, Collection<Connection> connections) {
         connectionSignalTypes.clear();
         portSignalTypes.clear();
+        inputPortSignalTypes.clear();
 
-        // Get processing order (topologically sorted)
-        List<ProcessingNode> processingOrder = graph.getProcessingOrder();
+        Map<Port, Connection> connectionByTarget = new IdentityHashMap<>();
+        Map<Port, List<Connection>> connectionsBySource = new IdentityHashMap<>();
+        for (Connection conn : connections) {
+            connectionByTarget.put(conn.getTargetPort(), conn);
+            connectionsBySource.computeIfAbsent(conn.getSourcePort(), k -> new ArrayList<>()).add(conn);
+        }
 
         // Process each node in order
         for (ProcessingNode node : processingOrder) {
-            analyzeNode(node, graph);
+            analyzeNode(node, connectionByTarget, connectionsBySource);
         }
     }
 
     /**
      * Analyze a single node and propagate signal types.
      */
-    private void analyzeNode(ProcessingNode node, SignalGraph graph) {
+    private void analyzeNode(ProcessingNode node, Map<Port, Connection> connectionByTarget,
+                             Map<Port, List<Connection>> connectionsBySource) {
         // Determine input signal type (from incoming connections)
-        SignalType inputType = getNodeInputSignalType(node, graph);
+        SignalType inputType = getNodeInputSignalType(node, connectionByTarget);
 
         // Determine output signal type based on node type
         SignalType outputType = determineOutputSignalType(node, inputType);
 
-        // Store output signal type for all output ports
         for (Port port : node.getOutputPorts()) {
-            String portKey = getPortKey(port);
-            portSignalTypes.put(portKey, outputType);
+            // A port never carries more channels than its type allows
+            SignalType portType = outputType;
+            if (portType == SignalType.UNKNOWN || portType.getChannels() > port.getType().getChannelCount()) {
+                portType = SignalType.fromChannels(port.getType().getChannelCount());
+            }
+            portSignalTypes.put(getPortKey(port), portType);
 
             // Update all connections from this port
-            for (Connection conn : graph.getConnections()) {
-                if (conn.getSourcePort() == port) {
-                    connectionSignalTypes.put(conn.getId(), outputType);
-                }
+            for (Connection conn : connectionsBySource.getOrDefault(port, List.of())) {
+                connectionSignalTypes.put(conn.getId(), portType);
             }
         }
     }
@@ -92,20 +114,20 @@ public class SignalFlowAnalyzer {
     /**
      * Get the input signal type for a node by checking incoming connections.
      */
-    private SignalType getNodeInputSignalType(ProcessingNode node, SignalGraph graph) {
+    private SignalType getNodeInputSignalType(ProcessingNode node, Map<Port, Connection> connectionByTarget) {
         SignalType maxType = SignalType.MONO; // Default to mono if no inputs
 
         for (Port inputPort : node.getInputPorts()) {
-            // Find connection to this input port
-            for (Connection conn : graph.getConnections()) {
-                if (conn.getTargetPort() == inputPort) {
-                    String sourcePortKey = getPortKey(conn.getSourcePort());
-                    SignalType sourceType = portSignalTypes.getOrDefault(sourcePortKey, SignalType.MONO);
-
-                    // Use the maximum channel count from inputs
-                    if (sourceType.getChannels() > maxType.getChannels()) {
-                        maxType = sourceType;
-                    }
+            Connection conn = connectionByTarget.get(inputPort);
+            if (conn != null) {
+                String sourcePortKey = getPortKey(conn.getSourcePort());
+                SignalType sourceType = portSignalTypes.getOrDefault(sourcePortKey, SignalType.MONO);
+
+                // Use the maximum channel count the ports accept
+                int channels = Math.min(sourceType.getChannels(), inputPort.getType().getChannelCount());
+                inputPortSignalTypes.put(getPortKey(inputPort), SignalType.fromChannels(channels));
+                if (channels > maxType.getChannels()) {
+                    maxType = SignalType.fromChannels(channels);
                 }
             }
         }
@@ -125,16 +147,16 @@ public class SignalFlowAnalyzer {
         } else if (node instanceof SplitterNode) {
             // Splitter passes through the same signal type
             return inputType;
-        } else if (node instanceof InputNode) {
-            // Legacy InputNode - mono
-            return SignalType.MONO;
+        } else if (node instanceof InputNode inputNode) {
+            // Legacy InputNode - device channels
+            return SignalType.fromChannels(inputNode.getOutputPorts().get(0).getType().getChannelCount());
         } else if (node instanceof OutputNode) {
             // Output node doesn't have outputs in the graph
             return inputType;
         }
 
-        // Default: pass through input type
-        return inputType;
+        // Default: other nodes produce the format of their port types
+        return SignalType.UNKNOWN;
     }
 
     /**
@@ -148,9 +170,9 @@ public class SignalFlowAnalyzer {
 
         EffectCategory category = effect.getMetadata().category();
 
-        // Input sources always output mono
+        // Input sources output mono unless forced to stereo
         if (category == EffectCategory.INPUT_SOURCE) {
-            return SignalType.MONO;
+            return effect.getStereoMode() == StereoMode.STEREO ? SignalType.STEREO : SignalType.MONO;
         }
 
         // Output sinks don't have graph outputs
@@ -207,6 +229,21 @@ public class SignalFlowAnalyzer {
         return portSignalTypes.getOrDefault(getPortKey(port), SignalType.UNKNOWN);
     }
 
+    /**
+     * Get the number of channels a port carries (1 = mono, 2 = stereo).
+     * Input ports carry the signal of their source, limited to what their
+     * type accepts; unconnected inputs are mono.
+     *
+     * @param port Any port of an analyzed node
+     * @return Channel count
+     */
+    public int getChannelCount(Port port) {
+        Map<String, SignalType> types = port.getDirection() == PortDirection.INPUT
+                ? inputPortSignalTypes : portSignalTypes;
+        SignalType type = types.getOrDefault(getPortKey(port), SignalType.UNKNOWN);
+        return type == SignalType.UNKNOWN ? 1 : type.getChannels();
+    }
+
     /**
      * Check if a connection carries a stereo signal.
      */
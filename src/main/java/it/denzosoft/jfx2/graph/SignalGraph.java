@@ -1,7 +1,13 @@
 package it.denzosoft.jfx2.graph;
 
+import it.denzosoft.jfx2.audio.AudioMetrics;
+import it.denzosoft.jfx2.effects.impl.AudioOutputEffect;
+import it.denzosoft.jfx2.jfr.GraphCompiledEvent;
+
 import java.util.*;
-import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.LockSupport;
 
 /**
  * Signal processing graph.
@@ -9,6 +15,13 @@ import java.util.concurrent.*;
  * <p>Manages nodes and connections, and processes audio through the graph
  * in topologically sorted order. Supports parallel processing of independent
  * branches for multi-core optimization.</p>
+ *
+ * <p>Graph edits (from the UI, CLI or preset loading) compile a new immutable
+ * {@link CompiledGraph} on the editing thread and publish it through an atomic
+ * reference. The audio thread never touches the node and connection maps: it
+ * picks up the latest plan at the next block boundary, fading the sinks out on
+ * the old plan and back in on the new one. Removed nodes are released only
+ * once the audio thread no longer uses them.</p>
  */
 public class SignalGraph {
 
@@ -18,11 +31,33 @@ public class SignalGraph {
     private InputNode inputNode;
     private OutputNode outputNode;
 
-    // Processing order (topologically sorted)
-    private List<ProcessingNode> processingOrder;
-    // Parallel processing levels (nodes at same level are independent)
-    private List<List<ProcessingNode>> parallelLevels;
-    private boolean orderDirty;
+    // Published execution plan (compiled off the audio thread)
+    private final AtomicReference<CompiledGraph> publishedPlan = new AtomicReference<>();
+    private boolean planDirty;        // guarded by this
+    private int updateDepth;          // guarded by this (beginUpdate/endUpdate nesting)
+    private long nextPlanVersion = 1; // guarded by this
+
+    // Audio thread plan state
+    private CompiledGraph activePlan;
+    private boolean planSwapPending;
+    private boolean fadeInPending;
+    private volatile long adoptedPlanVersion;
+    private volatile boolean processing;
+    private volatile long lastProcessNanos;
+    private static final int PLAN_FADE_SAMPLES = 256;
+    private static final float[] PLAN_FADE_CURVE = createFadeCurve(PLAN_FADE_SAMPLES);
+    private static final long AUDIO_IDLE_NANOS = 50_000_000L;    // no block for 50ms = stopped
+    private static final long RECLAIM_IDLE_NANOS = 100_000_000L;
+
+    // Removed nodes, released once the audio thread no longer uses them
+    private record RetiredNode(ProcessingNode node, long planVersion) {}
+    private final List<RetiredNode> retiredNodes = new ArrayList<>();  // guarded by this
+
+    // Background maintenance (node release, re-planning requested by the audio thread)
+    private static final long MAINTENANCE_INTERVAL_NANOS = 10_000_000L;
+    private Thread maintenanceThread;      // guarded by this
+    private boolean maintenanceStopped;    // guarded by this
+    private volatile boolean replanRequested;
 
     // Configuration
     private int sampleRate;
@@ -34,24 +69,29 @@ public class SignalGraph {
     private static final float MIN_DB = -60f;
 
     // Input audio listener (for tuner, etc.)
-    private InputAudioListener inputAudioListener;
-    private String tunerSourceNodeId = null;  // null = auto (AudioInput), or specific node ID
+    private volatile InputAudioListener inputAudioListener;
+    private volatile String tunerSourceNodeId = null;  // null = auto (AudioInput), or specific node ID
+    private final PortCapture tunerCapture = new PortCapture();
+
+    // Connection shown in the UI, its source signal is copied on every block
+    private volatile Connection monitoredConnection;
+    private final PortCapture monitorCapture = new PortCapture();
 
     // Output audio listener (for signal monitor, etc.)
-    private OutputAudioListener outputAudioListener;
+    private volatile OutputAudioListener outputAudioListener;
 
     // Input FFT listener (for spectrum analyzers, etc.)
-    private InputFFTListener inputFFTListener;
+    private volatile InputFFTListener inputFFTListener;
 
-    // FFT calculation buffers
-    private static final int FFT_SIZE = 2048;
-    private final float[] fftInputBuffer = new float[FFT_SIZE];
-    private final float[] fftMagnitudes = new float[FFT_SIZE / 2];
-    private int fftBufferPos = 0;
-    private int currentSampleRate = 44100;
+    // Analysis taps: the audio thread only copies samples into their rings,
+    // the listeners and the FFT run on the analysis thread
+    private final SampleTap inputTap = new SampleTap(this::deliverInput);
+    private final SampleTap outputTap = new SampleTap(this::deliverOutput);
+    private final SpectrumAnalyzer spectrum = new SpectrumAnalyzer();
 
     /**
      * Listener for receiving input audio samples.
+     * Called on the analysis thread, in chunks, shortly after the audio was processed.
      */
     public interface InputAudioListener {
         void onInputAudio(float[] samples, int length);
@@ -59,6 +99,7 @@ public class SignalGraph {
 
     /**
      * Listener for receiving output audio samples (processed signal).
+     * Called on the analysis thread, in chunks, shortly after the audio was processed.
      */
     public interface OutputAudioListener {
         void onOutputAudio(float[] samples, int length);
@@ -66,56 +107,93 @@ public class SignalGraph {
 
     /**
      * Listener for receiving FFT magnitude data from input audio.
-     * FFT is computed on the left channel (or mono) input signal.
+     * FFT is computed on the left channel (or mono) input signal, on the analysis thread.
      */
     public interface InputFFTListener {
         /**
          * Called when new FFT data is available.
          *
          * @param magnitudes   FFT magnitude values (linear, 0-1 range normalized)
-         * @param numBins      Number of valid bins (FFT_SIZE / 2)
+         * @param numBins      Number of valid bins (half the 2048-point FFT)
          * @param sampleRate   Sample rate for frequency calculation
-         * @param binFrequency Frequency resolution per bin (sampleRate / FFT_SIZE)
+         * @param binFrequency Frequency resolution per bin (sampleRate / 2048)
          */
         void onInputFFT(float[] magnitudes, int numBins, int sampleRate, float binFrequency);
     }
 
     // Parallel processing
-    private boolean parallelProcessingEnabled = true;
+    private volatile boolean parallelProcessingEnabled = true;
     private static final int MIN_NODES_FOR_PARALLEL = 2;  // Minimum nodes at level to use parallel
-    private ExecutorService threadPool;
-    private int threadCount;
+    private final RealtimeWorkerPool workerPool;
+    private final LevelJob levelJob = new LevelJob();
+    private final int threadCount;
+    private volatile SchedulingMode schedulingMode = SchedulingMode.LEVELS;
+
+    // Per-node profiling
+    private boolean profilingEnabled;     // guarded by this
+
+    // Engine metrics the device line effects report xruns and blocked time to
+    private AudioMetrics deviceMetrics;   // guarded by this
+
+    // Pipeline mode
+    private int pipelineStageCount = 2;   // guarded by this
+    private static final int PIPELINE_REBALANCE_INTERVAL = 1024;  // blocks between balance checks
+    private int pipelineBlocks;
 
     public SignalGraph() {
         this.nodes = new LinkedHashMap<>();
         this.connections = new LinkedHashMap<>();
-        this.processingOrder = new ArrayList<>();
-        this.parallelLevels = new ArrayList<>();
-        this.orderDirty = true;
 
-        // Create thread pool with available processors (minus 1 for audio thread)
+        // Worker pool with available processors (minus 1 for audio thread).
+        // Threads are started in prepare(), right before audio processing begins.
         this.threadCount = Math.max(1, Runtime.getRuntime().availableProcessors() - 1);
-        this.threadPool = Executors.newFixedThreadPool(threadCount, r -> {
-            Thread t = new Thread(r, "AudioProcessor");
-            t.setPriority(Thread.MAX_PRIORITY);  // High priority for audio
-            t.setDaemon(true);
-            return t;
-        });
+        this.workerPool = new RealtimeWorkerPool(threadCount, RealtimeWorkerPool.WaitPolicy.BALANCED);
+
+        // Start with an empty plan so the audio thread always has one
+        publishPlan();
     }
 
     /**
      * Create a default graph with input and output nodes.
      */
-    public void createDefaultGraph() {
-        // Create input and output nodes
-        inputNode = new InputNode("input", PortType.AUDIO_MONO);
-        outputNode = new OutputNode("output", PortType.AUDIO_STEREO);
+    public synchronized void createDefaultGraph() {
+        beginUpdate();
+        try {
+            // Create input and output nodes
+            inputNode = new InputNode("input", PortType.AUDIO_MONO);
+            outputNode = new OutputNode("output", PortType.AUDIO_STEREO);
 
-        addNode(inputNode);
-        addNode(outputNode);
+            addNode(inputNode);
+            addNode(outputNode);
 
-        // Connect input directly to output (passthrough)
-        connect(inputNode.getOutput(), outputNode.getInput());
+            // Connect input directly to output (passthrough)
+            connect(inputNode.getOutput(), outputNode.getInput());
+        } finally {
+            endUpdate();
+        }
+    }
+
+    /**
+     * Start a batch of graph edits.
+     *
+     * <p>Until the matching {@link #endUpdate()}, edits do not publish a new
+     * plan to the audio thread, so half-built rigs are never heard and the
+     * plan is compiled only once. Calls may be nested.</p>
+     */
+    public synchronized void beginUpdate() {
+        updateDepth++;
+    }
+
+    /**
+     * End a batch of graph edits and publish the resulting plan.
+     */
+    public synchronized void endUpdate() {
+        if (updateDepth > 0) {
+            updateDepth--;
+        }
+        if (updateDepth == 0 && planDirty) {
+            publishPlan();
+        }
     }
 
     /**
@@ -123,17 +201,20 @@ public class SignalGraph {
      *
      * @param node The node to add
      */
-    public void addNode(ProcessingNode node) {
+    public synchronized void addNode(ProcessingNode node) {
         if (nodes.containsKey(node.getId())) {
             throw new IllegalArgumentException("Node with ID '" + node.getId() + "' already exists");
         }
-        nodes.put(node.getId(), node);
-        orderDirty = true;
+        // Re-adding a removed node (e.g. undo) cancels its pending release
+        retiredNodes.removeIf(retired -> retired.node() == node);
 
-        // If already prepared, prepare the new node
+        // If already prepared, prepare the new node (before the audio thread can see it)
         if (sampleRate > 0) {
             node.prepare(sampleRate, maxFrameCount);
         }
+
+        nodes.put(node.getId(), node);
+        invalidatePlan();
     }
 
     /**
@@ -141,35 +222,41 @@ public class SignalGraph {
      *
      * @param nodeId ID of the node to remove
      */
-    public void removeNode(String nodeId) {
+    public synchronized void removeNode(String nodeId) {
         ProcessingNode node = nodes.get(nodeId);
         if (node == null) {
             return;
         }
 
-        // Clear reference if removing input/output node
-        if (node == inputNode) {
-            inputNode = null;
-        } else if (node == outputNode) {
-            outputNode = null;
-        }
-
-        // Release node resources
-        node.release();
+        beginUpdate();
+        try {
+            // Clear reference if removing input/output node
+            if (node == inputNode) {
+                inputNode = null;
+            } else if (node == outputNode) {
+                outputNode = null;
+            }
 
-        // Remove all connections to/from this node
-        List<String> connectionsToRemove = new ArrayList<>();
-        for (Connection conn : connections.values()) {
-            if (conn.getSourceNode() == node || conn.getTargetNode() == node) {
-                connectionsToRemove.add(conn.getId());
+            // Remove all connections to/from this node
+            List<String> connectionsToRemove = new ArrayList<>();
+            for (Connection conn : connections.values()) {
+                if (conn.getSourceNode() == node || conn.getTargetNode() == node) {
+                    connectionsToRemove.add(conn.getId());
+                }
+            }
+            for (String connId : connectionsToRemove) {
+                disconnect(connId);
             }
-        }
-        for (String connId : connectionsToRemove) {
-            disconnect(connId);
-        }
 
-        nodes.remove(nodeId);
-        orderDirty = true;
+            nodes.remove(nodeId);
+            invalidatePlan();
+
+            // Release node resources once no plan in use contains it
+            retiredNodes.add(new RetiredNode(node, nextPlanVersion));
+        } finally {
+            endUpdate();
+        }
+        reclaimRetiredNodes();
     }
 
     /**
@@ -189,7 +276,7 @@ public class SignalGraph {
      * @param targetPort Input port (target)
      * @return The created connection
      */
-    public Connection connect(Port sourcePort, Port targetPort) {
+    public synchronized Connection connect(Port sourcePort, Port targetPort) {
         // Validate connection
         if (!sourcePort.canConnectTo(targetPort)) {
             throw new IllegalArgumentException("Cannot connect " + sourcePort + " to " + targetPort);
@@ -204,7 +291,7 @@ public class SignalGraph {
         String connId = "conn_" + System.currentTimeMillis() + "_" + connections.size();
         Connection connection = new Connection(connId, sourcePort, targetPort);
         connections.put(connId, connection);
-        orderDirty = true;
+        invalidatePlan();
 
         return connection;
     }
@@ -216,7 +303,7 @@ public class SignalGraph {
      * @param targetNodeId Target node ID
      * @return The created connection
      */
-    public Connection connect(String sourceNodeId, String targetNodeId) {
+    public synchronized Connection connect(String sourceNodeId, String targetNodeId) {
         ProcessingNode source = nodes.get(sourceNodeId);
         ProcessingNode target = nodes.get(targetNodeId);
 
@@ -246,11 +333,14 @@ public class SignalGraph {
      *
      * @param connectionId Connection identifier
      */
-    public void disconnect(String connectionId) {
+    public synchronized void disconnect(String connectionId) {
         Connection connection = connections.remove(connectionId);
         if (connection != null) {
             connection.disconnect();
-            orderDirty = true;
+            if (connection == monitoredConnection) {
+                setMonitoredConnection(null);
+            }
+            invalidatePlan();
         }
     }
 
@@ -263,7 +353,7 @@ public class SignalGraph {
      * @param targetPortName Target port name
      * @return The created connection
      */
-    public Connection connect(String sourceNodeId, String sourcePortName,
+    public synchronized Connection connect(String sourceNodeId, String sourcePortName,
                               String targetNodeId, String targetPortName) {
         ProcessingNode sourceNode = getNode(sourceNodeId);
         ProcessingNode targetNode = getNode(targetNodeId);
@@ -290,7 +380,7 @@ public class SignalGraph {
      * @param targetNodeId Target node ID
      * @param targetPortName Target port name
      */
-    public void disconnect(String sourceNodeId, String sourcePortName,
+    public synchronized void disconnect(String sourceNodeId, String sourcePortName,
                           String targetNodeId, String targetPortName) {
         // Find matching connection
         for (Connection conn : connections.values()) {
@@ -336,68 +426,118 @@ public class SignalGraph {
     }
 
     /**
-     * Rebuild the processing order using topological sort.
-     * Also builds parallel levels for multi-core processing.
+     * Mark the compiled plan as outdated and publish a new one,
+     * unless a batch of edits is in progress.
      */
-    private void rebuildProcessingOrder() {
-        processingOrder.clear();
-        parallelLevels.clear();
+    private void invalidatePlan() {
+        planDirty = true;
+        if (updateDepth == 0) {
+            publishPlan();
+        }
+    }
 
-        // Kahn's algorithm for topological sort with level tracking
-        Map<ProcessingNode, Integer> inDegree = new HashMap<>();
-        Map<ProcessingNode, List<ProcessingNode>> adjacency = new HashMap<>();
+    /**
+     * Compile the current graph structure and publish it to the audio thread.
+     */
+    private synchronized void publishPlan() {
+        GraphCompiledEvent event = new GraphCompiledEvent();
+        event.begin();
+        CompiledGraph plan = CompiledGraph.compile(nextPlanVersion++, nodes.values(), connections.values(),
+                inputNode, outputNode, compileOptions(), publishedPlan.get());
+        event.end();
+        if (event.shouldCommit()) {
+            event.version = plan.version;
+            event.nodeCount = plan.nodes.length;
+            event.levelCount = plan.parallelLevels.size();
+            event.latency = plan.latency;
+            event.commit();
+        }
+        publishedPlan.set(plan);
+        planDirty = false;
+        // The tuner source node may have been added or removed
+        tunerCapture.setSource(findTunerPort());
+        if (plan.needsMaintenance() && maxFrameCount > 0) {
+            startMaintenance();
+        }
+    }
 
-        // Initialize
-        for (ProcessingNode node : nodes.values()) {
-            inDegree.put(node, 0);
-            adjacency.put(node, new ArrayList<>());
+    private CompiledGraph.Options compileOptions() {
+        return new CompiledGraph.Options(maxFrameCount, threadCount + 1,
+                schedulingMode == SchedulingMode.PIPELINE ? pipelineStageCount : 0,
+                profilingEnabled, deviceMetrics);
+    }
+
+    /**
+     * Get an up-to-date plan for queries from outside the audio thread.
+     */
+    private synchronized CompiledGraph currentPlan() {
+        if (planDirty) {
+            publishPlan();
         }
+        return publishedPlan.get();
+    }
 
-        // Build adjacency and count incoming edges
-        for (Connection conn : connections.values()) {
-            ProcessingNode source = conn.getSourceNode();
-            ProcessingNode target = conn.getTargetNode();
-            adjacency.get(source).add(target);
-            inDegree.put(target, inDegree.get(target) + 1);
+    /**
+     * Release retired nodes that the audio thread can no longer reach.
+     * Starts background maintenance while some are still in use.
+     */
+    private synchronized void reclaimRetiredNodes() {
+        if (retiredNodes.isEmpty()) {
+            return;
         }
 
-        // Find all nodes with no incoming edges (level 0)
-        List<ProcessingNode> currentLevel = new ArrayList<>();
-        for (ProcessingNode node : nodes.values()) {
-            if (inDegree.get(node) == 0) {
-                currentLevel.add(node);
+        // Read the clock first: a block starting after this sees the idle gap too
+        long now = System.nanoTime();
+        boolean audioIdle = !processing && now - lastProcessNanos > RECLAIM_IDLE_NANOS;
+        long published = publishedPlan.get().version;
+        long adopted = adoptedPlanVersion;
+
+        Iterator<RetiredNode> it = retiredNodes.iterator();
+        while (it.hasNext()) {
+            RetiredNode retired = it.next();
+            if (published >= retired.planVersion() && (audioIdle || adopted >= retired.planVersion())) {
+                retired.node().release();
+                it.remove();
             }
         }
 
-        // Process level by level
-        while (!currentLevel.isEmpty()) {
-            // Add current level to parallel levels
-            parallelLevels.add(new ArrayList<>(currentLevel));
+        if (!retiredNodes.isEmpty()) {
+            startMaintenance();
+        }
+    }
 
-            // Add all nodes from current level to processing order
-            processingOrder.addAll(currentLevel);
+    /**
+     * Start the maintenance thread if it is not running. It stops by itself
+     * once there is nothing left to release and the plan has no pipeline to
+     * rebalance or stereo settings and latencies to watch.
+     */
+    private synchronized void startMaintenance() {
+        if (maintenanceThread == null && !maintenanceStopped) {
+            maintenanceThread = new Thread(this::maintenanceLoop, "GraphMaintenance");
+            maintenanceThread.setDaemon(true);
+            maintenanceThread.start();
+        }
+    }
 
-            // Find next level
-            List<ProcessingNode> nextLevel = new ArrayList<>();
-            for (ProcessingNode node : currentLevel) {
-                for (ProcessingNode neighbor : adjacency.get(node)) {
-                    int newDegree = inDegree.get(neighbor) - 1;
-                    inDegree.put(neighbor, newDegree);
-                    if (newDegree == 0) {
-                        nextLevel.add(neighbor);
-                    }
+    private void maintenanceLoop() {
+        while (true) {
+            LockSupport.parkNanos(MAINTENANCE_INTERVAL_NANOS);
+            synchronized (this) {
+                CompiledGraph plan = publishedPlan.get();
+                if ((replanRequested || plan.isChannelLayoutStale() || plan.isLatencyStale())
+                        && !maintenanceStopped) {
+                    // Re-plan with the costs measured so far, the current stereo settings and latencies
+                    replanRequested = false;
+                    invalidatePlan();
+                }
+                reclaimRetiredNodes();
+                if (maintenanceStopped
+                        || (retiredNodes.isEmpty() && !publishedPlan.get().needsMaintenance())) {
+                    maintenanceThread = null;
+                    return;
                 }
             }
-
-            currentLevel = nextLevel;
-        }
-
-        // Check for cycles (should not happen if we validate on connect)
-        if (processingOrder.size() != nodes.size()) {
-            throw new IllegalStateException("Graph contains a cycle!");
         }
-
-        orderDirty = false;
     }
 
     /**
@@ -406,13 +546,21 @@ public class SignalGraph {
      * @param sampleRate    Sample rate in Hz
      * @param maxFrameCount Maximum frames per process call
      */
-    public void prepare(int sampleRate, int maxFrameCount) {
+    public synchronized void prepare(int sampleRate, int maxFrameCount) {
         this.sampleRate = sampleRate;
         this.maxFrameCount = maxFrameCount;
+        this.maintenanceStopped = false;
 
         for (ProcessingNode node : nodes.values()) {
             node.prepare(sampleRate, maxFrameCount);
         }
+        monitorCapture.allocate(maxFrameCount);
+        tunerCapture.allocate(maxFrameCount);
+        invalidatePlan();
+
+        if (parallelProcessingEnabled) {
+            workerPool.start();
+        }
     }
 
     /**
@@ -423,231 +571,273 @@ public class SignalGraph {
      * @param frameCount Number of frames to process
      */
     public void process(float[] input, float[] output, int frameCount) {
-        // Rebuild processing order if needed
-        if (orderDirty) {
-            rebuildProcessingOrder();
-        }
+        processing = true;
+        CompiledGraph plan = selectPlan();
+        boolean fadeOut = planSwapPending;
+        boolean fadeIn = fadeInPending;
+        fadeInPending = false;
+        plan.selectOutputCapture(monitorCapture, monitorCapture.getSource());
+        plan.selectInputCapture(tunerCapture, tunerCapture.getSource());
+        tunerCapture.beginBlock();
 
         // Set input data (legacy InputNode support)
-        if (inputNode != null) {
-            inputNode.setInputData(input, frameCount);
+        if (plan.inputNode != null) {
+            plan.inputNode.setInputData(input, frameCount);
         }
 
-        // Process level by level (nodes in same level can run in parallel)
-        for (List<ProcessingNode> level : parallelLevels) {
-            if (parallelProcessingEnabled && level.size() >= MIN_NODES_FOR_PARALLEL && threadPool != null) {
-                // Parallel processing for this level
-                processLevelParallel(level, frameCount);
+        boolean parallel = parallelProcessingEnabled && workerPool.isRunning();
+        DagScheduler dag = plan.dagScheduler;
+        PipelinePlan pipeline = plan.pipeline;
+        if (pipeline != null) {
+            // Stages run concurrently, each on the block the previous stage finished last time
+            pipeline.prepareBlock(frameCount);
+            if (parallel) {
+                workerPool.execute(pipeline, pipeline.stageCount - 1);
             } else {
-                // Sequential processing
-                processLevelSequential(level, frameCount);
+                pipeline.run(0);
+            }
+            pipeline.handoff(frameCount);
+            if (++pipelineBlocks >= PIPELINE_REBALANCE_INTERVAL) {
+                pipelineBlocks = 0;
+                if (pipeline.needsRebalance()) {
+                    replanRequested = true;
+                }
+            }
+        } else if (parallel && schedulingMode == SchedulingMode.DAG
+                && dag.getMaxParallelism() >= MIN_NODES_FOR_PARALLEL) {
+            // Dependency-driven: each node runs as soon as its inputs are done
+            dag.prepareBlock(frameCount);
+            workerPool.execute(dag, dag.getMaxParallelism() - 1);
+        } else if (!parallel) {
+            // Single flat pass over the op array
+            plan.runExecutables(frameCount);
+        } else {
+            // Process level by level (nodes in same level can run in parallel)
+            for (int[] level : plan.executionLevels) {
+                if (level.length >= MIN_NODES_FOR_PARALLEL) {
+                    // Parallel processing for this level
+                    processLevelParallel(plan, level, frameCount);
+                } else {
+                    // Sequential processing
+                    processLevelSequential(plan, level, frameCount);
+                }
             }
         }
 
+        // Sinks run last on the audio thread, faded around plan swaps
+        for (int i = plan.executableCount; i < plan.nodes.length; i++) {
+            plan.transferInputs(i, frameCount);
+            if (fadeOut || fadeIn) {
+                applyPlanFade(plan.inputPorts[i], frameCount, fadeIn);
+            }
+            plan.processNode(i, frameCount);
+        }
+
         // Get output data (legacy OutputNode support)
-        if (outputNode != null) {
-            outputNode.copyOutputData(output, frameCount);
+        if (plan.outputNode != null) {
+            plan.outputNode.copyOutputData(output, frameCount);
         }
 
         // Calculate levels from AudioInput/AudioOutput effect nodes
-        updateLevelsFromEffectNodes(frameCount);
+        updateLevelsFromEffectNodes(plan, frameCount);
+
+        lastProcessNanos = System.nanoTime();
+        processing = false;
     }
 
     /**
-     * Update input/output levels from AudioInputEffect and AudioOutputEffect nodes.
+     * Pick the plan for this block (audio thread).
+     *
+     * <p>When a new plan changing the audible routing has been published while
+     * audio is running, the current block still runs on the old plan with its
+     * sinks fading out; the next block switches to the newest plan and fades
+     * back in. Nodes are shared between plans, so running both plans on the
+     * same block is not possible. A plan that routes the same signals (a
+     * re-plan for measured costs, latencies or buffer reuse) is switched to
+     * directly.</p>
      */
-    private void updateLevelsFromEffectNodes(int frameCount) {
-        boolean foundAudioInput = false;
-        float[] tunerBuffer = null;
-
-        for (ProcessingNode node : processingOrder) {
-            if (node instanceof EffectNode effectNode) {
-                String effectId = effectNode.getEffect().getMetadata().id();
-                if ("audioinput".equals(effectId)) {
-                    // Get level from output port of AudioInputEffect
-                    float[] buffer = effectNode.getOutput().getBuffer();
-                    if (buffer != null) {
-                        inputLevelDb = calculateLevelDb(buffer, frameCount);
-                        // Use AudioInput for tuner if no specific node is set
-                        if (tunerSourceNodeId == null) {
-                            tunerBuffer = buffer;
-                        }
-                        foundAudioInput = true;
-                    }
-                } else if ("audiooutput".equals(effectId)) {
-                    // Get post-gain level from AudioOutputEffect
-                    if (effectNode.getEffect() instanceof it.denzosoft.jfx2.effects.impl.AudioOutputEffect audioOut) {
-                        outputLevelDb = audioOut.getOutputLevelDb();
-                    }
-                    // Notify output audio listener with the input buffer (signal from chain)
-                    float[] buffer = effectNode.getInput().getBuffer();
-                    if (buffer != null && outputAudioListener != null) {
-                        outputAudioListener.onOutputAudio(buffer, frameCount);
-                    }
-                }
-
-                // Check if this is the selected tuner source node
-                if (tunerSourceNodeId != null && node.getId().equals(tunerSourceNodeId)) {
-                    // Use input port of the selected node for tuner
-                    Port inputPort = effectNode.getInput();
-                    if (inputPort != null && inputPort.getBuffer() != null) {
-                        tunerBuffer = inputPort.getBuffer();
-                    }
-                }
+    private CompiledGraph selectPlan() {
+        CompiledGraph published = publishedPlan.get();
+        CompiledGraph active = activePlan;
+
+        if (published != active) {
+            boolean audioWasIdle = active == null
+                    || System.nanoTime() - lastProcessNanos > AUDIO_IDLE_NANOS;
+            if (audioWasIdle || (!planSwapPending && published.routingVersion == active.routingVersion)) {
+                adoptPlan(published);
+                planSwapPending = false;
+            } else if (planSwapPending) {
+                adoptPlan(published);
+                planSwapPending = false;
+                fadeInPending = true;
+            } else {
+                planSwapPending = true;
             }
+        } else {
+            planSwapPending = false;
         }
+        return activePlan;
+    }
 
-        // Notify tuner listener
-        if (inputAudioListener != null && tunerBuffer != null) {
-            inputAudioListener.onInputAudio(tunerBuffer, frameCount);
-        }
-
-        // Calculate and notify FFT listener
-        if (inputFFTListener != null && tunerBuffer != null) {
-            processInputFFT(tunerBuffer, frameCount);
+    private void adoptPlan(CompiledGraph plan) {
+        plan.bindBuffers();
+        if (plan.pipeline != null) {
+            plan.pipeline.beginSwitch(activePlan != null ? activePlan.pipeline : null);
         }
+        activePlan = plan;
+        adoptedPlanVersion = plan.version;
     }
 
     /**
-     * Process input audio for FFT and notify listener when ready.
+     * Apply the plan swap fade to sink input buffers: fade out over the end of
+     * the block, or fade in over its start.
      */
-    private void processInputFFT(float[] buffer, int length) {
-        // Accumulate samples in FFT buffer
-        for (int i = 0; i < length && i < buffer.length; i++) {
-            fftInputBuffer[fftBufferPos++] = buffer[i];
-
-            // When buffer is full, compute FFT
-            if (fftBufferPos >= FFT_SIZE) {
-                computeFFT();
-                fftBufferPos = 0;
+    private void applyPlanFade(Port[] ports, int frameCount, boolean fadeIn) {
+        int fadeFrames = Math.min(PLAN_FADE_SAMPLES, frameCount);
+        for (Port port : ports) {
+            for (int c = 0; c < port.getChannelCount(); c++) {
+                float[] buffer = port.getBuffer(c);
+                if (buffer == null) {
+                    continue;
+                }
+                int frames = Math.min(frameCount, buffer.length);
+                for (int f = 0; f < frames; f++) {
+                    float gain;
+                    if (fadeIn) {
+                        gain = f < fadeFrames ? PLAN_FADE_CURVE[f * PLAN_FADE_SAMPLES / fadeFrames] : 1.0f;
+                    } else {
+                        int remaining = frames - 1 - f;
+                        gain = remaining < fadeFrames ? PLAN_FADE_CURVE[remaining * PLAN_FADE_SAMPLES / fadeFrames] : 1.0f;
+                    }
+                    buffer[f] *= gain;
+                }
             }
         }
     }
 
     /**
-     * Compute FFT and notify listener.
+     * Raised-cosine ramp from 0 to (almost) 1.
      */
-    private void computeFFT() {
-        // Apply Hann window
-        float[] windowed = new float[FFT_SIZE];
-        for (int i = 0; i < FFT_SIZE; i++) {
-            float window = 0.5f * (1 - (float) Math.cos(2 * Math.PI * i / (FFT_SIZE - 1)));
-            windowed[i] = fftInputBuffer[i] * window;
+    private static float[] createFadeCurve(int length) {
+        float[] curve = new float[length];
+        for (int i = 0; i < length; i++) {
+            curve[i] = 0.5f * (1.0f - (float) Math.cos(Math.PI * i / length));
         }
+        return curve;
+    }
 
-        // Compute FFT (in-place, real input)
-        float[] real = windowed;
-        float[] imag = new float[FFT_SIZE];
-
-        // Cooley-Tukey FFT
-        int n = FFT_SIZE;
-        int bits = (int) (Math.log(n) / Math.log(2));
-
-        // Bit-reversal permutation
-        for (int i = 0; i < n; i++) {
-            int j = Integer.reverse(i) >>> (32 - bits);
-            if (j > i) {
-                float temp = real[i];
-                real[i] = real[j];
-                real[j] = temp;
+    /**
+     * Update input/output levels from AudioInputEffect and AudioOutputEffect nodes.
+     */
+    private void updateLevelsFromEffectNodes(CompiledGraph plan, int frameCount) {
+        // Level from the output port of AudioInputEffect
+        Port audioInput = plan.audioInputPort;
+        if (audioInput != null) {
+            float[] buffer = audioInput.getBuffer();
+            if (buffer != null) {
+                inputLevelDb = calculateLevelDb(buffer, frameCount);
             }
         }
 
-        // FFT butterfly operations
-        for (int size = 2; size <= n; size *= 2) {
-            int halfSize = size / 2;
-            float angle = (float) (-2 * Math.PI / size);
-
-            for (int i = 0; i < n; i += size) {
-                for (int j = 0; j < halfSize; j++) {
-                    float cos = (float) Math.cos(angle * j);
-                    float sin = (float) Math.sin(angle * j);
-
-                    int idx1 = i + j;
-                    int idx2 = i + j + halfSize;
-
-                    float tReal = real[idx2] * cos - imag[idx2] * sin;
-                    float tImag = real[idx2] * sin + imag[idx2] * cos;
-
-                    real[idx2] = real[idx1] - tReal;
-                    imag[idx2] = imag[idx1] - tImag;
-                    real[idx1] = real[idx1] + tReal;
-                    imag[idx1] = imag[idx1] + tImag;
-                }
+        // Post-gain level from AudioOutputEffect; listener gets the signal from the chain
+        AudioOutputEffect[] outputs = plan.audioOutputEffects;
+        boolean tapOutput = outputAudioListener != null;
+        for (int i = 0; i < outputs.length; i++) {
+            outputLevelDb = outputs[i].getOutputLevelDb();
+            float[] buffer = plan.audioOutputPorts[i].getBuffer();
+            if (buffer != null && tapOutput) {
+                outputTap.write(buffer, frameCount);
             }
         }
 
-        // Calculate magnitudes (only first half - positive frequencies)
-        float maxMag = 0;
-        int numBins = FFT_SIZE / 2;
-        for (int i = 0; i < numBins; i++) {
-            fftMagnitudes[i] = (float) Math.sqrt(real[i] * real[i] + imag[i] * imag[i]);
-            maxMag = Math.max(maxMag, fftMagnitudes[i]);
+        // Tuner source (copy of the selected node input, or the audio input by default)
+        float[] tunerBuffer;
+        if (tunerSourceNodeId == null) {
+            tunerBuffer = audioInput != null ? audioInput.getBuffer() : null;
+        } else {
+            tunerBuffer = tunerCapture.getFrames() > 0 ? tunerCapture.getBuffer(0) : null;
         }
-
-        // Normalize to 0-1 range
-        if (maxMag > 0.001f) {
-            for (int i = 0; i < numBins; i++) {
-                fftMagnitudes[i] /= maxMag;
-            }
+        if (tunerBuffer != null && (inputAudioListener != null || inputFFTListener != null)) {
+            inputTap.write(tunerBuffer, frameCount);
         }
-
-        // Notify listener
-        float binFrequency = (float) sampleRate / FFT_SIZE;
-        inputFFTListener.onInputFFT(fftMagnitudes, numBins, sampleRate, binFrequency);
     }
 
     /**
-     * Process a level of nodes sequentially.
+     * Deliver tapped input samples to the tuner and spectrum listeners (analysis thread).
      */
-    private void processLevelSequential(List<ProcessingNode> level, int frameCount) {
-        for (ProcessingNode node : level) {
-            processNode(node, frameCount);
+    private void deliverInput(float[] samples, int length) {
+        InputAudioListener audioListener = inputAudioListener;
+        if (audioListener != null) {
+            audioListener.onInputAudio(samples, length);
+        }
+        InputFFTListener fftListener = inputFFTListener;
+        if (fftListener != null) {
+            spectrum.accept(samples, length, sampleRate, fftListener);
         }
     }
 
     /**
-     * Process a level of nodes in parallel using thread pool.
+     * Deliver tapped output samples to the output listener (analysis thread).
      */
-    private void processLevelParallel(List<ProcessingNode> level, int frameCount) {
-        // Create tasks for each node
-        List<Future<?>> futures = new ArrayList<>(level.size());
-
-        for (ProcessingNode node : level) {
-            futures.add(threadPool.submit(() -> processNode(node, frameCount)));
+    private void deliverOutput(float[] samples, int length) {
+        OutputAudioListener listener = outputAudioListener;
+        if (listener != null) {
+            listener.onOutputAudio(samples, length);
         }
+    }
 
-        // Wait for all tasks to complete
-        for (Future<?> future : futures) {
-            try {
-                future.get();  // Wait for completion
-            } catch (InterruptedException e) {
-                Thread.currentThread().interrupt();
-                break;
-            } catch (ExecutionException e) {
-                // Log error but continue processing
-                System.err.println("Error processing node: " + e.getCause().getMessage());
-            }
+    /**
+     * Process a level of nodes sequentially.
+     */
+    private void processLevelSequential(CompiledGraph plan, int[] level, int frameCount) {
+        for (int index : level) {
+            plan.runTask(index, frameCount);
         }
     }
 
     /**
-     * Process a single node (transfer inputs, then process).
+     * Process a level of nodes in parallel using the real-time worker pool.
+     * The audio thread takes part in the work; nothing is allocated.
      */
-    private void processNode(ProcessingNode node, int frameCount) {
-        // First, transfer data from incoming connections to input ports
-        for (Port inputPort : node.getInputPorts()) {
-            Connection conn = inputPort.getConnection();
-            if (conn != null) {
-                conn.transfer(frameCount);
-            } else {
-                // No connection - clear the buffer
-                inputPort.clearBuffer();
+    private void processLevelParallel(CompiledGraph plan, int[] level, int frameCount) {
+        levelJob.reset(plan, level, frameCount);
+        workerPool.execute(levelJob, level.length - 1);
+    }
+
+    /**
+     * Parallel job over one level: participants claim nodes from the
+     * preallocated level array through an atomic index.
+     */
+    private static final class LevelJob implements RealtimeWorkerPool.Job {
+
+        private CompiledGraph plan;
+        private int[] tasks = new int[0];
+        private int frameCount;
+        private final AtomicInteger nextTask = new AtomicInteger();
+        private final AtomicInteger completedTasks = new AtomicInteger();
+
+        void reset(CompiledGraph plan, int[] tasks, int frameCount) {
+            this.plan = plan;
+            this.tasks = tasks;
+            this.frameCount = frameCount;
+            completedTasks.set(0);
+            nextTask.set(0);
+        }
+
+        @Override
+        public void run(int participant) {
+            int[] level = tasks;
+            int index;
+            while ((index = nextTask.getAndIncrement()) < level.length) {
+                plan.runTaskSafely(level[index], frameCount);
+                completedTasks.incrementAndGet();
             }
         }
 
-        // Process the node
-        node.process(frameCount);
+        @Override
+        public boolean isDone() {
+            return completedTasks.get() >= tasks.length;
+        }
     }
 
     /**
@@ -718,6 +908,7 @@ public class SignalGraph {
      */
     public void setInputAudioListener(InputAudioListener listener) {
         this.inputAudioListener = listener;
+        updateInputTap();
     }
 
     /**
@@ -726,6 +917,11 @@ public class SignalGraph {
      */
     public void setOutputAudioListener(OutputAudioListener listener) {
         this.outputAudioListener = listener;
+        if (listener != null) {
+            AnalysisThread.register(outputTap);
+        } else {
+            AnalysisThread.unregister(outputTap);
+        }
     }
 
     /**
@@ -734,15 +930,65 @@ public class SignalGraph {
      */
     public void setInputFFTListener(InputFFTListener listener) {
         this.inputFFTListener = listener;
+        updateInputTap();
+    }
+
+    /**
+     * Deliver the input tap while the tuner or the spectrum listens.
+     */
+    private void updateInputTap() {
+        if (inputAudioListener != null || inputFFTListener != null) {
+            AnalysisThread.register(inputTap);
+        } else {
+            AnalysisThread.unregister(inputTap);
+        }
     }
 
     /**
      * Set the node to use as tuner source.
      * If null, uses AudioInput automatically.
      * If set to a node ID, uses that node's input port.
+     *
+     * <p>The plan is left untouched: the selected input is copied right
+     * before its node runs, and the copy is read at the end of the block.</p>
      */
-    public void setTunerSourceNode(String nodeId) {
+    public synchronized void setTunerSourceNode(String nodeId) {
         this.tunerSourceNodeId = nodeId;
+        tunerCapture.setSource(findTunerPort());
+    }
+
+    /**
+     * Find the input port of the tuner source node (null if none).
+     */
+    private synchronized Port findTunerPort() {
+        ProcessingNode node = tunerSourceNodeId != null ? nodes.get(tunerSourceNodeId) : null;
+        return node instanceof EffectNode effectNode ? effectNode.getInput() : null;
+    }
+
+    /**
+     * Set the connection whose signal is displayed outside the audio thread.
+     *
+     * <p>Port buffers are shared between ports whose signals do not overlap in
+     * time, so a buffer only holds a port's signal while the graph needs it.
+     * The source signal of the monitored connection is copied right after its
+     * node runs instead (see {@link #getMonitoredBuffer}). The plan is left
+     * untouched, so selecting a connection never affects the audio.</p>
+     *
+     * @param connection The connection to monitor, or null for none
+     */
+    public void setMonitoredConnection(Connection connection) {
+        this.monitoredConnection = connection;
+        monitorCapture.setSource(connection != null ? connection.getSourcePort() : null);
+    }
+
+    /**
+     * Get the latest block of the monitored connection's signal.
+     *
+     * @param channel Channel index (0 = left, 1 = right; a mono signal returns its only channel)
+     * @return The samples (overwritten by the next block), or null if the graph is not prepared
+     */
+    public float[] getMonitoredBuffer(int channel) {
+        return monitorCapture.getBuffer(channel);
     }
 
     /**
@@ -755,35 +1001,38 @@ public class SignalGraph {
     /**
      * Release all resources.
      */
-    public void release() {
+    public synchronized void release() {
         for (ProcessingNode node : nodes.values()) {
             node.release();
         }
+        for (RetiredNode retired : retiredNodes) {
+            retired.node().release();
+        }
+        retiredNodes.clear();
     }
 
     /**
-     * Shutdown the thread pool. Call this when the graph is no longer needed.
+     * Shutdown the worker pool. Call this when the graph is no longer needed.
      */
     public void shutdown() {
-        release();
-        if (threadPool != null && !threadPool.isShutdown()) {
-            threadPool.shutdown();
-            try {
-                if (!threadPool.awaitTermination(1, TimeUnit.SECONDS)) {
-                    threadPool.shutdownNow();
-                }
-            } catch (InterruptedException e) {
-                threadPool.shutdownNow();
-                Thread.currentThread().interrupt();
-            }
+        synchronized (this) {
+            maintenanceStopped = true;
         }
+        AnalysisThread.unregister(inputTap);
+        AnalysisThread.unregister(outputTap);
+        release();
+        workerPool.shutdown();
     }
 
     /**
      * Enable or disable parallel processing.
+     * This is the global switch: when disabled, all levels run on the audio thread.
      */
     public void setParallelProcessingEnabled(boolean enabled) {
         this.parallelProcessingEnabled = enabled;
+        if (enabled && sampleRate > 0) {
+            workerPool.start();
+        }
     }
 
     /**
@@ -794,33 +1043,113 @@ public class SignalGraph {
     }
 
     /**
-     * Get the number of threads in the thread pool.
+     * Get the number of threads in the worker pool.
      */
     public int getThreadCount() {
         return threadCount;
     }
 
+    /**
+     * Set the parallel scheduling strategy.
+     *
+     * @param mode LEVELS for level-synchronous execution, DAG for dependency counting,
+     *             PIPELINE for pipelined serial chains
+     */
+    public synchronized void setSchedulingMode(SchedulingMode mode) {
+        SchedulingMode previous = this.schedulingMode;
+        this.schedulingMode = mode;
+        if ((previous == SchedulingMode.PIPELINE) != (mode == SchedulingMode.PIPELINE)) {
+            invalidatePlan();
+        }
+    }
+
+    /**
+     * Get the parallel scheduling strategy.
+     */
+    public SchedulingMode getSchedulingMode() {
+        return schedulingMode;
+    }
+
+    /**
+     * Set the number of pipeline stages used in {@link SchedulingMode#PIPELINE}.
+     *
+     * <p>Each stage runs on its own core, one block behind the previous
+     * stage, so the graph latency grows by {@code (stages - 1)} blocks.
+     * Fewer stages are used if the graph cannot be cut that often.</p>
+     *
+     * @param stages Number of stages (at least 2)
+     */
+    public synchronized void setPipelineStageCount(int stages) {
+        if (stages < 2) {
+            throw new IllegalArgumentException("Pipeline needs at least 2 stages: " + stages);
+        }
+        this.pipelineStageCount = stages;
+        if (schedulingMode == SchedulingMode.PIPELINE) {
+            invalidatePlan();
+        }
+    }
+
+    /**
+     * Get the requested number of pipeline stages.
+     */
+    public synchronized int getPipelineStageCount() {
+        return pipelineStageCount;
+    }
+
+    /**
+     * Set how idle workers wait for the next audio block (spin, yield, park).
+     */
+    public void setWorkerWaitPolicy(RealtimeWorkerPool.WaitPolicy policy) {
+        workerPool.setWaitPolicy(policy);
+    }
+
+    /**
+     * Get the idle strategy of the worker pool.
+     */
+    public RealtimeWorkerPool.WaitPolicy getWorkerWaitPolicy() {
+        return workerPool.getWaitPolicy();
+    }
+
     /**
      * Get the number of parallel levels in the graph.
      */
     public int getParallelLevelCount() {
-        if (orderDirty) {
-            rebuildProcessingOrder();
+        return currentPlan().parallelLevels.size();
+    }
+
+    /**
+     * Get the number of nodes skipped in the last block because their input
+     * has been silent for longer than their tail.
+     */
+    public int getSleepingNodeCount() {
+        return currentPlan().sleepingCount();
+    }
+
+    /**
+     * Get the memory held by models and impulse responses loaded by the
+     * effects of the graph, in bytes.
+     */
+    public long getLoadedDataBytes() {
+        long bytes = 0;
+        for (ProcessingNode node : currentPlan().nodes) {
+            if (node instanceof EffectNode effectNode) {
+                bytes += effectNode.getEffect().getLoadedDataBytes();
+            }
         }
-        return parallelLevels.size();
+        return bytes;
     }
 
     /**
      * Get info about parallel processing structure.
      */
     public String getParallelInfo() {
-        if (orderDirty) {
-            rebuildProcessingOrder();
-        }
+        CompiledGraph plan = currentPlan();
+        List<List<ProcessingNode>> parallelLevels = plan.parallelLevels;
         StringBuilder sb = new StringBuilder();
         sb.append("Threads: ").append(threadCount);
         sb.append(", Levels: ").append(parallelLevels.size());
         sb.append(", Parallel enabled: ").append(parallelProcessingEnabled);
+        sb.append(", Scheduling: ").append(schedulingMode);
         sb.append("\n");
         for (int i = 0; i < parallelLevels.size(); i++) {
             List<ProcessingNode> level = parallelLevels.get(i);
@@ -831,6 +1160,23 @@ public class SignalGraph {
             }
             sb.append("\n");
         }
+        if (plan.fusedNodeCount > 0) {
+            sb.append(String.format("  Fused chains: %d nodes merged, %d tasks for %d nodes%n",
+                    plan.fusedNodeCount, plan.taskCount, plan.executableCount));
+        }
+        if (plan.buffers != null) {
+            sb.append(String.format("  Buffers: %d pooled for %d ports, %d zero-copy connections%n",
+                    plan.buffers.bufferCount, plan.buffers.ports.length, plan.buffers.aliasCount));
+        }
+        int sleeping = plan.sleepingCount();
+        if (sleeping > 0) {
+            sb.append(String.format("  Sleeping: %d of %d nodes (silent input)%n", sleeping, plan.executableCount));
+        }
+        if (plan.pipeline != null) {
+            plan.pipeline.appendInfo(sb);
+        } else if (schedulingMode == SchedulingMode.DAG) {
+            plan.dagScheduler.appendInfo(sb);
+        }
         return sb.toString();
     }
 
@@ -846,26 +1192,34 @@ public class SignalGraph {
     /**
      * Clear the graph (remove all nodes and connections except input/output).
      */
-    public void clear() {
-        // Disconnect all
-        for (Connection conn : new ArrayList<>(connections.values())) {
-            conn.disconnect();
-        }
-        connections.clear();
-
-        // Remove all nodes except input/output
-        List<String> nodesToRemove = new ArrayList<>();
-        for (String nodeId : nodes.keySet()) {
-            ProcessingNode node = nodes.get(nodeId);
-            if (node != inputNode && node != outputNode) {
-                nodesToRemove.add(nodeId);
+    public synchronized void clear() {
+        beginUpdate();
+        try {
+            // Disconnect all
+            for (Connection conn : new ArrayList<>(connections.values())) {
+                conn.disconnect();
+            }
+            connections.clear();
+            setMonitoredConnection(null);
+
+            // Remove all nodes except input/output
+            List<String> nodesToRemove = new ArrayList<>();
+            for (String nodeId : nodes.keySet()) {
+                ProcessingNode node = nodes.get(nodeId);
+                if (node != inputNode && node != outputNode) {
+                    nodesToRemove.add(nodeId);
+                }
+            }
+            for (String nodeId : nodesToRemove) {
+                // Released once no plan in use contains it, as in removeNode
+                retiredNodes.add(new RetiredNode(nodes.remove(nodeId), nextPlanVersion));
             }
-        }
-        for (String nodeId : nodesToRemove) {
-            nodes.remove(nodeId);
-        }
 
-        orderDirty = true;
+            invalidatePlan();
+        } finally {
+            endUpdate();
+        }
+        reclaimRetiredNodes();
     }
 
     /**
@@ -873,9 +1227,10 @@ public class SignalGraph {
      *
      * @return true if the graph is valid
      */
-    public boolean validate() {
+    public synchronized boolean validate() {
         try {
-            rebuildProcessingOrder();
+            CompiledGraph.compile(0, nodes.values(), connections.values(),
+                    inputNode, outputNode, compileOptions(), null);
             return true;
         } catch (Exception e) {
             return false;
@@ -903,10 +1258,7 @@ public class SignalGraph {
      * @return Unmodifiable list of nodes in processing order
      */
     public List<ProcessingNode> getProcessingOrder() {
-        if (orderDirty) {
-            rebuildProcessingOrder();
-        }
-        return Collections.unmodifiableList(processingOrder);
+        return currentPlan().processingOrder;
     }
 
     public Collection<Connection> getConnections() {
@@ -934,21 +1286,22 @@ public class SignalGraph {
     /**
      * Calculate total latency through the signal path.
      *
-     * <p>Sums the latency of all nodes in the processing order.
-     * For parallel branches, uses the maximum latency branch.</p>
+     * <p>Parallel branches are aligned by latency compensation, so the total is
+     * the latency of the slowest path from a source to a sink (not the sum of
+     * all nodes), plus one block per extra pipeline stage.</p>
      *
      * @return Total latency in samples
      */
     public int calculateTotalLatency() {
-        if (orderDirty) {
-            rebuildProcessingOrder();
-        }
+        CompiledGraph plan = currentPlan();
+        return plan.latency + getPipelineLatency(plan);
+    }
 
-        int totalLatency = 0;
-        for (ProcessingNode node : processingOrder) {
-            totalLatency += node.getLatency();
-        }
-        return totalLatency;
+    /**
+     * Latency added by pipelining: one block per stage after the first.
+     */
+    private int getPipelineLatency(CompiledGraph plan) {
+        return plan.pipeline != null ? (plan.pipeline.stageCount - 1) * maxFrameCount : 0;
     }
 
     /**
@@ -964,41 +1317,160 @@ public class SignalGraph {
     }
 
     /**
-     * Get detailed latency information for each node.
+     * Get detailed latency information: the nodes on the slowest path and the
+     * compensation delays added to the other branches.
      *
      * @return String with per-node latency breakdown
      */
     public String getLatencyInfo() {
-        if (orderDirty) {
-            rebuildProcessingOrder();
-        }
+        CompiledGraph plan = currentPlan();
 
         StringBuilder sb = new StringBuilder();
-        int totalSamples = 0;
         int nodesWithLatency = 0;
 
         sb.append("Signal path latency breakdown:\n");
 
-        for (ProcessingNode node : processingOrder) {
-            int nodeLatency = node.getLatency();
-            if (nodeLatency > 0) {
-                float latencyMs = sampleRate > 0 ?
-                        (float) nodeLatency * 1000.0f / sampleRate : 0;
-                sb.append(String.format("  %-20s: %d samples (%.2f ms)\n",
-                        node.getName(), nodeLatency, latencyMs));
-                nodesWithLatency++;
+        // Walk the slowest path back from its end
+        int last = -1;
+        for (int i = 0; i < plan.nodes.length; i++) {
+            if (last < 0 || plan.pathLatency[i] > plan.pathLatency[last]) {
+                last = i;
+            }
+        }
+        List<ProcessingNode> criticalPath = new ArrayList<>();
+        for (int i = last; i >= 0; i = plan.criticalInput[i]) {
+            if (plan.nodeLatency[i] > 0) {
+                criticalPath.add(0, plan.nodes[i]);
             }
-            totalSamples += nodeLatency;
+        }
+        for (ProcessingNode node : criticalPath) {
+            int nodeLatency = Math.max(0, node.getLatency());
+            sb.append(String.format("  %-20s: %d samples (%.2f ms)\n",
+                    node.getName(), nodeLatency, samplesToMs(nodeLatency)));
+            nodesWithLatency++;
+        }
+
+        int pipelineLatency = getPipelineLatency(plan);
+        if (pipelineLatency > 0) {
+            sb.append(String.format("  %-20s: %d samples (%.2f ms)\n",
+                    "Pipeline (" + plan.pipeline.stageCount + " stages)", pipelineLatency,
+                    samplesToMs(pipelineLatency)));
+            nodesWithLatency++;
         }
 
         if (nodesWithLatency == 0) {
             sb.append("  (no latency-inducing effects in chain)\n");
         }
 
-        float totalMs = sampleRate > 0 ?
-                (float) totalSamples * 1000.0f / sampleRate : 0;
-        sb.append(String.format("Total: %d samples (%.2f ms)\n", totalSamples, totalMs));
+        for (CompensationDelay compensation : plan.compensations) {
+            Connection conn = compensation.connection;
+            sb.append(String.format("  Compensation %s -> %s: %d samples (%.2f ms)\n",
+                    conn.getSourceNode().getName(), conn.getTargetNode().getName(),
+                    compensation.delay, samplesToMs(compensation.delay)));
+        }
+
+        int totalSamples = plan.latency + pipelineLatency;
+        sb.append(String.format("Total: %d samples (%.2f ms)\n", totalSamples, samplesToMs(totalSamples)));
 
         return sb.toString();
     }
+
+    /**
+     * Let the audio input and output effects of this graph report line
+     * overruns, underruns and the time they block on their lines to the
+     * engine metrics, for its deadline monitor.
+     *
+     * @param metrics Engine metrics (null = stop reporting)
+     */
+    public synchronized void setDeviceMetrics(AudioMetrics metrics) {
+        deviceMetrics = metrics;
+        invalidatePlan();
+    }
+
+    // ==================== PROFILING ====================
+
+    /**
+     * Enable or disable per-node timing. While disabled the audio thread does
+     * not read the clock per node; timings recorded so far are kept.
+     */
+    public synchronized void setProfilingEnabled(boolean enabled) {
+        profilingEnabled = enabled;
+        currentPlan().profiler.setEnabled(enabled);
+    }
+
+    public synchronized boolean isProfilingEnabled() {
+        return profilingEnabled;
+    }
+
+    /**
+     * Forget all recorded node timings.
+     */
+    public void resetProfiling() {
+        currentPlan().profiler.reset();
+    }
+
+    /**
+     * Get the processing time of one node over its most recent blocks.
+     *
+     * @param nodeId Node identifier
+     * @return Statistics, or null if the node is unknown or has not been timed
+     */
+    public NodeProfile getNodeProfile(String nodeId) {
+        CompiledGraph plan = currentPlan();
+        for (int i = 0; i < plan.nodes.length; i++) {
+            if (plan.nodes[i].getId().equals(nodeId)) {
+                return plan.profiler.profile(i, plan.nodes[i], getBlockNanos());
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Get the processing time of every timed node, most expensive first.
+     */
+    public List<NodeProfile> getNodeProfiles() {
+        CompiledGraph plan = currentPlan();
+        double blockNanos = getBlockNanos();
+        List<NodeProfile> profiles = new ArrayList<>();
+        for (int i = 0; i < plan.nodes.length; i++) {
+            NodeProfile profile = plan.profiler.profile(i, plan.nodes[i], blockNanos);
+            if (profile != null) {
+                profiles.add(profile);
+            }
+        }
+        profiles.sort(Comparator.comparingDouble(NodeProfile::meanMicros).reversed());
+        return profiles;
+    }
+
+    /**
+     * Get a per-node processing time breakdown, most expensive first.
+     *
+     * @return String with one line per timed node
+     */
+    public String getProfilingInfo() {
+        StringBuilder sb = new StringBuilder();
+        sb.append("Node processing time (last ").append(NodeProfiler.WINDOW).append(" blocks):\n");
+        List<NodeProfile> profiles = getNodeProfiles();
+        double totalMean = 0;
+        double totalBudget = 0;
+        for (NodeProfile profile : profiles) {
+            sb.append("  ").append(profile.toDisplayString()).append("\n");
+            totalMean += profile.meanMicros();
+            totalBudget += profile.budgetPercent();
+        }
+        if (profiles.isEmpty()) {
+            sb.append(isProfilingEnabled() ? "  (no blocks processed yet)\n" : "  (profiling disabled)\n");
+        } else {
+            sb.append(String.format("Total: mean %.1f us (%.1f%% of block)%n", totalMean, totalBudget));
+        }
+        return sb.toString();
+    }
+
+    private double getBlockNanos() {
+        return sampleRate > 0 ? maxFrameCount * 1.0e9 / sampleRate : 0;
+    }
+
+    private float samplesToMs(int samples) {
+        return sampleRate > 0 ? (float) samples * 1000.0f / sampleRate : 0;
+    }
 }
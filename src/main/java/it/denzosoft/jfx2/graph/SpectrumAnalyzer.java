@@ -0,0 +1,72 @@
+package it.denzosoft.jfx2.graph;
+
+import it.denzosoft.jfx2.dsp.FFT;
+
+/**
+ * Magnitude spectrum of a tapped signal, computed on the analysis thread.
+ *
+ * <p>Samples are collected into non-overlapping frames of {@link #FFT_SIZE};
+ * each full frame is Hann-windowed (window tabulated once) and transformed
+ * with the shared real {@link FFT}. All buffers are preallocated.</p>
+ */
+final class SpectrumAnalyzer {
+
+    static final int FFT_SIZE = 2048;
+
+    private final FFT fft = FFT.forSize(FFT_SIZE);
+    private final float[] window = new float[FFT_SIZE];
+
+    private final float[] frame = new float[FFT_SIZE];
+    private final float[] spectrum = new float[FFT_SIZE];
+    private final float[] magnitudes = new float[FFT_SIZE / 2];
+    private int framePosition;
+
+    SpectrumAnalyzer() {
+        for (int i = 0; i < FFT_SIZE; i++) {
+            window[i] = 0.5f * (1 - (float) Math.cos(2 * Math.PI * i / (FFT_SIZE - 1)));
+        }
+    }
+
+    /**
+     * Add samples; notifies the listener once per full frame.
+     */
+    void accept(float[] samples, int length, int sampleRate, SignalGraph.InputFFTListener listener) {
+        for (int i = 0; i < length; i++) {
+            frame[framePosition++] = samples[i];
+            if (framePosition == FFT_SIZE) {
+                framePosition = 0;
+                transform();
+                listener.onInputFFT(magnitudes, FFT_SIZE / 2, sampleRate, (float) sampleRate / FFT_SIZE);
+            }
+        }
+    }
+
+    /**
+     * Window the frame, transform it and compute magnitudes normalized to 0-1.
+     */
+    private void transform() {
+        for (int i = 0; i < FFT_SIZE; i++) {
+            spectrum[i] = frame[i] * window[i];
+        }
+        fft.realForward(spectrum);
+
+        // Magnitudes of the positive frequencies, normalized to 0-1
+        float maxMag = 0;
+        for (int i = 0; i < FFT_SIZE / 2; i++) {
+            magnitudes[i] = FFT.magnitude(spectrum, i, FFT_SIZE);
+            maxMag = Math.max(maxMag, magnitudes[i]);
+        }
+        if (maxMag > 0.001f) {
+            for (int i = 0; i < FFT_SIZE / 2; i++) {
+                magnitudes[i] /= maxMag;
+            }
+        }
+    }
+
+    /**
+     * Drop a partially collected frame.
+     */
+    void reset() {
+        framePosition = 0;
+    }
+}
@@ -6,7 +6,8 @@ import java.util.List;
 /**
  * Splitter node - splits signal to multiple parallel outputs.
  *
- * <p>Takes a single input and copies it to 2-8 outputs for parallel processing.</p>
+ * <p>Takes a single input and copies it to 2-8 outputs for parallel processing.
+ * A stereo input stays stereo on every output.</p>
  */
 public class SplitterNode extends AbstractNode {
 
@@ -27,12 +28,12 @@ public class SplitterNode extends AbstractNode {
         this.numOutputs = Math.max(2, Math.min(8, numOutputs));
 
         // Create input port
-        this.inputPort = addInputPort("in", "Input", PortType.AUDIO_MONO);
+        this.inputPort = addInputPort("in", "Input", PortType.AUDIO_STEREO);
 
         // Create output ports
         this.outputPorts = new ArrayList<>();
         for (int i = 0; i < this.numOutputs; i++) {
-            Port out = addOutputPort("out" + (i + 1), "Output " + (i + 1), PortType.AUDIO_MONO);
+            Port out = addOutputPort("out" + (i + 1), "Output " + (i + 1), PortType.AUDIO_STEREO);
             outputPorts.add(out);
         }
     }
@@ -52,11 +53,14 @@ public class SplitterNode extends AbstractNode {
             return;
         }
 
-        // Copy input to all outputs
+        // Copy input to all outputs, channel by channel
         for (Port outputPort : outputPorts) {
-            float[] output = outputPort.getBuffer();
-            if (output != null) {
-                System.arraycopy(input, 0, output, 0, Math.min(frameCount, Math.min(input.length, output.length)));
+            for (int c = 0; c < outputPort.getChannelCount(); c++) {
+                float[] source = inputPort.getBuffer(c);
+                float[] output = outputPort.getBuffer(c);
+                if (output != null) {
+                    System.arraycopy(source, 0, output, 0, Math.min(frameCount, Math.min(source.length, output.length)));
+                }
             }
         }
     }
@@ -91,4 +95,10 @@ public class SplitterNode extends AbstractNode {
     public int getNumOutputs() {
         return numOutputs;
     }
+
+    @Override
+    public int getTailLength() {
+        // Memoryless: silent inputs give a silent output
+        return 0;
+    }
 }
@@ -0,0 +1,84 @@
+package it.denzosoft.jfx2.graph;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Fixed-capacity Chase-Lev work-stealing deque of task indices.
+ *
+ * <p>The owner pushes and pops at the bottom (LIFO); other participants
+ * steal from the top (FIFO). The capacity must cover every push made
+ * between two {@link #clear()} calls, which holds for the DAG scheduler
+ * since each node is pushed exactly once per audio block.</p>
+ */
+final class WorkStealingDeque {
+
+    /** Returned when the deque holds no task. */
+    static final int EMPTY = -1;
+
+    /** Returned by {@link #steal()} when it lost a race; the caller may retry. */
+    static final int ABORT = -2;
+
+    private final int[] tasks;
+    private final AtomicLong top = new AtomicLong();
+    private volatile long bottom;
+
+    WorkStealingDeque(int capacity) {
+        this.tasks = new int[Math.max(1, capacity)];
+    }
+
+    /**
+     * Reset the deque. Only valid while no participant is using it.
+     */
+    void clear() {
+        top.set(0);
+        bottom = 0;
+    }
+
+    /**
+     * Push a task (owner only).
+     */
+    void push(int task) {
+        long b = bottom;
+        tasks[(int) b] = task;
+        bottom = b + 1;
+    }
+
+    /**
+     * Pop the most recently pushed task (owner only).
+     *
+     * @return Task index, or {@link #EMPTY}
+     */
+    int pop() {
+        long b = bottom - 1;
+        bottom = b;
+        long t = top.get();
+        if (t > b) {
+            bottom = b + 1;
+            return EMPTY;
+        }
+        int task = tasks[(int) b];
+        if (t == b) {
+            // Last element: race against thieves
+            if (!top.compareAndSet(t, t + 1)) {
+                task = EMPTY;
+            }
+            bottom = b + 1;
+        }
+        return task;
+    }
+
+    /**
+     * Steal the oldest task (any participant).
+     *
+     * @return Task index, {@link #EMPTY} or {@link #ABORT}
+     */
+    int steal() {
+        long t = top.get();
+        long b = bottom;
+        if (t >= b) {
+            return EMPTY;
+        }
+        int task = tasks[(int) t];
+        return top.compareAndSet(t, t + 1) ? task : ABORT;
+    }
+}
@@ -0,0 +1,24 @@
+package it.denzosoft.jfx2.jfr;
+
+import jdk.jfr.*;
+
+/**
+ * One audio block processed by the engine. The event duration covers the
+ * whole callback, device waits included.
+ */
+@Name("it.denzosoft.jfx2.BlockProcessed")
+@Label("Audio Block Processed")
+@Category({"JFx2", "Audio"})
+@Description("One block processed by the audio engine")
+@Enabled(false)
+@StackTrace(false)
+public class BlockProcessedEvent extends Event {
+
+    @Label("Frames")
+    public int frames;
+
+    @Label("Processing Time")
+    @Description("Time spent processing, excluding waits on the device lines")
+    @Timespan(Timespan.NANOSECONDS)
+    public long processingTime;
+}
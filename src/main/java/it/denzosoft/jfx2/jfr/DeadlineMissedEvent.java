@@ -0,0 +1,27 @@
+package it.denzosoft.jfx2.jfr;
+
+import jdk.jfr.*;
+
+/**
+ * An audio block whose processing time exceeded the buffer duration.
+ */
+@Name("it.denzosoft.jfx2.DeadlineMissed")
+@Label("Audio Deadline Missed")
+@Category({"JFx2", "Audio"})
+@Description("A block took longer to process than the buffer lasts")
+@Enabled(false)
+@StackTrace(false)
+public class DeadlineMissedEvent extends Event {
+
+    @Label("Block")
+    @Description("Index of the block since the engine started")
+    public long block;
+
+    @Label("Processing Time")
+    @Timespan(Timespan.NANOSECONDS)
+    public long processingTime;
+
+    @Label("Deadline")
+    @Timespan(Timespan.NANOSECONDS)
+    public long deadline;
+}
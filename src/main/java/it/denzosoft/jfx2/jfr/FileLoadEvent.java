@@ -0,0 +1,64 @@
+package it.denzosoft.jfx2.jfr;
+
+import jdk.jfr.*;
+
+/**
+ * A model, impulse response, soundfont or audio file loaded from disk.
+ *
+ * <p>Usage: {@code FileLoadEvent event = FileLoadEvent.start(FileLoadEvent.NAM, path);}
+ * before loading, {@code event.finish(bytes, success)} after.</p>
+ */
+@Name("it.denzosoft.jfx2.FileLoad")
+@Label("File Load")
+@Category({"JFx2", "Files"})
+@Description("A NAM model, impulse response, soundfont or WAV file loaded")
+@Enabled(false)
+public class FileLoadEvent extends Event {
+
+    public static final String NAM = "NAM";
+    public static final String IR = "IR";
+    public static final String SF2 = "SF2";
+    public static final String WAV = "WAV";
+
+    @Label("Kind")
+    public String kind;
+
+    @Label("Path")
+    public String path;
+
+    @Label("Size")
+    @DataAmount
+    public long bytes;
+
+    @Label("Success")
+    public boolean success;
+
+    /**
+     * Begin timing a load.
+     *
+     * @param kind One of {@link #NAM}, {@link #IR}, {@link #SF2}, {@link #WAV}
+     * @param path File being loaded
+     */
+    public static FileLoadEvent start(String kind, String path) {
+        FileLoadEvent event = new FileLoadEvent();
+        event.kind = kind;
+        event.path = path;
+        event.begin();
+        return event;
+    }
+
+    /**
+     * End timing and commit, if a recording wants the event.
+     *
+     * @param bytes   Size of the file
+     * @param success Whether the load succeeded
+     */
+    public void finish(long bytes, boolean success) {
+        end();
+        if (shouldCommit()) {
+            this.bytes = bytes;
+            this.success = success;
+            commit();
+        }
+    }
+}
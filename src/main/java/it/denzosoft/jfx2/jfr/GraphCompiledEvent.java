@@ -0,0 +1,28 @@
+package it.denzosoft.jfx2.jfr;
+
+import jdk.jfr.*;
+
+/**
+ * The signal graph compiled into a new execution plan.
+ */
+@Name("it.denzosoft.jfx2.GraphCompiled")
+@Label("Signal Graph Compiled")
+@Category({"JFx2", "Graph"})
+@Description("The signal graph compiled into a new execution plan")
+@Enabled(false)
+public class GraphCompiledEvent extends Event {
+
+    @Label("Plan Version")
+    public long version;
+
+    @Label("Node Count")
+    public int nodeCount;
+
+    @Label("Level Count")
+    @Description("Number of parallel levels")
+    public int levelCount;
+
+    @Label("Latency")
+    @Description("Latency of the slowest path in samples")
+    public int latency;
+}
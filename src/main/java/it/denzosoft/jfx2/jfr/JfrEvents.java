@@ -0,0 +1,43 @@
+package it.denzosoft.jfx2.jfr;
+
+import jdk.jfr.Event;
+import jdk.jfr.EventType;
+
+/**
+ * Cheap checks for the events emitted on the audio thread.
+ *
+ * <p>All JFx2 events are disabled by default. The audio thread asks here
+ * before creating an event, so without a recording that enables them it
+ * neither allocates nor reads the clock. On a JVM without Flight Recorder
+ * the checks always fail.</p>
+ */
+public final class JfrEvents {
+
+    private static final EventType BLOCK_PROCESSED = typeOf(BlockProcessedEvent.class);
+    private static final EventType DEADLINE_MISSED = typeOf(DeadlineMissedEvent.class);
+    private static final EventType NODE_PROCESSED = typeOf(NodeProcessedEvent.class);
+
+    private JfrEvents() {
+    }
+
+    public static boolean isBlockProcessedEnabled() {
+        return BLOCK_PROCESSED != null && BLOCK_PROCESSED.isEnabled();
+    }
+
+    public static boolean isDeadlineMissedEnabled() {
+        return DEADLINE_MISSED != null && DEADLINE_MISSED.isEnabled();
+    }
+
+    public static boolean isNodeProcessedEnabled() {
+        return NODE_PROCESSED != null && NODE_PROCESSED.isEnabled();
+    }
+
+    private static EventType typeOf(Class<? extends Event> eventClass) {
+        try {
+            return EventType.getEventType(eventClass);
+        } catch (RuntimeException | Error e) {
+            System.err.println("JFR events unavailable: " + e.getMessage());
+            return null;
+        }
+    }
+}
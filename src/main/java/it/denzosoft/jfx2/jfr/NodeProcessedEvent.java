@@ -0,0 +1,24 @@
+package it.denzosoft.jfx2.jfr;
+
+import jdk.jfr.*;
+
+/**
+ * One node of the signal graph processing one block.
+ */
+@Name("it.denzosoft.jfx2.NodeProcessed")
+@Label("Graph Node Processed")
+@Category({"JFx2", "Graph"})
+@Description("One node of the signal graph processing one block")
+@Enabled(false)
+@StackTrace(false)
+public class NodeProcessedEvent extends Event {
+
+    @Label("Node Id")
+    public String nodeId;
+
+    @Label("Node Name")
+    public String nodeName;
+
+    @Label("Frames")
+    public int frames;
+}
@@ -0,0 +1,117 @@
+package it.denzosoft.jfx2.jmx;
+
+import it.denzosoft.jfx2.audio.AudioEngine;
+import it.denzosoft.jfx2.audio.AudioMetrics;
+
+/**
+ * Exposes {@link AudioEngine} and its {@link AudioMetrics} over JMX.
+ */
+public class AudioEngineMonitor implements AudioEngineMonitorMBean {
+
+    private static final double NANOS_PER_MILLI = 1_000_000.0;
+
+    private final AudioEngine engine;
+
+    public AudioEngineMonitor(AudioEngine engine) {
+        this.engine = engine;
+    }
+
+    private AudioMetrics metrics() {
+        return engine.getMetrics();
+    }
+
+    @Override
+    public boolean isRunning() {
+        return engine.isRunning();
+    }
+
+    @Override
+    public int getSampleRate() {
+        return engine.getSampleRate();
+    }
+
+    @Override
+    public int getBufferSize() {
+        return engine.getBufferSize();
+    }
+
+    @Override
+    public double getCpuLoadPercent() {
+        return metrics().getCpuLoadPercent();
+    }
+
+    @Override
+    public long getProcessedCallbacks() {
+        return metrics().getProcessedCallbacks();
+    }
+
+    @Override
+    public double getDeadlineMillis() {
+        return metrics().getDeadlineNanos() / NANOS_PER_MILLI;
+    }
+
+    @Override
+    public double getProcessingP50Millis() {
+        return metrics().getProcessingTimes().getPercentileNanos(50) / NANOS_PER_MILLI;
+    }
+
+    @Override
+    public double getProcessingP99Millis() {
+        return metrics().getProcessingTimes().getPercentileNanos(99) / NANOS_PER_MILLI;
+    }
+
+    @Override
+    public double getProcessingP999Millis() {
+        return metrics().getProcessingTimes().getPercentileNanos(99.9) / NANOS_PER_MILLI;
+    }
+
+    @Override
+    public double getProcessingMaxMillis() {
+        return metrics().getProcessingTimes().getMaxNanos() / NANOS_PER_MILLI;
+    }
+
+    @Override
+    public double getPeriodP99Millis() {
+        return metrics().getCallbackPeriods().getPercentileNanos(99) / NANOS_PER_MILLI;
+    }
+
+    @Override
+    public double getPeriodMaxMillis() {
+        return metrics().getCallbackPeriods().getMaxNanos() / NANOS_PER_MILLI;
+    }
+
+    @Override
+    public long getDeadlineOverruns() {
+        return metrics().getDeadlineOverruns();
+    }
+
+    @Override
+    public long getInputOverruns() {
+        return metrics().getInputOverruns();
+    }
+
+    @Override
+    public long getOutputUnderruns() {
+        return metrics().getOutputUnderruns();
+    }
+
+    @Override
+    public long getDropouts() {
+        return metrics().getDropouts();
+    }
+
+    @Override
+    public double getSessionSeconds() {
+        return metrics().getSessionSeconds();
+    }
+
+    @Override
+    public void resetMetrics() {
+        metrics().resetSession();
+    }
+
+    @Override
+    public String deadlineReport() {
+        return metrics().getDeadlineReport();
+    }
+}
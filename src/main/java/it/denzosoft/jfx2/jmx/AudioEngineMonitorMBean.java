@@ -0,0 +1,53 @@
+package it.denzosoft.jfx2.jmx;
+
+/**
+ * JMX view of the audio engine: load, deadline monitor and xruns.
+ *
+ * <p>Times are in milliseconds; percentiles cover the current metrics session.</p>
+ */
+public interface AudioEngineMonitorMBean {
+
+    boolean isRunning();
+
+    int getSampleRate();
+
+    int getBufferSize();
+
+    double getCpuLoadPercent();
+
+    long getProcessedCallbacks();
+
+    double getDeadlineMillis();
+
+    double getProcessingP50Millis();
+
+    double getProcessingP99Millis();
+
+    double getProcessingP999Millis();
+
+    double getProcessingMaxMillis();
+
+    double getPeriodP99Millis();
+
+    double getPeriodMaxMillis();
+
+    long getDeadlineOverruns();
+
+    long getInputOverruns();
+
+    long getOutputUnderruns();
+
+    long getDropouts();
+
+    double getSessionSeconds();
+
+    /**
+     * Start a new metrics session (histograms, overruns, xruns, dropouts).
+     */
+    void resetMetrics();
+
+    /**
+     * Get the deadline monitor as a text report.
+     */
+    String deadlineReport();
+}
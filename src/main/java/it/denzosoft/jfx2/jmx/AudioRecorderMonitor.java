@@ -0,0 +1,48 @@
+package it.denzosoft.jfx2.jmx;
+
+import it.denzosoft.jfx2.recording.AudioRecorder;
+
+import java.nio.file.Path;
+
+/**
+ * Exposes an {@link AudioRecorder} over JMX.
+ */
+public class AudioRecorderMonitor implements AudioRecorderMonitorMBean {
+
+    private final AudioRecorder recorder;
+
+    public AudioRecorderMonitor(AudioRecorder recorder) {
+        this.recorder = recorder;
+    }
+
+    @Override
+    public String getState() {
+        return recorder.getState().name();
+    }
+
+    @Override
+    public String getCurrentFile() {
+        Path file = recorder.getCurrentFile();
+        return file != null ? file.toString() : "";
+    }
+
+    @Override
+    public double getRecordedSeconds() {
+        return recorder.getRecordingDurationSeconds();
+    }
+
+    @Override
+    public int getQueueDepth() {
+        return recorder.getQueueDepth();
+    }
+
+    @Override
+    public int getQueueCapacity() {
+        return recorder.getQueueCapacity();
+    }
+
+    @Override
+    public long getDroppedBlocks() {
+        return recorder.getDroppedBlocks();
+    }
+}
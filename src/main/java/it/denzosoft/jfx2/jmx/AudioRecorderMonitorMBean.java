@@ -0,0 +1,19 @@
+package it.denzosoft.jfx2.jmx;
+
+/**
+ * JMX view of the audio recorder: state, write queue and dropped blocks.
+ */
+public interface AudioRecorderMonitorMBean {
+
+    String getState();
+
+    String getCurrentFile();
+
+    double getRecordedSeconds();
+
+    int getQueueDepth();
+
+    int getQueueCapacity();
+
+    long getDroppedBlocks();
+}
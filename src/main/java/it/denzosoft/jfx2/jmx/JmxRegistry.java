@@ -0,0 +1,60 @@
+package it.denzosoft.jfx2.jmx;
+
+import javax.management.MBeanServer;
+import javax.management.MalformedObjectNameException;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+
+/**
+ * Registers the JFx2 MBeans with the platform MBean server.
+ *
+ * <p>Beans are named {@code it.denzosoft.jfx2:type=<type>}, so jconsole or
+ * any other JMX client shows them under one folder. Registering a type again
+ * replaces the previous bean. Failures are logged and never propagate: a rig
+ * must run even where JMX is unavailable.</p>
+ */
+public final class JmxRegistry {
+
+    public static final String DOMAIN = "it.denzosoft.jfx2";
+
+    private JmxRegistry() {
+    }
+
+    /**
+     * Register a bean, replacing any bean of the same type.
+     *
+     * @param type  Bean type, e.g. "AudioEngine"
+     * @param mbean Standard MBean (implements its {@code ...MBean} interface)
+     */
+    public static synchronized void register(String type, Object mbean) {
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            ObjectName name = objectName(type);
+            if (server.isRegistered(name)) {
+                server.unregisterMBean(name);
+            }
+            server.registerMBean(mbean, name);
+        } catch (Exception e) {
+            System.err.println("JMX: failed to register " + type + ": " + e.getMessage());
+        }
+    }
+
+    /**
+     * Remove the bean of a type, if registered.
+     */
+    public static synchronized void unregister(String type) {
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            ObjectName name = objectName(type);
+            if (server.isRegistered(name)) {
+                server.unregisterMBean(name);
+            }
+        } catch (Exception e) {
+            System.err.println("JMX: failed to unregister " + type + ": " + e.getMessage());
+        }
+    }
+
+    private static ObjectName objectName(String type) throws MalformedObjectNameException {
+        return new ObjectName(DOMAIN, "type", type);
+    }
+}
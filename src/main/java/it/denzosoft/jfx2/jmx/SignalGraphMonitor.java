@@ -0,0 +1,111 @@
+package it.denzosoft.jfx2.jmx;
+
+import it.denzosoft.jfx2.graph.NodeProfile;
+import it.denzosoft.jfx2.graph.SchedulingMode;
+import it.denzosoft.jfx2.graph.SignalGraph;
+
+import java.util.List;
+import java.util.function.Supplier;
+
+/**
+ * Exposes a {@link SignalGraph} over JMX.
+ *
+ * <p>The graph is looked up on every call, so the bean follows the
+ * application when it replaces the graph (e.g. on a new rig).</p>
+ */
+public class SignalGraphMonitor implements SignalGraphMonitorMBean {
+
+    private final Supplier<SignalGraph> graph;
+
+    public SignalGraphMonitor(Supplier<SignalGraph> graph) {
+        this.graph = graph;
+    }
+
+    @Override
+    public int getNodeCount() {
+        return graph.get().getNodeCount();
+    }
+
+    @Override
+    public int getConnectionCount() {
+        return graph.get().getConnectionCount();
+    }
+
+    @Override
+    public int getParallelLevelCount() {
+        return graph.get().getParallelLevelCount();
+    }
+
+    @Override
+    public int getSleepingNodeCount() {
+        return graph.get().getSleepingNodeCount();
+    }
+
+    @Override
+    public int getThreadCount() {
+        return graph.get().getThreadCount();
+    }
+
+    @Override
+    public String getSchedulingMode() {
+        return graph.get().getSchedulingMode().name();
+    }
+
+    @Override
+    public void setSchedulingMode(String mode) {
+        graph.get().setSchedulingMode(SchedulingMode.valueOf(mode.trim().toUpperCase()));
+    }
+
+    @Override
+    public boolean isParallelProcessingEnabled() {
+        return graph.get().isParallelProcessingEnabled();
+    }
+
+    @Override
+    public void setParallelProcessingEnabled(boolean enabled) {
+        graph.get().setParallelProcessingEnabled(enabled);
+    }
+
+    @Override
+    public boolean toggleParallelProcessing() {
+        SignalGraph current = graph.get();
+        boolean enabled = !current.isParallelProcessingEnabled();
+        current.setParallelProcessingEnabled(enabled);
+        return enabled;
+    }
+
+    @Override
+    public int getLatencySamples() {
+        return graph.get().calculateTotalLatency();
+    }
+
+    @Override
+    public long getLoadedDataBytes() {
+        return graph.get().getLoadedDataBytes();
+    }
+
+    @Override
+    public boolean isProfilingEnabled() {
+        return graph.get().isProfilingEnabled();
+    }
+
+    @Override
+    public void setProfilingEnabled(boolean enabled) {
+        graph.get().setProfilingEnabled(enabled);
+    }
+
+    @Override
+    public String[] getNodeProfiles() {
+        SignalGraph current = graph.get();
+        if (!current.isProfilingEnabled()) {
+            return new String[0];
+        }
+        List<NodeProfile> profiles = current.getNodeProfiles();
+        return profiles.stream().map(NodeProfile::toDisplayString).toArray(String[]::new);
+    }
+
+    @Override
+    public void resetProfiling() {
+        graph.get().resetProfiling();
+    }
+}
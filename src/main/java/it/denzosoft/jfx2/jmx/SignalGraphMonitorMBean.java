@@ -0,0 +1,57 @@
+package it.denzosoft.jfx2.jmx;
+
+/**
+ * JMX view of the signal graph: structure, scheduling and per-node cost.
+ */
+public interface SignalGraphMonitorMBean {
+
+    int getNodeCount();
+
+    int getConnectionCount();
+
+    int getParallelLevelCount();
+
+    int getSleepingNodeCount();
+
+    int getThreadCount();
+
+    String getSchedulingMode();
+
+    /**
+     * Set the scheduling mode by name (LEVELS, DAG, PIPELINE).
+     */
+    void setSchedulingMode(String mode);
+
+    boolean isParallelProcessingEnabled();
+
+    void setParallelProcessingEnabled(boolean enabled);
+
+    /**
+     * Switch parallel processing on or off.
+     *
+     * @return The new state
+     */
+    boolean toggleParallelProcessing();
+
+    int getLatencySamples();
+
+    /**
+     * Memory held by loaded models and impulse responses, in bytes.
+     */
+    long getLoadedDataBytes();
+
+    boolean isProfilingEnabled();
+
+    void setProfilingEnabled(boolean enabled);
+
+    /**
+     * Per-node cost (mean, p99, max, share of the block), most expensive first.
+     * Empty unless profiling is enabled.
+     */
+    String[] getNodeProfiles();
+
+    /**
+     * Forget the recorded node timings.
+     */
+    void resetProfiling();
+}
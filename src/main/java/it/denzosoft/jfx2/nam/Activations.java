@@ -16,9 +16,17 @@ public final class Activations {
 
     /**
      * Tanh activation
+     *
+     * <p>Computed from {@link Math#exp} (a JIT intrinsic, unlike
+     * {@link Math#tanh}) in double precision, so it is still exact to float
+     * precision.</p>
      */
     public static float tanh(float x) {
-        return (float) Math.tanh(x);
+        if (x > 20) return 1;
+        if (x < -20) return -1;
+        if (Math.abs(x) < 1e-4f) return x;
+        double e = Math.exp(2.0 * x);
+        return (float) ((e - 1) / (e + 1));
     }
 
     /**
@@ -29,17 +37,21 @@ public final class Activations {
     }
 
     /**
-     * Fast tanh approximation (Pade approximant)
+     * Fast tanh approximation (7th order rational, from Lambert's continued fraction)
+     *
+     * <p>Absolute error below 1e-4 everywhere; the result stays within
+     * [-1, 1]. Branch-free, so loops over arrays vectorize.</p>
      */
     public static float fastTanh(float x) {
-        if (x < -3) return -1;
-        if (x > 3) return 1;
+        x = Math.max(-5, Math.min(5, x));
         float x2 = x * x;
-        return x * (27 + x2) / (27 + 9 * x2);
+        float p = x * (135135 + x2 * (17325 + x2 * (378 + x2)));
+        float q = 135135 + x2 * (62370 + x2 * (3150 + x2 * 28));
+        return Math.max(-1, Math.min(1, p / q));
     }
 
     /**
-     * Fast sigmoid approximation
+     * Fast sigmoid approximation (absolute error below 5e-5)
      */
     public static float fastSigmoid(float x) {
         return 0.5f * (fastTanh(x * 0.5f) + 1.0f);
@@ -61,19 +73,26 @@ public final class Activations {
      * Apply activation to array in-place
      */
     public static void applyInPlace(String name, float[] arr) {
+        applyInPlace(name, arr, arr.length);
+    }
+
+    /**
+     * Apply activation in-place to the first {@code length} elements
+     */
+    public static void applyInPlace(String name, float[] arr, int length) {
         switch (name.toLowerCase()) {
             case "relu" -> {
-                for (int i = 0; i < arr.length; i++) {
+                for (int i = 0; i < length; i++) {
                     arr[i] = relu(arr[i]);
                 }
             }
             case "tanh" -> {
-                for (int i = 0; i < arr.length; i++) {
+                for (int i = 0; i < length; i++) {
                     arr[i] = tanh(arr[i]);
                 }
             }
             case "sigmoid" -> {
-                for (int i = 0; i < arr.length; i++) {
+                for (int i = 0; i < length; i++) {
                     arr[i] = sigmoid(arr[i]);
                 }
             }
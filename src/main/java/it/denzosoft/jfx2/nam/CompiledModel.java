@@ -0,0 +1,20 @@
+package it.denzosoft.jfx2.nam;
+
+import it.denzosoft.jfx2.nam.json.JsonValue;
+
+/**
+ * A NAM model file split into its JSON header and flat weights.
+ *
+ * <p>Instances come from {@link NAMCache} and may be shared: the weights
+ * must not be modified (models copy them into their layers).</p>
+ *
+ * @param hash    Content hash of the .nam file
+ * @param header  The file's JSON root without the "weights" array
+ * @param weights All model weights, in file order
+ */
+public record CompiledModel(
+        String hash,
+        JsonValue header,
+        float[] weights
+) {
+}
@@ -1,9 +1,16 @@
 package it.denzosoft.jfx2.nam;
 
+import java.util.Arrays;
+
 /**
  * 1x1 Convolution (equivalent to a dense layer per sample).
  *
- * <p>Maps input channels to output channels without temporal context.</p>
+ * <p>Maps input channels to output channels without temporal context.
+ * Weights are a row-major {@link WeightMatrix} ({@code [outChannels][inChannels]}),
+ * float32 unless the model is quantized.
+ * The block methods work on channel x time matrices, one array per channel
+ * row: C2 only vectorizes the time loops when every array is indexed from
+ * zero.</p>
  */
 public class Conv1x1 {
 
@@ -12,7 +19,7 @@ public class Conv1x1 {
     private final boolean bias;
 
     // Weights: [outChannels][inChannels]
-    private final float[][] weights;
+    private WeightMatrix weights;
     // Bias: [outChannels]
     private final float[] biases;
 
@@ -21,7 +28,7 @@ public class Conv1x1 {
         this.outChannels = outChannels;
         this.bias = bias;
 
-        this.weights = new float[outChannels][inChannels];
+        this.weights = new WeightMatrix(outChannels, inChannels);
         this.biases = bias ? new float[outChannels] : null;
     }
 
@@ -33,11 +40,7 @@ public class Conv1x1 {
      */
     public void process(float[] input, float[] output) {
         for (int oc = 0; oc < outChannels; oc++) {
-            float sum = bias ? biases[oc] : 0;
-            for (int ic = 0; ic < inChannels; ic++) {
-                sum += weights[oc][ic] * input[ic];
-            }
-            output[oc] = sum;
+            output[oc] = dot(oc, input);
         }
     }
 
@@ -46,26 +49,107 @@ public class Conv1x1 {
      */
     public void processAdd(float[] input, float[] output) {
         for (int oc = 0; oc < outChannels; oc++) {
-            float sum = bias ? biases[oc] : 0;
-            for (int ic = 0; ic < inChannels; ic++) {
-                sum += weights[oc][ic] * input[ic];
-            }
-            output[oc] += sum;
+            output[oc] += dot(oc, input);
+        }
+    }
+
+    private float dot(int oc, float[] input) {
+        float sum = bias ? biases[oc] : 0;
+        for (int ic = 0; ic < inChannels; ic++) {
+            sum += weights.get(oc, ic) * input[ic];
         }
+        return sum;
     }
 
     /**
-     * Set weights from flat array.
+     * Process a block.
+     *
+     * @param input  Input rows [inChannels][n]
+     * @param output Output rows [outChannels][n] (will be filled)
+     * @param n      Block length
      */
-    public void setWeights(float[] flatWeights, int offset) {
-        int idx = offset;
+    public void processBlock(float[][] input, float[][] output, int n) {
         for (int oc = 0; oc < outChannels; oc++) {
-            for (int ic = 0; ic < inChannels; ic++) {
-                weights[oc][ic] = flatWeights[idx++];
+            Arrays.fill(output[oc], 0, n, bias ? biases[oc] : 0);
+        }
+        multiplyAccumulate(weights, input, output, n);
+    }
+
+    /**
+     * Process a block and add to the existing output.
+     */
+    public void processBlockAdd(float[][] input, float[][] output, int n) {
+        if (bias) {
+            for (int oc = 0; oc < outChannels; oc++) {
+                float b = biases[oc];
+                float[] out = output[oc];
+                for (int t = 0; t < n; t++) {
+                    out[t] += b;
+                }
+            }
+        }
+        multiplyAccumulate(weights, input, output, n);
+    }
+
+    /**
+     * Add {@code weights * input} to {@code output}, over rows of length {@code n}.
+     *
+     * <p>Each weight is dequantized once and applied to a whole row.</p>
+     *
+     * @param weights Weights [rows][columns]
+     */
+    static void multiplyAccumulate(WeightMatrix weights, float[][] input, float[][] output, int n) {
+        int rows = weights.getRows();
+        int columns = weights.getColumns();
+        for (int r = 0; r < rows; r++) {
+            float[] out = output[r];
+            int c = 0;
+            // Four input rows per pass: a quarter of the output loads and stores
+            for (; c + 3 < columns; c += 4) {
+                float w0 = weights.get(r, c);
+                float w1 = weights.get(r, c + 1);
+                float w2 = weights.get(r, c + 2);
+                float w3 = weights.get(r, c + 3);
+                float[] x0 = input[c];
+                float[] x1 = input[c + 1];
+                float[] x2 = input[c + 2];
+                float[] x3 = input[c + 3];
+                // Contiguous over time: vectorized by the JIT
+                for (int t = 0; t < n; t++) {
+                    out[t] += w0 * x0[t] + w1 * x1[t] + w2 * x2[t] + w3 * x3[t];
+                }
+            }
+            for (; c < columns; c++) {
+                float w0 = weights.get(r, c);
+                float[] x0 = input[c];
+                for (int t = 0; t < n; t++) {
+                    out[t] += w0 * x0[t];
+                }
             }
         }
     }
 
+    /**
+     * Set weights from flat array.
+     */
+    public void setWeights(float[] flatWeights, int offset) {
+        weights.set(flatWeights, offset);
+    }
+
+    /**
+     * Convert the weights (float32) to another precision.
+     */
+    public void quantize(WeightPrecision precision) {
+        weights = weights.quantize(precision);
+    }
+
+    /**
+     * Get the memory the weights and biases take, in bytes.
+     */
+    public long getMemoryBytes() {
+        return weights.getMemoryBytes() + (long) getBiasCount() * Float.BYTES;
+    }
+
     /**
      * Set biases from flat array.
      */
@@ -1,5 +1,7 @@
 package it.denzosoft.jfx2.nam;
 
+import java.util.Arrays;
+
 /**
  * 1D Dilated Causal Convolution.
  *
@@ -11,6 +13,16 @@ package it.denzosoft.jfx2.nam;
  * output[t] = sum(weight[k] * input[t - k*dilation]) for k in [0, kernel_size)
  *           = w[0]*x[t] + w[1]*x[t-4] + w[2]*x[t-8]
  * </pre></p>
+ *
+ * <p>Past input is kept per channel in a contiguous history row, so every
+ * tap reads a plain slice {@code [t - k*dilation, ... + n)} with no modulo
+ * indexing. A row holds the receptive field plus room for several blocks;
+ * only when it fills up is the tail moved back to the start.</p>
+ *
+ * <p>Each block, the slice of every tap is copied once into its own row
+ * (im2col), shared by all output channels: the convolution is then a
+ * plain matrix product over rows indexed from zero, which the JIT
+ * vectorizes.</p>
  */
 public class DilatedConv {
 
@@ -20,15 +32,19 @@ public class DilatedConv {
     private final int dilation;
     private final boolean bias;
 
-    // Weights: [outChannels][inChannels][kernelSize]
-    private final float[][][] weights;
+    // Weights: [outChannels][inChannels * kernelSize]
+    private WeightMatrix weights;
     // Bias: [outChannels]
     private final float[] biases;
 
-    // Input buffer for causal convolution
-    private final float[][] buffer;  // [inChannels][bufferSize]
-    private final int bufferSize;
-    private int bufferPos;
+    // Input history: [inChannels][rowLength], past samples before writePos
+    private final float[][] history;
+    private final int rowLength;
+    private final int historyLength;
+    private int writePos;
+
+    // Tap slices of the current block: [inChannels * kernelSize][BLOCK_SIZE]
+    private final float[][] taps;
 
     // Receptive field (number of past samples needed)
     private final int receptiveField;
@@ -40,47 +56,59 @@ public class DilatedConv {
         this.dilation = dilation;
         this.bias = bias;
 
-        this.weights = new float[outChannels][inChannels][kernelSize];
+        this.weights = new WeightMatrix(outChannels, inChannels * kernelSize);
         this.biases = bias ? new float[outChannels] : null;
 
         // Receptive field = (kernelSize - 1) * dilation + 1
         this.receptiveField = (kernelSize - 1) * dilation + 1;
 
-        // Buffer needs to hold receptive field worth of samples
-        this.bufferSize = receptiveField;
-        this.buffer = new float[inChannels][bufferSize];
-        this.bufferPos = 0;
+        // History for the receptive field, plus at least one block of new
+        // samples (and as many as the history itself, to amortize the move)
+        this.historyLength = receptiveField - 1;
+        this.rowLength = historyLength + Math.max(WaveNet.BLOCK_SIZE, historyLength);
+        this.history = new float[inChannels][rowLength];
+        this.writePos = historyLength;
+
+        this.taps = new float[inChannels * kernelSize][WaveNet.BLOCK_SIZE];
     }
 
     /**
-     * Process a single sample.
+     * Process a block.
      *
-     * @param input Input vector [inChannels]
-     * @param output Output vector [outChannels] (will be filled)
+     * @param input  Input rows [inChannels][n]
+     * @param output Output rows [outChannels][n] (will be filled)
+     * @param n      Block length, at most {@link WaveNet#BLOCK_SIZE}
      */
-    public void process(float[] input, float[] output) {
-        // Store input in buffer
-        for (int c = 0; c < inChannels; c++) {
-            buffer[c][bufferPos] = input[c];
+    public void processBlock(float[][] input, float[][] output, int n) {
+        if (n > WaveNet.BLOCK_SIZE) {
+            throw new IllegalArgumentException("Block too long: " + n);
         }
 
-        // Compute convolution
-        for (int oc = 0; oc < outChannels; oc++) {
-            float sum = bias ? biases[oc] : 0;
-
-            for (int ic = 0; ic < inChannels; ic++) {
-                for (int k = 0; k < kernelSize; k++) {
-                    // Index into past: current - k*dilation
-                    int idx = (bufferPos - k * dilation + bufferSize) % bufferSize;
-                    sum += weights[oc][ic][k] * buffer[ic][idx];
-                }
+        // Make room: keep only the history the taps can reach
+        if (writePos + n > rowLength) {
+            for (float[] row : history) {
+                System.arraycopy(row, writePos - historyLength, row, 0, historyLength);
+            }
+            writePos = historyLength;
+        }
+
+        // Append the block to the history, then gather the taps:
+        // tap k reads the input k * dilation samples back
+        for (int ic = 0, j = 0; ic < inChannels; ic++) {
+            float[] row = history[ic];
+            System.arraycopy(input[ic], 0, row, writePos, n);
+            for (int k = 0; k < kernelSize; k++) {
+                System.arraycopy(row, writePos - k * dilation, taps[j++], 0, n);
             }
+        }
 
-            output[oc] = sum;
+        // Compute convolution
+        for (int oc = 0; oc < outChannels; oc++) {
+            Arrays.fill(output[oc], 0, n, bias ? biases[oc] : 0);
         }
+        Conv1x1.multiplyAccumulate(weights, taps, output, n);
 
-        // Advance buffer position
-        bufferPos = (bufferPos + 1) % bufferSize;
+        writePos += n;
     }
 
     /**
@@ -88,14 +116,21 @@ public class DilatedConv {
      * Order: [out][in][kernel] flattened
      */
     public void setWeights(float[] flatWeights, int offset) {
-        int idx = offset;
-        for (int oc = 0; oc < outChannels; oc++) {
-            for (int ic = 0; ic < inChannels; ic++) {
-                for (int k = 0; k < kernelSize; k++) {
-                    weights[oc][ic][k] = flatWeights[idx++];
-                }
-            }
-        }
+        weights.set(flatWeights, offset);
+    }
+
+    /**
+     * Convert the weights (float32) to another precision.
+     */
+    public void quantize(WeightPrecision precision) {
+        weights = weights.quantize(precision);
+    }
+
+    /**
+     * Get the memory the weights and biases take, in bytes.
+     */
+    public long getMemoryBytes() {
+        return weights.getMemoryBytes() + (long) getBiasCount() * Float.BYTES;
     }
 
     /**
@@ -111,10 +146,10 @@ public class DilatedConv {
      * Reset internal buffers.
      */
     public void reset() {
-        for (int c = 0; c < inChannels; c++) {
-            java.util.Arrays.fill(buffer[c], 0);
+        for (float[] row : history) {
+            Arrays.fill(row, 0);
         }
-        bufferPos = 0;
+        writePos = historyLength;
     }
 
     /**
@@ -19,10 +19,20 @@ import it.denzosoft.jfx2.nam.json.JsonValue;
  *            │
  *         output (1 sample)
  * </pre></p>
+ *
+ * <p>Buffers are processed in blocks of up to {@link #BLOCK_SIZE} samples:
+ * the input projection and the output layer run over the whole block, only
+ * the recurrence goes step by step.</p>
  */
 public class LSTM implements NAMModel {
 
+    /**
+     * Longest block processed at once; longer buffers are split.
+     */
+    static final int BLOCK_SIZE = 128;
+
     private final int sampleRate;
+    private final int weightCount;
     private final int inputSize;
     private final int hiddenSize;
 
@@ -35,13 +45,19 @@ public class LSTM implements NAMModel {
     // Buffers
     private final float[] inputBuffer;
     private int inputBufferPos;
-    private final float[] lstmInput;
-    private final float[] lstmOutput;
+    private final float[] lstmInput;    // [BLOCK_SIZE][inputSize]
+    private final float[][] lstmOutput;   // [hiddenSize][BLOCK_SIZE]
+    private final float[][] outputBlock;  // [1][BLOCK_SIZE]
+
+    // Single-sample input and output
+    private final float[] sampleIn = new float[1];
+    private final float[] sampleOut = new float[1];
 
     private int samplesProcessed = 0;
 
     public LSTM(JsonValue config, float[] weights, int sampleRate) {
         this.sampleRate = sampleRate;
+        this.weightCount = weights.length;
 
         // Parse config
         this.inputSize = config.getInt("input_size", 1);
@@ -56,8 +72,9 @@ public class LSTM implements NAMModel {
         // Buffers
         this.inputBuffer = new float[inputSize];
         this.inputBufferPos = 0;
-        this.lstmInput = new float[inputSize];
-        this.lstmOutput = new float[hiddenSize];
+        this.lstmInput = new float[BLOCK_SIZE * inputSize];
+        this.lstmOutput = new float[hiddenSize][BLOCK_SIZE];
+        this.outputBlock = new float[1][BLOCK_SIZE];
 
         // Load weights
         loadWeights(weights);
@@ -90,32 +107,52 @@ public class LSTM implements NAMModel {
 
     @Override
     public float process(float sample) {
-        // Add sample to input buffer
-        inputBuffer[inputBufferPos] = sample;
-        inputBufferPos = (inputBufferPos + 1) % inputSize;
-
-        // Build LSTM input (for inputSize > 1, this provides context)
-        for (int i = 0; i < inputSize; i++) {
-            int idx = (inputBufferPos + i) % inputSize;
-            lstmInput[i] = inputBuffer[idx];
+        sampleIn[0] = sample;
+        process(sampleIn, sampleOut, 1);
+        return sampleOut[0];
+    }
+
+    @Override
+    public void process(float[] input, float[] output, int numSamples) {
+        for (int offset = 0; offset < numSamples; offset += BLOCK_SIZE) {
+            int n = Math.min(BLOCK_SIZE, numSamples - offset);
+            processBlock(input, output, offset, n);
+        }
+    }
+
+    private void processBlock(float[] input, float[] output, int offset, int n) {
+        for (int t = 0; t < n; t++) {
+            // Add sample to input buffer
+            inputBuffer[inputBufferPos] = input[offset + t];
+            inputBufferPos = (inputBufferPos + 1) % inputSize;
+
+            // Build LSTM input (for inputSize > 1, this provides context)
+            for (int i = 0; i < inputSize; i++) {
+                int idx = (inputBufferPos + i) % inputSize;
+                lstmInput[t * inputSize + i] = inputBuffer[idx];
+            }
         }
 
         // Process through LSTM
-        lstmCell.process(lstmInput, lstmOutput);
+        lstmCell.processBlock(lstmInput, lstmOutput, n);
 
         // Output layer
-        float[] output = new float[1];
-        outputLayer.process(lstmOutput, output);
+        outputLayer.processBlock(lstmOutput, outputBlock, n);
+        System.arraycopy(outputBlock[0], 0, output, offset, n);
 
-        samplesProcessed++;
-        return output[0];
+        samplesProcessed += n;
     }
 
-    @Override
-    public void process(float[] input, float[] output, int numSamples) {
-        for (int i = 0; i < numSamples; i++) {
-            output[i] = process(input[i]);
-        }
+    /**
+     * Use bounded-error approximations of sigmoid and tanh
+     * (absolute error below 1e-4) instead of the exact functions.
+     */
+    public void setFastActivations(boolean fastActivations) {
+        lstmCell.setFastActivations(fastActivations);
+    }
+
+    public boolean isFastActivations() {
+        return lstmCell.isFastActivations();
     }
 
     @Override
@@ -138,11 +175,36 @@ public class LSTM implements NAMModel {
         return sampleRate;
     }
 
+    @Override
+    public int getWeightCount() {
+        return weightCount;
+    }
+
     @Override
     public String getArchitecture() {
         return "LSTM";
     }
 
+    /**
+     * LSTM weights stay float32: the recurrent weights are read every step,
+     * and converting them there made the model up to 30% slower, while the
+     * other weights are too few to be worth converting.
+     */
+    @Override
+    public void quantize(WeightPrecision precision) {
+        // Nothing to convert
+    }
+
+    @Override
+    public WeightPrecision getWeightPrecision() {
+        return WeightPrecision.FLOAT32;
+    }
+
+    @Override
+    public long getWeightBytes() {
+        return lstmCell.getMemoryBytes() + outputLayer.getMemoryBytes();
+    }
+
     @Override
     public boolean isPrewarmed() {
         return samplesProcessed >= inputSize;
@@ -157,6 +219,8 @@ public class LSTM implements NAMModel {
         sb.append("  Input size: ").append(inputSize).append("\n");
         sb.append("  Hidden size: ").append(hiddenSize).append("\n");
         sb.append("  Sample rate: ").append(sampleRate).append(" Hz\n");
+        sb.append("  Weights: ").append(WeightPrecision.FLOAT32.getDisplayName()).append(", ")
+                .append(getWeightBytes() / 1024).append(" KB\n");
         return sb.toString();
     }
 }
@@ -12,40 +12,49 @@ package it.denzosoft.jfx2.nam;
  * c_t = f_t * c_{t-1} + i_t * c̃_t            // Cell state
  * h_t = o_t * tanh(c_t)                       // Hidden state
  * </pre></p>
+ *
+ * <p>Weights are stored transposed, one contiguous gate row per input
+ * ({@code [input][gate]}), so both products are sums of whole gate rows
+ * that the JIT vectorizes. Rows are separate arrays indexed from zero: C2
+ * does not vectorize loops reading one flat array at several offsets. The
+ * input projection {@code W_x * x_t + b} does not depend on the state and
+ * is computed for a whole block before the recurrence.</p>
  */
 public class LSTMCell {
 
     private final int inputSize;
     private final int hiddenSize;
+    private final int gateSize;
 
-    // Combined weights for efficiency: [hiddenSize * 4][inputSize + hiddenSize]
+    // Weights, transposed: [inputSize][hiddenSize * 4] and [hiddenSize][hiddenSize * 4]
     // Gates order: input, forget, cell, output (i, f, c, o)
-    private final float[][] weights;
+    private final float[][] inputWeights;
+    private final float[][] recurrentWeights;
     private final float[] biases;  // [hiddenSize * 4]
 
     // State
     private final float[] hiddenState;  // h
     private final float[] cellState;    // c
 
-    // Temporary buffers
-    private final float[] gates;        // [hiddenSize * 4]
-    private final float[] combined;     // [inputSize + hiddenSize]
+    // Gates of each step of the block, starting from the input projection
+    private final float[][] gates;      // [LSTM.BLOCK_SIZE][hiddenSize * 4]
+
+    // Bounded-error approximations instead of exact sigmoid and tanh
+    private boolean fastActivations;
 
     public LSTMCell(int inputSize, int hiddenSize) {
         this.inputSize = inputSize;
         this.hiddenSize = hiddenSize;
+        this.gateSize = hiddenSize * 4;
 
-        int totalInputSize = inputSize + hiddenSize;
-        int gateSize = hiddenSize * 4;
-
-        this.weights = new float[gateSize][totalInputSize];
+        this.inputWeights = new float[inputSize][gateSize];
+        this.recurrentWeights = new float[hiddenSize][gateSize];
         this.biases = new float[gateSize];
 
         this.hiddenState = new float[hiddenSize];
         this.cellState = new float[hiddenSize];
 
-        this.gates = new float[gateSize];
-        this.combined = new float[totalInputSize];
+        this.gates = new float[LSTM.BLOCK_SIZE][gateSize];
     }
 
     /**
@@ -55,61 +64,176 @@ public class LSTMCell {
      * @param output Output vector [hiddenSize] (will be filled with hidden state)
      */
     public void process(float[] input, float[] output) {
-        // Combine input and hidden state: [x_t, h_{t-1}]
-        System.arraycopy(input, 0, combined, 0, inputSize);
-        System.arraycopy(hiddenState, 0, combined, inputSize, hiddenSize);
-
-        // Compute all gates at once
-        for (int g = 0; g < hiddenSize * 4; g++) {
-            float sum = biases[g];
-            for (int i = 0; i < combined.length; i++) {
-                sum += weights[g][i] * combined[i];
+        project(input, 0, gates[0]);
+        step(gates[0]);
+        System.arraycopy(hiddenState, 0, output, 0, hiddenSize);
+    }
+
+    /**
+     * Process a block of time steps.
+     *
+     * @param input Input frames [n][inputSize]
+     * @param output Hidden state rows [hiddenSize][n] (will be filled)
+     * @param n Number of steps, at most {@link LSTM#BLOCK_SIZE}
+     */
+    public void processBlock(float[] input, float[][] output, int n) {
+        if (n > LSTM.BLOCK_SIZE) {
+            throw new IllegalArgumentException("Block too long: " + n);
+        }
+
+        // Input projection for the whole block
+        for (int t = 0; t < n; t++) {
+            project(input, t * inputSize, gates[t]);
+        }
+
+        for (int t = 0; t < n; t++) {
+            step(gates[t]);
+
+            // Output is the hidden state
+            for (int i = 0; i < hiddenSize; i++) {
+                output[i][t] = hiddenState[i];
             }
-            gates[g] = sum;
         }
+    }
 
-        // Apply activations and compute new states
-        for (int i = 0; i < hiddenSize; i++) {
-            float inputGate = Activations.sigmoid(gates[i]);                     // i
-            float forgetGate = Activations.sigmoid(gates[i + hiddenSize]);       // f
-            float cellCandidate = Activations.tanh(gates[i + hiddenSize * 2]);   // c̃
-            float outputGate = Activations.sigmoid(gates[i + hiddenSize * 3]);   // o
+    /**
+     * Input projection of one frame: b + W_x * x_t.
+     */
+    private void project(float[] input, int offset, float[] g) {
+        System.arraycopy(biases, 0, g, 0, gateSize);
+        for (int k = 0; k < inputSize; k++) {
+            accumulate(g, inputWeights[k], input[offset + k]);
+        }
+    }
 
-            // Update cell state
-            cellState[i] = forgetGate * cellState[i] + inputGate * cellCandidate;
+    /**
+     * Advance the state by one step, from the input projection in {@code g}.
+     */
+    private void step(float[] g) {
+        // Gates: projection + W_h * h_{t-1}
+        recurrent(g);
 
-            // Update hidden state
-            hiddenState[i] = outputGate * Activations.tanh(cellState[i]);
+        // Apply activations in place: sigmoid for i, f, o and tanh for c̃
+        int h = hiddenSize;
+        if (fastActivations) {
+            for (int i = 0; i < 2 * h; i++) {
+                g[i] = Activations.fastSigmoid(g[i]);
+            }
+            for (int i = 2 * h; i < 3 * h; i++) {
+                g[i] = Activations.fastTanh(g[i]);
+            }
+            for (int i = 3 * h; i < 4 * h; i++) {
+                g[i] = Activations.fastSigmoid(g[i]);
+            }
+        } else {
+            for (int i = 0; i < 2 * h; i++) {
+                g[i] = Activations.sigmoid(g[i]);
+            }
+            for (int i = 2 * h; i < 3 * h; i++) {
+                g[i] = Activations.tanh(g[i]);
+            }
+            for (int i = 3 * h; i < 4 * h; i++) {
+                g[i] = Activations.sigmoid(g[i]);
+            }
         }
 
-        // Output is the hidden state
-        System.arraycopy(hiddenState, 0, output, 0, hiddenSize);
+        // Update cell state
+        for (int i = 0; i < h; i++) {
+            cellState[i] = g[i + h] * cellState[i] + g[i] * g[i + 2 * h];
+        }
+
+        // Update hidden state
+        if (fastActivations) {
+            for (int i = 0; i < h; i++) {
+                hiddenState[i] = g[i + 3 * h] * Activations.fastTanh(cellState[i]);
+            }
+        } else {
+            for (int i = 0; i < h; i++) {
+                hiddenState[i] = g[i + 3 * h] * Activations.tanh(cellState[i]);
+            }
+        }
+    }
+
+    /**
+     * Add {@code W_h * h} to the gates.
+     */
+    private void recurrent(float[] g) {
+        float[] h = hiddenState;
+        int j = 0;
+        // Four hidden inputs per pass: a quarter of the gate loads and stores
+        for (; j + 3 < hiddenSize; j += 4) {
+            float h0 = h[j];
+            float h1 = h[j + 1];
+            float h2 = h[j + 2];
+            float h3 = h[j + 3];
+            float[] w0 = recurrentWeights[j];
+            float[] w1 = recurrentWeights[j + 1];
+            float[] w2 = recurrentWeights[j + 2];
+            float[] w3 = recurrentWeights[j + 3];
+            // Contiguous over gates: vectorized by the JIT
+            for (int i = 0; i < gateSize; i++) {
+                g[i] += w0[i] * h0 + w1[i] * h1 + w2[i] * h2 + w3[i] * h3;
+            }
+        }
+        for (; j < hiddenSize; j++) {
+            accumulate(g, recurrentWeights[j], h[j]);
+        }
+    }
+
+    /**
+     * Add {@code x} times a weight row to the gates.
+     */
+    private void accumulate(float[] g, float[] weights, float x) {
+        for (int i = 0; i < gateSize; i++) {
+            g[i] += weights[i] * x;
+        }
+    }
+
+    /**
+     * Use bounded-error approximations of sigmoid and tanh
+     * (see {@link Activations#fastTanh}).
+     */
+    public void setFastActivations(boolean fastActivations) {
+        this.fastActivations = fastActivations;
+    }
+
+    public boolean isFastActivations() {
+        return fastActivations;
     }
 
     /**
      * Set weights from flat array.
-     * NAM format: weights are stored as [4][hiddenSize][inputSize + hiddenSize]
+     * NAM format: weights are stored as [4 * hiddenSize][inputSize + hiddenSize]
      */
     public int setWeights(float[] flatWeights, int offset) {
         int pos = offset;
 
-        // Weights are stored transposed in NAM format
-        // NAM: [4 * hiddenSize][inputSize + hiddenSize]
-        for (int g = 0; g < hiddenSize * 4; g++) {
-            for (int i = 0; i < inputSize + hiddenSize; i++) {
-                weights[g][i] = flatWeights[pos++];
+        // Each row holds the input then the hidden weights of one gate
+        for (int g = 0; g < gateSize; g++) {
+            for (int k = 0; k < inputSize; k++) {
+                inputWeights[k][g] = flatWeights[pos++];
+            }
+            for (int j = 0; j < hiddenSize; j++) {
+                recurrentWeights[j][g] = flatWeights[pos++];
             }
         }
 
         return pos - offset;
     }
 
+    /**
+     * Get the memory the weights and biases take, in bytes (always float32).
+     */
+    public long getMemoryBytes() {
+        return ((long) (inputSize + hiddenSize) * gateSize + gateSize) * Float.BYTES;
+    }
+
     /**
      * Set biases from flat array.
      */
     public int setBiases(float[] flatBiases, int offset) {
-        System.arraycopy(flatBiases, offset, biases, 0, hiddenSize * 4);
-        return hiddenSize * 4;
+        System.arraycopy(flatBiases, offset, biases, 0, gateSize);
+        return gateSize;
     }
 
     /**
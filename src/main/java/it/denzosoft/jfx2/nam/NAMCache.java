@@ -0,0 +1,292 @@
+package it.denzosoft.jfx2.nam;
+
+import it.denzosoft.jfx2.nam.json.JsonParser;
+import it.denzosoft.jfx2.nam.json.JsonValue;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.*;
+import java.util.stream.Stream;
+
+/**
+ * Process-wide cache of compiled NAM models.
+ *
+ * <p>The first load of a .nam file parses its JSON and writes a compiled
+ * binary form to {@code ~/.jfx2/namcache}: a header holding the JSON without
+ * the weights, then the weights as flat little-endian floats. Later loads
+ * memory-map that file and read the weights in one bulk copy, without
+ * parsing. Files are named by the SHA-256 of the .nam content, so an edited
+ * model is compiled again; files unused for longest are deleted when the
+ * directory exceeds its budget. The disk cache is best effort: on any I/O
+ * error the model is simply parsed.</p>
+ *
+ * <p>Methods may be called from any thread except the audio thread.</p>
+ */
+public final class NAMCache {
+
+    private static final long DISK_BUDGET = 256L * 1024 * 1024;
+    private static final String CACHE_DIR = ".jfx2/namcache";
+    private static final String CACHE_EXTENSION = ".bin";
+
+    // File header: magic, version, JSON length, weight count
+    private static final int MAGIC = 0x4A4E414D;  // "JNAM"
+    private static final int VERSION = 1;
+    private static final int HEADER_BYTES = 16;
+
+    private static final NAMCache INSTANCE = new NAMCache();
+
+    private final Path directory;
+
+    // Content hash by path, size and modification time: a known file is not read again
+    private final Map<String, String> fileHashes = new HashMap<>();
+
+    private long hits;
+    private long misses;
+
+    private NAMCache() {
+        Path dir = Paths.get(System.getProperty("user.home"), CACHE_DIR);
+        try {
+            Files.createDirectories(dir);
+        } catch (IOException e) {
+            System.err.println("Warning: Could not create NAM cache directory: " + dir);
+            dir = null;
+        }
+        this.directory = dir;
+    }
+
+    /**
+     * Get the singleton instance.
+     */
+    public static NAMCache getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Get the compiled form of a .nam file, compiling it on first use.
+     *
+     * @throws IOException if the file cannot be read or is not valid JSON
+     */
+    public CompiledModel get(Path file) throws IOException {
+        String fileKey = file.toAbsolutePath() + "|" + Files.size(file) + "|" + Files.getLastModifiedTime(file).toMillis();
+        String hash;
+        synchronized (this) {
+            hash = fileHashes.get(fileKey);
+        }
+        if (hash == null) {
+            hash = hash(map(file));
+            synchronized (this) {
+                fileHashes.put(fileKey, hash);
+            }
+        }
+
+        CompiledModel compiled = read(hash);
+        if (compiled != null) {
+            synchronized (this) {
+                hits++;
+            }
+            return compiled;
+        }
+        synchronized (this) {
+            misses++;
+        }
+
+        compiled = compile(hash, map(file));
+        write(compiled);
+        return compiled;
+    }
+
+    /**
+     * Parse model JSON and split it into header and weights.
+     */
+    private static CompiledModel compile(String hash, ByteBuffer json) throws IOException {
+        JsonValue root;
+        try {
+            root = JsonParser.parse(json);
+        } catch (RuntimeException e) {
+            throw new IOException("Invalid NAM file: " + e.getMessage(), e);
+        }
+        if (!root.isObject()) {
+            throw new IOException("Invalid NAM file: not a JSON object");
+        }
+
+        JsonValue weightsValue = root.get("weights");
+        if (weightsValue == null || !weightsValue.isArray()) {
+            throw new IOException("Missing 'weights' in NAM file");
+        }
+        float[] weights = weightsValue.asFloatArray();
+
+        Map<String, JsonValue> header = new LinkedHashMap<>(root.asObject());
+        header.remove("weights");
+        return new CompiledModel(hash, JsonValue.ofObject(header), weights);
+    }
+
+    // ==================== DISK ====================
+
+    /**
+     * Read a compiled model through a memory-mapped view of its file.
+     */
+    private CompiledModel read(String hash) {
+        Path file = directory != null ? directory.resolve(hash + CACHE_EXTENSION) : null;
+        if (file == null || !Files.isRegularFile(file)) {
+            return null;
+        }
+
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            buffer.order(ByteOrder.LITTLE_ENDIAN);
+            if (buffer.remaining() < HEADER_BYTES || buffer.getInt() != MAGIC || buffer.getInt() != VERSION) {
+                throw new IOException("not a NAM cache file");
+            }
+            int jsonLength = buffer.getInt();
+            int weightCount = buffer.getInt();
+            long expected = HEADER_BYTES + align(jsonLength) + 4L * weightCount;
+            if (jsonLength < 0 || weightCount < 0 || expected != channel.size()) {
+                throw new IOException("truncated NAM cache file");
+            }
+
+            JsonValue header = JsonParser.parse(buffer.slice(HEADER_BYTES, jsonLength));
+
+            float[] weights = new float[weightCount];
+            buffer.position(HEADER_BYTES + align(jsonLength)).slice()
+                    .order(ByteOrder.LITTLE_ENDIAN).asFloatBuffer().get(weights);
+
+            Files.setLastModifiedTime(file, FileTime.fromMillis(System.currentTimeMillis()));
+            return new CompiledModel(hash, header, weights);
+        } catch (IOException | RuntimeException e) {
+            System.err.println("Discarding NAM cache file " + file.getFileName() + ": " + e.getMessage());
+            delete(file);
+            return null;
+        }
+    }
+
+    /**
+     * Write a compiled model to disk (to a temporary file first, so a reader
+     * never sees a partial file), then trim the directory to its budget.
+     */
+    private void write(CompiledModel compiled) {
+        if (directory == null) {
+            return;
+        }
+        byte[] json = compiled.header().toJson().getBytes(StandardCharsets.UTF_8);
+        float[] weights = compiled.weights();
+        ByteBuffer buffer = ByteBuffer.allocate(HEADER_BYTES + align(json.length) + 4 * weights.length)
+                .order(ByteOrder.LITTLE_ENDIAN);
+        buffer.putInt(MAGIC).putInt(VERSION).putInt(json.length).putInt(weights.length);
+        buffer.put(json);
+        buffer.position(HEADER_BYTES + align(json.length));
+        buffer.asFloatBuffer().put(weights);
+        buffer.rewind();
+
+        Path file = directory.resolve(compiled.hash() + CACHE_EXTENSION);
+        Path temp = directory.resolve(compiled.hash() + ".tmp");
+        try {
+            try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE,
+                    StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+                while (buffer.hasRemaining()) {
+                    channel.write(buffer);
+                }
+            }
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            System.err.println("Could not write NAM cache file " + file.getFileName() + ": " + e.getMessage());
+            delete(temp);
+            return;
+        }
+        trimDisk();
+    }
+
+    /**
+     * Round up to a multiple of 4, so the weights are float aligned.
+     */
+    private static int align(int length) {
+        return (length + 3) & ~3;
+    }
+
+    private void trimDisk() {
+        List<Path> files;
+        try (Stream<Path> stream = Files.list(directory)) {
+            files = stream.filter(f -> f.toString().endsWith(CACHE_EXTENSION)).toList();
+        } catch (IOException e) {
+            return;
+        }
+
+        long total = 0;
+        Map<Path, FileTime> used = new HashMap<>();
+        for (Path file : files) {
+            try {
+                total += Files.size(file);
+                used.put(file, Files.getLastModifiedTime(file));
+            } catch (IOException e) {
+                // Removed meanwhile
+            }
+        }
+        if (total <= DISK_BUDGET) {
+            return;
+        }
+
+        List<Path> oldestFirst = new ArrayList<>(used.keySet());
+        oldestFirst.sort(Comparator.comparing(used::get));
+        for (Path file : oldestFirst) {
+            if (total <= DISK_BUDGET) {
+                break;
+            }
+            try {
+                total -= Files.size(file);
+            } catch (IOException e) {
+                continue;
+            }
+            delete(file);
+        }
+    }
+
+    private static void delete(Path file) {
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            // Best effort
+        }
+    }
+
+    /**
+     * Map a file read-only; the mapping stays valid after the channel is closed.
+     */
+    private static MappedByteBuffer map(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            return channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+    }
+
+    private static String hash(ByteBuffer content) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            digest.update(content);
+            return HexFormat.of().formatHex(digest.digest());
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    // ==================== STATISTICS ====================
+
+    /**
+     * Loads served from the compiled cache.
+     */
+    public synchronized long getHits() {
+        return hits;
+    }
+
+    /**
+     * Loads that had to parse the .nam file.
+     */
+    public synchronized long getMisses() {
+        return misses;
+    }
+}
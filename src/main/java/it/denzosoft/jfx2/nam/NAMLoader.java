@@ -1,6 +1,6 @@
 package it.denzosoft.jfx2.nam;
 
-import it.denzosoft.jfx2.nam.json.JsonParser;
+import it.denzosoft.jfx2.jfr.FileLoadEvent;
 import it.denzosoft.jfx2.nam.json.JsonValue;
 
 import java.io.IOException;
@@ -10,7 +10,8 @@ import java.util.List;
 /**
  * Loader for NAM (Neural Amp Modeler) .nam files.
  *
- * <p>Supports WaveNet and LSTM architectures.</p>
+ * <p>Supports WaveNet and LSTM architectures. Files are read through
+ * {@link NAMCache}, so only the first load of a model parses its JSON.</p>
  */
 public class NAMLoader {
 
@@ -24,8 +25,44 @@ public class NAMLoader {
      * @throws IOException if loading fails
      */
     public static NAMModel load(Path path) throws IOException {
-        JsonValue root = JsonParser.parseFile(path);
-        return load(root);
+        return load(read(path));
+    }
+
+    /**
+     * Read a NAM file in compiled form, to create models from and get
+     * metadata from without reading the file again.
+     *
+     * @throws IOException if the file cannot be read or is not valid JSON
+     */
+    public static CompiledModel read(Path path) throws IOException {
+        FileLoadEvent event = FileLoadEvent.start(FileLoadEvent.NAM, path.toString());
+        boolean loaded = false;
+        try {
+            CompiledModel compiled = NAMCache.getInstance().get(path);
+            loaded = true;
+            return compiled;
+        } finally {
+            event.finish(path.toFile().length(), loaded);
+        }
+    }
+
+    /**
+     * Create a model from a compiled NAM file (float32 weights).
+     */
+    public static NAMModel load(CompiledModel compiled) throws IOException {
+        return create(compiled.header(), compiled.weights());
+    }
+
+    /**
+     * Load a NAM model from file with its weights converted to another precision.
+     *
+     * <p>Use {@link QuantizationReport#measure} against the float32 model
+     * to check that the result is accurate enough.</p>
+     */
+    public static NAMModel load(Path path, WeightPrecision precision) throws IOException {
+        NAMModel model = load(path);
+        model.quantize(precision);
+        return model;
     }
 
     /**
@@ -39,6 +76,19 @@ public class NAMLoader {
      * Load a NAM model from parsed JSON.
      */
     public static NAMModel load(JsonValue root) throws IOException {
+        // Get weights
+        JsonValue weightsValue = root.get("weights");
+        if (weightsValue == null || !weightsValue.isArray()) {
+            throw new IOException("Missing 'weights' in NAM file");
+        }
+
+        return create(root, weightsValue.asFloatArray());
+    }
+
+    /**
+     * Create a model from its JSON (the weights array is not used) and weights.
+     */
+    private static NAMModel create(JsonValue root, float[] weights) throws IOException {
         // Get architecture
         String architecture = root.getString("architecture");
         if (architecture == null) {
@@ -54,17 +104,6 @@ public class NAMLoader {
             throw new IOException("Missing 'config' in NAM file");
         }
 
-        // Get weights
-        List<JsonValue> weightsArray = root.getArray("weights");
-        if (weightsArray == null) {
-            throw new IOException("Missing 'weights' in NAM file");
-        }
-
-        float[] weights = new float[weightsArray.size()];
-        for (int i = 0; i < weightsArray.size(); i++) {
-            weights[i] = weightsArray.get(i).asFloat();
-        }
-
         // Create model based on architecture
         return switch (architecture.toLowerCase()) {
             case "wavenet" -> new WaveNet(config, weights, sampleRate);
@@ -77,14 +116,25 @@ public class NAMLoader {
      * Get metadata from a NAM file without loading the full model.
      */
     public static NAMMetadata getMetadata(Path path) throws IOException {
-        JsonValue root = JsonParser.parseFile(path);
-        return getMetadata(root);
+        return getMetadata(NAMCache.getInstance().get(path));
+    }
+
+    /**
+     * Get metadata from a compiled NAM file.
+     */
+    public static NAMMetadata getMetadata(CompiledModel compiled) {
+        return getMetadata(compiled.header(), compiled.weights().length);
     }
 
     /**
      * Get metadata from parsed JSON.
      */
     public static NAMMetadata getMetadata(JsonValue root) {
+        List<JsonValue> weightsArray = root.getArray("weights");
+        return getMetadata(root, weightsArray != null ? weightsArray.size() : 0);
+    }
+
+    private static NAMMetadata getMetadata(JsonValue root, int paramCount) {
         String version = root.getString("version", "unknown");
         String architecture = root.getString("architecture", "unknown");
         int sampleRate = root.getInt("sample_rate", DEFAULT_SAMPLE_RATE);
@@ -101,10 +151,6 @@ public class NAMLoader {
             description = metaObj.getString("description", null);
         }
 
-        // Get weight count
-        List<JsonValue> weightsArray = root.getArray("weights");
-        int paramCount = weightsArray != null ? weightsArray.size() : 0;
-
         return new NAMMetadata(version, architecture, sampleRate, name, author, description, paramCount);
     }
 
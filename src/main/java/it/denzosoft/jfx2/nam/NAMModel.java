@@ -19,7 +19,7 @@ public interface NAMModel {
      * Process a buffer of samples.
      *
      * @param input Input buffer
-     * @param output Output buffer
+     * @param output Output buffer (may be the input buffer)
      * @param numSamples Number of samples to process
      */
     void process(float[] input, float[] output, int numSamples);
@@ -44,6 +44,30 @@ public interface NAMModel {
      */
     String getArchitecture();
 
+    /**
+     * Get the number of weights the model was loaded with.
+     */
+    int getWeightCount();
+
+    /**
+     * Convert the weights to another precision, before processing.
+     * Only float32 weights can be converted. Architectures that would run
+     * slower on converted weights keep float32 (see {@link #getWeightPrecision()}).
+     *
+     * @throws IllegalStateException if the weights are already quantized
+     */
+    void quantize(WeightPrecision precision);
+
+    /**
+     * Get the precision the weights are stored at.
+     */
+    WeightPrecision getWeightPrecision();
+
+    /**
+     * Get the memory the weights and biases take, in bytes.
+     */
+    long getWeightBytes();
+
     /**
      * Check if the model has processed enough samples to produce valid output.
      */
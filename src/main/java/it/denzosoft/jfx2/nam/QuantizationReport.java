@@ -0,0 +1,101 @@
+package it.denzosoft.jfx2.nam;
+
+import java.util.Random;
+
+/**
+ * Accuracy of a quantized model against its float32 original.
+ *
+ * <p>Both models process the same test signal (decaying plucked notes over
+ * a little noise, at the model's sample rate); the difference of their
+ * outputs is the quantization noise.</p>
+ *
+ * @param precision      Precision of the quantized model
+ * @param snrDb          Output signal-to-noise ratio in dB (infinite if identical)
+ * @param floatBytes     Weight memory of the float32 model
+ * @param quantizedBytes Weight memory of the quantized model
+ */
+public record QuantizationReport(
+        WeightPrecision precision,
+        double snrDb,
+        long floatBytes,
+        long quantizedBytes
+) {
+
+    /**
+     * SNR from which the quantization noise is considered inaudible.
+     */
+    public static final double SAFE_SNR_DB = 40.0;
+
+    private static final double TEST_SECONDS = 0.5;
+
+    /**
+     * Check whether the quantized model is safe to use instead of the original.
+     */
+    public boolean isSafe() {
+        return snrDb >= SAFE_SNR_DB;
+    }
+
+    /**
+     * Compare a quantized model with its float32 original.
+     * Both models are reset before and after.
+     */
+    public static QuantizationReport measure(NAMModel reference, NAMModel quantized) {
+        if (reference.getWeightPrecision() != WeightPrecision.FLOAT32) {
+            throw new IllegalArgumentException("Reference model must be float32");
+        }
+
+        float[] signal = testSignal(reference.getSampleRate());
+        float[] expected = new float[signal.length];
+        float[] actual = new float[signal.length];
+        reference.reset();
+        quantized.reset();
+        reference.process(signal, expected, signal.length);
+        quantized.process(signal, actual, signal.length);
+        reference.reset();
+        quantized.reset();
+
+        double signalEnergy = 0;
+        double noiseEnergy = 0;
+        for (int i = 0; i < signal.length; i++) {
+            double error = actual[i] - expected[i];
+            signalEnergy += (double) expected[i] * expected[i];
+            noiseEnergy += error * error;
+        }
+        double snrDb = noiseEnergy > 0
+                ? 10 * Math.log10(signalEnergy / noiseEnergy)
+                : Double.POSITIVE_INFINITY;
+
+        return new QuantizationReport(quantized.getWeightPrecision(), snrDb,
+                reference.getWeightBytes(), quantized.getWeightBytes());
+    }
+
+    /**
+     * Four plucked guitar-like notes in a row, each a decaying sum
+     * of harmonics, over low-level noise.
+     */
+    private static float[] testSignal(int sampleRate) {
+        float[] signal = new float[(int) (sampleRate * TEST_SECONDS)];
+        double[] notes = {82.41, 110.0, 146.83, 196.0};  // E2, A2, D3, G3
+        int noteLength = signal.length / notes.length;
+        Random random = new Random(1);
+
+        for (int i = 0; i < signal.length; i++) {
+            int note = Math.min(i / noteLength, notes.length - 1);
+            double t = (double) (i - note * noteLength) / sampleRate;
+            double sample = 0;
+            for (int h = 1; h <= 8; h++) {
+                sample += Math.sin(2 * Math.PI * notes[note] * h * t) / h;
+            }
+            sample *= 0.4 * Math.exp(-4 * t);
+            signal[i] = (float) (sample + (random.nextFloat() - 0.5f) * 0.002f);
+        }
+        return signal;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%s weights: SNR %.1f dB (%s), %d -> %d KB",
+                precision.getDisplayName(), snrDb, isSafe() ? "safe" : "audible",
+                floatBytes / 1024, quantizedBytes / 1024);
+    }
+}
@@ -30,10 +30,20 @@ import java.util.List;
  *            │
  *         output (1 sample) * head_scale
  * </pre></p>
+ *
+ * <p>Buffers are processed in blocks of up to {@link #BLOCK_SIZE} samples,
+ * every stage running over the whole block before the next one, so the
+ * weights stay in cache and the inner loops run over contiguous time.</p>
  */
 public class WaveNet implements NAMModel {
 
+    /**
+     * Longest block processed at once; longer buffers are split.
+     */
+    static final int BLOCK_SIZE = 128;
+
     private final int sampleRate;
+    private final int weightCount;
 
     // Input head: 1 -> channels
     private final Conv1x1 inputHead;
@@ -46,30 +56,36 @@ public class WaveNet implements NAMModel {
     private final Conv1x1 headLayer2;  // headChannels -> 1
     private final String headActivation;
     private final float headScale;
+    private WeightPrecision precision = WeightPrecision.FLOAT32;
 
     // Configuration
     private final int channels;
     private final int headChannels;
     private final int receptiveField;
 
-    // Buffers
-    private final float[] inputExpanded;
-    private final float[] condition;
-    private final float[] skipAccum;
-    private final float[] layerOutput;
-    private final float[] headTemp;
+    // Buffers, one block long: [channels][BLOCK_SIZE]
+    private final float[][] condition;
+    private final float[][] skipAccum;
+    private final float[][] layerOutput;
+    private final float[][] headTemp;
+    private final float[][] outputBlock;
+
+    // Single-sample input and output
+    private final float[] sampleIn = new float[1];
+    private final float[] sampleOut = new float[1];
 
     // Prewarm counter
     private int samplesProcessed = 0;
 
     public WaveNet(JsonValue config, float[] weights, int sampleRate) {
         this.sampleRate = sampleRate;
+        this.weightCount = weights.length;
 
         // Parse config
         this.channels = config.getInt("channels", 16);
         this.headChannels = config.getInt("head_size", 8);
         this.headScale = config.getFloat("head_scale", 0.02f);
-        this.headActivation = config.getString("head_activation", "Tanh");
+        this.headActivation = config.getString("head_activation", "Tanh").toLowerCase();
 
         int kernelSize = config.getInt("kernel_size", 3);
         String activation = config.getString("activation", "Tanh");
@@ -130,11 +146,11 @@ public class WaveNet implements NAMModel {
         this.headLayer2 = new Conv1x1(headChannels, 1, true);
 
         // Allocate buffers
-        this.inputExpanded = new float[channels];
-        this.condition = new float[1];
-        this.skipAccum = new float[headChannels];
-        this.layerOutput = new float[channels];
-        this.headTemp = new float[headChannels];
+        this.condition = new float[1][BLOCK_SIZE];
+        this.skipAccum = new float[headChannels][BLOCK_SIZE];
+        this.layerOutput = new float[channels][BLOCK_SIZE];
+        this.headTemp = new float[headChannels][BLOCK_SIZE];
+        this.outputBlock = new float[1][BLOCK_SIZE];
 
         // Load weights
         loadWeights(weights);
@@ -172,43 +188,52 @@ public class WaveNet implements NAMModel {
 
     @Override
     public float process(float sample) {
+        sampleIn[0] = sample;
+        process(sampleIn, sampleOut, 1);
+        return sampleOut[0];
+    }
+
+    @Override
+    public void process(float[] input, float[] output, int numSamples) {
+        for (int offset = 0; offset < numSamples; offset += BLOCK_SIZE) {
+            int n = Math.min(BLOCK_SIZE, numSamples - offset);
+            processBlock(input, output, offset, n);
+        }
+    }
+
+    private void processBlock(float[] input, float[] output, int offset, int n) {
         // Condition is the raw input
-        condition[0] = sample;
+        System.arraycopy(input, offset, condition[0], 0, n);
 
         // Expand input through head
-        float[] inputSample = {sample};
-        inputHead.process(inputSample, inputExpanded);
+        inputHead.processBlock(condition, layerOutput, n);
 
         // Clear skip accumulator
-        java.util.Arrays.fill(skipAccum, 0);
+        for (float[] row : skipAccum) {
+            java.util.Arrays.fill(row, 0, n, 0);
+        }
 
         // Process through layer arrays
-        System.arraycopy(inputExpanded, 0, layerOutput, 0, channels);
         for (WaveNetLayerArray layerArray : layerArrays) {
-            layerArray.process(layerOutput, condition, skipAccum, layerOutput);
+            layerArray.processBlock(layerOutput, condition, skipAccum, layerOutput, n);
         }
 
         // Output head
         // First layer with activation
-        headLayer1.process(skipAccum, headTemp);
-        Activations.applyInPlace(headActivation, headTemp);
+        headLayer1.processBlock(skipAccum, headTemp, n);
+        for (float[] row : headTemp) {
+            Activations.applyInPlace(headActivation, row, n);
+        }
 
         // Second layer (linear)
-        float[] output = new float[1];
-        headLayer2.process(headTemp, output);
+        headLayer2.processBlock(headTemp, outputBlock, n);
 
         // Scale
-        float result = output[0] * headScale;
-
-        samplesProcessed++;
-        return result;
-    }
-
-    @Override
-    public void process(float[] input, float[] output, int numSamples) {
-        for (int i = 0; i < numSamples; i++) {
-            output[i] = process(input[i]);
+        for (int i = 0; i < n; i++) {
+            output[offset + i] = outputBlock[0][i] * headScale;
         }
+
+        samplesProcessed += n;
     }
 
     @Override
@@ -229,11 +254,47 @@ public class WaveNet implements NAMModel {
         return sampleRate;
     }
 
+    @Override
+    public int getWeightCount() {
+        return weightCount;
+    }
+
     @Override
     public String getArchitecture() {
         return "WaveNet";
     }
 
+    @Override
+    public void quantize(WeightPrecision precision) {
+        if (precision == this.precision) {
+            return;
+        }
+        if (this.precision != WeightPrecision.FLOAT32) {
+            throw new IllegalStateException("Weights already quantized to " + this.precision);
+        }
+        inputHead.quantize(precision);
+        for (WaveNetLayerArray layerArray : layerArrays) {
+            layerArray.quantize(precision);
+        }
+        headLayer1.quantize(precision);
+        headLayer2.quantize(precision);
+        this.precision = precision;
+    }
+
+    @Override
+    public WeightPrecision getWeightPrecision() {
+        return precision;
+    }
+
+    @Override
+    public long getWeightBytes() {
+        long bytes = inputHead.getMemoryBytes() + headLayer1.getMemoryBytes() + headLayer2.getMemoryBytes();
+        for (WaveNetLayerArray layerArray : layerArrays) {
+            bytes += layerArray.getMemoryBytes();
+        }
+        return bytes;
+    }
+
     @Override
     public boolean isPrewarmed() {
         return samplesProcessed >= receptiveField;
@@ -255,6 +316,8 @@ public class WaveNet implements NAMModel {
         sb.append("  Receptive field: ").append(receptiveField).append(" samples\n");
         sb.append("  Head scale: ").append(headScale).append("\n");
         sb.append("  Sample rate: ").append(sampleRate).append(" Hz\n");
+        sb.append("  Weights: ").append(precision.getDisplayName()).append(", ")
+                .append(getWeightBytes() / 1024).append(" KB\n");
         return sb.toString();
     }
 }
@@ -31,6 +31,8 @@ package it.denzosoft.jfx2.nam;
  *                              │
  *                          out (next layer)
  * </pre></p>
+ *
+ * <p>Signals are channel x time matrices, one array per channel row.</p>
  */
 public class WaveNetLayer {
 
@@ -49,17 +51,17 @@ public class WaveNetLayer {
     private final Conv1x1 residualConv;  // channels -> channels
     private final Conv1x1 skipConv;      // channels -> headChannels
 
-    // Temporary buffers
-    private final float[] convOut;
-    private final float[] condOut;
-    private final float[] activated;
+    // Temporary buffers, one block long
+    private final float[][] convOut;
+    private final float[][] activated;
 
     public WaveNetLayer(int channels, int kernelSize, int dilation, int conditionSize,
                         int headChannels, boolean gated, String activation) {
         this.channels = channels;
         this.headChannels = headChannels;
         this.gated = gated;
-        this.activation = activation;
+        // Lower case once, so applying it by name does not allocate
+        this.activation = activation.toLowerCase();
 
         int convOutChannels = gated ? channels * 2 : channels;
 
@@ -68,53 +70,53 @@ public class WaveNetLayer {
         this.residualConv = new Conv1x1(channels, channels, true);
         this.skipConv = new Conv1x1(channels, headChannels, true);
 
-        this.convOut = new float[convOutChannels];
-        this.condOut = new float[convOutChannels];
-        this.activated = new float[channels];
+        this.convOut = new float[convOutChannels][WaveNet.BLOCK_SIZE];
+        this.activated = new float[channels][WaveNet.BLOCK_SIZE];
     }
 
     /**
-     * Process a single sample.
+     * Process a block.
      *
-     * @param input Input [channels]
-     * @param condition Condition signal [conditionSize]
-     * @param skipOut Skip output to accumulate [headChannels]
-     * @param residualOut Residual output [channels]
+     * @param input Input rows [channels][n]
+     * @param condition Condition signal rows [conditionSize][n]
+     * @param skipOut Skip output rows to accumulate [headChannels][n]
+     * @param residualOut Residual output rows [channels][n] (must not be the input)
+     * @param n Block length, at most {@link WaveNet#BLOCK_SIZE}
      */
-    public void process(float[] input, float[] condition, float[] skipOut, float[] residualOut) {
-        // Dilated convolution
-        dilatedConv.process(input, convOut);
-
-        // Add condition
-        conditionConv.process(condition, condOut);
-        for (int i = 0; i < convOut.length; i++) {
-            convOut[i] += condOut[i];
-        }
+    public void processBlock(float[][] input, float[][] condition, float[][] skipOut, float[][] residualOut, int n) {
+        // Dilated convolution, plus condition
+        dilatedConv.processBlock(input, convOut, n);
+        conditionConv.processBlockAdd(condition, convOut, n);
 
         // Apply activation (gated or standard)
-        if (gated) {
-            // Split into two halves, apply tanh and sigmoid, multiply
-            for (int i = 0; i < channels; i++) {
-                float z1 = convOut[i];
-                float z2 = convOut[i + channels];
-                float a1 = Activations.tanh(z1);
-                float a2 = Activations.sigmoid(z2);
-                activated[i] = a1 * a2;
+        for (int c = 0; c < channels; c++) {
+            float[] z = convOut[c];
+            float[] a = activated[c];
+            if (gated) {
+                // Two halves: tanh of the first times sigmoid of the second
+                float[] gate = convOut[c + channels];
+                for (int t = 0; t < n; t++) {
+                    a[t] = Activations.tanh(z[t]) * Activations.sigmoid(gate[t]);
+                }
+            } else {
+                // Standard activation
+                System.arraycopy(z, 0, a, 0, n);
+                Activations.applyInPlace(activation, a, n);
             }
-        } else {
-            // Standard activation
-            System.arraycopy(convOut, 0, activated, 0, channels);
-            Activations.applyInPlace(activation, activated);
         }
 
         // Residual connection: 1x1 conv + input
-        residualConv.process(activated, residualOut);
-        for (int i = 0; i < channels; i++) {
-            residualOut[i] += input[i];
+        residualConv.processBlock(activated, residualOut, n);
+        for (int c = 0; c < channels; c++) {
+            float[] out = residualOut[c];
+            float[] in = input[c];
+            for (int t = 0; t < n; t++) {
+                out[t] += in[t];
+            }
         }
 
         // Skip connection: 1x1 conv, accumulate
-        skipConv.processAdd(activated, skipOut);
+        skipConv.processBlockAdd(activated, skipOut, n);
     }
 
     /**
@@ -151,6 +153,21 @@ public class WaveNetLayer {
         return pos - offset;
     }
 
+    /**
+     * Convert all convolution weights to another precision.
+     */
+    public void quantize(WeightPrecision precision) {
+        dilatedConv.quantize(precision);
+        conditionConv.quantize(precision);
+        residualConv.quantize(precision);
+        skipConv.quantize(precision);
+    }
+
+    public long getMemoryBytes() {
+        return dilatedConv.getMemoryBytes() + conditionConv.getMemoryBytes()
+                + residualConv.getMemoryBytes() + skipConv.getMemoryBytes();
+    }
+
     public void reset() {
         dilatedConv.reset();
     }
@@ -13,9 +13,9 @@ public class WaveNetLayerArray {
     private final int headChannels;
     private final int receptiveField;
 
-    // Temporary buffers
-    private final float[] residualBuffer;
-    private final float[] inputBuffer;
+    // Ping-pong buffers between layers, one block long
+    private final float[][] bufferA;
+    private final float[][] bufferB;
 
     public WaveNetLayerArray(int inputSize, int conditionSize, int headSize,
                              int channels, int kernelSize, int[] dilations,
@@ -39,31 +39,35 @@ public class WaveNetLayerArray {
         }
         this.receptiveField = rf + 1;
 
-        this.residualBuffer = new float[channels];
-        this.inputBuffer = new float[channels];
+        this.bufferA = new float[channels][WaveNet.BLOCK_SIZE];
+        this.bufferB = new float[channels][WaveNet.BLOCK_SIZE];
     }
 
     /**
-     * Process a single sample through all layers.
+     * Process a block through all layers.
      *
-     * @param input Input from previous layer array [channels]
-     * @param condition Condition signal [conditionSize]
-     * @param skipOut Accumulated skip outputs [headChannels]
-     * @param output Output for next layer array [channels]
+     * @param input Input rows from previous layer array [channels][n]
+     * @param condition Condition signal rows [conditionSize][n]
+     * @param skipOut Accumulated skip output rows [headChannels][n]
+     * @param output Output rows for next layer array [channels][n] (may be the input)
+     * @param n Block length, at most {@link WaveNet#BLOCK_SIZE}
      */
-    public void process(float[] input, float[] condition, float[] skipOut, float[] output) {
-        // Copy input to working buffer
-        System.arraycopy(input, 0, inputBuffer, 0, channels);
-
-        // Process through each layer
+    public void processBlock(float[][] input, float[][] condition, float[][] skipOut, float[][] output, int n) {
+        // Residual output of each layer is the input of the next
+        float[][] in = input;
+        float[][] out = bufferA;
         for (WaveNetLayer layer : layers) {
-            layer.process(inputBuffer, condition, skipOut, residualBuffer);
-            // Residual output becomes input to next layer
-            System.arraycopy(residualBuffer, 0, inputBuffer, 0, channels);
+            layer.processBlock(in, condition, skipOut, out, n);
+            in = out;
+            out = out == bufferA ? bufferB : bufferA;
         }
 
         // Final output
-        System.arraycopy(inputBuffer, 0, output, 0, channels);
+        if (in != output) {
+            for (int c = 0; c < channels; c++) {
+                System.arraycopy(in[c], 0, output[c], 0, n);
+            }
+        }
     }
 
     /**
@@ -78,6 +82,20 @@ public class WaveNetLayerArray {
         return pos - offset;
     }
 
+    public void quantize(WeightPrecision precision) {
+        for (WaveNetLayer layer : layers) {
+            layer.quantize(precision);
+        }
+    }
+
+    public long getMemoryBytes() {
+        long bytes = 0;
+        for (WaveNetLayer layer : layers) {
+            bytes += layer.getMemoryBytes();
+        }
+        return bytes;
+    }
+
     public void reset() {
         for (WaveNetLayer layer : layers) {
             layer.reset();
@@ -0,0 +1,122 @@
+package it.denzosoft.jfx2.nam;
+
+/**
+ * Weights of a convolution, {@code [rows][columns]} row-major with one row
+ * per output channel, stored at a {@link WeightPrecision}.
+ *
+ * <p>The block kernels read each weight once per block and apply it to a
+ * whole row of samples, so dequantizing in {@link #get} costs nothing
+ * measurable; what changes is the memory the weights take.</p>
+ */
+final class WeightMatrix {
+
+    private final int rows;
+    private final int columns;
+    private final WeightPrecision precision;
+
+    // Exactly one of these holds the weights
+    private final float[] floats;
+    private final short[] halves;
+    private final byte[] bytes;
+    // Int8: one scale per row
+    private final float[] scales;
+
+    /**
+     * Create a float32 matrix of zeros.
+     */
+    WeightMatrix(int rows, int columns) {
+        this(rows, columns, WeightPrecision.FLOAT32, new float[rows * columns], null, null, null);
+    }
+
+    private WeightMatrix(int rows, int columns, WeightPrecision precision,
+                         float[] floats, short[] halves, byte[] bytes, float[] scales) {
+        this.rows = rows;
+        this.columns = columns;
+        this.precision = precision;
+        this.floats = floats;
+        this.halves = halves;
+        this.bytes = bytes;
+        this.scales = scales;
+    }
+
+    /**
+     * Set the weights from a flat array.
+     */
+    void set(float[] flatWeights, int offset) {
+        if (floats == null) {
+            throw new IllegalStateException("Weights already quantized to " + precision);
+        }
+        System.arraycopy(flatWeights, offset, floats, 0, floats.length);
+    }
+
+    /**
+     * Get the weight of row {@code r}, column {@code c}.
+     */
+    float get(int r, int c) {
+        int i = r * columns + c;
+        if (floats != null) {
+            return floats[i];
+        } else if (halves != null) {
+            return Float.float16ToFloat(halves[i]);
+        } else {
+            return bytes[i] * scales[r];
+        }
+    }
+
+    /**
+     * Get a copy of this matrix at another precision (from float32 only).
+     */
+    WeightMatrix quantize(WeightPrecision target) {
+        if (target == precision) {
+            return this;
+        }
+        if (floats == null) {
+            throw new IllegalStateException("Weights already quantized to " + precision);
+        }
+        switch (target) {
+            case FLOAT16 -> {
+                short[] h = new short[floats.length];
+                for (int i = 0; i < h.length; i++) {
+                    h[i] = WeightPrecision.toHalf(floats[i]);
+                }
+                return new WeightMatrix(rows, columns, target, null, h, null, null);
+            }
+            case INT8 -> {
+                byte[] q = new byte[floats.length];
+                float[] s = new float[rows];
+                for (int r = 0; r < rows; r++) {
+                    float maxAbs = 0;
+                    for (int c = 0; c < columns; c++) {
+                        maxAbs = Math.max(maxAbs, Math.abs(floats[r * columns + c]));
+                    }
+                    s[r] = WeightPrecision.int8Scale(maxAbs);
+                    for (int c = 0; c < columns; c++) {
+                        q[r * columns + c] = WeightPrecision.toInt8(floats[r * columns + c], s[r]);
+                    }
+                }
+                return new WeightMatrix(rows, columns, target, null, null, q, s);
+            }
+            default -> throw new IllegalArgumentException("Cannot quantize to " + target);
+        }
+    }
+
+    int getRows() {
+        return rows;
+    }
+
+    int getColumns() {
+        return columns;
+    }
+
+    WeightPrecision getPrecision() {
+        return precision;
+    }
+
+    /**
+     * Get the memory the weights take, in bytes.
+     */
+    long getMemoryBytes() {
+        long bytesUsed = (long) rows * columns * precision.getBytesPerWeight();
+        return scales != null ? bytesUsed + (long) scales.length * Float.BYTES : bytesUsed;
+    }
+}
@@ -0,0 +1,54 @@
+package it.denzosoft.jfx2.nam;
+
+/**
+ * Storage precision of model weights.
+ *
+ * <p>Weights are loaded as float32 and may be quantized afterwards (see
+ * {@link NAMModel#quantize}). Int8 uses one symmetric scale per output
+ * channel, {@code max|w| / 127}. Biases always stay float32, and
+ * arithmetic is always float32: only the stored weights shrink. LSTM
+ * models keep float32 weights.</p>
+ */
+public enum WeightPrecision {
+
+    FLOAT32("Float32", 4),
+    FLOAT16("Float16", 2),
+    INT8("Int8", 1);
+
+    private final String displayName;
+    private final int bytesPerWeight;
+
+    WeightPrecision(String displayName, int bytesPerWeight) {
+        this.displayName = displayName;
+        this.bytesPerWeight = bytesPerWeight;
+    }
+
+    public String getDisplayName() {
+        return displayName;
+    }
+
+    public int getBytesPerWeight() {
+        return bytesPerWeight;
+    }
+
+    /**
+     * Convert a weight to float16 (the bits, as a short).
+     */
+    static short toHalf(float w) {
+        return Float.floatToFloat16(w);
+    }
+
+    /**
+     * Int8 scale for a channel whose largest weight magnitude is {@code maxAbs}.
+     */
+    static float int8Scale(float maxAbs) {
+        return maxAbs > 0 ? maxAbs / 127f : 1f;
+    }
+
+    /**
+     * Quantize a weight to int8 with the given channel scale.
+     */
+    static byte toInt8(float w, float scale) {
+        return (byte) Math.max(-127, Math.min(127, Math.round(w / scale)));
+    }
+}
@@ -1,22 +1,48 @@
 package it.denzosoft.jfx2.nam.json;
 
 import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
 import java.nio.charset.StandardCharsets;
-import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
 import java.util.*;
 
 /**
  * Minimal JSON parser for NAM model files.
  * No external dependencies.
+ *
+ * <p>Parses UTF-8 bytes in place; files are memory-mapped rather than read
+ * into a string. Arrays holding only numbers, such as model weights, are
+ * decoded straight into a {@code float[]} by a dedicated scanner instead of
+ * one {@link JsonValue} per element, so numbers inside them are read at
+ * float precision.</p>
  */
 public class JsonParser {
 
-    private final String json;
+    // Powers of ten exactly representable as doubles
+    private static final double[] POW10 = {
+            1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11,
+            1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22
+    };
+
+    // Significant digits that fit a long without overflow
+    private static final int MAX_DIGITS = 18;
+
+    private final ByteBuffer json;
+    private final int length;
     private int pos;
 
     public JsonParser(String json) {
-        this.json = json;
+        this(ByteBuffer.wrap(json.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    /**
+     * Create a parser over UTF-8 bytes, from the buffer's position to its limit.
+     */
+    public JsonParser(ByteBuffer json) {
+        this.json = json.slice();
+        this.length = this.json.limit();
         this.pos = 0;
     }
 
@@ -24,8 +50,9 @@ public class JsonParser {
      * Parse a JSON file.
      */
     public static JsonValue parseFile(Path path) throws IOException {
-        String content = Files.readString(path, StandardCharsets.UTF_8);
-        return parse(content);
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            return parse(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        }
     }
 
     /**
@@ -35,14 +62,21 @@ public class JsonParser {
         return new JsonParser(json).parseValue();
     }
 
+    /**
+     * Parse UTF-8 encoded JSON.
+     */
+    public static JsonValue parse(ByteBuffer json) {
+        return new JsonParser(json).parseValue();
+    }
+
     private JsonValue parseValue() {
         skipWhitespace();
 
-        if (pos >= json.length()) {
+        if (pos >= length) {
             throw new RuntimeException("Unexpected end of JSON");
         }
 
-        char c = json.charAt(pos);
+        char c = peek();
 
         if (c == '{') {
             return parseObject();
@@ -54,7 +88,7 @@ public class JsonParser {
             return parseBoolean();
         } else if (c == 'n') {
             return parseNull();
-        } else if (c == '-' || Character.isDigit(c)) {
+        } else if (c == '-' || isDigit(c)) {
             return JsonValue.ofNumber(parseNumber());
         } else {
             throw new RuntimeException("Unexpected character '" + c + "' at position " + pos);
@@ -106,11 +140,22 @@ public class JsonParser {
     }
 
     private JsonValue parseArray() {
-        List<JsonValue> list = new ArrayList<>();
-
+        int start = pos;
         expect('[');
         skipWhitespace();
 
+        char first = peek();
+        if (first == '-' || isDigit(first)) {
+            JsonValue numbers = parseNumberArray();
+            if (numbers != null) {
+                return numbers;
+            }
+            // Not only numbers: parse again element by element
+            pos = start + 1;
+        }
+
+        List<JsonValue> list = new ArrayList<>();
+
         if (peek() == ']') {
             pos++;
             return JsonValue.ofArray(list);
@@ -135,41 +180,189 @@ public class JsonParser {
         return JsonValue.ofArray(list);
     }
 
+    /**
+     * Parse the elements of an array into a growable {@code float[]}.
+     *
+     * @return The array, or null (position undefined) if an element is not a number
+     */
+    private JsonValue parseNumberArray() {
+        float[] values = new float[64];
+        int count = 0;
+
+        while (true) {
+            skipWhitespace();
+            char c = peek();
+            if (c != '-' && !isDigit(c)) {
+                return null;
+            }
+            if (count == values.length) {
+                values = Arrays.copyOf(values, count * 2);
+            }
+            values[count++] = parseFloat();
+            skipWhitespace();
+
+            c = peek();
+            if (c == ']') {
+                pos++;
+                break;
+            } else if (c == ',') {
+                pos++;
+            } else {
+                throw new RuntimeException("Expected ',' or ']' at position " + pos);
+            }
+        }
+
+        return JsonValue.ofFloatArray(count == values.length ? values : Arrays.copyOf(values, count));
+    }
+
+    /**
+     * Scan a number and round it to float.
+     *
+     * <p>Up to {@value #MAX_DIGITS} significant digits are collected into a
+     * long and scaled by an exact power of ten, which is within a couple of
+     * double ulps of the decimal value. Rounding that to float gives the same
+     * result as {@code (float) Double.parseDouble(s)} unless it lies next to
+     * a float rounding boundary; those rare numbers, and exponents out of the
+     * exact range, go through {@link Double#parseDouble}.</p>
+     */
+    private float parseFloat() {
+        int start = pos;
+        boolean negative = false;
+        if (peek() == '-') {
+            negative = true;
+            pos++;
+        }
+
+        long mantissa = 0;
+        int digits = 0;
+        int exponent = 0;
+        boolean anyDigit = false;
+
+        // Integer part
+        while (pos < length && isDigit(peek())) {
+            int d = json.get(pos++) - '0';
+            anyDigit = true;
+            if (digits < MAX_DIGITS) {
+                if (mantissa != 0 || d != 0) {
+                    mantissa = mantissa * 10 + d;
+                    digits++;
+                }
+            } else {
+                exponent++;
+            }
+        }
+        if (!anyDigit) {
+            throw new RuntimeException("Invalid number at position " + start);
+        }
+
+        // Fractional part
+        if (pos < length && peek() == '.') {
+            pos++;
+            if (!isDigit(peek())) {
+                throw new RuntimeException("Invalid number at position " + start);
+            }
+            while (pos < length && isDigit(peek())) {
+                int d = json.get(pos++) - '0';
+                if (digits < MAX_DIGITS) {
+                    mantissa = mantissa * 10 + d;
+                    if (mantissa != 0) {
+                        digits++;
+                    }
+                    exponent--;
+                }
+            }
+        }
+
+        // Exponent part
+        if (pos < length && (peek() == 'e' || peek() == 'E')) {
+            pos++;
+            boolean negativeExponent = false;
+            if (peek() == '+' || peek() == '-') {
+                negativeExponent = peek() == '-';
+                pos++;
+            }
+            if (!isDigit(peek())) {
+                throw new RuntimeException("Invalid number at position " + start);
+            }
+            int value = 0;
+            while (pos < length && isDigit(peek())) {
+                value = Math.min(value * 10 + (json.get(pos++) - '0'), 100_000);
+            }
+            exponent += negativeExponent ? -value : value;
+        }
+
+        if (mantissa == 0) {
+            return negative ? -0.0f : 0.0f;
+        }
+        if (exponent >= -22 && exponent <= 22) {
+            double value = exponent >= 0 ? mantissa * POW10[exponent] : mantissa / POW10[-exponent];
+            // Low 29 bits of the double: the part float rounding discards,
+            // halfway at 1 << 28
+            long discarded = Double.doubleToRawLongBits(value) & ((1L << 29) - 1);
+            if (Math.abs(discarded - (1L << 28)) > 16
+                    && value >= 2 * Float.MIN_NORMAL && value <= Float.MAX_VALUE) {
+                return (float) (negative ? -value : value);
+            }
+        }
+        return (float) Double.parseDouble(substring(start, pos));
+    }
+
     private String parseString() {
         expect('"');
-        StringBuilder sb = new StringBuilder();
 
-        while (pos < json.length()) {
-            char c = json.charAt(pos++);
+        // Plain strings are decoded in one go
+        int start = pos;
+        while (pos < length) {
+            byte b = json.get(pos);
+            if (b == '"') {
+                String s = substring(start, pos);
+                pos++;
+                return s;
+            } else if (b == '\\') {
+                break;
+            }
+            pos++;
+        }
+
+        StringBuilder sb = new StringBuilder(substring(start, pos));
+        while (pos < length) {
+            int runStart = pos;
+            while (pos < length && json.get(pos) != '"' && json.get(pos) != '\\') {
+                pos++;
+            }
+            sb.append(substring(runStart, pos));
+            if (pos >= length) {
+                break;
+            }
 
+            char c = (char) json.get(pos++);
             if (c == '"') {
                 return sb.toString();
-            } else if (c == '\\') {
-                if (pos >= json.length()) {
-                    throw new RuntimeException("Unexpected end of string");
-                }
-                char escaped = json.charAt(pos++);
-                switch (escaped) {
-                    case '"' -> sb.append('"');
-                    case '\\' -> sb.append('\\');
-                    case '/' -> sb.append('/');
-                    case 'b' -> sb.append('\b');
-                    case 'f' -> sb.append('\f');
-                    case 'n' -> sb.append('\n');
-                    case 'r' -> sb.append('\r');
-                    case 't' -> sb.append('\t');
-                    case 'u' -> {
-                        if (pos + 4 > json.length()) {
-                            throw new RuntimeException("Invalid unicode escape");
-                        }
-                        String hex = json.substring(pos, pos + 4);
-                        sb.append((char) Integer.parseInt(hex, 16));
-                        pos += 4;
+            }
+
+            // Escape sequence
+            if (pos >= length) {
+                throw new RuntimeException("Unexpected end of string");
+            }
+            char escaped = (char) json.get(pos++);
+            switch (escaped) {
+                case '"' -> sb.append('"');
+                case '\\' -> sb.append('\\');
+                case '/' -> sb.append('/');
+                case 'b' -> sb.append('\b');
+                case 'f' -> sb.append('\f');
+                case 'n' -> sb.append('\n');
+                case 'r' -> sb.append('\r');
+                case 't' -> sb.append('\t');
+                case 'u' -> {
+                    if (pos + 4 > length) {
+                        throw new RuntimeException("Invalid unicode escape");
                     }
-                    default -> throw new RuntimeException("Invalid escape sequence: \\" + escaped);
+                    String hex = substring(pos, pos + 4);
+                    sb.append((char) Integer.parseInt(hex, 16));
+                    pos += 4;
                 }
-            } else {
-                sb.append(c);
+                default -> throw new RuntimeException("Invalid escape sequence: \\" + escaped);
             }
         }
 
@@ -187,8 +380,8 @@ public class JsonParser {
         // Integer part
         if (peek() == '0') {
             pos++;
-        } else if (Character.isDigit(peek())) {
-            while (pos < json.length() && Character.isDigit(peek())) {
+        } else if (isDigit(peek())) {
+            while (pos < length && isDigit(peek())) {
                 pos++;
             }
         } else {
@@ -196,39 +389,39 @@ public class JsonParser {
         }
 
         // Fractional part
-        if (pos < json.length() && peek() == '.') {
+        if (pos < length && peek() == '.') {
             pos++;
-            if (!Character.isDigit(peek())) {
+            if (!isDigit(peek())) {
                 throw new RuntimeException("Invalid number at position " + start);
             }
-            while (pos < json.length() && Character.isDigit(peek())) {
+            while (pos < length && isDigit(peek())) {
                 pos++;
             }
         }
 
         // Exponent part
-        if (pos < json.length() && (peek() == 'e' || peek() == 'E')) {
+        if (pos < length && (peek() == 'e' || peek() == 'E')) {
             pos++;
             if (peek() == '+' || peek() == '-') {
                 pos++;
             }
-            if (!Character.isDigit(peek())) {
+            if (!isDigit(peek())) {
                 throw new RuntimeException("Invalid number at position " + start);
             }
-            while (pos < json.length() && Character.isDigit(peek())) {
+            while (pos < length && isDigit(peek())) {
                 pos++;
             }
         }
 
-        String numStr = json.substring(start, pos);
+        String numStr = substring(start, pos);
         return Double.parseDouble(numStr);
     }
 
     private JsonValue parseBoolean() {
-        if (json.startsWith("true", pos)) {
+        if (startsWith("true")) {
             pos += 4;
             return JsonValue.ofBoolean(true);
-        } else if (json.startsWith("false", pos)) {
+        } else if (startsWith("false")) {
             pos += 5;
             return JsonValue.ofBoolean(false);
         } else {
@@ -237,7 +430,7 @@ public class JsonParser {
     }
 
     private JsonValue parseNull() {
-        if (json.startsWith("null", pos)) {
+        if (startsWith("null")) {
             pos += 4;
             return JsonValue.ofNull();
         } else {
@@ -246,8 +439,8 @@ public class JsonParser {
     }
 
     private void skipWhitespace() {
-        while (pos < json.length()) {
-            char c = json.charAt(pos);
+        while (pos < length) {
+            byte c = json.get(pos);
             if (c == ' ' || c == '\t' || c == '\n' || c == '\r') {
                 pos++;
             } else {
@@ -257,16 +450,41 @@ public class JsonParser {
     }
 
     private char peek() {
-        if (pos >= json.length()) {
+        if (pos >= length) {
             return '\0';
         }
-        return json.charAt(pos);
+        return (char) (json.get(pos) & 0xFF);
     }
 
     private void expect(char expected) {
-        if (pos >= json.length() || json.charAt(pos) != expected) {
+        if (pos >= length || json.get(pos) != expected) {
             throw new RuntimeException("Expected '" + expected + "' at position " + pos);
         }
         pos++;
     }
+
+    private boolean startsWith(String word) {
+        if (pos + word.length() > length) {
+            return false;
+        }
+        for (int i = 0; i < word.length(); i++) {
+            if (json.get(pos + i) != word.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Decode the UTF-8 bytes in [start, end).
+     */
+    private String substring(int start, int end) {
+        byte[] bytes = new byte[end - start];
+        json.get(start, bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static boolean isDigit(char c) {
+        return c >= '0' && c <= '9';
+    }
 }
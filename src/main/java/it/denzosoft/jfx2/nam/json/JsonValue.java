@@ -5,6 +5,9 @@ import java.util.*;
 /**
  * Represents a JSON value (object, array, string, number, boolean, or null).
  * Minimal implementation for parsing NAM model files.
+ *
+ * <p>An array of numbers may be backed by a {@code float[]} (see
+ * {@link #ofFloatArray}); it still reads as a list of number values.</p>
  */
 public class JsonValue {
 
@@ -29,6 +32,13 @@ public class JsonValue {
         return new JsonValue(Type.ARRAY, new ArrayList<>(list));
     }
 
+    /**
+     * Array of numbers backed by the given array, which is not copied.
+     */
+    public static JsonValue ofFloatArray(float[] values) {
+        return new JsonValue(Type.ARRAY, values);
+    }
+
     public static JsonValue ofString(String s) {
         return new JsonValue(Type.STRING, s);
     }
@@ -64,6 +74,20 @@ public class JsonValue {
     @SuppressWarnings("unchecked")
     public List<JsonValue> asArray() {
         if (type != Type.ARRAY) throw new IllegalStateException("Not an array");
+        if (value instanceof float[] floats) {
+            // Elements are boxed on access
+            return new AbstractList<>() {
+                @Override
+                public JsonValue get(int index) {
+                    return ofNumber(floats[index]);
+                }
+
+                @Override
+                public int size() {
+                    return floats.length;
+                }
+            };
+        }
         return (List<JsonValue>) value;
     }
 
@@ -139,6 +163,9 @@ public class JsonValue {
 
     // Convert array of numbers to float array
     public float[] asFloatArray() {
+        if (value instanceof float[] floats) {
+            return floats.clone();
+        }
         List<JsonValue> arr = asArray();
         float[] result = new float[arr.size()];
         for (int i = 0; i < arr.size(); i++) {
@@ -149,6 +176,13 @@ public class JsonValue {
 
     // Convert array of numbers to int array
     public int[] asIntArray() {
+        if (value instanceof float[] floats) {
+            int[] result = new int[floats.length];
+            for (int i = 0; i < floats.length; i++) {
+                result[i] = (int) floats[i];
+            }
+            return result;
+        }
         List<JsonValue> arr = asArray();
         int[] result = new int[arr.size()];
         for (int i = 0; i < arr.size(); i++) {
@@ -157,11 +191,88 @@ public class JsonValue {
         return result;
     }
 
+    /**
+     * Serialize to JSON text (parsed back to an equal value by {@link JsonParser}).
+     */
+    public String toJson() {
+        StringBuilder sb = new StringBuilder();
+        appendJson(sb);
+        return sb.toString();
+    }
+
+    private void appendJson(StringBuilder sb) {
+        switch (type) {
+            case OBJECT -> {
+                sb.append('{');
+                boolean first = true;
+                for (Map.Entry<String, JsonValue> entry : asObject().entrySet()) {
+                    if (!first) sb.append(',');
+                    first = false;
+                    appendString(sb, entry.getKey());
+                    sb.append(':');
+                    entry.getValue().appendJson(sb);
+                }
+                sb.append('}');
+            }
+            case ARRAY -> {
+                sb.append('[');
+                if (value instanceof float[] floats) {
+                    for (int i = 0; i < floats.length; i++) {
+                        if (i > 0) sb.append(',');
+                        // Widened, so the text parses back to the same float
+                        appendNumber(sb, floats[i]);
+                    }
+                } else {
+                    List<JsonValue> list = asArray();
+                    for (int i = 0; i < list.size(); i++) {
+                        if (i > 0) sb.append(',');
+                        list.get(i).appendJson(sb);
+                    }
+                }
+                sb.append(']');
+            }
+            case STRING -> appendString(sb, (String) value);
+            case NUMBER -> appendNumber(sb, (Double) value);
+            case BOOLEAN -> sb.append(value);
+            case NULL -> sb.append("null");
+        }
+    }
+
+    private static void appendNumber(StringBuilder sb, double d) {
+        if (d == Math.rint(d) && Math.abs(d) < 1e15) {
+            sb.append((long) d);
+        } else {
+            sb.append(d);
+        }
+    }
+
+    private static void appendString(StringBuilder sb, String s) {
+        sb.append('"');
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            switch (c) {
+                case '"' -> sb.append("\\\"");
+                case '\\' -> sb.append("\\\\");
+                case '\n' -> sb.append("\\n");
+                case '\r' -> sb.append("\\r");
+                case '\t' -> sb.append("\\t");
+                default -> {
+                    if (c < 0x20) {
+                        sb.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        sb.append(c);
+                    }
+                }
+            }
+        }
+        sb.append('"');
+    }
+
     @Override
     public String toString() {
         return switch (type) {
             case OBJECT -> asObject().toString();
-            case ARRAY -> asArray().toString();
+            case ARRAY -> value instanceof float[] floats ? Arrays.toString(floats) : asArray().toString();
             case STRING -> "\"" + value + "\"";
             case NUMBER, BOOLEAN -> String.valueOf(value);
             case NULL -> "null";
@@ -232,59 +232,65 @@ public class TemplateManager {
      * @param controller Canvas controller for restoring positions (can be null)
      */
     public void applyToGraph(Rig rig, SignalGraph graph, CanvasController controller) {
-        // Clear existing graph
-        graph.clear();
+        // Build the whole rig before the audio thread sees it
+        graph.beginUpdate();
+        try {
+            // Clear existing graph
+            graph.clear();
 
-        // Create nodes
-        Map<String, ProcessingNode> nodeMap = new HashMap<>();
+            // Create nodes
+            Map<String, ProcessingNode> nodeMap = new HashMap<>();
 
-        // Note: We no longer create default input/output nodes
-        // The rig should contain AudioInputEffect and AudioOutputEffect nodes
+            // Note: We no longer create default input/output nodes
+            // The rig should contain AudioInputEffect and AudioOutputEffect nodes
 
-        for (Rig.NodeDefinition nodeDef : rig.getNodes()) {
-            ProcessingNode node = createNode(nodeDef);
-            if (node != null) {
-                graph.addNode(node);
-                nodeMap.put(nodeDef.id(), node);
+            for (Rig.NodeDefinition nodeDef : rig.getNodes()) {
+                ProcessingNode node = createNode(nodeDef);
+                if (node != null) {
+                    graph.addNode(node);
+                    nodeMap.put(nodeDef.id(), node);
 
-                // Restore position
-                if (controller != null) {
-                    controller.setNodePosition(nodeDef.id(), nodeDef.x(), nodeDef.y());
+                    // Restore position
+                    if (controller != null) {
+                        controller.setNodePosition(nodeDef.id(), nodeDef.x(), nodeDef.y());
+                    }
                 }
             }
-        }
 
-        // Create connections
-        for (Rig.ConnectionDefinition connDef : rig.getConnections()) {
-            ProcessingNode sourceNode = nodeMap.get(connDef.sourceNodeId());
-            ProcessingNode targetNode = nodeMap.get(connDef.targetNodeId());
+            // Create connections
+            for (Rig.ConnectionDefinition connDef : rig.getConnections()) {
+                ProcessingNode sourceNode = nodeMap.get(connDef.sourceNodeId());
+                ProcessingNode targetNode = nodeMap.get(connDef.targetNodeId());
 
-            if (sourceNode == null || targetNode == null) {
-                System.err.println("Warning: Could not find nodes for connection: " +
-                        connDef.sourceNodeId() + " -> " + connDef.targetNodeId());
-                continue;
-            }
+                if (sourceNode == null || targetNode == null) {
+                    System.err.println("Warning: Could not find nodes for connection: " +
+                            connDef.sourceNodeId() + " -> " + connDef.targetNodeId());
+                    continue;
+                }
 
-            // Find ports
-            Port sourcePort = findPort(sourceNode.getOutputPorts(), connDef.sourcePortId());
-            Port targetPort = findPort(targetNode.getInputPorts(), connDef.targetPortId());
+                // Find ports
+                Port sourcePort = findPort(sourceNode.getOutputPorts(), connDef.sourcePortId());
+                Port targetPort = findPort(targetNode.getInputPorts(), connDef.targetPortId());
 
-            if (sourcePort == null) {
-                // Try default output port
-                sourcePort = getDefaultOutputPort(sourceNode);
-            }
-            if (targetPort == null) {
-                // Try default input port
-                targetPort = getDefaultInputPort(targetNode);
-            }
+                if (sourcePort == null) {
+                    // Try default output port
+                    sourcePort = getDefaultOutputPort(sourceNode);
+                }
+                if (targetPort == null) {
+                    // Try default input port
+                    targetPort = getDefaultInputPort(targetNode);
+                }
 
-            if (sourcePort != null && targetPort != null) {
-                try {
-                    graph.connect(sourcePort, targetPort);
-                } catch (Exception e) {
-                    System.err.println("Warning: Could not create connection: " + e.getMessage());
+                if (sourcePort != null && targetPort != null) {
+                    try {
+                        graph.connect(sourcePort, targetPort);
+                    } catch (Exception e) {
+                        System.err.println("Warning: Could not create connection: " + e.getMessage());
+                    }
                 }
             }
+        } finally {
+            graph.endUpdate();
         }
     }
 
@@ -1,5 +1,8 @@
 package it.denzosoft.jfx2.recording;
 
+import it.denzosoft.jfx2.jmx.AudioRecorderMonitor;
+import it.denzosoft.jfx2.jmx.JmxRegistry;
+
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
@@ -55,12 +58,14 @@ public class AudioRecorder {
     private Path currentFile;
 
     // Buffer for background writing
+    private static final int QUEUE_CAPACITY = 1000;
     private final BlockingQueue<float[]> writeQueue;
     private Thread writerThread;
     private volatile boolean writerRunning;
 
     // Statistics
     private long totalSamplesRecorded;
+    private volatile long droppedBlocks;
     private long recordingStartTime;
     private final List<WavWriter.Marker> sessionMarkers;
 
@@ -71,7 +76,7 @@ public class AudioRecorder {
 
     public AudioRecorder() {
         this.state = new AtomicReference<>(State.IDLE);
-        this.writeQueue = new LinkedBlockingQueue<>(1000);  // Buffer up to 1000 blocks
+        this.writeQueue = new LinkedBlockingQueue<>(QUEUE_CAPACITY);
         this.sessionMarkers = new ArrayList<>();
         this.bitDepth = WavWriter.BitDepth.BIT_16;
         this.stereo = false;
@@ -127,10 +132,12 @@ public class AudioRecorder {
 
         // Update state
         totalSamplesRecorded = 0;
+        droppedBlocks = 0;
         recordingStartTime = System.currentTimeMillis();
         sessionMarkers.clear();
 
         state.set(State.RECORDING);
+        JmxRegistry.register("AudioRecorder", new AudioRecorderMonitor(this));
 
         return currentFile;
     }
@@ -219,6 +226,7 @@ public class AudioRecorder {
 
         if (!writeQueue.offer(copy)) {
             // Queue full - drop samples (shouldn't happen with proper sizing)
+            droppedBlocks++;
             System.err.println("AudioRecorder: Write queue overflow, dropping samples");
         }
 
@@ -245,6 +253,7 @@ public class AudioRecorder {
         }
 
         if (!writeQueue.offer(interleaved)) {
+            droppedBlocks++;
             System.err.println("AudioRecorder: Write queue overflow, dropping samples");
         }
 
@@ -339,6 +348,27 @@ public class AudioRecorder {
 
     // Getters and setters
 
+    /**
+     * Get the number of blocks waiting for the writer thread.
+     */
+    public int getQueueDepth() {
+        return writeQueue.size();
+    }
+
+    /**
+     * Get the maximum number of blocks the write queue holds.
+     */
+    public int getQueueCapacity() {
+        return QUEUE_CAPACITY;
+    }
+
+    /**
+     * Get the number of blocks dropped in this recording because the write queue was full.
+     */
+    public long getDroppedBlocks() {
+        return droppedBlocks;
+    }
+
     /**
      * Get the current state.
      */
@@ -0,0 +1,156 @@
+package it.denzosoft.jfx2.tools;
+
+import it.denzosoft.jfx2.dsp.FFT;
+
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Benchmark of the shared real {@link FFT} against the radix-2 complex FFT
+ * the effects used before (bit reversal by counting, tabulated twiddles,
+ * separate real and imaginary arrays).
+ *
+ * <p>Each size is measured as a forward plus inverse transform of a real
+ * signal, the round trip of a convolution or spectral effect. Usage:</p>
+ * <pre>
+ *   java it.denzosoft.jfx2.tools.FFTBenchmark [minSize] [maxSize]
+ * </pre>
+ */
+public class FFTBenchmark {
+
+    private static final long TARGET_NANOS = 200_000_000L;
+
+    public static void main(String[] args) {
+        int minSize = args.length > 0 ? Integer.parseInt(args[0]) : 64;
+        int maxSize = args.length > 1 ? Integer.parseInt(args[1]) : 65536;
+
+        System.out.println("FFT round trip (forward + inverse), real input");
+        System.out.printf("%8s %14s %14s %9s %12s%n", "size", "radix-2 (us)", "shared (us)", "speedup", "max error");
+
+        Random random = new Random(42);
+        for (int n = FFT.sizeFor(minSize); n <= maxSize; n *= 2) {
+            int size = n;
+            float[] signal = new float[size];
+            for (int i = 0; i < size; i++) {
+                signal[i] = random.nextFloat() * 2 - 1;
+            }
+
+            Radix2 reference = new Radix2(size);
+            FFT fft = FFT.forSize(size);
+            float[] real = new float[size];
+            float[] imag = new float[size];
+            float[] data = new float[size];
+
+            double referenceNanos = measure(() -> {
+                System.arraycopy(signal, 0, real, 0, size);
+                Arrays.fill(imag, 0);
+                reference.transform(real, imag, false);
+                reference.transform(real, imag, true);
+            });
+            double sharedNanos = measure(() -> {
+                System.arraycopy(signal, 0, data, 0, size);
+                fft.realForward(data);
+                fft.realInverse(data);
+            });
+
+            float maxError = 0;
+            for (int i = 0; i < size; i++) {
+                maxError = Math.max(maxError, Math.abs(data[i] - signal[i]));
+            }
+            System.out.printf("%8d %14.2f %14.2f %8.2fx %12.2e%n", size,
+                    referenceNanos / 1000.0, sharedNanos / 1000.0, referenceNanos / sharedNanos, maxError);
+        }
+    }
+
+    /**
+     * Run a task until the JIT has settled, then return its mean duration.
+     */
+    private static double measure(Runnable task) {
+        // Warm-up
+        long warmupEnd = System.nanoTime() + TARGET_NANOS / 2;
+        while (System.nanoTime() < warmupEnd) {
+            task.run();
+        }
+
+        long runs = 0;
+        long start = System.nanoTime();
+        long elapsed;
+        do {
+            for (int i = 0; i < 16; i++) {
+                task.run();
+            }
+            runs += 16;
+            elapsed = System.nanoTime() - start;
+        } while (elapsed < TARGET_NANOS);
+        return (double) elapsed / runs;
+    }
+
+    /**
+     * The former per-effect FFT, kept as the baseline.
+     */
+    private static final class Radix2 {
+        private final int n;
+        private final float[] twiddleReal;
+        private final float[] twiddleImag;
+
+        Radix2(int n) {
+            this.n = n;
+            this.twiddleReal = new float[n / 2];
+            this.twiddleImag = new float[n / 2];
+            for (int i = 0; i < n / 2; i++) {
+                double angle = -2.0 * Math.PI * i / n;
+                twiddleReal[i] = (float) Math.cos(angle);
+                twiddleImag[i] = (float) Math.sin(angle);
+            }
+        }
+
+        void transform(float[] real, float[] imag, boolean inverse) {
+            int halfN = n / 2;
+
+            // Bit-reversal permutation
+            for (int i = 0, j = 0; i < n; i++) {
+                if (j > i) {
+                    float tempR = real[i], tempI = imag[i];
+                    real[i] = real[j];
+                    imag[i] = imag[j];
+                    real[j] = tempR;
+                    imag[j] = tempI;
+                }
+                int m = halfN;
+                while (m >= 1 && j >= m) {
+                    j -= m;
+                    m >>= 1;
+                }
+                j += m;
+            }
+
+            // Cooley-Tukey FFT
+            for (int mmax = 1; mmax < n; mmax <<= 1) {
+                int step = mmax << 1;
+                int twiddleStep = n / step;
+                for (int m = 0; m < mmax; m++) {
+                    int twiddleIdx = m * twiddleStep;
+                    float wr = twiddleReal[twiddleIdx];
+                    float wi = inverse ? -twiddleImag[twiddleIdx] : twiddleImag[twiddleIdx];
+                    for (int i = m; i < n; i += step) {
+                        int j = i + mmax;
+                        float tr = wr * real[j] - wi * imag[j];
+                        float ti = wr * imag[j] + wi * real[j];
+                        real[j] = real[i] - tr;
+                        imag[j] = imag[i] - ti;
+                        real[i] += tr;
+                        imag[i] += ti;
+                    }
+                }
+            }
+
+            if (inverse) {
+                float scale = 1.0f / n;
+                for (int i = 0; i < n; i++) {
+                    real[i] *= scale;
+                    imag[i] *= scale;
+                }
+            }
+        }
+    }
+}
@@ -1,5 +1,7 @@
 package it.denzosoft.jfx2.tools;
 
+import it.denzosoft.jfx2.dsp.FFT;
+
 import javax.sound.sampled.*;
 import java.io.*;
 import java.nio.ByteBuffer;
@@ -323,59 +325,64 @@ public class IRGenerator {
     private float[] wienerDeconvolution(float[] dry, float[] wet, int length, int irLength, float regularization) {
         int fftSize = nextPowerOf2(length + irLength);
 
-        float[] dryReal = new float[fftSize];
-        float[] dryImag = new float[fftSize];
-        float[] wetReal = new float[fftSize];
-        float[] wetImag = new float[fftSize];
+        FFT fft = FFT.forSize(fftSize);
+        float[] drySpectrum = new float[fftSize];
+        float[] wetSpectrum = new float[fftSize];
 
         // Copy with zero-padding
-        System.arraycopy(dry, 0, dryReal, 0, Math.min(length, fftSize));
-        System.arraycopy(wet, 0, wetReal, 0, Math.min(length, fftSize));
+        System.arraycopy(dry, 0, drySpectrum, 0, Math.min(length, fftSize));
+        System.arraycopy(wet, 0, wetSpectrum, 0, Math.min(length, fftSize));
 
         // Apply window to reduce spectral leakage
-        applyBlackmanWindow(dryReal, length);
-        applyBlackmanWindow(wetReal, length);
-
-        float[] twiddleReal = new float[fftSize / 2];
-        float[] twiddleImag = new float[fftSize / 2];
-        computeTwiddleFactors(twiddleReal, twiddleImag, fftSize);
+        applyBlackmanWindow(drySpectrum, length);
+        applyBlackmanWindow(wetSpectrum, length);
 
         // Forward FFT
-        fft(dryReal, dryImag, fftSize, twiddleReal, twiddleImag, false);
-        fft(wetReal, wetImag, fftSize, twiddleReal, twiddleImag, false);
+        fft.realForward(drySpectrum);
+        fft.realForward(wetSpectrum);
 
         // Estimate noise floor for adaptive regularization
-        float noiseFloor = estimateNoiseFloor(dryReal, dryImag, fftSize);
+        float noiseFloor = estimateNoiseFloor(drySpectrum, fftSize);
         float adaptiveReg = Math.max(regularization, noiseFloor * noiseFloor);
 
         // Wiener deconvolution: H = conj(X) * Y / (|X|² + λ)
-        float[] irReal = new float[fftSize];
-        float[] irImag = new float[fftSize];
-
-        for (int i = 0; i < fftSize; i++) {
-            float xr = dryReal[i];
-            float xi = dryImag[i];
-            float yr = wetReal[i];
-            float yi = wetImag[i];
-
-            float powerX = xr * xr + xi * xi;
-            float denom = powerX + adaptiveReg;
-
-            // conj(X) * Y = (xr - j*xi) * (yr + j*yi) = (xr*yr + xi*yi) + j(xr*yi - xi*yr)
-            irReal[i] = (xr * yr + xi * yi) / denom;
-            irImag[i] = (xr * yi - xi * yr) / denom;
-        }
+        float[] irSpectrum = wienerDivide(drySpectrum, wetSpectrum, fftSize, adaptiveReg);
 
         // Inverse FFT
-        fft(irReal, irImag, fftSize, twiddleReal, twiddleImag, true);
+        fft.realInverse(irSpectrum);
 
         // Extract IR
         float[] ir = new float[irLength];
-        System.arraycopy(irReal, 0, ir, 0, irLength);
+        System.arraycopy(irSpectrum, 0, ir, 0, irLength);
 
         return ir;
     }
 
+    /**
+     * Wiener division of two packed spectra: conj(X) * Y / (|X|² + λ).
+     */
+    private float[] wienerDivide(float[] x, float[] y, int fftSize, float regularization) {
+        float[] h = new float[fftSize];
+
+        // DC and Nyquist bins are real
+        h[0] = x[0] * y[0] / (x[0] * x[0] + regularization);
+        h[1] = x[1] * y[1] / (x[1] * x[1] + regularization);
+
+        for (int i = 2; i < fftSize; i += 2) {
+            float xr = x[i];
+            float xi = x[i + 1];
+            float yr = y[i];
+            float yi = y[i + 1];
+
+            float denom = xr * xr + xi * xi + regularization;
+
+            // conj(X) * Y = (xr - j*xi) * (yr + j*yi) = (xr*yr + xi*yi) + j(xr*yi - xi*yr)
+            h[i] = (xr * yr + xi * yi) / denom;
+            h[i + 1] = (xr * yi - xi * yr) / denom;
+        }
+        return h;
+    }
+
     /**
      * Optimized deconvolution for logarithmic sweeps.
      * Uses the inverse sweep filter for cleaner results.
@@ -386,43 +393,32 @@ public class IRGenerator {
         // Create inverse sweep filter
         float[] inverseFilter = createInverseSweepFilter(sweep, sampleRate);
 
-        float[] respReal = new float[fftSize];
-        float[] respImag = new float[fftSize];
-        float[] invReal = new float[fftSize];
-        float[] invImag = new float[fftSize];
-
-        System.arraycopy(response, 0, respReal, 0, Math.min(length, fftSize));
-        System.arraycopy(inverseFilter, 0, invReal, 0, Math.min(inverseFilter.length, fftSize));
+        FFT fft = FFT.forSize(fftSize);
+        float[] irSpectrum = new float[fftSize];
+        float[] invSpectrum = new float[fftSize];
 
-        float[] twiddleReal = new float[fftSize / 2];
-        float[] twiddleImag = new float[fftSize / 2];
-        computeTwiddleFactors(twiddleReal, twiddleImag, fftSize);
+        System.arraycopy(response, 0, irSpectrum, 0, Math.min(length, fftSize));
+        System.arraycopy(inverseFilter, 0, invSpectrum, 0, Math.min(inverseFilter.length, fftSize));
 
         // Forward FFT
-        fft(respReal, respImag, fftSize, twiddleReal, twiddleImag, false);
-        fft(invReal, invImag, fftSize, twiddleReal, twiddleImag, false);
+        fft.realForward(irSpectrum);
+        fft.realForward(invSpectrum);
 
         // Complex multiplication
-        float[] irReal = new float[fftSize];
-        float[] irImag = new float[fftSize];
-
-        for (int i = 0; i < fftSize; i++) {
-            irReal[i] = respReal[i] * invReal[i] - respImag[i] * invImag[i];
-            irImag[i] = respReal[i] * invImag[i] + respImag[i] * invReal[i];
-        }
+        FFT.multiply(irSpectrum, invSpectrum, irSpectrum, fftSize);
 
         // Inverse FFT
-        fft(irReal, irImag, fftSize, twiddleReal, twiddleImag, true);
+        fft.realInverse(irSpectrum);
 
         // Find the peak (should be near the center due to the sweep properties)
-        int peakIdx = findPeak(irReal);
+        int peakIdx = findPeak(irSpectrum);
 
         // Extract IR starting from peak
         float[] ir = new float[irLength];
         for (int i = 0; i < irLength; i++) {
             int idx = peakIdx + i;
             if (idx >= 0 && idx < fftSize) {
-                ir[i] = irReal[idx];
+                ir[i] = irSpectrum[idx];
             }
         }
 
@@ -577,58 +573,47 @@ public class IRGenerator {
      */
     private float[] toMinimumPhase(float[] ir) {
         int fftSize = nextPowerOf2(ir.length * 2);
-
-        float[] real = new float[fftSize];
-        float[] imag = new float[fftSize];
-        System.arraycopy(ir, 0, real, 0, ir.length);
-
-        float[] twiddleReal = new float[fftSize / 2];
-        float[] twiddleImag = new float[fftSize / 2];
-        computeTwiddleFactors(twiddleReal, twiddleImag, fftSize);
-
-        // FFT
-        fft(real, imag, fftSize, twiddleReal, twiddleImag, false);
-
-        // Get magnitude and compute log magnitude
-        float[] logMag = new float[fftSize];
-        for (int i = 0; i < fftSize; i++) {
-            float mag = (float) Math.sqrt(real[i] * real[i] + imag[i] * imag[i]);
-            logMag[i] = (float) Math.log(Math.max(mag, 1e-10));
+        FFT fft = FFT.forSize(fftSize);
+        int half = fftSize / 2;
+
+        float[] spectrum = new float[fftSize];
+        System.arraycopy(ir, 0, spectrum, 0, ir.length);
+        fft.realForward(spectrum);
+
+        // Real cepstrum: inverse FFT of the log magnitude (a real, even spectrum)
+        float[] cepstrum = new float[fftSize];
+        for (int i = 0; i <= half; i++) {
+            float logMag = (float) Math.log(Math.max(FFT.magnitude(spectrum, i, fftSize), 1e-10));
+            if (i == 0) {
+                cepstrum[0] = logMag;
+            } else if (i == half) {
+                cepstrum[1] = logMag;
+            } else {
+                cepstrum[2 * i] = logMag;
+            }
         }
+        fft.realInverse(cepstrum);
 
-        // Hilbert transform of log magnitude to get minimum phase
-        float[] hilbertReal = new float[fftSize];
-        float[] hilbertImag = new float[fftSize];
-        System.arraycopy(logMag, 0, hilbertReal, 0, fftSize);
-
-        fft(hilbertReal, hilbertImag, fftSize, twiddleReal, twiddleImag, false);
-
-        // Apply Hilbert transform in frequency domain
-        for (int i = 1; i < fftSize / 2; i++) {
-            hilbertImag[i] = -hilbertReal[i];
-            hilbertReal[i] = hilbertImag[i];
+        // Fold the anti-causal part onto the causal part
+        for (int i = 1; i < half; i++) {
+            cepstrum[i] *= 2;
         }
-        hilbertReal[0] = hilbertImag[0] = 0;
-        hilbertReal[fftSize/2] = hilbertImag[fftSize/2] = 0;
-
-        fft(hilbertReal, hilbertImag, fftSize, twiddleReal, twiddleImag, true);
+        java.util.Arrays.fill(cepstrum, half + 1, fftSize, 0);
 
-        // Reconstruct minimum phase signal
-        float[] minPhaseReal = new float[fftSize];
-        float[] minPhaseImag = new float[fftSize];
-
-        for (int i = 0; i < fftSize; i++) {
-            float mag = (float) Math.sqrt(real[i] * real[i] + imag[i] * imag[i]);
-            float phase = -hilbertImag[i];  // Minimum phase
-            minPhaseReal[i] = mag * (float) Math.cos(phase);
-            minPhaseImag[i] = mag * (float) Math.sin(phase);
+        // Minimum phase spectrum = exp(FFT(folded cepstrum))
+        fft.realForward(cepstrum);
+        cepstrum[0] = (float) Math.exp(cepstrum[0]);
+        cepstrum[1] = (float) Math.exp(cepstrum[1]);
+        for (int i = 2; i < fftSize; i += 2) {
+            float mag = (float) Math.exp(cepstrum[i]);
+            float phase = cepstrum[i + 1];
+            cepstrum[i] = mag * (float) Math.cos(phase);
+            cepstrum[i + 1] = mag * (float) Math.sin(phase);
         }
-
-        // IFFT
-        fft(minPhaseReal, minPhaseImag, fftSize, twiddleReal, twiddleImag, true);
+        fft.realInverse(cepstrum);
 
         float[] result = new float[ir.length];
-        System.arraycopy(minPhaseReal, 0, result, 0, ir.length);
+        System.arraycopy(cepstrum, 0, result, 0, ir.length);
         return result;
     }
 
@@ -673,12 +658,13 @@ public class IRGenerator {
         }
     }
 
-    private float estimateNoiseFloor(float[] real, float[] imag, int fftSize) {
-        // Estimate noise from high frequency content
+    private float estimateNoiseFloor(float[] spectrum, int fftSize) {
+        // Estimate noise from the upper quarter of the full spectrum
+        // (bins 3N/4 .. N-1 mirror bins N/4 .. 1 of the packed spectrum)
         float sum = 0;
         int count = 0;
-        for (int i = fftSize * 3 / 4; i < fftSize; i++) {
-            sum += (float) Math.sqrt(real[i] * real[i] + imag[i] * imag[i]);
+        for (int i = 1; i <= fftSize / 4; i++) {
+            sum += FFT.magnitude(spectrum, i, fftSize);
             count++;
         }
         return sum / count;
@@ -765,14 +751,9 @@ public class IRGenerator {
 
         // Frequency response estimate
         int fftSize = nextPowerOf2(ir.length);
-        float[] real = new float[fftSize];
-        float[] imag = new float[fftSize];
-        System.arraycopy(ir, 0, real, 0, ir.length);
-
-        float[] twiddleReal = new float[fftSize / 2];
-        float[] twiddleImag = new float[fftSize / 2];
-        computeTwiddleFactors(twiddleReal, twiddleImag, fftSize);
-        fft(real, imag, fftSize, twiddleReal, twiddleImag, false);
+        float[] spectrum = new float[fftSize];
+        System.arraycopy(ir, 0, spectrum, 0, ir.length);
+        FFT.forSize(fftSize).realForward(spectrum);
 
         // Calculate average magnitude in bass, mid, treble
         float bassSum = 0, midSum = 0, trebleSum = 0;
@@ -780,7 +761,7 @@ public class IRGenerator {
 
         for (int i = 1; i < fftSize / 2; i++) {
             float freq = (float) i * sampleRate / fftSize;
-            float mag = (float) Math.sqrt(real[i] * real[i] + imag[i] * imag[i]);
+            float mag = FFT.magnitude(spectrum, i, fftSize);
             float db = 20 * (float) Math.log10(Math.max(mag, 1e-10f));
 
             if (freq < 250) {
@@ -806,71 +787,8 @@ public class IRGenerator {
         System.out.println("  Treble (4-16kHz): " + String.format("%+.1f", trebleAvg - reference) + " dB");
     }
 
-    // ==================== FFT IMPLEMENTATION ====================
-
-    private void fft(float[] real, float[] imag, int n, float[] twiddleReal, float[] twiddleImag, boolean inverse) {
-        int halfN = n / 2;
-
-        // Bit-reversal permutation
-        for (int i = 0, j = 0; i < n; i++) {
-            if (j > i) {
-                float tempR = real[i], tempI = imag[i];
-                real[i] = real[j];
-                imag[i] = imag[j];
-                real[j] = tempR;
-                imag[j] = tempI;
-            }
-            int m = halfN;
-            while (m >= 1 && j >= m) {
-                j -= m;
-                m >>= 1;
-            }
-            j += m;
-        }
-
-        // Cooley-Tukey FFT
-        for (int mmax = 1; mmax < n; mmax <<= 1) {
-            int step = mmax << 1;
-            int twiddleStep = n / step;
-
-            for (int m = 0; m < mmax; m++) {
-                int twiddleIdx = m * twiddleStep;
-                float wr = twiddleReal[twiddleIdx];
-                float wi = inverse ? -twiddleImag[twiddleIdx] : twiddleImag[twiddleIdx];
-
-                for (int i = m; i < n; i += step) {
-                    int j = i + mmax;
-                    float tr = wr * real[j] - wi * imag[j];
-                    float ti = wr * imag[j] + wi * real[j];
-                    real[j] = real[i] - tr;
-                    imag[j] = imag[i] - ti;
-                    real[i] += tr;
-                    imag[i] += ti;
-                }
-            }
-        }
-
-        if (inverse) {
-            float scale = 1.0f / n;
-            for (int i = 0; i < n; i++) {
-                real[i] *= scale;
-                imag[i] *= scale;
-            }
-        }
-    }
-
-    private void computeTwiddleFactors(float[] twiddleReal, float[] twiddleImag, int fftSize) {
-        for (int i = 0; i < fftSize / 2; i++) {
-            double angle = -2.0 * Math.PI * i / fftSize;
-            twiddleReal[i] = (float) Math.cos(angle);
-            twiddleImag[i] = (float) Math.sin(angle);
-        }
-    }
-
     private int nextPowerOf2(int n) {
-        int power = 1;
-        while (power < n) power <<= 1;
-        return power;
+        return FFT.sizeFor(n);
     }
 
     // ==================== FILE I/O ====================
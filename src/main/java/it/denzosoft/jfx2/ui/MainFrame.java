@@ -9,6 +9,8 @@ import it.denzosoft.jfx2.graph.InputNode;
 import it.denzosoft.jfx2.graph.ProcessingNode;
 import it.denzosoft.jfx2.graph.SignalFlowAnalyzer;
 import it.denzosoft.jfx2.graph.SignalGraph;
+import it.denzosoft.jfx2.jmx.JmxRegistry;
+import it.denzosoft.jfx2.jmx.SignalGraphMonitor;
 import it.denzosoft.jfx2.preset.FavoritesManager;
 import it.denzosoft.jfx2.preset.TemplateManager;
 import it.denzosoft.jfx2.preset.Rig;
@@ -87,6 +89,7 @@ public class MainFrame extends JFrame {
         signalGraph = new SignalGraph();
         // Canvas starts empty - user adds Audio Input/Output from effect tree
         audioEngine = new AudioEngine();
+        signalGraph.setDeviceMetrics(audioEngine.getMetrics());
         templateManager = new TemplateManager();
         favoritesManager = new FavoritesManager();
         commandHistory = new CommandHistory(50);  // 50 operations undo stack
@@ -167,6 +170,9 @@ public class MainFrame extends JFrame {
         // ==================== SOUTH: Parameter/Connection Panel ====================
         parameterPanel = new ParameterPanel();
         connectionInfoPanel = new ConnectionInfoPanel();
+        connectionInfoPanel.setNodeProfileSource(
+                nodeId -> signalGraph.isProfilingEnabled() ? signalGraph.getNodeProfile(nodeId) : null);
+        connectionInfoPanel.setSignalSource(channel -> signalGraph.getMonitoredBuffer(channel));
 
         // Create card layout for switching between panels
         bottomCardLayout = new CardLayout();
@@ -205,9 +211,11 @@ public class MainFrame extends JFrame {
                 SignalFlowAnalyzer.SignalType signalType =
                     canvasPanel.getController().getConnectionSignalType(selectedConnection.getId());
                 connectionInfoPanel.setConnection(selectedConnection, signalType);
+                signalGraph.setMonitoredConnection(selectedConnection);
                 bottomCardLayout.show(bottomPanel, "connection");
             } else {
                 connectionInfoPanel.setConnection(null, SignalFlowAnalyzer.SignalType.UNKNOWN);
+                signalGraph.setMonitoredConnection(null);
             }
         });
 
@@ -564,6 +572,10 @@ public class MainFrame extends JFrame {
 
     private void setupStatusBar() {
         statusBarPanel = new StatusBarPanel();
+        statusBarPanel.addPropertyChangeListener("profiling",
+                e -> signalGraph.setProfilingEnabled((Boolean) e.getNewValue()));
+        statusBarPanel.addPropertyChangeListener("deadlineReset",
+                e -> audioEngine.getMetrics().resetSession());
         add(statusBarPanel, BorderLayout.SOUTH);
     }
 
@@ -580,7 +592,13 @@ public class MainFrame extends JFrame {
             // Total latency = I/O latency + effect processing latency
             float ioLatency = (float) audioEngine.getConfig().getEstimatedRoundTripLatencyMs();
             float effectLatency = signalGraph.calculateTotalLatencyMs();
+            statusBarPanel.setDeadlineStats(metrics);
             statusBarPanel.setLatency(ioLatency, effectLatency);
+            // Per-node profiling follows the status bar toggle (also across rig changes)
+            if (statusBarPanel.isProfiling()) {
+                signalGraph.setProfilingEnabled(true);
+                statusBarPanel.setNodeProfiles(signalGraph.getNodeProfiles());
+            }
 
             // Update level meters from signal graph
             statusBarPanel.setInputLevel(signalGraph.getInputLevelDb());
@@ -653,6 +671,7 @@ public class MainFrame extends JFrame {
         }
 
         signalGraph = new SignalGraph();
+        signalGraph.setDeviceMetrics(audioEngine.getMetrics());
         // Canvas starts empty - user adds Audio Input/Output from effect tree
         canvasPanel.setSignalGraph(signalGraph);
         currentRigName = "Untitled";
@@ -923,6 +942,7 @@ public class MainFrame extends JFrame {
                     statusBarPanel.feedInputFFT(magnitudes, numBins, sr, binFreq));
 
             audioEngine.start((input, output, frameCount) -> signalGraph.process(input, output, frameCount));
+            JmxRegistry.register("SignalGraph", new SignalGraphMonitor(() -> signalGraph));
 
             // Check for audio device errors after starting
             String deviceError = signalGraph.getAudioDeviceError();
@@ -1,6 +1,10 @@
 package it.denzosoft.jfx2.ui.dialogs;
 
-import it.denzosoft.jfx2.dsp.FFTConvolver;
+import it.denzosoft.jfx2.audio.IRCache;
+import it.denzosoft.jfx2.audio.IRSamples;
+import it.denzosoft.jfx2.dsp.FFT;
+import it.denzosoft.jfx2.dsp.PartitionedConvolver;
+import it.denzosoft.jfx2.dsp.PartitionedIR;
 import it.denzosoft.jfx2.ui.theme.DarkTheme;
 
 import javax.sound.sampled.*;
@@ -45,8 +49,8 @@ public class IRManagerDialog extends JDialog {
     private volatile boolean isPlaying;
     private Thread playbackThread;
     private SourceDataLine audioLine;
-    private FFTConvolver convolverL;
-    private FFTConvolver convolverR;
+    private PartitionedConvolver convolverL;
+    private PartitionedConvolver convolverR;
     private volatile IRInfo currentIR;
 
     // IR directory
@@ -425,8 +429,8 @@ public class IRManagerDialog extends JDialog {
             audioLine.open(format, BUFFER_SIZE * 4);
             audioLine.start();
 
-            convolverL = new FFTConvolver();
-            convolverR = new FFTConvolver();
+            convolverL = new PartitionedConvolver();
+            convolverR = new PartitionedConvolver();
 
             loadIRForPlayback(ir);
 
@@ -448,56 +452,16 @@ public class IRManagerDialog extends JDialog {
         currentIR = ir;
 
         try {
-            AudioInputStream audioStream = AudioSystem.getAudioInputStream(ir.path.toFile());
-            AudioFormat format = audioStream.getFormat();
-
-            AudioFormat targetFormat = new AudioFormat(SAMPLE_RATE, 16, format.getChannels(), true, false);
-            if (!format.matches(targetFormat)) {
-                audioStream = AudioSystem.getAudioInputStream(targetFormat, audioStream);
-                format = targetFormat;
-            }
-
-            byte[] audioBytes = audioStream.readAllBytes();
-            audioStream.close();
-
-            int bytesPerFrame = format.getFrameSize();
-            int irLength = audioBytes.length / bytesPerFrame;
-            boolean irStereo = format.getChannels() >= 2;
-
-            float[] irDataL = new float[irLength];
-            float[] irDataR = new float[irLength];
-
-            for (int i = 0; i < irLength; i++) {
-                int pos = i * bytesPerFrame;
-                int lo = audioBytes[pos] & 0xFF;
-                int hi = audioBytes[pos + 1];
-                irDataL[i] = (short) ((hi << 8) | lo) / 32768.0f;
-
-                if (irStereo) {
-                    lo = audioBytes[pos + 2] & 0xFF;
-                    hi = audioBytes[pos + 3];
-                    irDataR[i] = (short) ((hi << 8) | lo) / 32768.0f;
-                } else {
-                    irDataR[i] = irDataL[i];
-                }
-            }
-
-            float peak = 0;
-            for (int i = 0; i < irLength; i++) {
-                peak = Math.max(peak, Math.abs(irDataL[i]));
-                peak = Math.max(peak, Math.abs(irDataR[i]));
-            }
-            if (peak > 0.001f) {
-                float scale = 0.5f / peak;
-                for (int i = 0; i < irLength; i++) {
-                    irDataL[i] *= scale;
-                    irDataR[i] *= scale;
-                }
-            }
+            // Same decoding and partition spectra as the IR Loader effect, shared through the cache
+            IRCache cache = IRCache.getInstance();
+            IRSamples samples = cache.getSamples(ir.path, SAMPLE_RATE);
+            int irLength = samples.length();
+            PartitionedIR irL = cache.getPartitions(samples, IRSamples.LEFT, 0, irLength, irLength, BUFFER_SIZE);
+            PartitionedIR irR = cache.getPartitions(samples, IRSamples.RIGHT, 0, irLength, irLength, BUFFER_SIZE);
 
             synchronized (this) {
-                convolverL.prepare(irDataL, irLength, BUFFER_SIZE);
-                convolverR.prepare(irDataR, irLength, BUFFER_SIZE);
+                convolverL.prepare(irL);
+                convolverR.prepare(irR);
             }
 
         } catch (Exception e) {
@@ -612,7 +576,6 @@ public class IRManagerDialog extends JDialog {
             // Use power of 2 FFT size
             int fftSize = 2048;
             float[] real = new float[fftSize];
-            float[] imag = new float[fftSize];
 
             // Copy data with windowing (Hann window)
             int copyLen = Math.min(data.length, fftSize);
@@ -621,16 +584,10 @@ public class IRManagerDialog extends JDialog {
                 real[i] = data[i] * window;
             }
 
-            // Simple DFT (for visualization only)
+            FFT.forSize(fftSize).realForward(real);
             float[] magnitude = new float[fftSize / 2];
             for (int k = 0; k < fftSize / 2; k++) {
-                float re = 0, im = 0;
-                for (int n = 0; n < fftSize; n++) {
-                    float angle = (float) (2 * Math.PI * k * n / fftSize);
-                    re += real[n] * Math.cos(angle);
-                    im -= real[n] * Math.sin(angle);
-                }
-                magnitude[k] = (float) Math.sqrt(re * re + im * im);
+                magnitude[k] = FFT.magnitude(real, k, fftSize);
             }
 
             // Convert to dB
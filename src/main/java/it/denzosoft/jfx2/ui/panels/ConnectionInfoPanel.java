@@ -1,7 +1,8 @@
 package it.denzosoft.jfx2.ui.panels;
 
+import it.denzosoft.jfx2.dsp.FFT;
 import it.denzosoft.jfx2.graph.Connection;
-import it.denzosoft.jfx2.graph.Port;
+import it.denzosoft.jfx2.graph.NodeProfile;
 import it.denzosoft.jfx2.graph.SignalFlowAnalyzer;
 import it.denzosoft.jfx2.ui.theme.DarkTheme;
 
@@ -9,10 +10,15 @@ import javax.swing.*;
 import java.awt.*;
 import java.awt.geom.Path2D;
 import java.util.Arrays;
+import java.util.function.Function;
+import java.util.function.IntFunction;
 
 /**
  * Panel that displays connection information including signal type,
  * real-time waveform, and FFT visualization.
+ *
+ * <p>While node profiling is on, the header also shows the processing time
+ * of the source and target nodes of the connection.</p>
  */
 public class ConnectionInfoPanel extends JPanel {
 
@@ -30,6 +36,7 @@ public class ConnectionInfoPanel extends JPanel {
     private JPanel headerPanel;
     private JLabel connectionLabel;
     private JLabel signalTypeLabel;
+    private JLabel profileLabel;
     private WaveformPanel waveformPanel;
     private FFTPanel fftPanel;
     private JPanel placeholderPanel;
@@ -44,6 +51,12 @@ public class ConnectionInfoPanel extends JPanel {
     private Timer updateTimer;
     private static final int UPDATE_INTERVAL_MS = 33; // ~30 FPS
 
+    // ==================== NODE PROFILING ====================
+    private transient Function<String, NodeProfile> nodeProfileSource;
+    private transient IntFunction<float[]> signalSource;
+    private int profileTicks;
+    private static final int PROFILE_UPDATE_TICKS = 10; // ~3 updates per second
+
     public ConnectionInfoPanel() {
         setLayout(new BorderLayout());
         setBackground(DarkTheme.BG_LIGHT);
@@ -83,7 +96,13 @@ public class ConnectionInfoPanel extends JPanel {
         leftPanel.add(connectionLabel);
         leftPanel.add(signalTypeLabel);
 
+        // Right: processing time of the connected nodes (when profiling)
+        profileLabel = new JLabel("");
+        profileLabel.setFont(DarkTheme.FONT_SMALL);
+        profileLabel.setForeground(DarkTheme.TEXT_SECONDARY);
+
         headerPanel.add(leftPanel, BorderLayout.CENTER);
+        headerPanel.add(profileLabel, BorderLayout.EAST);
     }
 
     /**
@@ -186,10 +205,54 @@ public class ConnectionInfoPanel extends JPanel {
         };
         signalTypeLabel.setText(" [" + typeText + "]");
         signalTypeLabel.setForeground(isStereo ? DarkTheme.CONNECTION_STEREO : DarkTheme.CONNECTION_MONO);
+        profileLabel.setText("");
+        profileTicks = PROFILE_UPDATE_TICKS;
 
         showConnectionInfo();
     }
 
+    /**
+     * Set where node processing times come from (returns null for nodes that
+     * are not being profiled).
+     */
+    public void setNodeProfileSource(Function<String, NodeProfile> source) {
+        this.nodeProfileSource = source;
+    }
+
+    /**
+     * Set where the latest block of the connection's signal comes from, per
+     * channel (0 = left, 1 = right; returns null when there is none).
+     */
+    public void setSignalSource(IntFunction<float[]> source) {
+        this.signalSource = source;
+    }
+
+    /**
+     * Show the processing time of the source and target nodes.
+     */
+    private void updateProfile() {
+        if (nodeProfileSource == null) {
+            return;
+        }
+        NodeProfile source = nodeProfileSource.apply(currentConnection.getSourceNode().getId());
+        NodeProfile target = nodeProfileSource.apply(currentConnection.getTargetNode().getId());
+        if (source == null && target == null) {
+            profileLabel.setText("");
+            profileLabel.setToolTipText(null);
+            return;
+        }
+        profileLabel.setText(formatProfile(source) + "  →  " + formatProfile(target));
+        profileLabel.setToolTipText("Node processing time: mean / p99 / max, share of the block");
+    }
+
+    private static String formatProfile(NodeProfile profile) {
+        if (profile == null) {
+            return "-";
+        }
+        return String.format("%.0f / %.0f / %.0f µs (%.1f%%)",
+                profile.meanMicros(), profile.p99Micros(), profile.maxMicros(), profile.budgetPercent());
+    }
+
     /**
      * Update visualization from current connection buffer.
      */
@@ -198,20 +261,23 @@ public class ConnectionInfoPanel extends JPanel {
             return;
         }
 
-        Port sourcePort = currentConnection.getSourcePort();
-        if (sourcePort == null) {
+        if (++profileTicks >= PROFILE_UPDATE_TICKS) {
+            profileTicks = 0;
+            updateProfile();
+        }
+
+        if (signalSource == null) {
             return;
         }
 
-        float[] buffer = sourcePort.getBuffer();
+        float[] buffer = signalSource.apply(0);
         if (buffer == null || buffer.length == 0) {
             return;
         }
 
         if (isStereo) {
-            // Stereo: buffer is interleaved (L, R, L, R, ...)
-            int frameCount = buffer.length / 2;
-            int len = Math.min(frameCount, 1024);
+            // Stereo: planar buffers, one per channel
+            int len = Math.min(buffer.length, 1024);
 
             if (waveformBufferL == null || waveformBufferL.length != len) {
                 waveformBufferL = new float[len];
@@ -219,11 +285,8 @@ public class ConnectionInfoPanel extends JPanel {
                 fftMagnitudes = new float[FFT_BINS];
             }
 
-            // Deinterleave stereo buffer
-            for (int i = 0; i < len && i * 2 + 1 < buffer.length; i++) {
-                waveformBufferL[i] = buffer[i * 2];       // Left channel
-                waveformBufferR[i] = buffer[i * 2 + 1];   // Right channel
-            }
+            System.arraycopy(buffer, 0, waveformBufferL, 0, len);
+            System.arraycopy(signalSource.apply(1), 0, waveformBufferR, 0, len);
         } else {
             // Mono: buffer is single channel
             int len = Math.min(buffer.length, 1024);
@@ -247,26 +310,22 @@ public class ConnectionInfoPanel extends JPanel {
     }
 
     // FFT work arrays (reused to avoid allocations)
-    private double[] fftReal;
-    private double[] fftImag;
+    private float[] fftSpectrum;
     private double[] fftMagLinear;
 
     /**
      * Compute FFT and map to logarithmic display.
-     * Uses Cooley-Tukey radix-2 FFT algorithm.
      */
     private void computeFFT(float[] input, float[] magnitudes) {
         int n = input.length;
         int sampleRate = 44100;
 
         // Find next power of 2 for FFT
-        int fftSize = 1;
-        while (fftSize < n) fftSize *= 2;
+        int fftSize = FFT.sizeFor(n);
 
         // Allocate work arrays if needed
-        if (fftReal == null || fftReal.length != fftSize) {
-            fftReal = new double[fftSize];
-            fftImag = new double[fftSize];
+        if (fftSpectrum == null || fftSpectrum.length != fftSize) {
+            fftSpectrum = new float[fftSize];
             fftMagLinear = new double[fftSize / 2];
         }
 
@@ -274,20 +333,18 @@ public class ConnectionInfoPanel extends JPanel {
         for (int i = 0; i < fftSize; i++) {
             if (i < n) {
                 double window = 0.5 * (1 - Math.cos(2 * Math.PI * i / (n - 1)));
-                fftReal[i] = input[i] * window;
+                fftSpectrum[i] = (float) (input[i] * window);
             } else {
-                fftReal[i] = 0; // Zero padding
+                fftSpectrum[i] = 0; // Zero padding
             }
-            fftImag[i] = 0;
         }
 
-        // Compute FFT in-place (Cooley-Tukey radix-2)
-        fftInPlace(fftReal, fftImag, fftSize);
+        // Compute FFT in-place
+        FFT.forSize(fftSize).realForward(fftSpectrum);
 
         // Compute magnitude spectrum (linear bins)
         for (int k = 0; k < fftSize / 2; k++) {
-            double mag = Math.sqrt(fftReal[k] * fftReal[k] + fftImag[k] * fftImag[k]) / fftSize;
-            fftMagLinear[k] = mag;
+            fftMagLinear[k] = (double) FFT.magnitude(fftSpectrum, k, fftSize) / fftSize;
         }
 
         // Map linear FFT bins to logarithmic output bins
@@ -319,60 +376,6 @@ public class ConnectionInfoPanel extends JPanel {
         }
     }
 
-    /**
-     * In-place Cooley-Tukey radix-2 FFT.
-     */
-    private void fftInPlace(double[] real, double[] imag, int n) {
-        // Bit-reversal permutation
-        int j = 0;
-        for (int i = 0; i < n - 1; i++) {
-            if (i < j) {
-                double tempR = real[i];
-                double tempI = imag[i];
-                real[i] = real[j];
-                imag[i] = imag[j];
-                real[j] = tempR;
-                imag[j] = tempI;
-            }
-            int k = n / 2;
-            while (k <= j) {
-                j -= k;
-                k /= 2;
-            }
-            j += k;
-        }
-
-        // Cooley-Tukey decimation-in-time
-        for (int len = 2; len <= n; len *= 2) {
-            double angle = -2 * Math.PI / len;
-            double wR = Math.cos(angle);
-            double wI = Math.sin(angle);
-
-            for (int i = 0; i < n; i += len) {
-                double curR = 1.0;
-                double curI = 0.0;
-
-                for (int k = 0; k < len / 2; k++) {
-                    int u = i + k;
-                    int v = i + k + len / 2;
-
-                    double tR = curR * real[v] - curI * imag[v];
-                    double tI = curR * imag[v] + curI * real[v];
-
-                    real[v] = real[u] - tR;
-                    imag[v] = imag[u] - tI;
-                    real[u] = real[u] + tR;
-                    imag[u] = imag[u] + tI;
-
-                    double nextR = curR * wR - curI * wI;
-                    double nextI = curR * wI + curI * wR;
-                    curR = nextR;
-                    curI = nextI;
-                }
-            }
-        }
-    }
-
     /**
      * Stop the update timer when panel is not visible.
      */
@@ -100,7 +100,7 @@ public class SignalWaveformPanel extends JPanel {
 
     /**
      * Add new samples to the waveform history (stereo version).
-     * Called from the audio processing thread.
+     * Called from the analysis thread.
      */
     public void addSamples(float[] inputL, float[] inputR, float[] outputL, float[] outputR, int count) {
         // For stereo, use max of L and R channels
@@ -127,7 +127,7 @@ public class SignalWaveformPanel extends JPanel {
 
     /**
      * Add mono samples to the waveform history.
-     * Called from the audio processing thread.
+     * Called from the analysis thread.
      */
     public void addSamplesMono(float[] input, float[] output, int count) {
         for (int i = 0; i < count; i++) {
@@ -1,5 +1,6 @@
 package it.denzosoft.jfx2.ui.panels;
 
+import it.denzosoft.jfx2.dsp.FFT;
 import it.denzosoft.jfx2.ui.theme.DarkTheme;
 
 import javax.swing.*;
@@ -27,6 +28,9 @@ public class SpectrumBandsPanel extends JPanel {
     private static final long PEAK_HOLD_MS = 500;
 
     // FFT buffers
+    private final transient FFT fft = FFT.forSize(FFT_SIZE);
+    private final float[] window = hannWindow(FFT_SIZE);
+    private final float[] spectrum = new float[FFT_SIZE];
     private final float[] inputBuffer = new float[FFT_SIZE];
     private final float[] outputBuffer = new float[FFT_SIZE];
     private int inputBufferPos = 0;
@@ -122,55 +126,23 @@ public class SpectrumBandsPanel extends JPanel {
         }
     }
 
+    private static float[] hannWindow(int size) {
+        float[] window = new float[size];
+        for (int i = 0; i < size; i++) {
+            window[i] = 0.5f * (1 - (float) Math.cos(2 * Math.PI * i / (size - 1)));
+        }
+        return window;
+    }
+
     /**
      * Compute FFT and extract band values.
      */
     private void computeFFT(float[] samples, float[] bands, float[] peaks, long[] peakTimes) {
         // Apply Hann window
-        float[] real = new float[FFT_SIZE];
-        float[] imag = new float[FFT_SIZE];
-
         for (int i = 0; i < FFT_SIZE; i++) {
-            float window = 0.5f * (1 - (float) Math.cos(2 * Math.PI * i / (FFT_SIZE - 1)));
-            real[i] = samples[i] * window;
-        }
-
-        // Cooley-Tukey FFT
-        int bits = (int) (Math.log(FFT_SIZE) / Math.log(2));
-
-        // Bit-reversal permutation
-        for (int i = 0; i < FFT_SIZE; i++) {
-            int j = Integer.reverse(i) >>> (32 - bits);
-            if (j > i) {
-                float temp = real[i];
-                real[i] = real[j];
-                real[j] = temp;
-            }
-        }
-
-        // FFT butterfly operations
-        for (int size = 2; size <= FFT_SIZE; size *= 2) {
-            int halfSize = size / 2;
-            float angle = (float) (-2 * Math.PI / size);
-
-            for (int i = 0; i < FFT_SIZE; i += size) {
-                for (int j = 0; j < halfSize; j++) {
-                    float cos = (float) Math.cos(angle * j);
-                    float sin = (float) Math.sin(angle * j);
-
-                    int idx1 = i + j;
-                    int idx2 = i + j + halfSize;
-
-                    float tReal = real[idx2] * cos - imag[idx2] * sin;
-                    float tImag = real[idx2] * sin + imag[idx2] * cos;
-
-                    real[idx2] = real[idx1] - tReal;
-                    imag[idx2] = imag[idx1] - tImag;
-                    real[idx1] = real[idx1] + tReal;
-                    imag[idx1] = imag[idx1] + tImag;
-                }
-            }
+            spectrum[i] = samples[i] * window[i];
         }
+        fft.realForward(spectrum);
 
         // Calculate band magnitudes
         float binFrequency = (float) sampleRate / FFT_SIZE;
@@ -188,7 +160,7 @@ public class SpectrumBandsPanel extends JPanel {
             float sumMag = 0;
             int binCount = 0;
             for (int b = binLo; b <= binHi && b < numFFTBins; b++) {
-                float mag = (float) Math.sqrt(real[b] * real[b] + imag[b] * imag[b]);
+                float mag = FFT.magnitude(spectrum, b, FFT_SIZE);
                 sumMag += mag;
                 binCount++;
             }
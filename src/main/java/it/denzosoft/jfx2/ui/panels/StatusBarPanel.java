@@ -1,14 +1,27 @@
 package it.denzosoft.jfx2.ui.panels;
 
+import it.denzosoft.jfx2.audio.AudioMetrics;
+import it.denzosoft.jfx2.audio.LatencyHistogram;
+import it.denzosoft.jfx2.graph.NodeProfile;
 import it.denzosoft.jfx2.ui.icons.IconFactory;
 import it.denzosoft.jfx2.ui.theme.DarkTheme;
 
 import javax.swing.*;
 import java.awt.*;
+import java.awt.event.MouseAdapter;
+import java.awt.event.MouseEvent;
 import java.util.Arrays;
+import java.util.List;
 
 /**
  * Status bar panel showing audio engine status, CPU usage, signal monitor, and level meters.
+ *
+ * <p>Clicking the DSP load toggles per-node profiling (fires a "profiling"
+ * property change); while it is on, the tooltip lists the most expensive nodes.</p>
+ *
+ * <p>The latency tooltip includes the engine's deadline monitor (processing
+ * time and callback period percentiles, overruns and line xruns); clicking the
+ * latency starts a new measurement session (fires "deadlineReset").</p>
  */
 public class StatusBarPanel extends JPanel {
 
@@ -18,6 +31,8 @@ public class StatusBarPanel extends JPanel {
     private float inputLevel = -60f;  // dB
     private float outputLevel = -60f; // dB
     private boolean engineRunning = false;
+    private boolean profiling = false;
+    private String deadlineHtml = "";
 
     // ==================== UI COMPONENTS ====================
     private JLabel statusLabel;
@@ -30,6 +45,8 @@ public class StatusBarPanel extends JPanel {
 
     // ==================== CONSTANTS ====================
     private static final int HEIGHT = 28;
+    private static final int PROFILE_TOOLTIP_NODES = 8;
+    private static final String CPU_TOOLTIP = "DSP Load (click to profile nodes)";
 
     public StatusBarPanel() {
         setLayout(new GridBagLayout());
@@ -119,13 +136,28 @@ public class StatusBarPanel extends JPanel {
         cpuLabel = new JLabel("0%", JLabel.CENTER);
         cpuLabel.setFont(DarkTheme.FONT_SMALL);
         cpuLabel.setForeground(DarkTheme.TEXT_SECONDARY);
-        cpuLabel.setToolTipText("DSP Load");
+        cpuLabel.setToolTipText(CPU_TOOLTIP);
+        cpuLabel.setCursor(Cursor.getPredefinedCursor(Cursor.HAND_CURSOR));
+        cpuLabel.addMouseListener(new MouseAdapter() {
+            @Override
+            public void mouseClicked(MouseEvent e) {
+                setProfiling(!profiling);
+                firePropertyChange("profiling", !profiling, profiling);
+            }
+        });
         panel.add(cpuLabel);
 
         latencyLabel = new JLabel("0ms", JLabel.CENTER);
         latencyLabel.setFont(DarkTheme.FONT_SMALL);
         latencyLabel.setForeground(DarkTheme.TEXT_SECONDARY);
         latencyLabel.setToolTipText("Total Latency (I/O + Effects)");
+        latencyLabel.setCursor(Cursor.getPredefinedCursor(Cursor.HAND_CURSOR));
+        latencyLabel.addMouseListener(new MouseAdapter() {
+            @Override
+            public void mouseClicked(MouseEvent e) {
+                firePropertyChange("deadlineReset", false, true);
+            }
+        });
         panel.add(latencyLabel);
 
         return panel;
@@ -209,6 +241,71 @@ public class StatusBarPanel extends JPanel {
         }
     }
 
+    /**
+     * Show whether per-node profiling is on.
+     */
+    public void setProfiling(boolean enabled) {
+        this.profiling = enabled;
+        cpuLabel.setFont(enabled ? DarkTheme.FONT_SMALL.deriveFont(Font.BOLD) : DarkTheme.FONT_SMALL);
+        if (!enabled) {
+            cpuLabel.setToolTipText(CPU_TOOLTIP);
+        }
+    }
+
+    public boolean isProfiling() {
+        return profiling;
+    }
+
+    /**
+     * Show the most expensive nodes in the DSP load tooltip.
+     *
+     * @param profiles Node timings, most expensive first
+     */
+    public void setNodeProfiles(List<NodeProfile> profiles) {
+        if (!profiling) {
+            return;
+        }
+        StringBuilder sb = new StringBuilder("<html>DSP Load per node (mean / p99 / max):");
+        if (profiles.isEmpty()) {
+            sb.append("<br>  (no data yet)");
+        }
+        for (int i = 0; i < profiles.size() && i < PROFILE_TOOLTIP_NODES; i++) {
+            NodeProfile p = profiles.get(i);
+            sb.append(String.format("<br>%s: %.1f%% - %.0f / %.0f / %.0f us",
+                    escapeHtml(p.nodeName()), p.budgetPercent(), p.meanMicros(), p.p99Micros(), p.maxMicros()));
+        }
+        sb.append("<br>(click to stop profiling)</html>");
+        cpuLabel.setToolTipText(sb.toString());
+    }
+
+    /**
+     * Show the deadline monitor of the engine in the latency tooltip
+     * (taken over on the next latency update).
+     *
+     * @param metrics Engine metrics
+     */
+    public void setDeadlineStats(AudioMetrics metrics) {
+        LatencyHistogram processing = metrics.getProcessingTimes();
+        LatencyHistogram period = metrics.getCallbackPeriods();
+        deadlineHtml = String.format(
+                "<br>Block deadline: %.2f ms<br>" +
+                "  Processing p99 / p99.9 / max: %.2f / %.2f / %.2f ms<br>" +
+                "  Period p99 / p99.9 / max: %.2f / %.2f / %.2f ms<br>" +
+                "  Deadline overruns: %d<br>" +
+                "  Input overruns / output underruns: %d / %d<br>" +
+                "(click to reset)",
+                metrics.getDeadlineNanos() / 1e6,
+                processing.getPercentileNanos(99) / 1e6, processing.getPercentileNanos(99.9) / 1e6,
+                processing.getMaxNanos() / 1e6,
+                period.getPercentileNanos(99) / 1e6, period.getPercentileNanos(99.9) / 1e6,
+                period.getMaxNanos() / 1e6,
+                metrics.getDeadlineOverruns(), metrics.getInputOverruns(), metrics.getOutputUnderruns());
+    }
+
+    private static String escapeHtml(String text) {
+        return text.replace("&", "&amp;").replace("<", "&lt;").replace(">", "&gt;");
+    }
+
     /**
      * Set latency in milliseconds.
      */
@@ -241,8 +338,8 @@ public class StatusBarPanel extends JPanel {
         latencyLabel.setToolTipText(String.format(
                 "<html>Total Latency: %.1f ms<br>" +
                 "  I/O Buffer: %.1f ms<br>" +
-                "  Effects: %.1f ms</html>",
-                totalMs, ioMs, effectMs));
+                "  Effects: %.1f ms%s</html>",
+                totalMs, ioMs, effectMs, deadlineHtml));
 
         // Color based on latency
         if (totalMs > 20) {
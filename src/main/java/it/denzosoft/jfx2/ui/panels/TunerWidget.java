@@ -48,7 +48,7 @@ public class TunerWidget extends JPanel {
 
     /**
      * Feed audio samples to the tuner for analysis.
-     * Call this from the audio thread with input samples.
+     * Call this from the analysis thread with input samples.
      */
     public void feedAudio(float[] samples, int length) {
         // Copy samples to analysis buffer